@@ -1,13 +1,17 @@
 package me.unp0wnable.groupeo;
 
+import me.unp0wnable.groupeo.model.services.BCryptCostCalibrator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 @SpringBootApplication
+@EnableScheduling
 public class GroupeoBackendApplication {
 
 	/* ***** Global application dependencies injections ***** */
@@ -21,8 +25,13 @@ public class GroupeoBackendApplication {
 	}
 	
 	@Bean
-	public BCryptPasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+	public BCryptPasswordEncoder passwordEncoder(@Value("${project.passwords.bcrypt.targetMillis}") long targetMillis,
+												 @Value("${project.passwords.bcrypt.minCost}") int minCost,
+												 @Value("${project.passwords.bcrypt.maxCost}") int maxCost) {
+		// El coste se ajusta al hardware en el que se arranca el servicio
+		int strength = BCryptCostCalibrator.calibrate(targetMillis, minCost, maxCost);
+		
+		return new BCryptPasswordEncoder(strength);
 	}
 	
 	/* ***** Application entry point ***** */
@@ -0,0 +1,107 @@
+package me.unp0wnable.groupeo.model.datasource;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import me.unp0wnable.groupeo.model.utils.DecayingAverage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registra las métricas de un pool de conexiones (<c>hikaricp.connections.*</c>: activas, libres, hilos esperando y
+ * tiempo de espera) y calcula además su espera media reciente, para saber cuándo está saturado.
+ * <p>
+ * Solo se instala en el pool de la base de datos principal: las réplicas caídas o lentas no deben provocar el rechazo
+ * de peticiones, ya que las lecturas se envían a otra base de datos. Una petición que agota el tiempo de espera cuenta
+ * como una espera de ese tiempo.
+ */
+public class ConnectionPoolMonitor implements MetricsTrackerFactory {
+    private static final String METRICS_PREFIX = "groupeo.datasource.pool";
+    
+    private final MicrometerMetricsTrackerFactory micrometerFactory;
+    private final MeterRegistry meterRegistry;
+    private final String poolName;
+    private final double maxAverageWaitMillis;
+    private final long connectionTimeoutMillis;
+    private final DecayingAverage waitAverage;
+    
+    
+    /**
+     * @param meterRegistry Registro de métricas
+     * @param poolName Nombre del pool en el que se instala
+     * @param averageWindowMillis Ventana de la media de espera
+     * @param maxAverageWaitMillis Espera media a partir de la cual el pool se considera saturado
+     * @param connectionTimeoutMillis Tiempo máximo de espera del pool
+     */
+    public ConnectionPoolMonitor(MeterRegistry meterRegistry, String poolName, long averageWindowMillis,
+                                 long maxAverageWaitMillis, long connectionTimeoutMillis) {
+        this.micrometerFactory = new MicrometerMetricsTrackerFactory(meterRegistry);
+        this.meterRegistry = meterRegistry;
+        this.poolName = poolName;
+        this.maxAverageWaitMillis = maxAverageWaitMillis;
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+        this.waitAverage = new DecayingAverage(TimeUnit.MILLISECONDS.toNanos(averageWindowMillis), System::nanoTime);
+    }
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    /** Indica si la espera media para obtener conexión del pool supera el máximo */
+    public boolean isSaturated() {
+        return getAverageWaitMillis() > maxAverageWaitMillis;
+    }
+    
+    /** Espera media reciente del pool en milisegundos */
+    public double getAverageWaitMillis() {
+        return waitAverage.get();
+    }
+    
+    
+    /* *********************************** UPDATES *********************************** */
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        if (!this.poolName.equals(poolName)) {
+            throw new IllegalStateException("Connection pool monitor for " + this.poolName + " installed in pool "
+                                                    + poolName);
+        }
+        
+        IMetricsTracker micrometerTracker = micrometerFactory.create(poolName, poolStats);
+        Gauge.builder(METRICS_PREFIX + ".wait.average", waitAverage, DecayingAverage::get)
+             .description("Espera media reciente para obtener una conexión del pool")
+             .tag("pool", poolName)
+             .baseUnit("milliseconds")
+             .register(meterRegistry);
+        
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                micrometerTracker.recordConnectionCreatedMillis(connectionCreatedMillis);
+            }
+            
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                micrometerTracker.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+                waitAverage.add(elapsedAcquiredNanos / (double) TimeUnit.MILLISECONDS.toNanos(1), elapsedAcquiredNanos);
+            }
+            
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                micrometerTracker.recordConnectionUsageMillis(elapsedBorrowedMillis);
+            }
+            
+            @Override
+            public void recordConnectionTimeout() {
+                micrometerTracker.recordConnectionTimeout();
+                waitAverage.add(connectionTimeoutMillis, TimeUnit.MILLISECONDS.toNanos(connectionTimeoutMillis));
+            }
+            
+            @Override
+            public void close() {
+                micrometerTracker.close();
+            }
+        };
+    }
+    
+}
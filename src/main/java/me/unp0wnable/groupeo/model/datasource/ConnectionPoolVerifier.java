@@ -0,0 +1,93 @@
+package me.unp0wnable.groupeo.model.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * Comprueba al arrancar que la configuración de los pools de conexiones es la esperada, y la muestra en el log.
+ * <p>
+ * Falla si se configuran pools de otro tipo (por ejemplo <c>spring.datasource.tomcat.*</c>), ya que sus propiedades
+ * se ignorarían sin avisar, o si los límites del pool no son coherentes.
+ */
+@Slf4j
+@Component
+public class ConnectionPoolVerifier {
+    /** Propiedades de pools de conexiones que no se usan */
+    private static final String[] IGNORED_POOL_PREFIXES = {
+            "spring.datasource.tomcat", "spring.datasource.dbcp2", "spring.datasource.oracleucp"
+    };
+    private static final String MAX_CONNECTIONS_QUERY = "SELECT CAST(current_setting('max_connections') AS INTEGER)";
+    
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+    @Autowired
+    private Environment environment;
+    
+    
+    @PostConstruct
+    public void verify() {
+        // Comprobar que no se configuran pools que no se usan
+        Binder binder = Binder.get(environment);
+        for (String prefix : IGNORED_POOL_PREFIXES) {
+            if (binder.bind(prefix, Bindable.mapOf(String.class, Object.class)).isBound()) {
+                throw new IllegalStateException(prefix + ".* properties are ignored by HikariCP; "
+                                                        + "configure the pool with spring.datasource.hikari.* instead");
+            }
+        }
+        
+        // Comprobar cada pool: el de la principal debe funcionar, las réplicas pueden no estar disponibles todavía
+        for (Map.Entry<Object, DataSource> target : routingDataSource.getResolvedDataSources().entrySet()) {
+            if (!(target.getValue() instanceof HikariDataSource)) {
+                throw new IllegalStateException("Unexpected connection pool " + target.getValue().getClass().getName());
+            }
+            
+            boolean primary = ReadWriteRoutingDataSource.PRIMARY_KEY.equals(target.getKey());
+            verifyPool((HikariDataSource) target.getValue(), primary);
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private void verifyPool(HikariDataSource pool, boolean required) {
+        int maximumPoolSize = pool.getMaximumPoolSize();
+        int minimumIdle = pool.getMinimumIdle();
+        if (maximumPoolSize < 1 || minimumIdle > maximumPoolSize) {
+            throw new IllegalStateException("Invalid connection pool " + pool.getPoolName() + ": minimumIdle "
+                                                    + minimumIdle + ", maximumPoolSize " + maximumPoolSize);
+        }
+        log.info("Connection pool {}: maximumPoolSize={}, minimumIdle={}, connectionTimeout={} ms, "
+                         + "idleTimeout={} ms, maxLifetime={} ms, leakDetectionThreshold={} ms",
+                 pool.getPoolName(), maximumPoolSize, minimumIdle, pool.getConnectionTimeout(),
+                 pool.getIdleTimeout(), pool.getMaxLifetime(), pool.getLeakDetectionThreshold());
+        
+        // Abrir una conexión arranca el pool y confirma que el servidor admite tantas conexiones
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(MAX_CONNECTIONS_QUERY)) {
+            result.next();
+            int maxConnections = result.getInt(1);
+            if (maximumPoolSize >= maxConnections) {
+                log.warn("Connection pool {} allows {} connections but the server only accepts {}",
+                         pool.getPoolName(), maximumPoolSize, maxConnections);
+            }
+        } catch (SQLException e) {
+            if (required) throw new IllegalStateException("Unable to connect with pool " + pool.getPoolName(), e);
+            log.warn("Unable to connect with pool {}, it will be retried when used", pool.getPoolName(), e);
+        }
+    }
+    
+}
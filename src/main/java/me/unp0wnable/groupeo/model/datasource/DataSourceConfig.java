@@ -0,0 +1,132 @@
+package me.unp0wnable.groupeo.model.datasource;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configura el acceso a la base de datos principal y a sus réplicas de solo lectura.
+ * <p>
+ * Cada réplica tiene su propio pool, con los mismos límites que el de la principal pero un tiempo de espera corto para
+ * obtener conexiones: una réplica caída no debe impedir el arranque ni retener las peticiones, que se envían a otra
+ * base de datos en cuanto se detecta. Sin réplicas configuradas todas las transacciones se envían a la principal.
+ */
+@Configuration
+public class DataSourceConfig {
+    private static final String PRIMARY_POOL_NAME = "primary";
+    
+    @Value("${project.datasource.replicas.urls}")
+    private List<String> replicaUrls;
+    @Value("${project.datasource.replicas.username:${spring.datasource.username}}")
+    private String replicaUsername;
+    @Value("${project.datasource.replicas.password:${spring.datasource.password}}")
+    private String replicaPassword;
+    @Value("${project.datasource.replicas.connectionTimeoutMillis}")
+    private long replicaConnectionTimeoutMillis;
+    @Value("${project.datasource.routing.maxReplicaLagMillis}")
+    private long maxReplicaLagMillis;
+    @Value("${project.datasource.routing.lagCheckIntervalMillis}")
+    private long lagCheckIntervalMillis;
+    @Value("${project.datasource.routing.staleLagChecks}")
+    private long staleLagChecks;
+    @Value("${project.datasource.routing.readYourWritesMillis}")
+    private long readYourWritesMillis;
+    @Value("${spring.datasource.hikari.connection-timeout}")
+    private long connectionTimeoutMillis;
+    @Value("${project.datasource.loadShedding.averageWindowMillis}")
+    private long averageWaitWindowMillis;
+    @Value("${project.datasource.loadShedding.maxAverageWaitMillis}")
+    private long maxAverageWaitMillis;
+    
+    
+    /** Espera media del pool de la principal, que decide cuándo rechazar peticiones por saturación */
+    @Bean
+    public ConnectionPoolMonitor connectionPoolMonitor(MeterRegistry meterRegistry) {
+        return new ConnectionPoolMonitor(meterRegistry, PRIMARY_POOL_NAME, averageWaitWindowMillis,
+                                         maxAverageWaitMillis, connectionTimeoutMillis);
+    }
+    
+    /**
+     * Pool de la base de datos principal, configurado con las propiedades <c>spring.datasource.*</c> y
+     * <c>spring.datasource.hikari.*</c>
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties, ConnectionPoolMonitor poolMonitor) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                                                .type(HikariDataSource.class)
+                                                .build();
+        dataSource.setPoolName(PRIMARY_POOL_NAME);
+        dataSource.setMetricsTrackerFactory(poolMonitor);
+        return dataSource;
+    }
+    
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker() {
+        return new ReadYourWritesTracker(Duration.ofMillis(readYourWritesMillis), Ticker.systemTicker());
+    }
+    
+    @Bean(destroyMethod = "close")
+    public ReadWriteRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                        ReadYourWritesTracker readYourWritesTracker,
+                                                        MeterRegistry meterRegistry) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (url.isBlank()) continue;
+            
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl(url.trim());
+            config.setUsername(replicaUsername);
+            config.setPassword(replicaPassword);
+            config.setPoolName(ReadWriteRoutingDataSource.REPLICA_KEY_PREFIX + replicas.size());
+            // Mismos límites que la principal (sin copiar su estado, que incluye sus métricas)
+            config.setMaximumPoolSize(primaryDataSource.getMaximumPoolSize());
+            config.setMinimumIdle(primaryDataSource.getMinimumIdle());
+            config.setIdleTimeout(primaryDataSource.getIdleTimeout());
+            config.setMaxLifetime(primaryDataSource.getMaxLifetime());
+            config.setLeakDetectionThreshold(primaryDataSource.getLeakDetectionThreshold());
+            // Arrancar aunque la réplica no responda y no esperar por ella más que lo imprescindible
+            config.setInitializationFailTimeout(-1);
+            config.setConnectionTimeout(replicaConnectionTimeoutMillis);
+            config.setValidationTimeout(replicaConnectionTimeoutMillis);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new HikariDataSource(config));
+        }
+        
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas, maxReplicaLagMillis,
+                                              lagCheckIntervalMillis * staleLagChecks, readYourWritesTracker,
+                                              Ticker.systemTicker());
+    }
+    
+    /**
+     * DataSource usado por la aplicación. Retrasa la obtención de la conexión hasta la primera sentencia, cuando ya se
+     * sabe si la transacción es de solo lectura y, por tanto, a qué base de datos enviarla
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(routingDataSource);
+        // Valores por defecto de las conexiones, para no tener que abrir una al arrancar para consultarlos
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+    
+}
@@ -0,0 +1,208 @@
+package me.unp0wnable.groupeo.model.datasource;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+import me.unp0wnable.groupeo.model.utils.ChangeCatchUp;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToLongFunction;
+
+/**
+ * Envía las transacciones de solo lectura a una de las réplicas y el resto a la base de datos principal.
+ * <p>
+ * Las réplicas se reparten por turnos entre las que tengan un retraso admisible respecto a la principal (medido
+ * periódicamente con {@link #refreshReplicaLag()}); si ninguna lo tiene, o si el usuario actual ha escrito hace poco
+ * (ver {@link ReadYourWritesTracker}), también se lee de la principal. Una medida que no se ha renovado a tiempo se
+ * trata como si la réplica no respondiese, ya que no asegura que siga al día.
+ * <p>
+ * La decisión se toma al obtener la conexión, por lo que debe envolverse en un
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: así la conexión se pide al ejecutar la
+ * primera sentencia, cuando ya se sabe si la transacción es de solo lectura.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+    public static final String PRIMARY_KEY = "primary";
+    public static final String REPLICA_KEY_PREFIX = "replica-";
+    /**
+     * Retraso de la réplica en milisegundos: 0 si ha aplicado todo lo recibido o si no es una réplica, y -1 si se
+     * desconoce. Sin proceso receptor de WAL la réplica está desconectada de la principal, y haber aplicado todo lo
+     * recibido no indica que esté al día (el pid de <c>pg_stat_wal_receiver</c> es visible sin permisos adicionales)
+     */
+    private static final String REPLICA_LAG_QUERY = "SELECT CASE " +
+            "    WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "    WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE pid IS NOT NULL) THEN -1 " +
+            "    WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "    ELSE COALESCE(" +
+            "        CAST(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 AS BIGINT), -1) " +
+            "END";
+    /** Retraso asignado a las réplicas que todavía no se han comprobado o que no responden */
+    private static final long UNKNOWN_LAG = Long.MAX_VALUE;
+    
+    private final List<DataSource> replicas;
+    private final long maxReplicaLagMillis;
+    private final long maxLagAgeNanos;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final Ticker ticker;
+    private final ToLongFunction<DataSource> lagProbe;
+    private final AtomicLongArray replicaLagMillis;
+    /** Instante (según {@link #ticker}) de la última medida del retraso de cada réplica */
+    private final AtomicLongArray replicaLagMeasuredNanos;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    
+    
+    /**
+     * @param primary Base de datos principal
+     * @param replicas Réplicas de solo lectura; sin réplicas todo se envía a la principal
+     * @param maxReplicaLagMillis Retraso máximo admitido para leer de una réplica
+     * @param maxLagAgeMillis Antigüedad máxima de la medida del retraso para seguir usando una réplica
+     * @param readYourWritesTracker Escrituras recientes de cada usuario
+     * @param ticker Reloj usado para medir la antigüedad de las medidas
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, long maxReplicaLagMillis,
+                                      long maxLagAgeMillis, ReadYourWritesTracker readYourWritesTracker,
+                                      Ticker ticker) {
+        this(primary, replicas, maxReplicaLagMillis, maxLagAgeMillis, readYourWritesTracker, ticker,
+             ReadWriteRoutingDataSource::measureLag);
+    }
+    
+    /**
+     * Permite sustituir la consulta del retraso, para probar el enrutado sin réplicas reales
+     * @param lagProbe Obtiene el retraso de una réplica en milisegundos, o un valor negativo si se desconoce
+     */
+    ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, long maxReplicaLagMillis,
+                               long maxLagAgeMillis, ReadYourWritesTracker readYourWritesTracker, Ticker ticker,
+                               ToLongFunction<DataSource> lagProbe) {
+        this.replicas = List.copyOf(replicas);
+        this.maxReplicaLagMillis = maxReplicaLagMillis;
+        this.maxLagAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxLagAgeMillis);
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.ticker = ticker;
+        this.lagProbe = lagProbe;
+        this.replicaLagMillis = new AtomicLongArray(replicas.size());
+        this.replicaLagMeasuredNanos = new AtomicLongArray(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            replicaLagMillis.set(i, UNKNOWN_LAG);
+        }
+        
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY_KEY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(REPLICA_KEY_PREFIX + i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    /** Número de réplicas configuradas */
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+    
+    /**
+     * Último retraso medido de una réplica en milisegundos, o {@link Long#MAX_VALUE} si no responde o si la medida es
+     * demasiado antigua
+     */
+    public long getReplicaLagMillis(int replica) {
+        if (ticker.read() - replicaLagMeasuredNanos.get(replica) > maxLagAgeNanos) return UNKNOWN_LAG;
+        
+        return replicaLagMillis.get(replica);
+    }
+    
+    
+    /* *********************************** UPDATES *********************************** */
+    /** Mide el retraso de cada réplica. Las que no responden dejan de usarse hasta la siguiente medida */
+    public void refreshReplicaLag() {
+        for (int i = 0; i < replicas.size(); i++) {
+            long previousLag = getReplicaLagMillis(i);
+            long measuredLag = lagProbe.applyAsLong(replicas.get(i));
+            long lag = (measuredLag < 0) ? UNKNOWN_LAG : measuredLag;
+            recordReplicaLag(i, lag);
+            
+            // Avisar solo de los cambios de estado
+            boolean wasAvailable = previousLag <= maxReplicaLagMillis;
+            boolean isAvailable = lag <= maxReplicaLagMillis;
+            if (wasAvailable && !isAvailable) {
+                log.warn("Replica {} disabled: lag {} ms exceeds {} ms", i, (lag == UNKNOWN_LAG) ? "unknown" : lag,
+                         maxReplicaLagMillis);
+            } else if (!wasAvailable && isAvailable) {
+                log.info("Replica {} enabled: lag {} ms", i, lag);
+            }
+        }
+    }
+    
+    /** Guarda el retraso medido de una réplica en este momento */
+    void recordReplicaLag(int replica, long lagMillis) {
+        replicaLagMillis.set(replica, lagMillis);
+        replicaLagMeasuredNanos.set(replica, ticker.read());
+    }
+    
+    /** Cierra los pools de las réplicas. El de la principal lo gestiona quien lo haya creado */
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable) ((AutoCloseable) replica).close();
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            registerWrite();
+            return PRIMARY_KEY;
+        }
+        
+        // Quien acaba de escribir debe ver sus cambios
+        if (readYourWritesTracker.mustReadFromPrimary()) return PRIMARY_KEY;
+        
+        int replica = selectReplica();
+        return (replica < 0) ? PRIMARY_KEY : REPLICA_KEY_PREFIX + replica;
+    }
+    
+    /** Elige por turnos una réplica con un retraso admisible, o -1 si no hay ninguna */
+    private int selectReplica() {
+        int replicaCount = replicas.size();
+        if (replicaCount == 0) return -1;
+        
+        int first = Math.floorMod(nextReplica.getAndIncrement(), replicaCount);
+        for (int i = 0; i < replicaCount; i++) {
+            int replica = (first + i) % replicaCount;
+            if (getReplicaLagMillis(replica) <= maxReplicaLagMillis) return replica;
+        }
+        return -1;
+    }
+    
+    /** Anota la escritura al confirmar la transacción, o ya si la conexión se usa fuera de una transacción */
+    private void registerWrite() {
+        ChangeCatchUp.afterCommit(readYourWritesTracker::recordWrite);
+    }
+    
+    /** Consulta el retraso de una réplica usando su pool, con un tiempo de espera corto para obtener la conexión */
+    private static long measureLag(DataSource replica) {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(REPLICA_LAG_QUERY)) {
+            result.next();
+            return result.getLong(1);
+        } catch (SQLException e) {
+            log.debug("Unable to measure lag of replica {}", replica, e);
+            return -1;
+        }
+    }
+    
+}
@@ -0,0 +1,70 @@
+package me.unp0wnable.groupeo.model.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+
+/**
+ * Recuerda quién ha escrito recientemente en la base de datos principal, para que sus lecturas posteriores no se
+ * envíen a una réplica que todavía no tenga sus cambios (<i>read-your-writes</i>).
+ * <p>
+ * Las escrituras se asocian a la clave ligada al hilo actual (el usuario autenticado de la petición) durante el
+ * tiempo configurado, y también al propio hilo hasta que se llame a {@link #clear()} al terminar la petición.
+ */
+public class ReadYourWritesTracker {
+    private static final long MAX_TRACKED_KEYS = 100_000;
+    
+    private final Cache<Object, Boolean> recentWriters;
+    private final Ticker ticker;
+    private final long windowNanos;
+    private final ThreadLocal<Object> currentKey = new ThreadLocal<>();
+    private final ThreadLocal<Long> currentThreadLastWrite = new ThreadLocal<>();
+    
+    
+    /**
+     * @param window Tiempo durante el que se lee de la base de datos principal tras escribir. Debe superar el retraso
+     *               máximo admitido en las réplicas
+     * @param ticker Reloj usado para medir el tiempo
+     */
+    public ReadYourWritesTracker(Duration window, Ticker ticker) {
+        this.recentWriters = Caffeine.newBuilder()
+                                     .maximumSize(MAX_TRACKED_KEYS)
+                                     .expireAfterWrite(window)
+                                     .ticker(ticker)
+                                     .build();
+        this.ticker = ticker;
+        this.windowNanos = window.toNanos();
+    }
+    
+    
+    /** Asocia las operaciones del hilo actual a una clave (por ejemplo, el ID del usuario autenticado) */
+    public void bind(Object key) {
+        currentKey.set(key);
+    }
+    
+    /** Olvida la clave y las escrituras del hilo actual, al terminar de procesar una petición */
+    public void clear() {
+        currentKey.remove();
+        currentThreadLastWrite.remove();
+    }
+    
+    /** Registra que el hilo actual ha confirmado una escritura en la base de datos principal */
+    public void recordWrite() {
+        currentThreadLastWrite.set(ticker.read());
+        
+        Object key = currentKey.get();
+        if (key != null) recentWriters.put(key, Boolean.TRUE);
+    }
+    
+    /** Indica si las lecturas del hilo actual deben hacerse en la base de datos principal */
+    public boolean mustReadFromPrimary() {
+        Long lastWrite = currentThreadLastWrite.get();
+        if (lastWrite != null && ticker.read() - lastWrite < windowNanos) return true;
+        
+        Object key = currentKey.get();
+        return (key != null) && (recentWriters.getIfPresent(key) != null);
+    }
+    
+}
@@ -0,0 +1,54 @@
+package me.unp0wnable.groupeo.model.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Mide periódicamente el retraso de cada réplica, para dejar de leer de las que se queden atrás o no respondan.
+ * Lo expone como la métrica <c>groupeo.datasource.replica.lag</c>, etiquetada por réplica.
+ */
+@Component
+public class ReplicaLagMonitor {
+    private static final String METRICS_PREFIX = "groupeo.datasource.replica";
+    
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < routingDataSource.getReplicaCount(); i++) {
+            int replica = i;
+            Gauge.builder(METRICS_PREFIX + ".lag", routingDataSource, dataSource -> lagMillis(dataSource, replica))
+                 .description("Retraso de la réplica respecto a la base de datos principal (NaN si no responde)")
+                 .tag("replica", ReadWriteRoutingDataSource.REPLICA_KEY_PREFIX + replica)
+                 .baseUnit("milliseconds")
+                 .register(meterRegistry);
+        }
+    }
+    
+    
+    /* ********************************* SCHEDULED TASKS ********************************* */
+    @Scheduled(fixedDelayString = "${project.datasource.routing.lagCheckIntervalMillis}")
+    public void checkReplicas() {
+        if (routingDataSource.getReplicaCount() == 0) return;
+        
+        routingDataSource.refreshReplicaLag();
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private static double lagMillis(ReadWriteRoutingDataSource dataSource, int replica) {
+        long lag = dataSource.getReplicaLagMillis(replica);
+        return (lag == Long.MAX_VALUE) ? Double.NaN : lag;
+    }
+    
+}
@@ -0,0 +1,43 @@
+package me.unp0wnable.groupeo.model.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Relación entre dos usuarios, creada por la primera solicitud de amistad entre ellos. Su estado actual es el último
+ * de sus {@link FriendshipStatus}
+ */
+@Data
+@Entity
+@Table(name = "Friendship")
+@IdClass(Friendship.FriendshipID.class)
+public class Friendship {
+    @Id
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "requesterID", nullable = false)
+    private UUID requesterID;
+    
+    @Id
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "targetID", nullable = false)
+    private UUID targetID;
+    
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "groupID")
+    private UUID groupID;
+    
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FriendshipID implements Serializable {
+        private UUID requesterID;
+        private UUID targetID;
+    }
+}
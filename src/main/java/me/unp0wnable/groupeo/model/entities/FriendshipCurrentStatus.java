@@ -0,0 +1,52 @@
+package me.unp0wnable.groupeo.model.entities;
+
+import lombok.Data;
+import me.unp0wnable.groupeo.model.entities.FriendshipStatus.FriendshipStates;
+import me.unp0wnable.groupeo.model.entities.FriendshipStatus.FriendshipStatesConverter;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Synchronize;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.*;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Último {@link FriendshipStatus} de cada {@link Friendship}.
+ * La mantiene la base de datos al insertar cada estado, por lo que la aplicación nunca la modifica. Las consultas
+ * sobre ella guardan antes los estados pendientes de la sesión
+ */
+@Data
+@Entity
+@Immutable
+@Table(name = "FriendshipCurrentStatus")
+@Synchronize("FriendshipStatus")
+@IdClass(Friendship.FriendshipID.class)
+public class FriendshipCurrentStatus {
+    @Id
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "requesterID", nullable = false)
+    private UUID requesterID;
+    
+    @Id
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "targetID", nullable = false)
+    private UUID targetID;
+    
+    @Column(name = "lastUpdated", nullable = false)
+    private Date lastUpdated;
+    
+    /** Usuario que realizó el último cambio */
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "specifierID", nullable = false)
+    private UUID specifierID;
+    
+    @Convert(converter = FriendshipStatesConverter.class)
+    @Column(name = "statusID", length = 1, nullable = false)
+    private FriendshipStates status;
+    
+    /** Usuario que debe responder al último cambio (el que no lo realizó) */
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "recipientID", insertable = false, updatable = false)
+    private UUID recipientID;
+}
@@ -0,0 +1,94 @@
+package me.unp0wnable.groupeo.model.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Cambio de estado de una {@link Friendship}. Nunca se modifican: cada cambio añade una fila nueva.
+ * El historial se particiona por meses y los cambios antiguos se compactan y archivan (ver
+ * {@link me.unp0wnable.groupeo.model.services.StatusHistoryMaintenance}), por lo que el estado actual se obtiene de
+ * {@link FriendshipCurrentStatus}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "FriendshipStatus")
+@IdClass(FriendshipStatus.FriendshipStatusID.class)
+public class FriendshipStatus {
+    /** Estados posibles, guardados en la base de datos por su código (tabla <c>FriendshipStatusCode</c>) */
+    public enum FriendshipStates {
+        PENDING('P'), ACCEPTED('A'), REJECTED('R'), DELETED('D');
+        
+        private final char code;
+        
+        FriendshipStates(char code) {
+            this.code = code;
+        }
+        
+        public char getCode() {
+            return code;
+        }
+        
+        public static FriendshipStates fromCode(char code) {
+            for (FriendshipStates state : values()) {
+                if (state.code == code) return state;
+            }
+            throw new IllegalArgumentException("Unknown friendship status code: " + code);
+        }
+    }
+    
+    
+    @Id
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "requesterID", nullable = false)
+    private UUID requesterID;
+    
+    @Id
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "targetID", nullable = false)
+    private UUID targetID;
+    
+    @Id
+    @Column(name = "lastUpdated", nullable = false)
+    private Date lastUpdated;
+    
+    /** Usuario que realizó el cambio */
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "specifierID", nullable = false)
+    private UUID specifierID;
+    
+    @Convert(converter = FriendshipStatesConverter.class)
+    @Column(name = "statusID", length = 1, nullable = false)
+    private FriendshipStates status;
+    
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FriendshipStatusID implements Serializable {
+        private UUID requesterID;
+        private UUID targetID;
+        private Date lastUpdated;
+    }
+    
+    @Converter
+    public static class FriendshipStatesConverter implements AttributeConverter<FriendshipStates, Character> {
+        @Override
+        public Character convertToDatabaseColumn(FriendshipStates state) {
+            return (state == null) ? null : state.getCode();
+        }
+        
+        @Override
+        public FriendshipStates convertToEntityAttribute(Character code) {
+            return (code == null) ? null : FriendshipStates.fromCode(code);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package me.unp0wnable.groupeo.model.entities;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/** Trabajo pendiente de generar las versiones redimensionadas de una imagen del almacén */
+@Data
+@Entity
+@Table(name = "ImageVariantJob")
+public class ImageVariantJob {
+    @Id
+    @Column(name = "imageHash", length = 64, nullable = false)
+    private String imageHash;
+    
+    @Column(name = "enqueuedAt", nullable = false)
+    private Date enqueuedAt;
+    
+    /** Momento en el que un nodo empezó a procesarlo, o <c>null</c> si está libre */
+    @Column(name = "claimedAt")
+    private Date claimedAt;
+    
+    @Column(name = "attempts", nullable = false)
+    private short attempts;
+    
+    @Column(name = "lastError")
+    private String lastError;
+}
@@ -0,0 +1,41 @@
+package me.unp0wnable.groupeo.model.entities;
+
+import lombok.Data;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.*;
+import java.util.Date;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table(name = "RefreshToken")
+public class RefreshToken {
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = "me.unp0wnable.groupeo.model.utils.UuidV7Generator")
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "refreshTokenID", nullable = false)
+    private UUID refreshTokenID;
+    
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "familyID", nullable = false)
+    private UUID familyID;
+    
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "userProfileID", nullable = false)
+    private UUID userProfileID;
+    
+    @Column(name = "tokenHash", length = 64, nullable = false, unique = true)
+    private String tokenHash;
+    
+    @Column(name = "expirationDate", nullable = false)
+    private Date expirationDate;
+    
+    @Column(name = "used", nullable = false)
+    private boolean used;
+    
+    @Column(name = "revoked", nullable = false)
+    private boolean revoked;
+}
@@ -13,7 +13,7 @@ import java.util.UUID;
 public class UserAddress {
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @GenericGenerator(name = "UUID", strategy = "me.unp0wnable.groupeo.model.utils.UuidV7Generator")
     @Type(type = "org.hibernate.type.PostgresUUIDType")
     @Column(name = "userProfileID", nullable = false)
     private UUID userAddressID;
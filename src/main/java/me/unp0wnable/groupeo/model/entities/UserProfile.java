@@ -17,7 +17,7 @@ public class UserProfile {
     
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @GenericGenerator(name = "UUID", strategy = "me.unp0wnable.groupeo.model.utils.UuidV7Generator")
     @Type(type = "org.hibernate.type.PostgresUUIDType")
     @Column(name = "userProfileID", nullable = false)
     private UUID userProfileID;
@@ -50,9 +50,9 @@ public class UserProfile {
     @Column(name = "password", nullable = false)
     private String password;
     
-    @Lob
-    @Column(name = "avatarPath")
-    private String imageB64;
+    /** Hash SHA-256 del avatar en el {@link me.unp0wnable.groupeo.model.services.AvatarStore} */
+    @Column(name = "avatarHash", length = 64)
+    private String avatarHash;
     
     @Column(name = "score")
     private Float score;
@@ -60,6 +60,14 @@ public class UserProfile {
     @Column(name = "role")
     private UserRoles role;
     
+    /**
+     * Versión de los datos públicos del perfil. Las actualizaciones que no cargan la entidad deben incrementarla
+     * explícitamente
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+    
     @OneToOne(mappedBy = "userProfile",
             fetch = FetchType.LAZY,
             cascade = CascadeType.PERSIST,
@@ -0,0 +1,30 @@
+package me.unp0wnable.groupeo.model.entities;
+
+import lombok.Data;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.*;
+import java.util.Date;
+import java.util.UUID;
+
+/** Usuario eliminado cuyo historial (amistades, asistencias) se borra en segundo plano */
+@Data
+@Entity
+@Table(name = "UserPurge")
+public class UserPurge {
+    @Id
+    @Type(type = "org.hibernate.type.PostgresUUIDType")
+    @Column(name = "userProfileID", nullable = false)
+    private UUID userProfileID;
+    
+    @Column(name = "requestedAt", nullable = false)
+    private Date requestedAt;
+    
+    /** Momento en el que un nodo empezó a procesarlo, o <c>null</c> si está libre */
+    @Column(name = "claimedAt")
+    private Date claimedAt;
+    
+    /** Momento en el que se terminó de borrar el historial, o <c>null</c> si está pendiente */
+    @Column(name = "completedAt")
+    private Date completedAt;
+}
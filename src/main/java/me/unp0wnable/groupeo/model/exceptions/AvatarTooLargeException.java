@@ -0,0 +1,11 @@
+package me.unp0wnable.groupeo.model.exceptions;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** La imagen recibida supera el tamaño máximo permitido para un avatar */
+@AllArgsConstructor
+@Getter
+public class AvatarTooLargeException extends Exception {
+    private final long maxSizeBytes;
+}
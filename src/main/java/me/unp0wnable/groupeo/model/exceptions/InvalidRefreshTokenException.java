@@ -0,0 +1,5 @@
+package me.unp0wnable.groupeo.model.exceptions;
+
+/** El refresh token recibido no existe, ha caducado, ha sido revocado o ya se había utilizado */
+public class InvalidRefreshTokenException extends Exception {
+}
@@ -0,0 +1,5 @@
+package me.unp0wnable.groupeo.model.exceptions;
+
+/** Un usuario no puede solicitarse amistad a sí mismo */
+public class SelfFriendshipException extends Exception {
+}
@@ -0,0 +1,5 @@
+package me.unp0wnable.groupeo.model.exceptions;
+
+/** El servicio no dispone de capacidad para atender la petición en este momento */
+public class ServiceOverloadedException extends Exception {
+}
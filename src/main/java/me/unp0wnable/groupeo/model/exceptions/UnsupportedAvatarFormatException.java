@@ -0,0 +1,5 @@
+package me.unp0wnable.groupeo.model.exceptions;
+
+/** El contenido recibido no es una imagen en un formato admitido para los avatares */
+public class UnsupportedAvatarFormatException extends Exception {
+}
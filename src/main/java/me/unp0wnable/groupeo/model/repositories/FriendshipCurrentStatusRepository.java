@@ -0,0 +1,69 @@
+package me.unp0wnable.groupeo.model.repositories;
+
+import me.unp0wnable.groupeo.model.entities.Friendship.FriendshipID;
+import me.unp0wnable.groupeo.model.entities.FriendshipCurrentStatus;
+import me.unp0wnable.groupeo.model.entities.FriendshipStatus;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+
+import javax.persistence.QueryHint;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+/** Consultas sobre el estado actual de las amistades. La tabla la mantiene la base de datos: es de solo lectura */
+public interface FriendshipCurrentStatusRepository extends Repository<FriendshipCurrentStatus, FriendshipID> {
+    
+    /**
+     * Obtiene el estado actual de una relación como el último {@link FriendshipStatus} añadido.
+     * Se crea directamente desde la consulta, sin cargar la entidad en la sesión: la tabla cambia sin pasar por ella
+     */
+    @Query("SELECT new me.unp0wnable.groupeo.model.entities.FriendshipStatus(" +
+           "    c.requesterID, c.targetID, c.lastUpdated, c.specifierID, c.status) " +
+           "FROM FriendshipCurrentStatus c " +
+           "WHERE c.requesterID = ?1 AND c.targetID = ?2")
+    Optional<FriendshipStatus> findCurrentStatus(UUID requesterID, UUID targetID);
+    
+    /**
+     * Obtiene las solicitudes pendientes que ha recibido un usuario, de la más reciente a la más antigua
+     * @param userID ID del usuario que las ha recibido
+     * @param offset Solicitudes a saltar
+     * @param limit Número máximo de solicitudes
+     */
+    @Query(value = "SELECT * FROM FriendshipCurrentStatus " +
+                   "WHERE recipientID = ?1 AND statusID = 'P' " +
+                   "ORDER BY lastUpdated DESC " +
+                   "OFFSET ?2 LIMIT ?3",
+           nativeQuery = true)
+    List<FriendshipCurrentStatus> findPendingRequestsReceivedBy(UUID userID, int offset, int limit);
+    
+    /** Cuenta las solicitudes pendientes que ha recibido un usuario */
+    @Query(value = "SELECT COUNT(*) FROM FriendshipCurrentStatus WHERE recipientID = ?1 AND statusID = 'P'",
+           nativeQuery = true)
+    long countPendingRequestsReceivedBy(UUID userID);
+    
+    /**
+     * Recorre todas las amistades aceptadas entre usuarios no eliminados, como pares <c>[requesterID, targetID]</c>.
+     * Debe consumirse dentro de una transacción
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "SELECT s.requesterID, s.targetID FROM FriendshipCurrentStatus s " +
+                   "WHERE s.statusID = 'A' " +
+                   "    AND NOT EXISTS (SELECT 1 FROM UserPurge p WHERE p.userProfileID IN (s.requesterID, s.targetID))",
+           nativeQuery = true)
+    Stream<Object[]> streamAcceptedFriendships();
+    
+    /**
+     * Recorre el estado actual de las relaciones que han cambiado después de la fecha recibida (por un estado nuevo o
+     * por una corrección de {@link me.unp0wnable.groupeo.model.services.CurrentStatusRebuilder}), como filas
+     * <c>[requesterID, targetID, statusID]</c>. Debe consumirse dentro de una transacción
+     */
+    @Query(value = "SELECT requesterID, targetID, statusID FROM FriendshipCurrentStatus WHERE changedAt > ?1",
+           nativeQuery = true)
+    Stream<Object[]> streamStatusesChangedAfter(Date date);
+}
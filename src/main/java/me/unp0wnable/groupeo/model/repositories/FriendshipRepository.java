@@ -0,0 +1,28 @@
+package me.unp0wnable.groupeo.model.repositories;
+
+import me.unp0wnable.groupeo.model.entities.Friendship;
+import me.unp0wnable.groupeo.model.entities.Friendship.FriendshipID;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface FriendshipRepository extends CrudRepository<Friendship, FriendshipID> {
+    
+    /**
+     * Obtiene la relación entre dos usuarios, la haya solicitado cualquiera de ellos
+     * @return Relación encontrada
+     */
+    @Query("SELECT f FROM Friendship f "
+            + "WHERE (f.requesterID = ?1 AND f.targetID = ?2) OR (f.requesterID = ?2 AND f.targetID = ?1)")
+    Optional<Friendship> findBetween(UUID firstUserID, UUID secondUserID);
+    
+    /**
+     * Bloquea hasta el final de la transacción los cambios en la relación entre dos usuarios, exista o no todavía.
+     * Evita que dos solicitudes cruzadas simultáneas creen dos relaciones
+     * @param pairKey Clave del par de usuarios, igual en ambos sentidos
+     */
+    @Query(value = "SELECT CAST(pg_advisory_xact_lock(?1) AS TEXT)", nativeQuery = true)
+    String lockPair(long pairKey);
+}
@@ -0,0 +1,17 @@
+package me.unp0wnable.groupeo.model.repositories;
+
+import me.unp0wnable.groupeo.model.entities.FriendshipStatus;
+import me.unp0wnable.groupeo.model.entities.FriendshipStatus.FriendshipStatusID;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface FriendshipStatusRepository extends CrudRepository<FriendshipStatus, FriendshipStatusID> {
+    
+    /**
+     * Obtiene el último estado de una relación que sigue en el historial. Los estados antiguos se archivan, por lo que
+     * el estado actual debe obtenerse de {@link FriendshipCurrentStatusRepository}
+     */
+    Optional<FriendshipStatus> findFirstByRequesterIDAndTargetIDOrderByLastUpdatedDesc(UUID requesterID, UUID targetID);
+}
@@ -0,0 +1,80 @@
+package me.unp0wnable.groupeo.model.repositories;
+
+import me.unp0wnable.groupeo.model.entities.ImageVariantJob;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface ImageVariantJobRepository extends CrudRepository<ImageVariantJob, String> {
+    
+    /**
+     * Encola una imagen para generar sus versiones. Si ya estaba en cola no se modifica
+     * @param imageHash Hash de la imagen
+     * @return Número de trabajos creados
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO ImageVariantJob (imageHash, enqueuedAt, attempts) VALUES (?1, now(), 0) " +
+                   "ON CONFLICT (imageHash) DO NOTHING",
+           nativeQuery = true)
+    int enqueue(String imageHash);
+    
+    /**
+     * Reserva los trabajos más antiguos que no estén siendo procesados (o cuya reserva haya caducado).
+     * Las filas bloqueadas por otros nodos se saltan, por lo que varios nodos pueden reservar a la vez sin esperas
+     * ni trabajos duplicados
+     * @param claimExpiredBefore Las reservas anteriores a esta fecha se consideran abandonadas
+     * @param maxAttempts Número de intentos a partir del que un trabajo se descarta
+     * @param limit Número máximo de trabajos a reservar
+     * @return Trabajos reservados
+     */
+    @Transactional
+    @Query(value = "UPDATE ImageVariantJob SET claimedAt = now(), attempts = attempts + 1 " +
+                   "WHERE imageHash IN (" +
+                   "    SELECT imageHash FROM ImageVariantJob " +
+                   "    WHERE (claimedAt IS NULL OR claimedAt < ?1) AND attempts < ?2 " +
+                   "    ORDER BY enqueuedAt " +
+                   "    LIMIT ?3 " +
+                   "    FOR UPDATE SKIP LOCKED" +
+                   ") RETURNING *",
+           nativeQuery = true)
+    List<ImageVariantJob> claimJobs(Date claimExpiredBefore, int maxAttempts, int limit);
+    
+    /**
+     * Elimina un trabajo completado
+     * @param imageHash Hash de la imagen
+     * @return Número de trabajos eliminados
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ImageVariantJob j WHERE j.imageHash = ?1")
+    int completeJob(String imageHash);
+    
+    /**
+     * Libera un trabajo que no se ha podido completar para que vuelva a intentarse
+     * @param imageHash Hash de la imagen
+     * @param error Motivo del fallo
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageVariantJob j SET j.claimedAt = NULL, j.lastError = ?2 WHERE j.imageHash = ?1")
+    int releaseFailedJob(String imageHash, String error);
+    
+    /**
+     * Obtiene la fecha del trabajo pendiente más antiguo (sin contar los descartados)
+     * @param maxAttempts Número de intentos a partir del que un trabajo se descarta
+     */
+    @Query("SELECT MIN(j.enqueuedAt) FROM ImageVariantJob j WHERE j.attempts < ?1")
+    Optional<Date> findOldestPendingEnqueuedAt(short maxAttempts);
+    
+    /**
+     * Cuenta los trabajos pendientes (sin contar los descartados)
+     * @param maxAttempts Número de intentos a partir del que un trabajo se descarta
+     */
+    long countByAttemptsLessThan(short maxAttempts);
+}
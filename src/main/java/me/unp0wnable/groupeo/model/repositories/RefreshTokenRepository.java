@@ -0,0 +1,54 @@
+package me.unp0wnable.groupeo.model.repositories;
+
+import me.unp0wnable.groupeo.model.entities.RefreshToken;
+import me.unp0wnable.groupeo.model.repositories.projections.RefreshTokenGrant;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface RefreshTokenRepository extends CrudRepository<RefreshToken, UUID> {
+    
+    /**
+     * Obtiene un refresh token y los datos del usuario al que pertenece en una única consulta, sin cargar su perfil
+     * @param tokenHash Resumen SHA-256 del token
+     * @return Datos del token encontrado
+     */
+    @Query("SELECT new me.unp0wnable.groupeo.model.repositories.projections.RefreshTokenGrant("
+            + "t.refreshTokenID, t.familyID, u.userProfileID, u.nickName, u.role, t.expirationDate, t.used, t.revoked) "
+            + "FROM RefreshToken t, UserProfile u "
+            + "WHERE (t.tokenHash = ?1) AND (u.userProfileID = t.userProfileID)")
+    Optional<RefreshTokenGrant> findGrantByTokenHash(String tokenHash);
+    
+    /**
+     * Marca un token como utilizado, solo si no lo estaba ya
+     * @param refreshTokenID ID del token
+     * @return Número de tokens actualizados. Si es <c>0</c> el token ya se había utilizado
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.used = true WHERE (t.refreshTokenID = ?1) AND (t.used = false)")
+    int markAsUsed(UUID refreshTokenID);
+    
+    /** Revoca todos los tokens obtenidos a partir del mismo inicio de sesión */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE (t.familyID = ?1)")
+    int revokeFamily(UUID familyID);
+    
+    /** Revoca todos los tokens de un usuario */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE (t.userProfileID = ?1)")
+    int revokeAllByUserProfileID(UUID userProfileID);
+    
+    /** Elimina los tokens caducados */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE (t.expirationDate < ?1)")
+    int deleteExpired(Date now);
+}
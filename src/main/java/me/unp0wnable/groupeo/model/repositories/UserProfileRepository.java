@@ -1,26 +1,157 @@
 package me.unp0wnable.groupeo.model.repositories;
 
 import me.unp0wnable.groupeo.model.entities.UserProfile;
-import org.springframework.data.repository.PagingAndSortingRepository;
+import me.unp0wnable.groupeo.model.repositories.projections.UserCredentials;
+import me.unp0wnable.groupeo.model.repositories.projections.UserProfileView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Date;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface UserProfileRepository extends PagingAndSortingRepository<UserProfile, UUID> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface UserProfileRepository extends JpaRepository<UserProfile, UUID>, UserProfileRepositoryCustom {
     
     /**
-     * Comprueba si existe un usuario por su nombre
+     * Comprueba si existe un usuario por su nombre ignorando mayúsculas.
+     * Usa el índice único sobre <c>LOWER(nickName)</c>
      * @param nickName Nombre del usuario
      * @return <c>True</c> si usuario existe
      */
-    boolean existsByNickName(String nickName);
+    @Query("SELECT CASE WHEN COUNT(u) > 0 THEN true ELSE false END FROM UserProfile u WHERE (LOWER(u.nickName) = LOWER(?1))")
+    boolean existsByNickNameIgnoreCase(String nickName);
+    
+    /**
+     * Comprueba si existe un usuario con el email recibido ignorando mayúsculas
+     * @param email Email del usuario
+     * @return <c>True</c> si usuario existe
+     */
+    boolean existsByEmailIgnoreCase(String email);
     
     /**
-     * Obtiene un usuario a partir de su nickName ignorando mayúsculas
+     * Obtiene un usuario a partir de su nickName ignorando mayúsculas.
+     * Usa el índice único sobre <c>LOWER(nickName)</c>
      * @param nickName Nickname del usuario a buscar
      * @return Usuario encontrado
      */
+    @Query("SELECT u FROM UserProfile u WHERE (LOWER(u.nickName) = LOWER(?1))")
     Optional<UserProfile> findByNickNameIgnoreCase(String nickName);
     
+    /**
+     * Obtiene los datos públicos del perfil de un usuario sin cargar la entidad
+     * @param userID ID del usuario
+     * @return Perfil del usuario, o vacío si no existe
+     */
+    @Query("SELECT new me.unp0wnable.groupeo.model.repositories.projections.UserProfileView(" +
+           "    u.userProfileID, u.firstName, u.surname1, u.surname2, u.email, u.birthDate, u.joinDate, " +
+           "    u.description, u.nickName, u.avatarHash, u.score, u.role, u.version" +
+           ") FROM UserProfile u WHERE (u.userProfileID = ?1)")
+    Optional<UserProfileView> findViewByID(UUID userID);
+    
+    /**
+     * Obtiene la contraseña cifrada y el perfil de un usuario a partir de su nickName ignorando mayúsculas, sin cargar
+     * la entidad. Usa el índice único sobre <c>LOWER(nickName)</c>
+     * @param nickName Nickname del usuario a buscar
+     * @return Credenciales del usuario, o vacío si no existe
+     */
+    @Query("SELECT new me.unp0wnable.groupeo.model.repositories.projections.UserCredentials(" +
+           "    u.password, u.userProfileID, u.firstName, u.surname1, u.surname2, u.email, u.birthDate, u.joinDate, " +
+           "    u.description, u.nickName, u.avatarHash, u.score, u.role, u.version" +
+           ") FROM UserProfile u WHERE (LOWER(u.nickName) = LOWER(?1))")
+    Optional<UserCredentials> findCredentialsByNickNameIgnoreCase(String nickName);
+    
+    /**
+     * Obtiene la versión del perfil de un usuario sin cargarlo
+     * @param userID ID del usuario
+     * @return Versión del perfil, o vacío si el usuario no existe
+     */
+    @Query("SELECT u.version FROM UserProfile u WHERE (u.userProfileID = ?1)")
+    Optional<Long> findVersionByID(UUID userID);
+    
+    /**
+     * Obtiene la contraseña cifrada de un usuario sin cargar su perfil
+     * @param userID ID del usuario
+     * @return Contraseña cifrada, o vacío si el usuario no existe
+     */
+    @Query("SELECT u.password FROM UserProfile u WHERE (u.userProfileID = ?1)")
+    Optional<String> findPasswordByID(UUID userID);
+    
+    /**
+     * Actualiza la contraseña cifrada de un usuario sin cargar su perfil
+     * @param userID ID del usuario
+     * @param encodedPassword Nueva contraseña ya cifrada
+     * @return Número de usuarios actualizados
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserProfile u SET u.password = ?2 WHERE u.userProfileID = ?1")
+    int updatePassword(UUID userID, String encodedPassword);
+    
+    /**
+     * Actualiza el avatar de un usuario sin cargar su perfil, incrementando su versión
+     * @param userID ID del usuario
+     * @param avatarHash Hash del nuevo avatar
+     * @return Número de usuarios actualizados
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UserProfile u SET u.avatarHash = ?2, u.version = u.version + 1 WHERE u.userProfileID = ?1")
+    int updateAvatarHash(UUID userID, String avatarHash);
+    
+    /**
+     * Elimina un usuario y encola el borrado de su historial en una única sentencia.
+     * Su dirección y sus refresh tokens se eliminan en cascada; el resto del historial lo borra {@code UserPurgeService}
+     * @param userID ID del usuario
+     * @return Número de usuarios eliminados
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "WITH deleted AS (DELETE FROM UserProfile WHERE userProfileID = ?1 RETURNING userProfileID) " +
+                   "INSERT INTO UserPurge (userProfileID, requestedAt) SELECT userProfileID, now() FROM deleted",
+           nativeQuery = true)
+    int deleteAndSchedulePurge(UUID userID);
+    
+    /**
+     * Recorre los nickNames y emails de todos los usuarios sin cargarlos a la vez en memoria.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar
+     * @return Pares <c>[nickName, email]</c>
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.nickName, u.email FROM UserProfile u")
+    Stream<Object[]> streamNickNamesAndEmails();
+    
+    /**
+     * Recorre los nickNames y emails de los usuarios registrados después de la fecha recibida.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar
+     * @return Pares <c>[nickName, email]</c>
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.nickName, u.email FROM UserProfile u WHERE (u.joinDate > ?1)")
+    Stream<Object[]> streamNickNamesAndEmailsJoinedAfter(Date date);
+    
+    /**
+     * Recorre el ID, el nickName y la puntuación de todos los usuarios sin cargarlos a la vez en memoria.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar
+     * @return Ternas <c>[userProfileID, nickName, score]</c>
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.userProfileID, u.nickName, u.score FROM UserProfile u")
+    Stream<Object[]> streamAutocompleteEntries();
+    
+    /**
+     * Recorre el ID, el nickName y la puntuación de los usuarios registrados después de la fecha recibida.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar
+     * @return Ternas <c>[userProfileID, nickName, score]</c>
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.userProfileID, u.nickName, u.score FROM UserProfile u WHERE (u.joinDate > ?1)")
+    Stream<Object[]> streamAutocompleteEntriesJoinedAfter(Date date);
     
 }
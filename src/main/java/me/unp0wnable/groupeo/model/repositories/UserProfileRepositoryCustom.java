@@ -0,0 +1,49 @@
+package me.unp0wnable.groupeo.model.repositories;
+
+import me.unp0wnable.groupeo.model.entities.UserProfile;
+import me.unp0wnable.groupeo.model.repositories.projections.UserProfileView;
+import me.unp0wnable.groupeo.model.repositories.projections.UserSearchResult;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/** Operaciones de {@link UserProfileRepository} que no pueden expresarse con consultas fijas */
+public interface UserProfileRepositoryCustom {
+    /** Longitud mínima de los términos de búsqueda: los más cortos no tienen trigramas y obligan a recorrer la tabla */
+    int MIN_SEARCH_TERM_LENGTH = 3;
+    
+    /**
+     * Actualiza en una única sentencia (<c>UPDATE ... RETURNING</c>) los datos del perfil que no sean nulos en
+     * <c>changes</c>, sin cargar antes el perfil. Si se modifica algún dato se incrementa la versión del perfil.
+     * Solo se tienen en cuenta el nombre, los apellidos, el email y la descripción
+     * @param userID ID del usuario
+     * @param changes Datos a modificar; los campos nulos no se modifican
+     * @return Perfil actualizado, o vacío si el usuario no existe
+     */
+    Optional<UserProfileView> updateProfileFields(UUID userID, UserProfile changes);
+    
+    /**
+     * Obtiene los datos públicos de varios usuarios en una única consulta (<c>userProfileID = ANY(...)</c>), con el
+     * mismo plan sea cual sea el número de IDs
+     * @param userIDs IDs de los usuarios
+     * @return Perfiles de los usuarios que existen, en cualquier orden
+     */
+    List<UserProfileView> findViewsByIDs(Collection<UUID> userIDs);
+    
+    /**
+     * Busca los usuarios cuyo nickName, nombre o apellidos contienen todos los términos recibidos, ordenados por
+     * <c>LOWER(nickName)</c>. Los términos deben tener al menos {@link #MIN_SEARCH_TERM_LENGTH} caracteres, para que
+     * la búsqueda pueda usar el índice de trigramas sobre <c>searchText</c>.
+     * Se pagina por clave (a partir del último nickName devuelto) en lugar de con <c>OFFSET</c>, por lo que obtener
+     * cualquier página cuesta lo mismo que obtener la primera
+     * @param terms Términos a buscar, ya en minúsculas (al menos uno)
+     * @param afterNickName nickName del último resultado de la página anterior, o <c>null</c> para la primera página
+     * @param limit Número máximo de resultados
+     * @return Usuarios encontrados
+     * @throws IllegalArgumentException Si no se recibe ningún término o alguno es demasiado corto
+     */
+    List<UserSearchResult> searchByText(List<String> terms, String afterNickName, int limit);
+    
+}
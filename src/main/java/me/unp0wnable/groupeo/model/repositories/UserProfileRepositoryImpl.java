@@ -0,0 +1,159 @@
+package me.unp0wnable.groupeo.model.repositories;
+
+import me.unp0wnable.groupeo.model.entities.UserProfile;
+import me.unp0wnable.groupeo.model.entities.UserProfile.UserRoles;
+import me.unp0wnable.groupeo.model.repositories.projections.UserProfileView;
+import me.unp0wnable.groupeo.model.repositories.projections.UserSearchResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/** Implementación de {@link UserProfileRepositoryCustom}, que Spring Data combina con {@link UserProfileRepository} */
+public class UserProfileRepositoryImpl implements UserProfileRepositoryCustom {
+    /** Columnas de las vistas de perfil, en el orden en que se leen en {@link #toUserProfileView(Object[])} */
+    private static final String PROFILE_VIEW_COLUMNS = "userProfileID, firstName, surname1, surname2, email, birthDate, " +
+            "joinDate, description, nickName, avatarHash, score, role, version";
+    /** Columnas de los resultados de búsqueda, en el orden en que se leen en {@link #toUserSearchResult(Object[])} */
+    private static final String SEARCH_RESULT_COLUMNS = "userProfileID, nickName, firstName, surname1, surname2, avatarHash";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    
+    /* *********************************** UPDATES *********************************** */
+    @Override
+    @Transactional
+    public Optional<UserProfileView> updateProfileFields(UUID userID, UserProfile changes) {
+        // Obtener las columnas a modificar (los nombres nunca proceden de la petición)
+        Map<String, Object> assignments = new LinkedHashMap<>();
+        if (changes.getFirstName() != null) assignments.put("firstName", changes.getFirstName());
+        if (changes.getSurname1() != null) assignments.put("surname1", changes.getSurname1());
+        if (changes.getSurname2() != null) assignments.put("surname2", changes.getSurname2());
+        if (changes.getEmail() != null) assignments.put("email", changes.getEmail());
+        if (changes.getDescription() != null) assignments.put("description", changes.getDescription());
+        
+        // Sin cambios se actualiza la clave a sí misma, lo que comprueba que el usuario existe y devuelve sus datos
+        StringJoiner setClause = new StringJoiner(", ");
+        if (assignments.isEmpty()) {
+            setClause.add("userProfileID = userProfileID");
+        } else {
+            assignments.keySet().forEach(column -> setClause.add(column + " = :" + column));
+            setClause.add("version = version + 1");
+        }
+        
+        Query query = entityManager.createNativeQuery(
+                "UPDATE UserProfile SET " + setClause + " WHERE userProfileID = :userProfileID " +
+                "RETURNING " + PROFILE_VIEW_COLUMNS);
+        query.setParameter("userProfileID", userID);
+        assignments.forEach(query::setParameter);
+        
+        // Las entidades cargadas antes de la actualización quedarían desactualizadas en la sesión
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        entityManager.clear();
+        
+        return rows.stream().findFirst().map(UserProfileRepositoryImpl::toUserProfileView);
+    }
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserProfileView> findViewsByIDs(Collection<UUID> userIDs) {
+        if (userIDs.isEmpty()) return Collections.emptyList();
+        
+        // Los IDs se envían como un único literal de array para no generar una consulta distinta por cada tamaño
+        StringJoiner idsArray = new StringJoiner(",", "{", "}");
+        userIDs.forEach(userID -> idsArray.add(userID.toString()));
+        
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(
+                "SELECT " + PROFILE_VIEW_COLUMNS + " FROM UserProfile WHERE userProfileID = ANY(CAST(:userIDs AS UUID[]))")
+            .setParameter("userIDs", idsArray.toString())
+            .getResultList();
+        
+        return rows.stream()
+                   .map(UserProfileRepositoryImpl::toUserProfileView)
+                   .collect(Collectors.toList());
+    }
+    
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserSearchResult> searchByText(List<String> terms, String afterNickName, int limit) {
+        if (terms.isEmpty() || terms.stream().anyMatch(term -> term.length() < MIN_SEARCH_TERM_LENGTH)) {
+            throw new IllegalArgumentException("Search terms must be at least " + MIN_SEARCH_TERM_LENGTH + " chars long");
+        }
+        
+        // Cada término debe aparecer en alguno de los nombres (searchText ya está en minúsculas)
+        StringJoiner whereClause = new StringJoiner(" AND ");
+        for (int i = 0; i < terms.size(); i++) {
+            whereClause.add("searchText LIKE :term" + i);
+        }
+        // Continuar tras el último resultado de la página anterior (los nickNames son únicos ignorando mayúsculas)
+        if (afterNickName != null) {
+            whereClause.add("LOWER(nickName) > LOWER(:afterNickName)");
+        }
+        
+        Query query = entityManager.createNativeQuery(
+                "SELECT " + SEARCH_RESULT_COLUMNS + " FROM UserProfile WHERE " + whereClause + " " +
+                "ORDER BY LOWER(nickName) LIMIT :limit");
+        for (int i = 0; i < terms.size(); i++) {
+            query.setParameter("term" + i, "%" + escapeLikePattern(terms.get(i)) + "%");
+        }
+        if (afterNickName != null) {
+            query.setParameter("afterNickName", afterNickName);
+        }
+        query.setParameter("limit", limit);
+        
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        
+        return rows.stream()
+                   .map(UserProfileRepositoryImpl::toUserSearchResult)
+                   .collect(Collectors.toList());
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Escapa los comodines de <c>LIKE</c> para que el término se busque literalmente */
+    private static String escapeLikePattern(String term) {
+        return term.replace("\\", "\\\\")
+                   .replace("%", "\\%")
+                   .replace("_", "\\_");
+    }
+    
+    private static UserProfileView toUserProfileView(Object[] row) {
+        return new UserProfileView(
+                (UUID) row[0],
+                (String) row[1],
+                (String) row[2],
+                (String) row[3],
+                (String) row[4],
+                (Date) row[5],
+                (Date) row[6],
+                (String) row[7],
+                (String) row[8],
+                (String) row[9],
+                (row[10] != null) ? ((Number) row[10]).floatValue() : null,
+                (row[11] != null) ? UserRoles.values()[((Number) row[11]).intValue()] : null,
+                ((Number) row[12]).longValue()
+        );
+    }
+    
+    private static UserSearchResult toUserSearchResult(Object[] row) {
+        return new UserSearchResult(
+                (UUID) row[0],
+                (String) row[1],
+                (String) row[2],
+                (String) row[3],
+                (String) row[4],
+                (String) row[5]
+        );
+    }
+    
+}
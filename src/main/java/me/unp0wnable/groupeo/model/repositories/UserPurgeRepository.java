@@ -0,0 +1,146 @@
+package me.unp0wnable.groupeo.model.repositories;
+
+import me.unp0wnable.groupeo.model.entities.UserPurge;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cola de usuarios eliminados pendientes de borrar su historial.
+ * Los borrados del historial se hacen por bloques, cada uno en su propia transacción, para no mantener bloqueos
+ * largos ni transacciones enormes con los usuarios más activos. Las tablas de estados están particionadas y el
+ * <c>ctid</c> solo es único dentro de cada partición, por lo que sus filas se borran por clave primaria
+ */
+public interface UserPurgeRepository extends CrudRepository<UserPurge, UUID> {
+    
+    /**
+     * Reserva los borrados pendientes más antiguos que no estén siendo procesados (o cuya reserva haya caducado).
+     * Las filas bloqueadas por otros nodos se saltan
+     * @param claimExpiredBefore Las reservas anteriores a esta fecha se consideran abandonadas
+     * @param limit Número máximo de borrados a reservar
+     * @return Borrados reservados
+     */
+    @Transactional
+    @Query(value = "UPDATE UserPurge SET claimedAt = now() " +
+                   "WHERE userProfileID IN (" +
+                   "    SELECT userProfileID FROM UserPurge " +
+                   "    WHERE completedAt IS NULL AND (claimedAt IS NULL OR claimedAt < ?1) " +
+                   "    ORDER BY requestedAt " +
+                   "    LIMIT ?2 " +
+                   "    FOR UPDATE SKIP LOCKED" +
+                   ") RETURNING *",
+           nativeQuery = true)
+    List<UserPurge> claimPurges(Date claimExpiredBefore, int limit);
+    
+    /**
+     * Marca como terminado el borrado del historial de un usuario
+     * @param userID ID del usuario eliminado
+     * @return Número de borrados actualizados
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserPurge p SET p.completedAt = CURRENT_TIMESTAMP, p.claimedAt = NULL WHERE p.userProfileID = ?1")
+    int completePurge(UUID userID);
+    
+    /**
+     * Obtiene los usuarios eliminados después de la fecha recibida, incluso si ya se ha borrado su historial
+     * @param date Fecha desde la que se buscan usuarios eliminados
+     * @return IDs de los usuarios eliminados
+     */
+    @Query("SELECT p.userProfileID FROM UserPurge p WHERE (p.requestedAt > ?1)")
+    List<UUID> findUserIDsRequestedAfter(Date date);
+    
+    /** Cuenta los usuarios eliminados cuyo historial todavía no se ha borrado */
+    long countByCompletedAtIsNull();
+    
+    
+    /* ********************************** CHUNKED DELETES ********************************** */
+    /**
+     * Borra un bloque de los cambios de estado de amistad de un usuario
+     * @return Número de filas borradas; 0 si ya no quedan
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM FriendshipStatus WHERE (requesterID, targetID, lastUpdated) IN (" +
+                   "    SELECT requesterID, targetID, lastUpdated FROM FriendshipStatus " +
+                   "    WHERE requesterID = ?1 OR targetID = ?1 OR specifierID = ?1 " +
+                   "    LIMIT ?2" +
+                   ")",
+           nativeQuery = true)
+    int deleteFriendshipStatusesChunk(UUID userID, int chunkSize);
+    
+    /**
+     * Borra un bloque de los estados actuales de las amistades de un usuario
+     * @return Número de filas borradas; 0 si ya no quedan
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM FriendshipCurrentStatus WHERE ctid = ANY(ARRAY(" +
+                   "    SELECT ctid FROM FriendshipCurrentStatus " +
+                   "    WHERE requesterID = ?1 OR targetID = ?1 " +
+                   "    LIMIT ?2" +
+                   "))",
+           nativeQuery = true)
+    int deleteFriendshipCurrentStatusesChunk(UUID userID, int chunkSize);
+    
+    /**
+     * Borra un bloque de las amistades de un usuario
+     * @return Número de filas borradas; 0 si ya no quedan
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM Friendship WHERE ctid = ANY(ARRAY(" +
+                   "    SELECT ctid FROM Friendship " +
+                   "    WHERE requesterID = ?1 OR targetID = ?1 " +
+                   "    LIMIT ?2" +
+                   "))",
+           nativeQuery = true)
+    int deleteFriendshipsChunk(UUID userID, int chunkSize);
+    
+    /**
+     * Borra un bloque de los cambios de estado de las invitaciones de un usuario
+     * @return Número de filas borradas; 0 si ya no quedan
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM AssistanceStatus WHERE (invitingUserID, invitedUserID, lastUpdated) IN (" +
+                   "    SELECT invitingUserID, invitedUserID, lastUpdated FROM AssistanceStatus " +
+                   "    WHERE invitingUserID = ?1 OR invitedUserID = ?1 " +
+                   "    LIMIT ?2" +
+                   ")",
+           nativeQuery = true)
+    int deleteAssistanceStatusesChunk(UUID userID, int chunkSize);
+    
+    /**
+     * Borra un bloque de los estados actuales de las invitaciones de un usuario
+     * @return Número de filas borradas; 0 si ya no quedan
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM AssistanceCurrentStatus WHERE ctid = ANY(ARRAY(" +
+                   "    SELECT ctid FROM AssistanceCurrentStatus " +
+                   "    WHERE invitingUserID = ?1 OR invitedUserID = ?1 " +
+                   "    LIMIT ?2" +
+                   "))",
+           nativeQuery = true)
+    int deleteAssistanceCurrentStatusesChunk(UUID userID, int chunkSize);
+    
+    /**
+     * Borra un bloque de las invitaciones enviadas o recibidas por un usuario
+     * @return Número de filas borradas; 0 si ya no quedan
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM Assistance WHERE ctid = ANY(ARRAY(" +
+                   "    SELECT ctid FROM Assistance " +
+                   "    WHERE invitingUserID = ?1 OR invitedUserID = ?1 " +
+                   "    LIMIT ?2" +
+                   "))",
+           nativeQuery = true)
+    int deleteAssistancesChunk(UUID userID, int chunkSize);
+}
@@ -0,0 +1,22 @@
+package me.unp0wnable.groupeo.model.repositories.projections;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import me.unp0wnable.groupeo.model.entities.UserProfile.UserRoles;
+
+import java.util.Date;
+import java.util.UUID;
+
+/** Datos de un refresh token junto a los datos del usuario necesarios para emitir un nuevo JWT */
+@Getter
+@AllArgsConstructor
+public class RefreshTokenGrant {
+    private final UUID refreshTokenID;
+    private final UUID familyID;
+    private final UUID userID;
+    private final String nickName;
+    private final UserRoles role;
+    private final Date expirationDate;
+    private final Boolean used;
+    private final Boolean revoked;
+}
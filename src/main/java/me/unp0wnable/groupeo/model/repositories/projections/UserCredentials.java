@@ -0,0 +1,24 @@
+package me.unp0wnable.groupeo.model.repositories.projections;
+
+import lombok.Getter;
+import me.unp0wnable.groupeo.model.entities.UserProfile.UserRoles;
+
+import java.util.Date;
+import java.util.UUID;
+
+/** Contraseña cifrada de un usuario junto a los datos de su perfil, para iniciar sesión con una única consulta */
+@Getter
+public class UserCredentials {
+    private final String password;
+    private final UserProfileView profile;
+    
+    
+    /** Constructor usado por las consultas JPQL: recibe la contraseña seguida de los campos de {@link UserProfileView} */
+    public UserCredentials(String password, UUID userProfileID, String firstName, String surname1, String surname2,
+                           String email, Date birthDate, Date joinDate, String description, String nickName,
+                           String avatarHash, Float score, UserRoles role, Long version) {
+        this.password = password;
+        this.profile = new UserProfileView(userProfileID, firstName, surname1, surname2, email, birthDate, joinDate,
+                                           description, nickName, avatarHash, score, role, version);
+    }
+}
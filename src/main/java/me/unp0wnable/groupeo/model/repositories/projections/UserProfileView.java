@@ -0,0 +1,46 @@
+package me.unp0wnable.groupeo.model.repositories.projections;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import me.unp0wnable.groupeo.model.entities.UserProfile;
+import me.unp0wnable.groupeo.model.entities.UserProfile.UserRoles;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Datos públicos del perfil de un usuario, de solo lectura.
+ * Se obtiene directamente de la consulta sin cargar la entidad en la sesión, y no incluye la contraseña ni la dirección
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class UserProfileView {
+    private final UUID userProfileID;
+    private final String firstName;
+    private final String surname1;
+    private final String surname2;
+    private final String email;
+    private final Date birthDate;
+    private final Date joinDate;
+    private final String description;
+    private final String nickName;
+    private final String avatarHash;
+    private final Float score;
+    private final UserRoles role;
+    /** Versión del perfil en la que se obtuvieron los datos; no forma parte de ellos al compararlos */
+    @EqualsAndHashCode.Exclude
+    private final Long version;
+    
+    
+    /** Obtiene la vista de un perfil ya cargado */
+    public static UserProfileView fromEntity(UserProfile user) {
+        return new UserProfileView(user.getUserProfileID(), user.getFirstName(), user.getSurname1(),
+                                   user.getSurname2(), user.getEmail(), user.getBirthDate(), user.getJoinDate(),
+                                   user.getDescription(), user.getNickName(), user.getAvatarHash(), user.getScore(),
+                                   user.getRole(), user.getVersion());
+    }
+}
@@ -0,0 +1,22 @@
+package me.unp0wnable.groupeo.model.repositories.projections;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.UUID;
+
+/** Datos mínimos de un usuario para mostrarlo en los resultados de una búsqueda, de solo lectura */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class UserSearchResult {
+    private final UUID userProfileID;
+    private final String nickName;
+    private final String firstName;
+    private final String surname1;
+    private final String surname2;
+    private final String avatarHash;
+}
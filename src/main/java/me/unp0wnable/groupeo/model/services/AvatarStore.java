@@ -0,0 +1,59 @@
+package me.unp0wnable.groupeo.model.services;
+
+import me.unp0wnable.groupeo.model.exceptions.AvatarTooLargeException;
+import me.unp0wnable.groupeo.model.exceptions.UnsupportedAvatarFormatException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Almacén de avatares direccionado por contenido: cada imagen se guarda una única vez en el sistema de ficheros
+ * y se identifica por el hash SHA-256 (hexadecimal) de sus bytes.
+ */
+public interface AvatarStore {
+    
+    /**
+     * Guarda el contenido recibido leyéndolo por bloques de tamaño fijo, sin cargar nunca la imagen completa en memoria.
+     * El tamaño y el formato se comprueban mientras se lee: si no son válidos se deja de leer y se descarta lo recibido
+     * @param content Bytes de la imagen
+     * @return Hash del contenido guardado
+     * @throws AvatarTooLargeException Si el contenido supera el tamaño máximo permitido
+     * @throws UnsupportedAvatarFormatException Si el contenido no es una imagen PNG, JPEG o GIF
+     */
+    String store(InputStream content) throws IOException, AvatarTooLargeException, UnsupportedAvatarFormatException;
+    
+    /** Tamaño máximo en bytes de un avatar */
+    long getMaxSizeBytes();
+    
+    /**
+     * Obtiene el fichero en el que está guardado un avatar
+     * @param hash Hash del contenido
+     * @return Ruta del fichero, o vacío si no existe
+     */
+    Optional<Path> find(String hash);
+    
+    /**
+     * Guarda una versión redimensionada (PNG) de una imagen del almacén
+     * @param hash Hash de la imagen original
+     * @param size Lado máximo en píxeles de la versión
+     * @param content Bytes de la versión en formato PNG
+     */
+    void storeVariant(String hash, int size, byte[] content) throws IOException;
+    
+    /**
+     * Obtiene el fichero de una versión redimensionada de una imagen
+     * @param hash Hash de la imagen original
+     * @param size Lado máximo en píxeles de la versión
+     * @return Ruta del fichero, o vacío si todavía no se ha generado
+     */
+    Optional<Path> findVariant(String hash, int size);
+    
+    /**
+     * Obtiene el tipo MIME de un avatar guardado a partir de sus primeros bytes
+     * @param avatar Ruta del fichero del avatar
+     * @return Tipo MIME, o vacío si no es un formato de imagen reconocido
+     */
+    Optional<String> probeContentType(Path avatar) throws IOException;
+}
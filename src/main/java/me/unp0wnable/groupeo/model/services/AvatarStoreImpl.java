@@ -0,0 +1,179 @@
+package me.unp0wnable.groupeo.model.services;
+
+import me.unp0wnable.groupeo.model.exceptions.AvatarTooLargeException;
+import me.unp0wnable.groupeo.model.exceptions.UnsupportedAvatarFormatException;
+import me.unp0wnable.groupeo.model.utils.ImageFormats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+@Component
+public class AvatarStoreImpl implements AvatarStore {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final Pattern HASH_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+    private static final String TEMPORARY_DIRECTORY = "tmp";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    
+    @Value("${project.avatars.storageDirectory}")
+    private Path storageDirectory;
+    
+    @Value("${project.avatars.maxSizeBytes}")
+    private long maxSizeBytes;
+    
+    private Path temporaryDirectory;
+    
+    
+    @PostConstruct
+    void createDirectories() throws IOException {
+        temporaryDirectory = storageDirectory.resolve(TEMPORARY_DIRECTORY);
+        Files.createDirectories(temporaryDirectory);
+    }
+    
+    /* *********************************** USE CASES *********************************** */
+    @Override
+    public String store(InputStream content) throws IOException, AvatarTooLargeException,
+                                                    UnsupportedAvatarFormatException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        
+        // Comprobar el formato con los primeros bytes antes de escribir nada en disco
+        int read = content.readNBytes(buffer.array(), 0, ImageFormats.SIGNATURE_LENGTH);
+        if (ImageFormats.detectContentType(buffer.array(), read).isEmpty()) {
+            throw new UnsupportedAvatarFormatException();
+        }
+        
+        Path temporaryFile = Files.createTempFile(temporaryDirectory, "avatar-", ".part");
+        try {
+            // Copiar el contenido al fichero temporal calculando su hash a la vez
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                long totalBytes = 0;
+                while (read != -1) {
+                    // Dejar de leer en cuanto se supere el tamaño máximo
+                    totalBytes += read;
+                    if (totalBytes > maxSizeBytes) {
+                        throw new AvatarTooLargeException(maxSizeBytes);
+                    }
+                    
+                    digest.update(buffer.array(), 0, read);
+                    buffer.limit(read);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    buffer.clear();
+                    read = content.read(buffer.array(), 0, buffer.capacity());
+                }
+                channel.force(false);
+            }
+            
+            // Mover el fichero a su ruta definitiva: si ya existía el contenido es el mismo y se reemplaza sin más
+            String hash = toHex(digest.digest());
+            Path avatar = resolve(hash);
+            Files.createDirectories(avatar.getParent());
+            Files.move(temporaryFile, avatar, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            
+            return hash;
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+    
+    @Override
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+    
+    @Override
+    public Optional<Path> find(String hash) {
+        // Comprobar que el hash es válido para no acceder a rutas fuera del almacén
+        if (!isValidHash(hash)) return Optional.empty();
+        
+        Path avatar = resolve(hash);
+        return Files.isRegularFile(avatar) ? Optional.of(avatar) : Optional.empty();
+    }
+    
+    @Override
+    public void storeVariant(String hash, int size, byte[] content) throws IOException {
+        if (!isValidHash(hash)) throw new IllegalArgumentException("Invalid image hash: " + hash);
+        
+        Path temporaryFile = Files.createTempFile(temporaryDirectory, "variant-", ".part");
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            
+            Path variant = resolveVariant(hash, size);
+            Files.createDirectories(variant.getParent());
+            Files.move(temporaryFile, variant, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+    
+    @Override
+    public Optional<Path> findVariant(String hash, int size) {
+        if (!isValidHash(hash)) return Optional.empty();
+        
+        Path variant = resolveVariant(hash, size);
+        return Files.isRegularFile(variant) ? Optional.of(variant) : Optional.empty();
+    }
+    
+    @Override
+    public Optional<String> probeContentType(Path avatar) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(ImageFormats.SIGNATURE_LENGTH);
+        try (FileChannel channel = FileChannel.open(avatar, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) != -1) {
+                // Leer hasta completar la firma o llegar al final del fichero
+            }
+        }
+        
+        return ImageFormats.detectContentType(header.array(), header.position());
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Reparte los ficheros en subdirectorios según los primeros caracteres del hash */
+    private Path resolve(String hash) {
+        return storageDirectory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+    
+    private Path resolveVariant(String hash, int size) {
+        return resolve(hash).resolveSibling(hash + "-" + size + ".png");
+    }
+    
+    private static boolean isValidHash(String hash) {
+        return (hash != null) && HASH_PATTERN.matcher(hash).matches();
+    }
+    
+    private static String toHex(byte[] digest) {
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+    
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+}
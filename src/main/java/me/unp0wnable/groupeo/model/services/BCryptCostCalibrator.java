@@ -0,0 +1,54 @@
+package me.unp0wnable.groupeo.model.services;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Arrays;
+
+/**
+ * Calcula el coste de BCrypt adecuado para la máquina actual.
+ * Cada unidad de coste duplica el tiempo de cifrado, por lo que basta con medir el coste mínimo y extrapolar el mayor
+ * coste cuyo tiempo estimado no supere la latencia objetivo.
+ */
+@Slf4j
+@UtilityClass
+public class BCryptCostCalibrator {
+    private static final String SAMPLE_PASSWORD = "groupeo-calibration-password";
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    
+    /**
+     * Mide el hardware y obtiene el coste de BCrypt a utilizar
+     * @param targetMillis Latencia objetivo de un cifrado
+     * @param minCost Coste mínimo permitido, aunque supere la latencia objetivo
+     * @param maxCost Coste máximo permitido
+     * @return Coste calibrado dentro del rango <c>[minCost, maxCost]</c>
+     */
+    public static int calibrate(long targetMillis, int minCost, int maxCost) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minCost);
+        
+        // Calentar la JVM antes de medir
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            encoder.encode(SAMPLE_PASSWORD);
+        }
+        
+        // Obtener la mediana del tiempo de cifrado con el coste mínimo
+        long[] samples = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double minCostMillis = Math.max(samples[MEASURED_ROUNDS / 2] / 1_000_000.0, 0.001);
+        
+        // Cada unidad de coste adicional duplica el tiempo
+        int extraCost = (int) Math.floor(Math.log(targetMillis / minCostMillis) / Math.log(2));
+        int cost = Math.min(maxCost, Math.max(minCost, minCost + extraCost));
+        log.info("BCrypt cost calibrated to {} (cost {} took {} ms, target {} ms)",
+                 cost, minCost, String.format("%.1f", minCostMillis), targetMillis);
+        
+        return cost;
+    }
+}
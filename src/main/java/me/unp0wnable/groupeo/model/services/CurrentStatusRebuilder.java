@@ -0,0 +1,250 @@
+package me.unp0wnable.groupeo.model.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Reconstruye las tablas de estados actuales (<c>FriendshipCurrentStatus</c> y <c>AssistanceCurrentStatus</c>) a
+ * partir de sus historiales.
+ * <p>
+ * Los disparadores de la base de datos las mantienen al insertar cada estado; la reconstrucción periódica corrige las
+ * diferencias que puedan aparecer (cargas masivas con los disparadores desactivados, restauraciones parciales...).
+ * Cada tabla se divide en bloques de pares consecutivos de la clave primaria, con un número de pares parecido, que se
+ * reconstruyen en paralelo y cada uno en su propia transacción. Nunca se sustituye un estado por otro más antiguo, por
+ * lo que puede ejecutarse a la vez que se insertan estados nuevos o en varios nodos a la vez.
+ * <p>
+ * Los estados de amistad corregidos actualizan su fecha de cambio (<c>changedAt</c>), para que el índice de amistades
+ * de cada nodo los lea como cualquier otro cambio. Los borrados no se leen: se descartan en la siguiente
+ * reconstrucción del índice.
+ */
+@Slf4j
+@Component
+public class CurrentStatusRebuilder {
+    private static final String METRICS_PREFIX = "groupeo.statuses.current";
+    /** Menor UUID posible: límite inferior del primer bloque */
+    private static final UUID MIN_UUID = new UUID(0, 0);
+    
+    /** Tablas de estados actuales y las consultas para reconstruirlas por bloques de la primera columna de su clave */
+    enum CurrentStatusTable {
+        FRIENDSHIP(
+                "FriendshipCurrentStatus",
+                "SELECT DISTINCT ON (chunk) requesterID FROM (" +
+                "    SELECT requesterID, ntile(:chunks) OVER (ORDER BY requesterID) AS chunk FROM FriendshipStatus" +
+                ") boundaries ORDER BY chunk, requesterID",
+                "INSERT INTO FriendshipCurrentStatus (requesterID, targetID, lastUpdated, specifierID, statusID) " +
+                "SELECT DISTINCT ON (requesterID, targetID) requesterID, targetID, lastUpdated, specifierID, statusID " +
+                "FROM FriendshipStatus " +
+                "WHERE requesterID >= :from AND (:last OR requesterID < :to) " +
+                "ORDER BY requesterID, targetID, lastUpdated DESC " +
+                "ON CONFLICT (requesterID, targetID) DO UPDATE " +
+                "    SET lastUpdated = EXCLUDED.lastUpdated, specifierID = EXCLUDED.specifierID, " +
+                "        statusID = EXCLUDED.statusID, changedAt = CURRENT_TIMESTAMP " +
+                "    WHERE FriendshipCurrentStatus.lastUpdated <= EXCLUDED.lastUpdated " +
+                "        AND (FriendshipCurrentStatus.lastUpdated, FriendshipCurrentStatus.specifierID, " +
+                "             FriendshipCurrentStatus.statusID) " +
+                "            IS DISTINCT FROM (EXCLUDED.lastUpdated, EXCLUDED.specifierID, EXCLUDED.statusID)",
+                "DELETE FROM FriendshipCurrentStatus c " +
+                "WHERE c.requesterID >= :from AND (:last OR c.requesterID < :to) " +
+                "    AND c.lastUpdated >= :liveSince " +
+                "    AND NOT EXISTS (SELECT 1 FROM FriendshipStatus s " +
+                "                    WHERE s.requesterID = c.requesterID AND s.targetID = c.targetID)"
+        ),
+        ASSISTANCE(
+                "AssistanceCurrentStatus",
+                "SELECT DISTINCT ON (chunk) invitingUserID FROM (" +
+                "    SELECT invitingUserID, ntile(:chunks) OVER (ORDER BY invitingUserID) AS chunk " +
+                "    FROM AssistanceStatus" +
+                ") boundaries ORDER BY chunk, invitingUserID",
+                "INSERT INTO AssistanceCurrentStatus (invitingUserID, invitedUserID, lastUpdated, statusID) " +
+                "SELECT DISTINCT ON (invitingUserID, invitedUserID) invitingUserID, invitedUserID, lastUpdated, " +
+                "       statusID " +
+                "FROM AssistanceStatus " +
+                "WHERE invitingUserID >= :from AND (:last OR invitingUserID < :to) " +
+                "ORDER BY invitingUserID, invitedUserID, lastUpdated DESC " +
+                "ON CONFLICT (invitingUserID, invitedUserID) DO UPDATE " +
+                "    SET lastUpdated = EXCLUDED.lastUpdated, statusID = EXCLUDED.statusID " +
+                "    WHERE AssistanceCurrentStatus.lastUpdated <= EXCLUDED.lastUpdated " +
+                "        AND (AssistanceCurrentStatus.lastUpdated, AssistanceCurrentStatus.statusID) " +
+                "            IS DISTINCT FROM (EXCLUDED.lastUpdated, EXCLUDED.statusID)",
+                "DELETE FROM AssistanceCurrentStatus c " +
+                "WHERE c.invitingUserID >= :from AND (:last OR c.invitingUserID < :to) " +
+                "    AND c.lastUpdated >= :liveSince " +
+                "    AND NOT EXISTS (SELECT 1 FROM AssistanceStatus s " +
+                "                    WHERE s.invitingUserID = c.invitingUserID AND s.invitedUserID = c.invitedUserID)"
+        );
+        
+        private final String tableName;
+        /** Primer valor de la primera columna de la clave en cada bloque, en orden */
+        private final String boundariesQuery;
+        /** Inserta o corrige el estado más reciente de cada par del bloque. Los que ya son correctos no se modifican */
+        private final String upsertChunkQuery;
+        /**
+         * Borra los estados actuales del bloque cuyo historial ya no existe. Los anteriores a las particiones
+         * archivadas se conservan: su historial ya no está en la base de datos
+         */
+        private final String deleteOrphansQuery;
+        
+        CurrentStatusTable(String tableName, String boundariesQuery, String upsertChunkQuery,
+                           String deleteOrphansQuery) {
+            this.tableName = tableName;
+            this.boundariesQuery = boundariesQuery;
+            this.upsertChunkQuery = upsertChunkQuery;
+            this.deleteOrphansQuery = deleteOrphansQuery;
+        }
+    }
+    
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private StatusHistoryMaintenance statusHistoryMaintenance;
+    
+    @Value("${project.currentStatuses.rebuild.chunks}")
+    private int chunks;
+    @Value("${project.currentStatuses.rebuild.threads}")
+    private int threads;
+    
+    private ExecutorService executor;
+    private Timer rebuildTimer;
+    private Counter updatedRowsCounter;
+    
+    
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("current-status-rebuild-"));
+        
+        rebuildTimer = Timer.builder(METRICS_PREFIX + ".rebuild")
+                            .description("Tiempo de reconstrucción de una tabla de estados actuales")
+                            .register(meterRegistry);
+        updatedRowsCounter = Counter.builder(METRICS_PREFIX + ".rebuild.updatedRows")
+                                    .description("Estados actuales corregidos al reconstruirlos desde el historial")
+                                    .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        // Los bloques interrumpidos se deshacen y se reconstruyen en la siguiente ejecución
+        executor.shutdownNow();
+    }
+    
+    
+    /* ********************************* SCHEDULED TASKS ********************************* */
+    /** Reconstruye todas las tablas de estados actuales */
+    @Scheduled(cron = "${project.currentStatuses.rebuild.cron}")
+    public synchronized void rebuildAll() {
+        for (CurrentStatusTable table : CurrentStatusTable.values()) {
+            try {
+                rebuildTimer.record(() -> rebuild(table));
+            } catch (RuntimeException e) {
+                log.warn("Unable to rebuild {}", table.tableName, e);
+            }
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /**
+     * Reconstruye una tabla por bloques en paralelo
+     * @return Filas insertadas, actualizadas o borradas
+     */
+    long rebuild(CurrentStatusTable table) {
+        long startMillis = System.currentTimeMillis();
+        List<UUID> boundaries = findChunkBoundaries(table);
+        Date liveSince = statusHistoryMaintenance.getArchivedBefore();
+        
+        List<Future<Long>> results = new ArrayList<>(boundaries.size());
+        for (int i = 0; i < boundaries.size(); i++) {
+            UUID from = boundaries.get(i);
+            boolean last = (i == boundaries.size() - 1);
+            UUID to = last ? from : boundaries.get(i + 1);
+            results.add(executor.submit(() -> rebuildChunk(table, from, to, last, liveSince)));
+        }
+        
+        long updatedRows = 0;
+        for (Future<Long> result : results) {
+            updatedRows += awaitChunk(result);
+        }
+        updatedRowsCounter.increment(updatedRows);
+        log.info("Rebuilt {} in {} chunks in {} ms ({} rows changed)", table.tableName, boundaries.size(),
+                 System.currentTimeMillis() - startMillis, updatedRows);
+        return updatedRows;
+    }
+    
+    /**
+     * Divide el historial en bloques con un número de filas parecido. El primer bloque empieza en el menor UUID
+     * posible, para que también se borren los estados actuales sin historial anteriores al primero
+     */
+    @SuppressWarnings("unchecked")
+    private List<UUID> findChunkBoundaries(CurrentStatusTable table) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        List<UUID> boundaries = new ArrayList<>();
+        boundaries.add(MIN_UUID);
+        
+        List<UUID> found = transaction.execute(status -> entityManager.createNativeQuery(table.boundariesQuery)
+                .setParameter("chunks", chunks)
+                .getResultList()
+        );
+        if (found != null) {
+            // Un usuario con muchas filas puede ocupar varios bloques: basta con que empiece uno
+            for (UUID boundary : found) {
+                if (!boundary.equals(boundaries.get(boundaries.size() - 1))) boundaries.add(boundary);
+            }
+        }
+        return boundaries;
+    }
+    
+    private long rebuildChunk(CurrentStatusTable table, UUID from, UUID to, boolean last, Date liveSince) {
+        // Siempre contra el nodo principal, en una transacción propia por bloque
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Long updatedRows = transaction.execute(status -> {
+            long rows = entityManager.createNativeQuery(table.upsertChunkQuery)
+                    .setParameter("from", from)
+                    .setParameter("to", to)
+                    .setParameter("last", last)
+                    .executeUpdate();
+            rows += entityManager.createNativeQuery(table.deleteOrphansQuery)
+                    .setParameter("from", from)
+                    .setParameter("to", to)
+                    .setParameter("last", last)
+                    .setParameter("liveSince", liveSince)
+                    .executeUpdate();
+            return rows;
+        });
+        
+        return (updatedRows == null) ? 0 : updatedRows;
+    }
+    
+    private static long awaitChunk(Future<Long> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rebuilding current statuses", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to rebuild a chunk of current statuses", e.getCause());
+        }
+    }
+    
+}
@@ -0,0 +1,14 @@
+package me.unp0wnable.groupeo.model.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/** Usuario sugerido como amigo por tener amigos en común */
+@Getter
+@AllArgsConstructor
+public class FriendSuggestion {
+    private final UUID userID;
+    private final int mutualFriends;
+}
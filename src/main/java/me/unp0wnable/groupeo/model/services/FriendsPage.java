@@ -0,0 +1,16 @@
+package me.unp0wnable.groupeo.model.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.UUID;
+
+/** Página de la lista de amigos de un usuario */
+@Getter
+@AllArgsConstructor
+public class FriendsPage {
+    private final List<UUID> friendIDs;
+    /** Número total de amigos del usuario */
+    private final int totalFriends;
+}
@@ -0,0 +1,436 @@
+package me.unp0wnable.groupeo.model.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import me.unp0wnable.groupeo.model.entities.FriendshipStatus.FriendshipStates;
+import me.unp0wnable.groupeo.model.repositories.FriendshipCurrentStatusRepository;
+import me.unp0wnable.groupeo.model.repositories.UserPurgeRepository;
+import me.unp0wnable.groupeo.model.utils.ChangeCatchUp;
+import me.unp0wnable.groupeo.model.utils.FriendshipGraph;
+import me.unp0wnable.groupeo.model.utils.FriendshipGraphSnapshot;
+import me.unp0wnable.groupeo.model.utils.MutualFriendsCounter;
+import me.unp0wnable.groupeo.model.utils.MutualFriendsCounter.Candidate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Índice en memoria de las amistades aceptadas, para listar los amigos de un usuario o comprobar si dos usuarios son
+ * amigos sin consultar la base de datos.
+ * <p>
+ * El índice se construye al arrancar, antes de atender peticiones, y se reconstruye periódicamente recorriendo la tabla
+ * de estados actuales. Los cambios de este nodo se aplican al confirmar su transacción y los del resto de nodos se leen
+ * cada pocos milisegundos (estados cambiados y usuarios eliminados desde la última comprobación). Mientras se
+ * reconstruye, los cambios se aplican a ambos índices.
+ * <p>
+ * El índice se guarda periódicamente en disco ({@link FriendshipGraphSnapshot}). Al arrancar, si hay una copia
+ * reciente, se proyecta en memoria sin recorrerla y solo se aplican los cambios posteriores a ella, en lugar de
+ * recorrer la tabla. Su contenido se comprueba después, ya atendiendo peticiones, y si está dañado se reconstruye el
+ * índice.
+ * <p>
+ * También calcula las sugerencias de amistad (amigos de amigos con más amigos en común) y las guarda en caché por
+ * usuario. Las de un usuario se invalidan cuando cambian sus amistades; los cambios en las de sus amigos solo se
+ * reflejan al caducar, lo que basta para unas sugerencias. Expone las métricas de caché bajo el nombre
+ * <c>friendSuggestions</c>.
+ */
+@Slf4j
+@Component
+public class FriendshipIndex {
+    private static final String METRICS_PREFIX = "groupeo.friendships.index";
+    private static final double MEBIBYTE = 1024 * 1024;
+    private static final String SUGGESTIONS_CACHE_METRICS_NAME = "friendSuggestions";
+    
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private FriendshipCurrentStatusRepository friendshipCurrentStatusRepository;
+    @Autowired
+    private UserPurgeRepository userPurgeRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${project.friendships.index.rebuildIntervalMinutes}")
+    private long rebuildIntervalMinutes;
+    @Value("${project.friendships.index.catchUpOverlapSeconds}")
+    private long catchUpOverlapSeconds;
+    @Value("${project.friendships.index.snapshot.enabled}")
+    private boolean snapshotEnabled;
+    @Value("${project.friendships.index.snapshot.file}")
+    private Path snapshotFile;
+    @Value("${project.friendships.index.snapshot.maxAgeMinutes}")
+    private long snapshotMaxAgeMinutes;
+    @Value("${project.friendships.suggestions.maxSuggestions}")
+    private int maxSuggestions;
+    @Value("${project.friendships.suggestions.cacheMaxSize}")
+    private long suggestionsCacheMaxSize;
+    @Value("${project.friendships.suggestions.expireAfterWriteSeconds}")
+    private long suggestionsExpireAfterWriteSeconds;
+    @Value("${project.friendships.suggestions.threads}")
+    private int suggestionThreads;
+    @Value("${project.friendships.suggestions.parallelThreshold}")
+    private long parallelThreshold;
+    @Value("${project.friendships.suggestions.maxFriendDegree}")
+    private int maxFriendDegree;
+    
+    /** Índice en uso */
+    private volatile FriendshipGraph current;
+    /** Índice en construcción, que también recibe los cambios confirmados mientras se recorre la tabla */
+    private volatile FriendshipGraph building;
+    private long lastRebuildMillis;
+    private ChangeCatchUp changes;
+    /** Copia en disco cargada al arrancar cuyas secciones aún no se han comprobado */
+    private FriendshipGraphSnapshot unverifiedSnapshot;
+    
+    /** Sugerencias calculadas de cada usuario, hasta el máximo configurado */
+    private Cache<UUID, List<FriendSuggestion>> suggestionsCache;
+    private ForkJoinPool suggestionsPool;
+    private MutualFriendsCounter mutualFriendsCounter;
+    
+    private Timer rebuildTimer;
+    private Timer suggestionsTimer;
+    private Timer snapshotWriteTimer;
+    
+    
+    @PostConstruct
+    public void init() throws IOException {
+        changes = new ChangeCatchUp(catchUpOverlapSeconds);
+        if (snapshotEnabled) Files.createDirectories(snapshotDirectory());
+        
+        suggestionsPool = new ForkJoinPool(suggestionThreads);
+        mutualFriendsCounter = new MutualFriendsCounter(suggestionsPool, parallelThreshold, maxFriendDegree);
+        suggestionsCache = Caffeine.newBuilder()
+                                   .maximumSize(suggestionsCacheMaxSize)
+                                   .expireAfterWrite(Duration.ofSeconds(suggestionsExpireAfterWriteSeconds))
+                                   .recordStats()
+                                   .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, suggestionsCache, SUGGESTIONS_CACHE_METRICS_NAME);
+        
+        Gauge.builder(METRICS_PREFIX + ".friendships", this, index -> index.current.friendshipCount())
+             .description("Amistades del índice")
+             .register(meterRegistry);
+        Gauge.builder(METRICS_PREFIX + ".users", this, index -> index.current.userCount())
+             .description("Usuarios con identificador en el índice")
+             .register(meterRegistry);
+        Gauge.builder(METRICS_PREFIX + ".memory", this, index -> index.current.memoryBytes())
+             .description("Memoria ocupada por el índice de amistades")
+             .baseUnit("bytes")
+             .register(meterRegistry);
+        Gauge.builder(METRICS_PREFIX + ".memoryPerMillion", this, FriendshipIndex::mebibytesPerMillion)
+             .description("Memoria ocupada por cada millón de amistades")
+             .baseUnit("mebibytes")
+             .register(meterRegistry);
+        rebuildTimer = Timer.builder(METRICS_PREFIX + ".rebuild")
+                            .description("Tiempo de reconstrucción completa del índice")
+                            .register(meterRegistry);
+        suggestionsTimer = Timer.builder(METRICS_PREFIX + ".suggestions")
+                                .description("Tiempo de cálculo de las sugerencias de amistad de un usuario")
+                                .register(meterRegistry);
+        snapshotWriteTimer = Timer.builder(METRICS_PREFIX + ".snapshot.write")
+                                  .description("Tiempo de escritura del índice en disco")
+                                  .register(meterRegistry);
+        
+        // Un índice vacío respondería que nadie tiene amigos, así que no se atienden peticiones sin construirlo: se
+        // parte de la copia en disco o, si no hay una válida, se recorre la tabla
+        if (!loadSnapshot()) rebuildTimer.record(this::rebuild);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        suggestionsPool.shutdownNow();
+    }
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    /** Comprueba si dos usuarios son amigos */
+    public boolean areFriends(UUID firstUserID, UUID secondUserID) {
+        return current.areFriends(firstUserID, secondUserID);
+    }
+    
+    /**
+     * Obtiene una página de los amigos de un usuario. El orden es estable mientras no cambien sus amistades
+     * @param userID ID del usuario
+     * @param offset Amigos a saltar
+     * @param limit Número máximo de amigos a devolver
+     * @return Página de amigos
+     */
+    public FriendsPage getFriends(UUID userID, int offset, int limit) {
+        FriendshipGraph graph = current;
+        int[] friends = graph.getFriends(userID);
+        
+        int from = Math.min(offset, friends.length);
+        int to = (int) Math.min((long) from + limit, friends.length);
+        List<UUID> friendIDs = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            friendIDs.add(graph.getUserID(friends[i]));
+        }
+        return new FriendsPage(friendIDs, friends.length);
+    }
+    
+    /**
+     * Obtiene los usuarios que no son amigos del usuario con los que tiene más amigos en común
+     * @param userID ID del usuario
+     * @param limit Número máximo de sugerencias; no puede superar el configurado
+     * @return Sugerencias de más a menos amigos en común
+     */
+    public List<FriendSuggestion> getSuggestions(UUID userID, int limit) {
+        List<FriendSuggestion> suggestions = suggestionsCache.get(userID, this::computeSuggestions);
+        
+        return (suggestions.size() > limit) ? suggestions.subList(0, limit) : suggestions;
+    }
+    
+    public int getMaxSuggestions() {
+        return maxSuggestions;
+    }
+    
+    
+    /* *********************************** UPDATES *********************************** */
+    /** Añade una amistad al índice al confirmar la transacción actual */
+    public void addFriendship(UUID firstUserID, UUID secondUserID) {
+        ChangeCatchUp.afterCommit(() -> {
+            // Invalidar después de cambiar el grafo: espera a los cálculos en curso, que pueden usar el anterior
+            applyToIndexes(graph -> graph.addFriendship(firstUserID, secondUserID));
+            suggestionsCache.invalidateAll(List.of(firstUserID, secondUserID));
+        });
+    }
+    
+    /** Elimina una amistad del índice al confirmar la transacción actual */
+    public void removeFriendship(UUID firstUserID, UUID secondUserID) {
+        ChangeCatchUp.afterCommit(() -> {
+            applyToIndexes(graph -> graph.removeFriendship(firstUserID, secondUserID));
+            suggestionsCache.invalidateAll(List.of(firstUserID, secondUserID));
+        });
+    }
+    
+    /** Elimina todas las amistades de un usuario eliminado al confirmar la transacción actual */
+    public void removeUser(UUID userID) {
+        ChangeCatchUp.afterCommit(() -> {
+            List<UUID> affectedUserIDs = userAndFriends(current, userID);
+            applyToIndexes(graph -> graph.removeUser(userID));
+            suggestionsCache.invalidateAll(affectedUserIDs);
+        });
+    }
+    
+    
+    /* ********************************* SCHEDULED TASKS ********************************* */
+    /** Aplica los cambios del resto de nodos, reconstruyendo el índice cuando es necesario */
+    @Scheduled(fixedDelayString = "${project.friendships.index.refreshIntervalMillis}")
+    public synchronized void refresh() {
+        try {
+            if (unverifiedSnapshot != null) verifySnapshot();
+            
+            long now = System.currentTimeMillis();
+            boolean rebuildRequired = now - lastRebuildMillis > TimeUnit.MINUTES.toMillis(rebuildIntervalMinutes);
+            if (rebuildRequired) {
+                rebuildTimer.record(this::rebuild);
+            } else {
+                catchUp();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to refresh friendship index", e);
+        }
+    }
+    
+    /** Guarda el índice en disco, para poder cargarlo al arrancar */
+    @Scheduled(fixedDelayString = "${project.friendships.index.snapshot.intervalMillis}",
+               initialDelayString = "${project.friendships.index.snapshot.intervalMillis}")
+    public void writeSnapshot() {
+        if (!snapshotEnabled) return;
+        
+        // El índice puede incluir cambios posteriores a la marca de agua: volver a aplicarlos no lo altera
+        FriendshipGraph graph;
+        long watermarkMillis;
+        synchronized (this) {
+            if (unverifiedSnapshot != null) return;
+            graph = current;
+            watermarkMillis = changes.getLastCatchUpMillis();
+        }
+        
+        long startMillis = System.currentTimeMillis();
+        try {
+            long sizeBytes = snapshotWriteTimer.recordCallable(
+                    () -> FriendshipGraphSnapshot.write(graph, watermarkMillis, snapshotFile, snapshotDirectory())
+            );
+            log.info("Friendship index snapshot written to {} ({} bytes) in {} ms", snapshotFile, sizeBytes,
+                     System.currentTimeMillis() - startMillis);
+        } catch (Exception e) {
+            log.warn("Unable to write friendship index snapshot to {}", snapshotFile, e);
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /**
+     * Carga el índice guardado en disco, si existe y es reciente, y le aplica los cambios posteriores como los del
+     * resto de nodos. Solo se comprueba la cabecera: el resto se comprueba en la primera actualización periódica, ya
+     * atendiendo peticiones. La siguiente reconstrucción completa se hace como si acabase de hacerse una
+     * @return <c>false</c> si no se ha podido cargar
+     */
+    private boolean loadSnapshot() {
+        if (!snapshotEnabled || !Files.isRegularFile(snapshotFile)) return false;
+        
+        long startMillis = System.currentTimeMillis();
+        FriendshipGraphSnapshot snapshot;
+        try {
+            snapshot = FriendshipGraphSnapshot.open(snapshotFile);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable friendship index snapshot {}", snapshotFile, e);
+            return false;
+        }
+        if (startMillis - snapshot.getWatermarkMillis() > TimeUnit.MINUTES.toMillis(snapshotMaxAgeMinutes)) {
+            log.info("Ignoring friendship index snapshot {} older than {} minutes", snapshotFile,
+                     snapshotMaxAgeMinutes);
+            return false;
+        }
+        
+        FriendshipGraph loaded = new FriendshipGraph(snapshot);
+        current = loaded;
+        changes.restart(snapshot.getWatermarkMillis());
+        try {
+            catchUp();
+        } catch (RuntimeException e) {
+            log.warn("Unable to apply changes after friendship index snapshot {}", snapshotFile, e);
+            return false;
+        }
+        unverifiedSnapshot = snapshot;
+        lastRebuildMillis = startMillis;
+        log.info("Friendship index loaded from {} with {} friendships of {} users in {} ms, {} ms behind",
+                 snapshotFile, loaded.friendshipCount(), loaded.userCount(), System.currentTimeMillis() - startMillis,
+                 startMillis - snapshot.getWatermarkMillis());
+        return true;
+    }
+    
+    /** Comprueba el contenido de la copia cargada al arrancar; si está dañada, el índice se reconstruye */
+    private void verifySnapshot() {
+        FriendshipGraphSnapshot snapshot = unverifiedSnapshot;
+        unverifiedSnapshot = null;
+        try {
+            snapshot.verify();
+        } catch (IOException e) {
+            log.warn("Rebuilding friendship index loaded from a corrupted snapshot", e);
+            lastRebuildMillis = 0;
+        }
+    }
+    
+    /** Directorio de la copia en disco, donde también se escriben las nuevas antes de sustituirla */
+    private Path snapshotDirectory() {
+        return snapshotFile.toAbsolutePath().getParent();
+    }
+    
+    /** Construye un índice nuevo recorriendo todas las amistades aceptadas */
+    private void rebuild() {
+        long startMillis = System.currentTimeMillis();
+        FriendshipGraph rebuilt = new FriendshipGraph();
+        building = rebuilt;
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(true);
+            transaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> friendships = friendshipCurrentStatusRepository.streamAcceptedFriendships()) {
+                    friendships.forEach(pair -> rebuilt.addFriendship((UUID) pair[0], (UUID) pair[1]));
+                }
+            });
+            current = rebuilt;
+        } finally {
+            building = null;
+        }
+        
+        suggestionsCache.invalidateAll();
+        lastRebuildMillis = startMillis;
+        changes.restart(startMillis);
+        log.info("Friendship index rebuilt with {} friendships of {} users in {} ms, using {} bytes ({} MiB per million)",
+                 rebuilt.friendshipCount(), rebuilt.userCount(), System.currentTimeMillis() - startMillis,
+                 rebuilt.memoryBytes(), String.format(Locale.ROOT, "%.1f", mebibytesPerMillion()));
+    }
+    
+    /** Aplica el estado actual de las relaciones cambiadas y los usuarios eliminados desde la última comprobación */
+    private void catchUp() {
+        FriendshipGraph graph = current;
+        
+        // Aplicar el estado más reciente: repetir uno ya aplicado no altera el índice. Se lee de la principal, ya que
+        // una réplica con retraso podría devolver un estado anterior a otro ya aplicado en este nodo
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        changes.run(since -> transaction.executeWithoutResult(status -> {
+            try (Stream<Object[]> statuses = friendshipCurrentStatusRepository.streamStatusesChangedAfter(since)) {
+                statuses.forEach(row -> {
+                    UUID requesterID = (UUID) row[0];
+                    UUID targetID = (UUID) row[1];
+                    boolean changed = (toState(row[2]) == FriendshipStates.ACCEPTED)
+                            ? graph.addFriendship(requesterID, targetID)
+                            : graph.removeFriendship(requesterID, targetID);
+                    if (changed) suggestionsCache.invalidateAll(List.of(requesterID, targetID));
+                });
+            }
+            userPurgeRepository.findUserIDsRequestedAfter(since).forEach(userID -> {
+                List<UUID> affectedUserIDs = userAndFriends(graph, userID);
+                graph.removeUser(userID);
+                suggestionsCache.invalidateAll(affectedUserIDs);
+            });
+        }));
+    }
+    
+    private List<FriendSuggestion> computeSuggestions(UUID userID) {
+        FriendshipGraph graph = current;
+        List<Candidate> candidates = suggestionsTimer.record(
+                () -> mutualFriendsCounter.topCandidates(graph, graph.findID(userID), maxSuggestions)
+        );
+        
+        List<FriendSuggestion> suggestions = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            suggestions.add(new FriendSuggestion(graph.getUserID(candidate.getId()), candidate.getMutualFriends()));
+        }
+        return Collections.unmodifiableList(suggestions);
+    }
+    
+    /** Usuarios cuyas sugerencias cambian al eliminar a un usuario: él mismo y sus amigos, que lo tenían en común */
+    private static List<UUID> userAndFriends(FriendshipGraph graph, UUID userID) {
+        int[] friends = graph.getFriends(userID);
+        List<UUID> userIDs = new ArrayList<>(friends.length + 1);
+        userIDs.add(userID);
+        for (int friend : friends) {
+            userIDs.add(graph.getUserID(friend));
+        }
+        return userIDs;
+    }
+    
+    private void applyToIndexes(Consumer<FriendshipGraph> change) {
+        change.accept(current);
+        
+        FriendshipGraph inConstruction = building;
+        if (inConstruction != null) change.accept(inConstruction);
+    }
+    
+    private double mebibytesPerMillion() {
+        FriendshipGraph graph = current;
+        if (graph.friendshipCount() == 0) return Double.NaN;
+        
+        return graph.memoryBytes() * (1_000_000.0 / graph.friendshipCount()) / MEBIBYTE;
+    }
+    
+    /** Los códigos de estado pueden llegar como carácter o como texto, según el driver */
+    private static FriendshipStates toState(Object code) {
+        return FriendshipStates.fromCode(String.valueOf(code).charAt(0));
+    }
+    
+    
+}
@@ -0,0 +1,16 @@
+package me.unp0wnable.groupeo.model.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+import java.util.UUID;
+
+/** Solicitud de amistad pendiente de responder */
+@Getter
+@AllArgsConstructor
+public class FriendshipRequest {
+    /** Usuario que envió la solicitud */
+    private final UUID requesterID;
+    private final Date requestDate;
+}
@@ -0,0 +1,15 @@
+package me.unp0wnable.groupeo.model.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/** Página de las solicitudes de amistad pendientes que ha recibido un usuario */
+@Getter
+@AllArgsConstructor
+public class FriendshipRequestsPage {
+    private final List<FriendshipRequest> requests;
+    /** Número total de solicitudes pendientes */
+    private final long totalRequests;
+}
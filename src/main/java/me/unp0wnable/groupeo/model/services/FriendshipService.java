@@ -0,0 +1,40 @@
+package me.unp0wnable.groupeo.model.services;
+
+import me.unp0wnable.groupeo.model.entities.FriendshipStatus.FriendshipStates;
+import me.unp0wnable.groupeo.model.exceptions.InstanceAlreadyExistsException;
+import me.unp0wnable.groupeo.model.exceptions.InstanceNotFoundException;
+import me.unp0wnable.groupeo.model.exceptions.SelfFriendshipException;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Solicitudes de amistad y amistades entre usuarios.
+ * Las consultas se responden desde el índice en memoria ({@link FriendshipIndex}), sin acceder a la base de datos.
+ */
+public interface FriendshipService {
+    
+    /**
+     * Solicita amistad a otro usuario. Si el otro usuario ya la había solicitado, se acepta directamente
+     * @return Estado resultante: pendiente o aceptada
+     */
+    FriendshipStates requestFriendship(UUID userID, UUID targetID) throws InstanceNotFoundException,
+                                                                          InstanceAlreadyExistsException,
+                                                                          SelfFriendshipException;
+    
+    void acceptFriendship(UUID userID, UUID requesterID) throws InstanceNotFoundException;
+    
+    void rejectFriendship(UUID userID, UUID requesterID) throws InstanceNotFoundException;
+    
+    void removeFriendship(UUID userID, UUID friendID) throws InstanceNotFoundException;
+    
+    boolean areFriends(UUID userID, UUID otherUserID);
+    
+    FriendsPage getFriends(UUID userID, int offset, int limit);
+    
+    /** Obtiene las solicitudes de amistad que ha recibido el usuario y aún no ha respondido, de la más reciente */
+    FriendshipRequestsPage getPendingRequests(UUID userID, int offset, int limit);
+    
+    /** Obtiene los amigos de amigos del usuario con más amigos en común ("quizás conozcas a...") */
+    List<FriendSuggestion> getSuggestions(UUID userID, int limit);
+}
@@ -0,0 +1,210 @@
+package me.unp0wnable.groupeo.model.services;
+
+import me.unp0wnable.groupeo.model.entities.Friendship;
+import me.unp0wnable.groupeo.model.entities.FriendshipCurrentStatus;
+import me.unp0wnable.groupeo.model.entities.FriendshipStatus;
+import me.unp0wnable.groupeo.model.entities.FriendshipStatus.FriendshipStates;
+import me.unp0wnable.groupeo.model.entities.UserProfile;
+import me.unp0wnable.groupeo.model.exceptions.InstanceAlreadyExistsException;
+import me.unp0wnable.groupeo.model.exceptions.InstanceNotFoundException;
+import me.unp0wnable.groupeo.model.exceptions.SelfFriendshipException;
+import me.unp0wnable.groupeo.model.repositories.FriendshipCurrentStatusRepository;
+import me.unp0wnable.groupeo.model.repositories.FriendshipRepository;
+import me.unp0wnable.groupeo.model.repositories.FriendshipStatusRepository;
+import me.unp0wnable.groupeo.model.repositories.UserProfileRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+@Transactional
+public class FriendshipServiceImpl implements FriendshipService {
+    private static final String FRIENDSHIP_ENTITY_NAME = "project.entities.Friendship";
+    private static final String FRIENDSHIP_REQUEST_ENTITY_NAME = "project.entities.FriendshipRequest";
+    
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private FriendshipRepository friendshipRepository;
+    @Autowired
+    private FriendshipStatusRepository friendshipStatusRepository;
+    @Autowired
+    private FriendshipCurrentStatusRepository friendshipCurrentStatusRepository;
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+    @Autowired
+    private FriendshipIndex friendshipIndex;
+    
+    
+    /* *********************************** USE CASES *********************************** */
+    @Override
+    public FriendshipStates requestFriendship(UUID userID, UUID targetID) throws InstanceNotFoundException,
+                                                                                 InstanceAlreadyExistsException,
+                                                                                 SelfFriendshipException {
+        if (userID.equals(targetID)) throw new SelfFriendshipException();
+        
+        // Comprobar que existen ambos usuarios (no hay claves foráneas a los perfiles)
+        if (!userProfileRepository.existsById(userID)) {
+            throw new InstanceNotFoundException(UserProfile.class.getName(), userID);
+        }
+        if (!userProfileRepository.existsById(targetID)) {
+            throw new InstanceNotFoundException(UserProfile.class.getName(), targetID);
+        }
+        
+        // Crear la relación si es la primera solicitud entre ambos usuarios
+        lockPair(userID, targetID);
+        Optional<Friendship> optionalFriendship = friendshipRepository.findBetween(userID, targetID);
+        if (optionalFriendship.isEmpty()) {
+            Friendship friendship = new Friendship();
+            friendship.setRequesterID(userID);
+            friendship.setTargetID(targetID);
+            friendshipRepository.save(friendship);
+            addStatus(friendship.getRequesterID(), friendship.getTargetID(), null, userID, FriendshipStates.PENDING);
+            
+            return FriendshipStates.PENDING;
+        }
+        
+        Friendship friendship = optionalFriendship.get();
+        FriendshipStatus currentStatus = findCurrentStatus(friendship);
+        switch (currentStatus.getStatus()) {
+            case ACCEPTED:
+                throw new InstanceAlreadyExistsException(FRIENDSHIP_ENTITY_NAME, targetID);
+            case PENDING:
+                // Repetir la solicitud no cambia nada; si la había enviado el otro usuario, se acepta
+                if (currentStatus.getSpecifierID().equals(userID)) {
+                    throw new InstanceAlreadyExistsException(FRIENDSHIP_REQUEST_ENTITY_NAME, targetID);
+                }
+                addNextStatus(currentStatus, userID, FriendshipStates.ACCEPTED);
+                friendshipIndex.addFriendship(userID, targetID);
+                
+                return FriendshipStates.ACCEPTED;
+            default:
+                // Rechazada o eliminada: se vuelve a solicitar
+                addNextStatus(currentStatus, userID, FriendshipStates.PENDING);
+                
+                return FriendshipStates.PENDING;
+        }
+    }
+    
+    @Override
+    public void acceptFriendship(UUID userID, UUID requesterID) throws InstanceNotFoundException {
+        FriendshipStatus request = findReceivedRequest(userID, requesterID);
+        addNextStatus(request, userID, FriendshipStates.ACCEPTED);
+        friendshipIndex.addFriendship(userID, requesterID);
+    }
+    
+    @Override
+    public void rejectFriendship(UUID userID, UUID requesterID) throws InstanceNotFoundException {
+        FriendshipStatus request = findReceivedRequest(userID, requesterID);
+        addNextStatus(request, userID, FriendshipStates.REJECTED);
+    }
+    
+    @Override
+    public void removeFriendship(UUID userID, UUID friendID) throws InstanceNotFoundException {
+        // Comprobar que son amigos
+        lockPair(userID, friendID);
+        Optional<FriendshipStatus> currentStatus = friendshipRepository.findBetween(userID, friendID)
+                                                                       .map(this::findCurrentStatus);
+        if (currentStatus.isEmpty() || currentStatus.get().getStatus() != FriendshipStates.ACCEPTED) {
+            throw new InstanceNotFoundException(FRIENDSHIP_ENTITY_NAME, friendID);
+        }
+        
+        addNextStatus(currentStatus.get(), userID, FriendshipStates.DELETED);
+        friendshipIndex.removeFriendship(userID, friendID);
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public boolean areFriends(UUID userID, UUID otherUserID) {
+        return friendshipIndex.areFriends(userID, otherUserID);
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public FriendsPage getFriends(UUID userID, int offset, int limit) {
+        return friendshipIndex.getFriends(userID, Math.max(0, offset), Math.max(0, limit));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public FriendshipRequestsPage getPendingRequests(UUID userID, int offset, int limit) {
+        List<FriendshipCurrentStatus> pendingRequests = friendshipCurrentStatusRepository
+                .findPendingRequestsReceivedBy(userID, Math.max(0, offset), Math.max(0, limit));
+        
+        List<FriendshipRequest> requests = new ArrayList<>(pendingRequests.size());
+        for (FriendshipCurrentStatus request : pendingRequests) {
+            requests.add(new FriendshipRequest(request.getSpecifierID(), request.getLastUpdated()));
+        }
+        long totalRequests = friendshipCurrentStatusRepository.countPendingRequestsReceivedBy(userID);
+        return new FriendshipRequestsPage(requests, totalRequests);
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<FriendSuggestion> getSuggestions(UUID userID, int limit) {
+        int suggestions = Math.max(0, Math.min(limit, friendshipIndex.getMaxSuggestions()));
+        return friendshipIndex.getSuggestions(userID, suggestions);
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Obtiene el estado actual de la solicitud pendiente enviada por el otro usuario al usuario actual */
+    private FriendshipStatus findReceivedRequest(UUID userID, UUID requesterID) throws InstanceNotFoundException {
+        lockPair(userID, requesterID);
+        Optional<Friendship> optionalFriendship = friendshipRepository.findBetween(userID, requesterID);
+        if (optionalFriendship.isPresent()) {
+            FriendshipStatus currentStatus = findCurrentStatus(optionalFriendship.get());
+            if ( currentStatus.getStatus() == FriendshipStates.PENDING
+                    && currentStatus.getSpecifierID().equals(requesterID) ) {
+                return currentStatus;
+            }
+        }
+        
+        throw new InstanceNotFoundException(FRIENDSHIP_REQUEST_ENTITY_NAME, requesterID);
+    }
+    
+    private FriendshipStatus findCurrentStatus(Friendship friendship) {
+        return friendshipCurrentStatusRepository
+                .findCurrentStatus(friendship.getRequesterID(), friendship.getTargetID())
+                .orElseThrow(() -> new IllegalStateException("Friendship without status: " + friendship));
+    }
+    
+    /** Añade un estado a continuación del estado actual de la relación */
+    private void addNextStatus(FriendshipStatus currentStatus, UUID specifierID, FriendshipStates state) {
+        addStatus(currentStatus.getRequesterID(), currentStatus.getTargetID(), currentStatus, specifierID, state);
+    }
+    
+    /**
+     * Añade un estado a la relación. La fecha forma parte de la clave, así que siempre es posterior a la del estado
+     * actual aunque ambos cambios lleguen en el mismo milisegundo
+     */
+    private void addStatus(UUID requesterID, UUID targetID, FriendshipStatus currentStatus, UUID specifierID,
+                           FriendshipStates state) {
+        long now = System.currentTimeMillis();
+        if (currentStatus != null) now = Math.max(now, currentStatus.getLastUpdated().getTime() + 1);
+        
+        FriendshipStatus status = new FriendshipStatus();
+        status.setRequesterID(requesterID);
+        status.setTargetID(targetID);
+        status.setLastUpdated(new Date(now));
+        status.setSpecifierID(specifierID);
+        status.setStatus(state);
+        friendshipStatusRepository.save(status);
+    }
+    
+    /** Serializa los cambios sobre la relación entre dos usuarios. La clave es la misma en ambos sentidos */
+    private void lockPair(UUID firstUserID, UUID secondUserID) {
+        UUID lower = (firstUserID.compareTo(secondUserID) <= 0) ? firstUserID : secondUserID;
+        UUID higher = (lower == firstUserID) ? secondUserID : firstUserID;
+        long key = 31 * (lower.getMostSignificantBits() ^ lower.getLeastSignificantBits())
+                + (higher.getMostSignificantBits() ^ higher.getLeastSignificantBits());
+        friendshipRepository.lockPair(key);
+    }
+    
+}
@@ -0,0 +1,30 @@
+package me.unp0wnable.groupeo.model.services;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Generación en segundo plano de versiones redimensionadas de las imágenes del {@link AvatarStore}.
+ * Las peticiones se guardan en una cola persistente en la base de datos, por lo que no se pierden al reiniciar.
+ */
+public interface ImageVariantService {
+    
+    /**
+     * Encola la generación de las versiones de una imagen. Si ya estaba en cola no hace nada
+     * @param imageHash Hash de la imagen original
+     */
+    void requestVariants(String imageHash);
+    
+    /**
+     * Obtiene el tamaño de la versión más pequeña que cubre el tamaño pedido
+     * @param requestedSize Lado en píxeles con el que se mostrará la imagen
+     * @return Tamaño de la versión, o vacío si se necesita la imagen original
+     */
+    Optional<Integer> selectVariantSize(int requestedSize);
+    
+    /**
+     * Genera y guarda todas las versiones de una imagen
+     * @param imageHash Hash de la imagen original
+     */
+    void generateVariants(String imageHash) throws IOException;
+}
@@ -0,0 +1,269 @@
+package me.unp0wnable.groupeo.model.services;
+
+import io.micrometer.core.instrument.*;
+import lombok.extern.slf4j.Slf4j;
+import me.unp0wnable.groupeo.model.entities.ImageVariantJob;
+import me.unp0wnable.groupeo.model.repositories.ImageVariantJobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Procesa la cola de imágenes pendientes en un conjunto acotado de hilos propio.
+ * <p>
+ * Cada nodo reserva periódicamente tantos trabajos como hilos libres tiene (<c>FOR UPDATE SKIP LOCKED</c>, sin
+ * esperar a otros nodos) y los elimina de la cola al terminar. Si un nodo se detiene a mitad de un trabajo, su reserva
+ * caduca y lo retoma cualquier otro; los trabajos que fallan se reintentan hasta un número máximo de veces.
+ */
+@Slf4j
+@Service
+public class ImageVariantServiceImpl implements ImageVariantService {
+    private static final String METRICS_PREFIX = "groupeo.images.variants";
+    private static final String VARIANT_FORMAT = "png";
+    private static final int MAX_ERROR_LENGTH = 500;
+    
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private ImageVariantJobRepository jobRepository;
+    @Autowired
+    private AvatarStore imageStore;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${project.images.variants.sizes}")
+    private int[] variantSizes;
+    @Value("${project.images.variants.threads}")
+    private int threads;
+    @Value("${project.images.variants.claimTimeoutSeconds}")
+    private long claimTimeoutSeconds;
+    @Value("${project.images.variants.maxAttempts}")
+    private short maxAttempts;
+    @Value("${project.images.variants.maxSourcePixels}")
+    private long maxSourcePixels;
+    
+    private ThreadPoolExecutor executor;
+    private final AtomicInteger runningJobs = new AtomicInteger();
+    private final AtomicLong pendingJobs = new AtomicLong();
+    private final AtomicLong oldestPendingJobMillis = new AtomicLong();
+    private Timer processingTimer;
+    private Timer lagTimer;
+    private Counter failedCounter;
+    
+    
+    @PostConstruct
+    public void init() {
+        Arrays.sort(variantSizes);
+        
+        // La cola del pool nunca llega a llenarse: solo se reservan tantos trabajos como hilos libres haya
+        executor = new ThreadPoolExecutor(threads, threads,
+                                          0L, TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<>(threads),
+                                          new CustomizableThreadFactory("image-variants-"),
+                                          new ThreadPoolExecutor.AbortPolicy());
+        
+        // Registrar métricas
+        Gauge.builder(METRICS_PREFIX + ".queue", pendingJobs, AtomicLong::get)
+             .description("Imágenes pendientes de procesar en todos los nodos")
+             .register(meterRegistry);
+        Gauge.builder(METRICS_PREFIX + ".queue.age", oldestPendingJobMillis, this::oldestPendingJobAgeSeconds)
+             .description("Segundos que lleva en cola la imagen pendiente más antigua")
+             .baseUnit("seconds")
+             .register(meterRegistry);
+        Gauge.builder(METRICS_PREFIX + ".active", runningJobs, AtomicInteger::get)
+             .description("Imágenes procesándose en este nodo")
+             .register(meterRegistry);
+        processingTimer = Timer.builder(METRICS_PREFIX + ".duration")
+                               .description("Tiempo de generación de todas las versiones de una imagen")
+                               .register(meterRegistry);
+        lagTimer = Timer.builder(METRICS_PREFIX + ".lag")
+                        .description("Tiempo desde que se encola una imagen hasta que sus versiones están disponibles")
+                        .register(meterRegistry);
+        failedCounter = Counter.builder(METRICS_PREFIX + ".failed")
+                               .description("Intentos de procesar una imagen que han fallado")
+                               .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        // Los trabajos interrumpidos se retoman al caducar su reserva
+        executor.shutdownNow();
+    }
+    
+    
+    /* *********************************** USE CASES *********************************** */
+    @Override
+    public void requestVariants(String imageHash) {
+        jobRepository.enqueue(imageHash);
+    }
+    
+    @Override
+    public Optional<Integer> selectVariantSize(int requestedSize) {
+        for (int size : variantSizes) {
+            if (size >= requestedSize) return Optional.of(size);
+        }
+        return Optional.empty();
+    }
+    
+    @Override
+    public void generateVariants(String imageHash) throws IOException {
+        // Si la imagen ya no está en el almacén no hay nada que generar
+        Optional<Path> optionalOriginal = imageStore.find(imageHash);
+        if ( optionalOriginal.isEmpty() ) {
+            log.warn("Image {} is no longer in the store, skipping its variants", imageHash);
+            return;
+        }
+        
+        // Generar solo las versiones que falten (la misma imagen puede haberse subido varias veces)
+        List<Integer> missingSizes = new ArrayList<>();
+        for (int size : variantSizes) {
+            if (imageStore.findVariant(imageHash, size).isEmpty()) missingSizes.add(size);
+        }
+        if (missingSizes.isEmpty()) return;
+        
+        BufferedImage original = readImage(optionalOriginal.get(), missingSizes.get(missingSizes.size() - 1));
+        for (int size : missingSizes) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(resize(original, size), VARIANT_FORMAT, output);
+            imageStore.storeVariant(imageHash, size, output.toByteArray());
+        }
+    }
+    
+    /** Reserva trabajos de la cola para los hilos que estén libres */
+    @Scheduled(fixedDelayString = "${project.images.variants.pollIntervalMillis}")
+    public void processPendingJobs() {
+        refreshQueueMetrics();
+        
+        int freeWorkers = threads - runningJobs.get();
+        if (freeWorkers <= 0) return;
+        
+        Date claimExpiredBefore = new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(claimTimeoutSeconds));
+        List<ImageVariantJob> claimedJobs = jobRepository.claimJobs(claimExpiredBefore, maxAttempts, freeWorkers);
+        for (ImageVariantJob job : claimedJobs) {
+            runningJobs.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    processJob(job);
+                } finally {
+                    runningJobs.decrementAndGet();
+                }
+            });
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private void processJob(ImageVariantJob job) {
+        String imageHash = job.getImageHash();
+        try {
+            processingTimer.recordCallable(() -> {
+                generateVariants(imageHash);
+                return null;
+            });
+            jobRepository.completeJob(imageHash);
+            lagTimer.record(System.currentTimeMillis() - job.getEnqueuedAt().getTime(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.warn("Could not generate variants of image {} (attempt {} of {})",
+                     imageHash, job.getAttempts(), maxAttempts, e);
+            jobRepository.releaseFailedJob(imageHash, truncate(String.valueOf(e.getMessage())));
+        }
+    }
+    
+    /**
+     * Decodifica la imagen original. Las imágenes mucho mayores que la versión más grande se decodifican
+     * submuestreadas para no cargar en memoria todos sus píxeles
+     */
+    private BufferedImage readImage(Path original, int largestSize) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + original);
+            }
+            
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                
+                // Rechazar imágenes con demasiados píxeles antes de decodificarlas
+                if ((long) width * height > maxSourcePixels) {
+                    throw new IOException("Image too large: " + width + "x" + height);
+                }
+                
+                ImageReadParam readParam = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (2 * largestSize));
+                readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                
+                return reader.read(0, readParam);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    /** Reduce la imagen para que su lado mayor no supere el tamaño indicado, conservando la proporción */
+    private static BufferedImage resize(BufferedImage image, int size) {
+        double scale = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        
+        // Reducir a la mitad en varios pasos: una única interpolación bilineal pierde detalle en reducciones grandes
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        
+        return current;
+    }
+    
+    /** Actualiza las métricas de la cola, compartida por todos los nodos */
+    private void refreshQueueMetrics() {
+        pendingJobs.set(jobRepository.countByAttemptsLessThan(maxAttempts));
+        oldestPendingJobMillis.set(jobRepository.findOldestPendingEnqueuedAt(maxAttempts).map(Date::getTime).orElse(0L));
+    }
+    
+    private double oldestPendingJobAgeSeconds(AtomicLong oldestMillis) {
+        long oldest = oldestMillis.get();
+        if (oldest == 0) return 0;
+        
+        return Math.max(0, System.currentTimeMillis() - oldest) / 1000.0;
+    }
+    
+    private static String truncate(String message) {
+        return (message.length() > MAX_ERROR_LENGTH) ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+    
+}
@@ -0,0 +1,221 @@
+package me.unp0wnable.groupeo.model.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import me.unp0wnable.groupeo.model.repositories.UserProfileRepository;
+import me.unp0wnable.groupeo.model.repositories.UserPurgeRepository;
+import me.unp0wnable.groupeo.model.utils.ChangeCatchUp;
+import me.unp0wnable.groupeo.model.utils.PrefixIndex;
+import me.unp0wnable.groupeo.model.utils.PrefixIndex.Entry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Índice en memoria de los nickNames de todos los usuarios para autocompletarlos por prefijo en cada pulsación
+ * (menciones, añadir amigos), sin consultar la base de datos.
+ * <p>
+ * El índice ({@link PrefixIndex}) es inmutable y se sustituye entero: los altas y bajas de usuarios de este nodo se
+ * acumulan y se aplican por lotes cada pocos milisegundos, junto con los usuarios registrados y eliminados en otros
+ * nodos desde la última comprobación. Periódicamente se reconstruye recorriendo la tabla de usuarios, lo que también
+ * actualiza las puntuaciones.
+ */
+@Slf4j
+@Component
+public class NickNameAutocomplete {
+    private static final String METRICS_PREFIX = "groupeo.users.autocomplete";
+    private static final double MEBIBYTE = 1024 * 1024;
+    
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+    @Autowired
+    private UserPurgeRepository userPurgeRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${project.users.autocomplete.maxSuggestions}")
+    private int maxSuggestions;
+    @Value("${project.users.autocomplete.rebuildIntervalMinutes}")
+    private long rebuildIntervalMinutes;
+    @Value("${project.users.autocomplete.catchUpOverlapSeconds}")
+    private long catchUpOverlapSeconds;
+    
+    /** Índice en uso. Está vacío hasta que termina la primera construcción */
+    private volatile PrefixIndex current = PrefixIndex.EMPTY;
+    /** Cambios de este nodo pendientes de aplicar: elemento nuevo del usuario, o vacío si se ha eliminado */
+    private final Queue<Map.Entry<UUID, Optional<Entry>>> pendingChanges = new ConcurrentLinkedQueue<>();
+    /** Array reutilizado por cada hilo para obtener los resultados sin reservar memoria */
+    private final ThreadLocal<int[]> resultPositions = ThreadLocal.withInitial(() -> new int[maxSuggestions]);
+    private boolean built;
+    private long lastRebuildMillis;
+    private ChangeCatchUp changes;
+    
+    private Timer rebuildTimer;
+    private Timer mergeTimer;
+    
+    
+    @PostConstruct
+    public void init() {
+        changes = new ChangeCatchUp(catchUpOverlapSeconds);
+        Gauge.builder(METRICS_PREFIX + ".size", this, autocomplete -> autocomplete.current.size())
+             .description("NickNames del índice de autocompletado")
+             .register(meterRegistry);
+        Gauge.builder(METRICS_PREFIX + ".memory", this, autocomplete -> autocomplete.current.memoryBytes())
+             .description("Memoria ocupada por el índice de autocompletado")
+             .baseUnit("bytes")
+             .register(meterRegistry);
+        Gauge.builder(METRICS_PREFIX + ".memoryPerMillion", this, NickNameAutocomplete::mebibytesPerMillion)
+             .description("Memoria ocupada por cada millón de nickNames")
+             .baseUnit("mebibytes")
+             .register(meterRegistry);
+        rebuildTimer = Timer.builder(METRICS_PREFIX + ".rebuild")
+                            .description("Tiempo de reconstrucción completa del índice")
+                            .register(meterRegistry);
+        mergeTimer = Timer.builder(METRICS_PREFIX + ".merge")
+                          .description("Tiempo de aplicación de un lote de cambios al índice")
+                          .register(meterRegistry);
+    }
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    /**
+     * Obtiene los usuarios con mayor puntuación cuyo nickName empieza por el prefijo recibido, sin distinguir mayúsculas
+     * @param prefix Prefijo a buscar
+     * @param limit Número máximo de resultados; no puede superar el configurado
+     * @return Usuarios encontrados, de mayor a menor puntuación
+     */
+    public List<NickNameSuggestion> complete(String prefix, int limit) {
+        PrefixIndex index = current;
+        int[] positions = resultPositions.get();
+        int count = index.complete(prefix, positions);
+        
+        int resultsCount = Math.min(count, limit);
+        List<NickNameSuggestion> suggestions = new ArrayList<>(resultsCount);
+        for (int i = 0; i < resultsCount; i++) {
+            suggestions.add(new NickNameSuggestion(index.getUserID(positions[i]), index.getNickName(positions[i])));
+        }
+        return suggestions;
+    }
+    
+    public int getMaxSuggestions() {
+        return maxSuggestions;
+    }
+    
+    
+    /* *********************************** UPDATES *********************************** */
+    /** Añade un usuario al índice (o actualiza su nickName) al confirmar la transacción actual */
+    public void registerUser(UUID userID, String nickName, float score) {
+        Entry entry = new Entry(userID, nickName, score);
+        ChangeCatchUp.afterCommit(() -> pendingChanges.add(Map.entry(userID, Optional.of(entry))));
+    }
+    
+    /** Elimina un usuario del índice al confirmar la transacción actual */
+    public void unregisterUser(UUID userID) {
+        ChangeCatchUp.afterCommit(() -> pendingChanges.add(Map.entry(userID, Optional.empty())));
+    }
+    
+    
+    /* ********************************* SCHEDULED TASKS ********************************* */
+    /** Aplica los cambios pendientes, reconstruyendo el índice cuando es necesario */
+    @Scheduled(fixedDelayString = "${project.users.autocomplete.refreshIntervalMillis}")
+    public synchronized void refresh() {
+        long now = System.currentTimeMillis();
+        boolean rebuildRequired = !built
+                || (now - lastRebuildMillis > TimeUnit.MINUTES.toMillis(rebuildIntervalMinutes));
+        
+        try {
+            if (rebuildRequired) {
+                rebuildTimer.record(this::rebuild);
+            } else {
+                catchUp();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to refresh nickName autocomplete index", e);
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Construye un índice nuevo recorriendo toda la tabla de usuarios */
+    private void rebuild() {
+        long startMillis = System.currentTimeMillis();
+        List<Entry> entries = new ArrayList<>();
+        
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.executeWithoutResult(status -> {
+            try (Stream<Object[]> users = userProfileRepository.streamAutocompleteEntries()) {
+                users.forEach(user -> entries.add(toEntry(user)));
+            }
+        });
+        
+        // Los cambios acumulados mientras tanto se vuelven a aplicar: repetirlos no altera el resultado
+        PrefixIndex rebuilt = PrefixIndex.build(entries).merge(drainPendingChanges(new LinkedHashMap<>()));
+        current = rebuilt;
+        built = true;
+        lastRebuildMillis = startMillis;
+        changes.restart(startMillis);
+        log.info("NickName autocomplete index rebuilt with {} users in {} ms, using {} bytes ({} MiB per million)",
+                 rebuilt.size(), System.currentTimeMillis() - startMillis, rebuilt.memoryBytes(),
+                 String.format(Locale.ROOT, "%.1f", mebibytesPerMillion()));
+    }
+    
+    /** Aplica los cambios de este nodo y los usuarios registrados y eliminados en otros desde la última comprobación */
+    private void catchUp() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        changes.run(since -> {
+            Map<UUID, Entry> updates = new LinkedHashMap<>();
+            transaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> users = userProfileRepository.streamAutocompleteEntriesJoinedAfter(since)) {
+                    users.forEach(user -> {
+                        Entry entry = toEntry(user);
+                        updates.put(entry.getUserID(), entry);
+                    });
+                }
+                userPurgeRepository.findUserIDsRequestedAfter(since).forEach(userID -> updates.put(userID, null));
+            });
+            
+            // Los cambios de este nodo se aplican después, ya que son posteriores a los leídos
+            drainPendingChanges(updates);
+            
+            // Los usuarios de la ventana de solape ya están en el índice: si nada cambia se conserva el actual
+            PrefixIndex index = current;
+            PrefixIndex merged = mergeTimer.record(() -> index.merge(updates));
+            if (merged != index) current = merged;
+        });
+    }
+    
+    private Map<UUID, Entry> drainPendingChanges(Map<UUID, Entry> changes) {
+        Map.Entry<UUID, Optional<Entry>> change;
+        while ((change = pendingChanges.poll()) != null) {
+            changes.put(change.getKey(), change.getValue().orElse(null));
+        }
+        return changes;
+    }
+    
+    private double mebibytesPerMillion() {
+        PrefixIndex index = current;
+        if (index.size() == 0) return Double.NaN;
+        
+        return index.memoryBytes() * (1_000_000.0 / index.size()) / MEBIBYTE;
+    }
+    
+    private static Entry toEntry(Object[] user) {
+        return new Entry((UUID) user[0], (String) user[1], ((Number) user[2]).floatValue());
+    }
+}
@@ -0,0 +1,14 @@
+package me.unp0wnable.groupeo.model.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/** Usuario sugerido al autocompletar un nickName */
+@Getter
+@AllArgsConstructor
+public class NickNameSuggestion {
+    private final UUID userID;
+    private final String nickName;
+}
@@ -0,0 +1,13 @@
+package me.unp0wnable.groupeo.model.services;
+
+import me.unp0wnable.groupeo.model.exceptions.ServiceOverloadedException;
+
+public interface PasswordEncodingService {
+    
+    String encode(String rawPassword) throws ServiceOverloadedException;
+    
+    boolean matches(String rawPassword, String encodedPassword) throws ServiceOverloadedException;
+    
+    /** Comprueba si la contraseña se cifró con un coste inferior al actual y debería volver a cifrarse */
+    boolean upgradeEncoding(String encodedPassword);
+}
@@ -0,0 +1,125 @@
+package me.unp0wnable.groupeo.model.services;
+
+import io.micrometer.core.instrument.*;
+import me.unp0wnable.groupeo.model.exceptions.ServiceOverloadedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+
+/**
+ * Ejecuta el cifrado de contraseñas en un conjunto acotado de hilos propio.
+ * El cálculo de BCrypt no ocupa así hilos de Tomcat ni conexiones a la base de datos, y cuando la cola de trabajos
+ * está llena se rechaza la petición inmediatamente en lugar de acumular esperas.
+ */
+@Service
+public class PasswordEncodingServiceImpl implements PasswordEncodingService {
+    private static final String METRICS_PREFIX = "groupeo.passwords.hashing";
+    
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private BCryptPasswordEncoder passwordEncoder;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${project.passwords.hashing.threads}")
+    private int threads;
+    @Value("${project.passwords.hashing.queueCapacity}")
+    private int queueCapacity;
+    @Value("${project.passwords.hashing.timeoutMillis}")
+    private long timeoutMillis;
+    
+    private ThreadPoolExecutor executor;
+    private Timer encodeTimer;
+    private Timer matchTimer;
+    private Counter rejectedCounter;
+    
+    
+    @PostConstruct
+    public void init() {
+        // Por defecto se usa un hilo por cada procesador disponible
+        int poolSize = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(poolSize, poolSize,
+                                          0L, TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<>(queueCapacity),
+                                          new CustomizableThreadFactory("password-hashing-"),
+                                          new ThreadPoolExecutor.AbortPolicy());
+        
+        // Registrar métricas
+        Gauge.builder(METRICS_PREFIX + ".queue", executor, pool -> pool.getQueue().size())
+             .description("Trabajos de cifrado pendientes")
+             .register(meterRegistry);
+        Gauge.builder(METRICS_PREFIX + ".active", executor, ThreadPoolExecutor::getActiveCount)
+             .description("Trabajos de cifrado en ejecución")
+             .register(meterRegistry);
+        encodeTimer = Timer.builder(METRICS_PREFIX + ".duration")
+                           .tag("operation", "encode")
+                           .register(meterRegistry);
+        matchTimer = Timer.builder(METRICS_PREFIX + ".duration")
+                          .tag("operation", "matches")
+                          .register(meterRegistry);
+        rejectedCounter = Counter.builder(METRICS_PREFIX + ".rejected")
+                                 .description("Trabajos de cifrado rechazados por falta de capacidad")
+                                 .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    
+    /* *********************************** USE CASES *********************************** */
+    @Override
+    public String encode(String rawPassword) throws ServiceOverloadedException {
+        return execute(() -> passwordEncoder.encode(rawPassword), encodeTimer);
+    }
+    
+    @Override
+    public boolean matches(String rawPassword, String encodedPassword) throws ServiceOverloadedException {
+        return execute(() -> passwordEncoder.matches(rawPassword, encodedPassword), matchTimer);
+    }
+    
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // El coste está incluido en el propio hash ($2a$<coste>$...), por lo que no requiere cifrar nada
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Ejecuta la tarea en el pool de cifrado y espera a su resultado */
+    private <T> T execute(Callable<T> task, Timer timer) throws ServiceOverloadedException {
+        // Encolar la tarea, fallando inmediatamente si no hay hueco
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timer.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException();
+        }
+        
+        // Esperar al resultado durante un tiempo máximo
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException();
+        } catch (ExecutionException e) {
+            // BCrypt solo lanza excepciones no comprobadas
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package me.unp0wnable.groupeo.model.services;
+
+import me.unp0wnable.groupeo.model.exceptions.InvalidRefreshTokenException;
+
+import java.util.UUID;
+
+public interface RefreshTokenService {
+    
+    String issueRefreshToken(UUID userID);
+    
+    RotatedRefreshToken rotateRefreshToken(String refreshToken) throws InvalidRefreshTokenException;
+    
+    void revokeRefreshTokens(UUID userID);
+}
@@ -0,0 +1,123 @@
+package me.unp0wnable.groupeo.model.services;
+
+import me.unp0wnable.groupeo.model.entities.RefreshToken;
+import me.unp0wnable.groupeo.model.exceptions.InvalidRefreshTokenException;
+import me.unp0wnable.groupeo.model.repositories.RefreshTokenRepository;
+import me.unp0wnable.groupeo.model.repositories.projections.RefreshTokenGrant;
+import me.unp0wnable.groupeo.model.utils.UuidV7;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Transactional
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+    private static final int TOKEN_LENGTH_BYTES = 32;
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    
+    @Value("${project.jwt.refreshExpirationDays}")
+    private long expirationInDays;
+    
+    private final SecureRandom secureRandom = new SecureRandom();
+    
+    
+    /* *********************************** USE CASES *********************************** */
+    @Override
+    public String issueRefreshToken(UUID userID) {
+        // Cada inicio de sesión abre una nueva familia de tokens
+        return createRefreshToken(userID, UuidV7.generate());
+    }
+    
+    @Override
+    public RotatedRefreshToken rotateRefreshToken(String refreshToken) throws InvalidRefreshTokenException {
+        // Comprobar si existe el token recibido
+        Optional<RefreshTokenGrant> optionalGrant = refreshTokenRepository.findGrantByTokenHash(hash(refreshToken));
+        if ( optionalGrant.isEmpty() ) {
+            throw new InvalidRefreshTokenException();
+        }
+        RefreshTokenGrant grant = optionalGrant.get();
+        
+        // Un token reutilizado indica que ha sido robado: se revoca toda su familia
+        if ( grant.getUsed() ) {
+            refreshTokenRepository.revokeFamily(grant.getFamilyID());
+            throw new InvalidRefreshTokenException();
+        }
+        if ( grant.getRevoked() || grant.getExpirationDate().before(new Date()) ) {
+            throw new InvalidRefreshTokenException();
+        }
+        
+        // Marcar el token como usado. Si otra petición lo ha hecho antes, también se considera reutilizado
+        if ( refreshTokenRepository.markAsUsed(grant.getRefreshTokenID()) == 0 ) {
+            refreshTokenRepository.revokeFamily(grant.getFamilyID());
+            throw new InvalidRefreshTokenException();
+        }
+        
+        // Emitir el siguiente token de la familia
+        String rotatedToken = createRefreshToken(grant.getUserID(), grant.getFamilyID());
+        
+        return new RotatedRefreshToken(rotatedToken, grant.getUserID(), grant.getNickName(), grant.getRole());
+    }
+    
+    @Override
+    public void revokeRefreshTokens(UUID userID) {
+        refreshTokenRepository.revokeAllByUserProfileID(userID);
+    }
+    
+    
+    /* ********************************* SCHEDULED TASKS ********************************* */
+    /** Elimina periódicamente los tokens caducados */
+    @Scheduled(cron = "${project.jwt.refreshTokensCleanupCron}")
+    public void deleteExpiredRefreshTokens() {
+        refreshTokenRepository.deleteExpired(new Date());
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Genera un token aleatorio y guarda su resumen */
+    private String createRefreshToken(UUID userID, UUID familyID) {
+        byte[] tokenBytes = new byte[TOKEN_LENGTH_BYTES];
+        secureRandom.nextBytes(tokenBytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+        
+        long expirationInMillis = TimeUnit.DAYS.toMillis(expirationInDays);
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setFamilyID(familyID);
+        refreshToken.setUserProfileID(userID);
+        refreshToken.setTokenHash(hash(token));
+        refreshToken.setExpirationDate(new Date(System.currentTimeMillis() + expirationInMillis));
+        refreshTokenRepository.save(refreshToken);
+        
+        return token;
+    }
+    
+    /** Obtiene el resumen SHA-256 del token en hexadecimal */
+    private static String hash(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            byte[] digest = messageDigest.digest(token.getBytes(StandardCharsets.US_ASCII));
+            
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package me.unp0wnable.groupeo.model.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import me.unp0wnable.groupeo.model.entities.UserProfile.UserRoles;
+
+import java.util.UUID;
+
+/** Resultado de intercambiar un refresh token: el nuevo token y los datos del usuario al que pertenece */
+@Getter
+@AllArgsConstructor
+public class RotatedRefreshToken {
+    private final String refreshToken;
+    private final UUID userID;
+    private final String nickName;
+    private final UserRoles role;
+}
@@ -0,0 +1,376 @@
+package me.unp0wnable.groupeo.model.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Mantiene los historiales de estados (<c>FriendshipStatus</c> y <c>AssistanceStatus</c>), particionados por meses,
+ * para que su tamaño (y el de sus índices) no crezca indefinidamente:
+ * <ul>
+ *     <li>Crea las particiones de los próximos meses antes de que se necesiten.</li>
+ *     <li>Compacta los meses anteriores al periodo de retención: de cada par solo conserva el último estado anterior
+ *     a ese periodo, que resume los anteriores.</li>
+ *     <li>Archiva las particiones más antiguas en ficheros CSV comprimidos y las elimina de la base de datos. El
+ *     fichero pasa a ser la única copia de esos estados, por lo que el directorio de archivo es obligatorio y cada
+ *     fichero se comprueba antes de eliminar su partición.</li>
+ * </ul>
+ * Todas las tareas pueden ejecutarse en varios nodos a la vez: la creación de particiones se serializa en la base de
+ * datos, la compactación puede repetirse sin efecto y cada partición la archiva un único nodo.
+ * El estado actual de cada par no depende del historial (ver {@link CurrentStatusRebuilder}).
+ */
+@Slf4j
+@Component
+public class StatusHistoryMaintenance {
+    private static final String METRICS_PREFIX = "groupeo.history";
+    private static final Pattern PARTITION_NAME_PATTERN = Pattern.compile("^([a-z]+)_(\\d{6})$");
+    private static final DateTimeFormatter PARTITION_MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String ARCHIVE_EXTENSION = ".csv.gz";
+    private static final String TEMPORARY_DIRECTORY = "tmp";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    
+    /** Historiales particionados y la consulta que borra un bloque de sus estados ya resumidos en uno posterior */
+    enum StatusHistoryTable {
+        FRIENDSHIP(
+                "FriendshipStatus",
+                "DELETE FROM FriendshipStatus " +
+                "WHERE lastUpdated >= :from AND lastUpdated < :to " +
+                "    AND (requesterID, targetID, lastUpdated) IN (" +
+                "        SELECT s.requesterID, s.targetID, s.lastUpdated FROM FriendshipStatus s " +
+                "        WHERE s.lastUpdated >= :from AND s.lastUpdated < :to " +
+                "            AND EXISTS (SELECT 1 FROM FriendshipStatus n " +
+                "                        WHERE n.requesterID = s.requesterID AND n.targetID = s.targetID " +
+                "                            AND n.lastUpdated > s.lastUpdated AND n.lastUpdated < :retainedSince) " +
+                "        LIMIT :chunkSize" +
+                "    )"
+        ),
+        ASSISTANCE(
+                "AssistanceStatus",
+                "DELETE FROM AssistanceStatus " +
+                "WHERE lastUpdated >= :from AND lastUpdated < :to " +
+                "    AND (invitingUserID, invitedUserID, lastUpdated) IN (" +
+                "        SELECT s.invitingUserID, s.invitedUserID, s.lastUpdated FROM AssistanceStatus s " +
+                "        WHERE s.lastUpdated >= :from AND s.lastUpdated < :to " +
+                "            AND EXISTS (SELECT 1 FROM AssistanceStatus n " +
+                "                        WHERE n.invitingUserID = s.invitingUserID " +
+                "                            AND n.invitedUserID = s.invitedUserID " +
+                "                            AND n.lastUpdated > s.lastUpdated AND n.lastUpdated < :retainedSince) " +
+                "        LIMIT :chunkSize" +
+                "    )"
+        );
+        
+        /** Nombre de la tabla en la base de datos, que no distingue mayúsculas */
+        private final String tableName;
+        private final String compactChunkQuery;
+        
+        StatusHistoryTable(String tableName, String compactChunkQuery) {
+            this.tableName = tableName.toLowerCase(Locale.ROOT);
+            this.compactChunkQuery = compactChunkQuery;
+        }
+    }
+    
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${project.history.partitions.monthsAhead}")
+    private int monthsAhead;
+    @Value("${project.history.compactAfterMonths}")
+    private int compactAfterMonths;
+    @Value("${project.history.compactionChunkSize}")
+    private int compactionChunkSize;
+    @Value("${project.history.archiveAfterMonths}")
+    private int archiveAfterMonths;
+    @Value("${project.history.archiveDirectory:}")
+    private String archiveDirectoryPath;
+    
+    private Path archiveDirectory;
+    private Path temporaryDirectory;
+    /** Inicio del periodo de retención de la última compactación completa en este nodo */
+    private YearMonth lastCompactedBefore;
+    private Counter compactedRowsCounter;
+    private Counter archivedPartitionsCounter;
+    
+    
+    @PostConstruct
+    public void init() throws IOException {
+        if (archiveAfterMonths <= compactAfterMonths) {
+            throw new IllegalStateException("project.history.archiveAfterMonths must be greater than "
+                                                    + "project.history.compactAfterMonths");
+        }
+        if (archiveDirectoryPath.isBlank()) {
+            throw new IllegalStateException("project.history.archiveDirectory is required: archived partitions are "
+                                                    + "dropped from the database once exported");
+        }
+        archiveDirectory = Path.of(archiveDirectoryPath);
+        temporaryDirectory = archiveDirectory.resolve(TEMPORARY_DIRECTORY);
+        Files.createDirectories(temporaryDirectory);
+        if (!Files.isWritable(archiveDirectory)) {
+            throw new IllegalStateException("Archive directory " + archiveDirectory.toAbsolutePath()
+                                                    + " is not writable");
+        }
+        
+        compactedRowsCounter = Counter.builder(METRICS_PREFIX + ".compactedRows")
+                                      .description("Estados antiguos borrados por estar resumidos en uno posterior")
+                                      .register(meterRegistry);
+        archivedPartitionsCounter = Counter.builder(METRICS_PREFIX + ".archivedPartitions")
+                                           .description("Particiones mensuales archivadas y eliminadas")
+                                           .register(meterRegistry);
+    }
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    /**
+     * Obtiene el inicio del mes más antiguo que nunca se ha archivado: el historial de los estados posteriores a esa
+     * fecha sigue en la base de datos
+     */
+    public Date getArchivedBefore() {
+        return toDate(YearMonth.now().minusMonths(archiveAfterMonths));
+    }
+    
+    
+    /* ********************************* SCHEDULED TASKS ********************************* */
+    /** Crea las particiones que falten hasta los próximos meses. La primera ejecución se hace al arrancar */
+    @Scheduled(fixedDelayString = "${project.history.partitions.checkIntervalMillis}")
+    public void createPartitions() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (StatusHistoryTable table : StatusHistoryTable.values()) {
+            try {
+                Number created = transaction.execute(status -> (Number) entityManager
+                        .createNativeQuery("SELECT create_monthly_partitions(:table, CAST(:fromDate AS DATE), :months)")
+                        .setParameter("table", table.tableName)
+                        .setParameter("fromDate", toDate(YearMonth.now()))
+                        .setParameter("months", monthsAhead)
+                        .getSingleResult()
+                );
+                if (created != null && created.intValue() > 0) {
+                    log.info("Created {} monthly partitions of {}", created, table.tableName);
+                }
+            } catch (RuntimeException e) {
+                log.error("Unable to create monthly partitions of {}", table.tableName, e);
+            }
+        }
+    }
+    
+    /** Compacta los meses anteriores al periodo de retención y archiva las particiones más antiguas */
+    @Scheduled(cron = "${project.history.maintenanceCron}")
+    public synchronized void compactAndArchive() {
+        YearMonth currentMonth = YearMonth.now();
+        YearMonth archivedBefore = currentMonth.minusMonths(archiveAfterMonths);
+        YearMonth retainedSince = currentMonth.minusMonths(compactAfterMonths);
+        
+        for (StatusHistoryTable table : StatusHistoryTable.values()) {
+            try {
+                archivePartitions(table, archivedBefore);
+            } catch (RuntimeException e) {
+                log.warn("Unable to archive old partitions of {}", table.tableName, e);
+            }
+        }
+        
+        // Solo puede haber estados nuevos que compactar cuando el periodo de retención avanza
+        if (retainedSince.equals(lastCompactedBefore)) return;
+        boolean compacted = true;
+        for (StatusHistoryTable table : StatusHistoryTable.values()) {
+            try {
+                compact(table, retainedSince);
+            } catch (RuntimeException e) {
+                compacted = false;
+                log.warn("Unable to compact {}", table.tableName, e);
+            }
+        }
+        if (compacted) lastCompactedBefore = retainedSince;
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Compacta, mes a mes y por bloques, todas las particiones anteriores al periodo de retención */
+    private void compact(StatusHistoryTable table, YearMonth retainedSince) {
+        long startMillis = System.currentTimeMillis();
+        long compactedRows = 0;
+        for (YearMonth month : findPartitionMonths(table).keySet()) {
+            if (!month.isBefore(retainedSince)) break;
+            
+            long deleted;
+            do {
+                deleted = compactChunk(table, month, retainedSince);
+                compactedRows += deleted;
+                compactedRowsCounter.increment(deleted);
+            } while (deleted > 0);
+        }
+        log.info("Compacted {} superseded statuses of {} older than {} in {} ms", compactedRows, table.tableName,
+                 retainedSince, System.currentTimeMillis() - startMillis);
+    }
+    
+    private long compactChunk(StatusHistoryTable table, YearMonth month, YearMonth retainedSince) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Integer deleted = transaction.execute(status -> entityManager.createNativeQuery(table.compactChunkQuery)
+                .setParameter("from", toDate(month))
+                .setParameter("to", toDate(month.plusMonths(1)))
+                .setParameter("retainedSince", toDate(retainedSince))
+                .setParameter("chunkSize", compactionChunkSize)
+                .executeUpdate()
+        );
+        
+        return (deleted == null) ? 0 : deleted;
+    }
+    
+    /** Archiva todas las particiones anteriores al mes recibido, de la más antigua a la más reciente */
+    private void archivePartitions(StatusHistoryTable table, YearMonth archivedBefore) {
+        for (Map.Entry<YearMonth, String> partition : findPartitionMonths(table).entrySet()) {
+            if (!partition.getKey().isBefore(archivedBefore)) break;
+            
+            archivePartition(table, partition.getValue());
+        }
+    }
+    
+    /**
+     * Copia la partición a un fichero comprimido y la elimina, en una única transacción: si no se puede escribir el
+     * fichero o no contiene todas sus filas, la partición se conserva. Si otro nodo la está archivando, no hace nada
+     */
+    private void archivePartition(StatusHistoryTable table, String partitionName) {
+        long startMillis = System.currentTimeMillis();
+        Path archiveFile = archiveDirectory.resolve(partitionName + ARCHIVE_EXTENSION);
+        
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Boolean archived = transaction.execute(status -> {
+            Boolean locked = (Boolean) entityManager
+                    .createNativeQuery("SELECT pg_try_advisory_xact_lock(hashtext(:partition))")
+                    .setParameter("partition", partitionName)
+                    .getSingleResult();
+            if (!Boolean.TRUE.equals(locked) || !partitionExists(partitionName)) return false;
+            
+            // Los nombres se han comprobado al leerlos del catálogo (PARTITION_NAME_PATTERN).
+            // Se bloquean las escrituras en la partición para que el fichero tenga exactamente las filas contadas
+            entityManager.createNativeQuery("LOCK TABLE " + partitionName + " IN SHARE MODE").executeUpdate();
+            long rows = ((Number) entityManager.createNativeQuery("SELECT count(*) FROM " + partitionName)
+                                               .getSingleResult()).longValue();
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try {
+                    exportPartition(connection.unwrap(PGConnection.class), partitionName, rows, archiveFile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            
+            entityManager.createNativeQuery("ALTER TABLE " + table.tableName + " DETACH PARTITION " + partitionName)
+                         .executeUpdate();
+            entityManager.createNativeQuery("DROP TABLE " + partitionName).executeUpdate();
+            return true;
+        });
+        
+        if (Boolean.TRUE.equals(archived)) {
+            archivedPartitionsCounter.increment();
+            log.info("Archived partition {} to {} in {} ms", partitionName, archiveFile,
+                     System.currentTimeMillis() - startMillis);
+        }
+    }
+    
+    /**
+     * Escribe la partición en un fichero temporal y lo mueve a su ruta definitiva cuando está completo en disco y al
+     * releerlo contiene todas las filas de la partición
+     */
+    private void exportPartition(PGConnection connection, String partitionName, long rows, Path archiveFile)
+            throws IOException {
+        Path temporaryFile = Files.createTempFile(temporaryDirectory, partitionName + "-", ".part");
+        try {
+            long exportedRows;
+            try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(temporaryFile), COPY_BUFFER_SIZE)) {
+                exportedRows = connection.getCopyAPI().copyOut(
+                        "COPY " + partitionName + " TO STDOUT WITH (FORMAT csv, HEADER)", output);
+            } catch (SQLException e) {
+                throw new IOException("Unable to export partition " + partitionName, e);
+            }
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            
+            long archivedRows = countArchivedRows(temporaryFile);
+            if (exportedRows != rows || archivedRows != rows) {
+                throw new IOException("Archive of partition " + partitionName + " has " + archivedRows + " rows ("
+                                              + exportedRows + " exported) instead of " + rows);
+            }
+            Files.move(temporaryFile, archiveFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+    
+    /**
+     * Cuenta las filas de un fichero archivado descomprimiéndolo completo, lo que también comprueba su integridad.
+     * Los estados no tienen saltos de línea en sus valores, por lo que cada línea tras la cabecera es una fila
+     */
+    private static long countArchivedRows(Path file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file), COPY_BUFFER_SIZE), StandardCharsets.UTF_8))) {
+            return Math.max(0, reader.lines().count() - 1);
+        }
+    }
+    
+    /** Obtiene las particiones de un historial por mes, de la más antigua a la más reciente */
+    @SuppressWarnings("unchecked")
+    private SortedMap<YearMonth, String> findPartitionMonths(StatusHistoryTable table) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<String> partitionNames = transaction.execute(status -> entityManager
+                .createNativeQuery("SELECT CAST(c.relname AS TEXT) FROM pg_inherits i " +
+                                   "JOIN pg_class c ON c.oid = i.inhrelid " +
+                                   "WHERE i.inhparent = CAST(CAST(:parent AS TEXT) AS regclass)")
+                .setParameter("parent", table.tableName)
+                .getResultList()
+        );
+        
+        SortedMap<YearMonth, String> partitions = new TreeMap<>();
+        for (String partitionName : Objects.requireNonNullElse(partitionNames, List.<String>of())) {
+            Matcher matcher = PARTITION_NAME_PATTERN.matcher(partitionName);
+            if (matcher.matches() && matcher.group(1).equals(table.tableName)) {
+                partitions.put(YearMonth.parse(matcher.group(2), PARTITION_MONTH_FORMAT), partitionName);
+            }
+        }
+        return partitions;
+    }
+    
+    private boolean partitionExists(String partitionName) {
+        Object partition = entityManager.createNativeQuery("SELECT CAST(to_regclass(:partition) AS TEXT)")
+                                        .setParameter("partition", partitionName)
+                                        .getSingleResult();
+        return partition != null;
+    }
+    
+    /** Inicio del mes en la zona horaria del nodo, la misma con la que se guardan las fechas de los estados */
+    private static Date toDate(YearMonth month) {
+        LocalDate firstDay = month.atDay(1);
+        return Date.from(firstDay.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+    
+}
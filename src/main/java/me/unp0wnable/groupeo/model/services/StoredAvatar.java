@@ -0,0 +1,18 @@
+package me.unp0wnable.groupeo.model.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/** Avatar de un usuario guardado en el {@link AvatarStore}: la imagen original o una de sus versiones */
+@Getter
+@AllArgsConstructor
+public class StoredAvatar {
+    private final String hash;
+    private final Path file;
+    private final String contentType;
+    private final long size;
+    /** Lado máximo de la versión, o <c>null</c> si es la imagen original */
+    private final Integer variantSize;
+}
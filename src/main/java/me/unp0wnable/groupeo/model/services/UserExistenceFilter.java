@@ -0,0 +1,252 @@
+package me.unp0wnable.groupeo.model.services;
+
+import io.micrometer.core.instrument.*;
+import lombok.extern.slf4j.Slf4j;
+import me.unp0wnable.groupeo.model.repositories.UserProfileRepository;
+import me.unp0wnable.groupeo.model.utils.BloomFilter;
+import me.unp0wnable.groupeo.model.utils.ChangeCatchUp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Filtros de Bloom con los nickNames y emails (en minúsculas) de los usuarios registrados.
+ * Permiten descartar sin consultar la base de datos los nickNames que no existen: un nickName no se puede cambiar,
+ * por lo que solo faltan en el filtro los usuarios registrados en otros nodos en los últimos segundos.
+ * <p>
+ * Los emails sí se pueden cambiar. Los cambios hechos en este nodo se añaden al filtro, pero los hechos en otros nodos
+ * no se incorporan hasta la siguiente reconstrucción, por lo que al registrarse el filtro solo evita consultas y la
+ * comprobación definitiva la hacen los índices únicos de la base de datos.
+ * <p>
+ * Los filtros se construyen al arrancar recorriendo la tabla de usuarios y se reconstruyen periódicamente. Entre
+ * reconstrucciones se incorporan los usuarios registrados en este nodo y, cada pocos segundos, los registrados en
+ * otros nodos desde la última comprobación. Un filtro de Bloom no permite eliminar elementos, por lo que los usuarios
+ * borrados solo provocan falsos positivos (una consulta innecesaria) hasta la siguiente reconstrucción.
+ */
+@Slf4j
+@Component
+public class UserExistenceFilter {
+    private static final String METRICS_PREFIX = "groupeo.users.existence.filter";
+    private static final String NICKNAME_FILTER_TAG = "nickName";
+    private static final String EMAIL_FILTER_TAG = "email";
+    
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${project.users.existenceFilter.expectedInsertions}")
+    private long expectedInsertions;
+    @Value("${project.users.existenceFilter.falsePositiveProbability}")
+    private double falsePositiveProbability;
+    @Value("${project.users.existenceFilter.rebuildIntervalMinutes}")
+    private long rebuildIntervalMinutes;
+    @Value("${project.users.existenceFilter.maxStaleEntries}")
+    private long maxStaleEntries;
+    @Value("${project.users.existenceFilter.catchUpOverlapSeconds}")
+    private long catchUpOverlapSeconds;
+    
+    /** Filtros en uso. Es <c>null</c> hasta que termina la primera construcción */
+    private volatile Filters current;
+    /** Filtros en construcción, que también reciben los usuarios registrados mientras se recorre la tabla */
+    private volatile Filters building;
+    private long lastRebuildMillis;
+    private ChangeCatchUp changes;
+    private final AtomicLong staleEntries = new AtomicLong();
+    
+    private Timer rebuildTimer;
+    
+    
+    @PostConstruct
+    public void init() {
+        changes = new ChangeCatchUp(catchUpOverlapSeconds);
+        registerFilterMetrics(NICKNAME_FILTER_TAG, true);
+        registerFilterMetrics(EMAIL_FILTER_TAG, false);
+        Gauge.builder(METRICS_PREFIX + ".stale", staleEntries, AtomicLong::get)
+             .description("Usuarios eliminados que siguen presentes en el filtro")
+             .register(meterRegistry);
+        rebuildTimer = Timer.builder(METRICS_PREFIX + ".rebuild")
+                            .description("Tiempo de reconstrucción completa de los filtros")
+                            .register(meterRegistry);
+    }
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    /**
+     * Comprueba si puede existir un usuario con el nickName recibido, sin distinguir mayúsculas
+     * @return <c>false</c> si seguro que no existe (o si se acaba de registrar en otro nodo)
+     */
+    public boolean mightContainNickName(String nickName) {
+        Filters filters = current;
+        if (filters == null || nickName == null) return true;
+        
+        boolean mightContain = filters.nickNames.mightContain(fold(nickName));
+        if (!mightContain) filters.nickNameMisses.increment();
+        return mightContain;
+    }
+    
+    /**
+     * Comprueba si puede existir un usuario con el email recibido, sin distinguir mayúsculas
+     * @return <c>false</c> si no está en el filtro: no existía en la última actualización del filtro
+     */
+    public boolean mightContainEmail(String email) {
+        Filters filters = current;
+        if (filters == null || email == null) return true;
+        
+        boolean mightContain = filters.emails.mightContain(fold(email));
+        if (!mightContain) filters.emailMisses.increment();
+        return mightContain;
+    }
+    
+    /** Registra que el filtro indicó que un nickName podía existir, pero no existía */
+    public void recordNickNameFalsePositive() {
+        meterRegistry.counter(METRICS_PREFIX + ".falsePositives", "filter", NICKNAME_FILTER_TAG).increment();
+    }
+    
+    /** Registra que el filtro indicó que un email podía existir, pero no existía */
+    public void recordEmailFalsePositive() {
+        meterRegistry.counter(METRICS_PREFIX + ".falsePositives", "filter", EMAIL_FILTER_TAG).increment();
+    }
+    
+    
+    /* *********************************** UPDATES *********************************** */
+    /** Añade a los filtros un usuario recién registrado o el nuevo email de un usuario */
+    public void registerUser(String nickName, String email) {
+        addToFilters(nickName, email);
+        
+        // Se vuelve a añadir tras confirmar la transacción por si coincide con una reconstrucción de los filtros
+        ChangeCatchUp.afterCommit(() -> addToFilters(nickName, email));
+    }
+    
+    /** Anota que se ha eliminado un usuario, que seguirá en los filtros hasta su reconstrucción */
+    public void unregisterUser() {
+        staleEntries.incrementAndGet();
+    }
+    
+    
+    /* ********************************* SCHEDULED TASKS ********************************* */
+    /** Mantiene los filtros al día, reconstruyéndolos cuando es necesario */
+    @Scheduled(fixedDelayString = "${project.users.existenceFilter.catchUpIntervalMillis}")
+    public synchronized void refresh() {
+        Filters filters = current;
+        long now = System.currentTimeMillis();
+        boolean rebuildRequired = (filters == null)
+                || (now - lastRebuildMillis > TimeUnit.MINUTES.toMillis(rebuildIntervalMinutes))
+                || (staleEntries.get() > maxStaleEntries)
+                || (filters.nickNames.insertions() > expectedInsertions);
+        
+        try {
+            if (rebuildRequired) {
+                rebuildTimer.record(this::rebuild);
+            } else {
+                catchUp();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to refresh user existence filters", e);
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Construye unos filtros nuevos recorriendo toda la tabla de usuarios */
+    private void rebuild() {
+        long startMillis = System.currentTimeMillis();
+        long staleEntriesAtStart = staleEntries.get();
+        Filters rebuilt = new Filters();
+        building = rebuilt;
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(true);
+            transaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> users = userProfileRepository.streamNickNamesAndEmails()) {
+                    users.forEach(user -> rebuilt.add(fold((String) user[0]), fold((String) user[1])));
+                }
+            });
+            current = rebuilt;
+        } finally {
+            building = null;
+        }
+        
+        lastRebuildMillis = startMillis;
+        changes.restart(startMillis);
+        staleEntries.addAndGet(-staleEntriesAtStart);
+        log.info("User existence filters rebuilt with {} users in {} ms",
+                 rebuilt.nickNames.insertions(), System.currentTimeMillis() - startMillis);
+    }
+    
+    /** Añade a los filtros los usuarios registrados desde la última comprobación (incluso en otros nodos) */
+    private void catchUp() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        changes.run(since -> transaction.executeWithoutResult(status -> {
+            try (Stream<Object[]> users = userProfileRepository.streamNickNamesAndEmailsJoinedAfter(since)) {
+                users.forEach(user -> addToFilters((String) user[0], (String) user[1]));
+            }
+        }));
+    }
+    
+    private void addToFilters(String nickName, String email) {
+        String foldedNickName = fold(nickName);
+        String foldedEmail = fold(email);
+        
+        // Leer primero los filtros en construcción para no perder usuarios si termina una reconstrucción a la vez
+        Filters rebuilding = building;
+        Filters filters = current;
+        if (rebuilding != null) rebuilding.add(foldedNickName, foldedEmail);
+        if (filters != null) filters.add(foldedNickName, foldedEmail);
+    }
+    
+    private void registerFilterMetrics(String filterTag, boolean nickNames) {
+        Gauge.builder(METRICS_PREFIX + ".fpp", this, filter -> filter.expectedFalsePositiveProbability(nickNames))
+             .description("Probabilidad de falso positivo esperada")
+             .tag("filter", filterTag)
+             .register(meterRegistry);
+        Gauge.builder(METRICS_PREFIX + ".size", this, filter -> filter.insertions(nickNames))
+             .description("Elementos insertados en el filtro")
+             .tag("filter", filterTag)
+             .register(meterRegistry);
+    }
+    
+    private double expectedFalsePositiveProbability(boolean nickNames) {
+        Filters filters = current;
+        if (filters == null) return Double.NaN;
+        
+        return (nickNames ? filters.nickNames : filters.emails).expectedFalsePositiveProbability();
+    }
+    
+    private double insertions(boolean nickNames) {
+        Filters filters = current;
+        if (filters == null) return Double.NaN;
+        
+        return (nickNames ? filters.nickNames : filters.emails).insertions();
+    }
+    
+    private static String fold(String value) {
+        return (value == null) ? null : value.toLowerCase(Locale.ROOT);
+    }
+    
+    /** Pareja de filtros de nickNames y emails construidos a la vez */
+    private class Filters {
+        private final BloomFilter nickNames = BloomFilter.create(expectedInsertions, falsePositiveProbability);
+        private final BloomFilter emails = BloomFilter.create(expectedInsertions, falsePositiveProbability);
+        private final Counter nickNameMisses = meterRegistry.counter(METRICS_PREFIX + ".misses", "filter", NICKNAME_FILTER_TAG);
+        private final Counter emailMisses = meterRegistry.counter(METRICS_PREFIX + ".misses", "filter", EMAIL_FILTER_TAG);
+        
+        private void add(String nickName, String email) {
+            if (nickName != null) nickNames.put(nickName);
+            if (email != null) emails.put(email);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package me.unp0wnable.groupeo.model.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import me.unp0wnable.groupeo.model.repositories.projections.UserProfileView;
+import me.unp0wnable.groupeo.model.utils.ChangeCatchUp;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caché acotada (por tamaño y por tiempo) de perfiles de usuario por ID.
+ * <p>
+ * Guarda vistas inmutables del perfil ({@link UserProfileView}), sin la contraseña ni la dirección, por lo que pueden
+ * compartirse sin copiarlas y los cambios de contraseña no la invalidan. Cada modificación de un perfil se publica
+ * con <c>pg_notify</c> dentro de la misma transacción, de forma que el resto de nodos la reciben (mediante
+ * {@link UserProfileInvalidationListener}) solo cuando se confirma. El tiempo de caducidad acota el tiempo que puede
+ * servirse un perfil desactualizado si se pierde alguna notificación. Si se guarda un perfil y la caché ya tiene una
+ * versión posterior, se conserva la posterior.
+ * Expone las métricas de caché bajo el nombre <c>userProfiles</c>.
+ */
+@Component
+public class UserProfileCache {
+    private static final String CACHE_METRICS_NAME = "userProfiles";
+    private static final String NOTIFY_QUERY = "SELECT CAST(pg_notify(:channel, :payload) AS TEXT)";
+    private static final String PAYLOAD_SEPARATOR = ":";
+    
+    private final Cache<UUID, UserProfileView> cache;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final String invalidationChannel;
+    private final Executor replicaLagDelayedExecutor;
+    /** Identificador de este nodo, para ignorar las notificaciones enviadas por él mismo */
+    private final String nodeID = UUID.randomUUID().toString();
+    
+    
+    public UserProfileCache(@Value("${project.users.profileCache.maxSize}") long maxSize,
+                            @Value("${project.users.profileCache.expireAfterWriteSeconds}") long expireAfterWriteSeconds,
+                            @Value("${project.users.profileCache.invalidationChannel}") String invalidationChannel,
+                            @Value("${project.datasource.routing.maxReplicaLagMillis}") long maxReplicaLagMillis,
+                            EntityManager entityManager, PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                             .maximumSize(maxSize)
+                             .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                             .recordStats()
+                             .build();
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.invalidationChannel = invalidationChannel;
+        this.replicaLagDelayedExecutor = CompletableFuture.delayedExecutor(maxReplicaLagMillis, TimeUnit.MILLISECONDS);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_METRICS_NAME);
+    }
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    /**
+     * Obtiene un perfil, cargándolo únicamente si no se encuentra en la caché.
+     * Dentro de una transacción de escritura el perfil se carga sin guardarlo, ya que podría no llegar a confirmarse
+     * @param userID ID del usuario
+     * @param loader Función que carga el perfil de la base de datos
+     * @return Perfil del usuario, o vacío si no existe
+     */
+    public Optional<UserProfileView> get(UUID userID, Function<UUID, Optional<UserProfileView>> loader) {
+        if ( TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly() ) {
+            return loader.apply(userID);
+        }
+        
+        return Optional.ofNullable(cache.get(userID, key -> loader.apply(key).orElse(null)));
+    }
+    
+    
+    /**
+     * Obtiene varios perfiles, cargando en una única llamada todos los que no se encuentren en la caché
+     * @param userIDs IDs de los usuarios
+     * @param loader Función que carga de la base de datos los perfiles que existan de entre los IDs recibidos
+     * @return Perfiles de los usuarios que existen
+     */
+    public Map<UUID, UserProfileView> getAll(Collection<UUID> userIDs,
+                                             Function<Collection<UUID>, Collection<UserProfileView>> loader) {
+        boolean cacheLoaded = !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        Map<UUID, UserProfileView> users = new HashMap<>(cacheLoaded ? cache.getAllPresent(userIDs) : Map.of());
+        
+        // Cargar los que falten
+        Set<UUID> missingIDs = new HashSet<>(userIDs);
+        missingIDs.removeAll(users.keySet());
+        if (missingIDs.isEmpty()) return users;
+        
+        for (UserProfileView user : loader.apply(missingIDs)) {
+            users.put(user.getUserProfileID(), user);
+            if (cacheLoaded) cache.put(user.getUserProfileID(), user);
+        }
+        return users;
+    }
+    
+    
+    /* *********************************** UPDATES *********************************** */
+    /**
+     * Guarda el perfil actualizado en la caché local e invalida el del resto de nodos.
+     * Si hay una transacción en curso, la caché local se actualiza al confirmarla
+     */
+    public void update(UserProfileView user) {
+        UUID userID = user.getUserProfileID();
+        
+        cache.invalidate(userID);
+        ChangeCatchUp.afterCommit(() -> cache.asMap().merge(userID, user, UserProfileCache::newest));
+        notifyOtherNodes(userID);
+    }
+    
+    /** Guarda en la caché local un perfil recién leído de la base de datos, salvo que ya tenga uno más reciente */
+    public void refresh(UserProfileView user) {
+        cache.asMap().merge(user.getUserProfileID(), user, UserProfileCache::newest);
+    }
+    
+    /** Elimina el perfil de la caché local y de la del resto de nodos */
+    public void evict(UUID userID) {
+        cache.invalidate(userID);
+        
+        // Se vuelve a invalidar tras confirmar por si otro hilo ha cargado la versión anterior mientras tanto
+        ChangeCatchUp.afterCommit(() -> {
+            cache.invalidate(userID);
+            invalidateAfterReplicaLag(userID);
+        });
+        notifyOtherNodes(userID);
+    }
+    
+    
+    /* ****************************** REMOTE INVALIDATION ****************************** */
+    /** Procesa una notificación recibida de otro nodo */
+    void onInvalidationReceived(String payload) {
+        int separator = payload.indexOf(PAYLOAD_SEPARATOR);
+        if (separator < 0) return;
+        
+        // Ignorar las notificaciones enviadas por este nodo
+        if (nodeID.equals(payload.substring(0, separator))) return;
+        
+        try {
+            UUID userID = UUID.fromString(payload.substring(separator + 1));
+            cache.invalidate(userID);
+            invalidateAfterReplicaLag(userID);
+        } catch (IllegalArgumentException e) {
+            // Notificación mal formada: vaciar la caché es siempre seguro
+            cache.invalidateAll();
+        }
+    }
+    
+    /** Vacía la caché local, por ejemplo si se han podido perder notificaciones */
+    void invalidateAll() {
+        cache.invalidateAll();
+    }
+    
+    String getInvalidationChannel() {
+        return invalidationChannel;
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Elige la versión más reciente de un perfil, para no sustituirlo por otro leído antes de modificarlo */
+    private static UserProfileView newest(UserProfileView cachedUser, UserProfileView receivedUser) {
+        if (cachedUser.getVersion() == null || receivedUser.getVersion() == null) return receivedUser;
+        
+        return (receivedUser.getVersion() >= cachedUser.getVersion()) ? receivedUser : cachedUser;
+    }
+    
+    /** Envía la notificación dentro de la transacción actual (o en una propia), que la entrega al confirmar */
+    private void notifyOtherNodes(UUID userID) {
+        String payload = nodeID + PAYLOAD_SEPARATOR + userID;
+        transactionTemplate.executeWithoutResult(status -> entityManager.createNativeQuery(NOTIFY_QUERY)
+                .setParameter("channel", invalidationChannel)
+                .setParameter("payload", payload)
+                .getSingleResult()
+        );
+    }
+    
+    /** Invalida de nuevo el perfil cuando las réplicas ya deberían tener la modificación */
+    private void invalidateAfterReplicaLag(UUID userID) {
+        replicaLagDelayedExecutor.execute(() -> cache.invalidate(userID));
+    }
+}
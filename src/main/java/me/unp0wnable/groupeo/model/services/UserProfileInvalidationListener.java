@@ -0,0 +1,124 @@
+package me.unp0wnable.groupeo.model.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Escucha las notificaciones de modificación de perfiles enviadas por el resto de nodos (<c>LISTEN</c>) y las aplica
+ * sobre la {@link UserProfileCache} local.
+ * <p>
+ * Usa una conexión propia fuera del pool, ya que queda ocupada permanentemente. Si la conexión se pierde, las
+ * notificaciones enviadas mientras tanto no se reciben, por lo que al reconectar se vacía la caché.
+ */
+@Slf4j
+@Component
+public class UserProfileInvalidationListener implements Runnable {
+    private static final String METRICS_PREFIX = "groupeo.users.profileCache";
+    
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private UserProfileCache userProfileCache;
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${project.users.profileCache.listenerPollMillis}")
+    private int pollMillis;
+    @Value("${project.users.profileCache.listenerReconnectMillis}")
+    private long reconnectMillis;
+    
+    private volatile boolean running;
+    private Thread listenerThread;
+    private Counter receivedCounter;
+    private Counter reconnectionsCounter;
+    
+    
+    @PostConstruct
+    public void start() {
+        receivedCounter = Counter.builder(METRICS_PREFIX + ".invalidations")
+                                 .description("Notificaciones de perfiles modificados en otros nodos")
+                                 .register(meterRegistry);
+        reconnectionsCounter = Counter.builder(METRICS_PREFIX + ".reconnections")
+                                      .description("Reconexiones del canal de notificaciones")
+                                      .register(meterRegistry);
+        
+        running = true;
+        listenerThread = new Thread(this, "user-profile-invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+    
+    @PreDestroy
+    public void stop() {
+        running = false;
+        listenerThread.interrupt();
+    }
+    
+    
+    @Override
+    public void run() {
+        while (running) {
+            try (Connection connection = openConnection()) {
+                listen(connection);
+            } catch (SQLException e) {
+                if (!running) return;
+                log.warn("Profile invalidation channel lost, reconnecting in {} ms", reconnectMillis, e);
+            }
+            
+            // Las notificaciones enviadas durante la desconexión se han perdido
+            userProfileCache.invalidateAll();
+            reconnectionsCounter.increment();
+            try {
+                Thread.sleep(reconnectMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                                           dataSourceProperties.determineUsername(),
+                                           dataSourceProperties.determinePassword());
+    }
+    
+    /** Se suscribe al canal y espera notificaciones hasta que se cierre la conexión o se detenga el nodo */
+    private void listen(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + userProfileCache.getInvalidationChannel());
+        }
+        
+        // Las modificaciones anteriores a la suscripción tampoco se han recibido
+        userProfileCache.invalidateAll();
+        
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications(pollMillis);
+            if (notifications == null) continue;
+            
+            for (PGNotification notification : notifications) {
+                receivedCounter.increment();
+                userProfileCache.onInvalidationReceived(notification.getParameter());
+            }
+        }
+    }
+    
+}
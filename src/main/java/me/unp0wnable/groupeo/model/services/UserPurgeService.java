@@ -0,0 +1,18 @@
+package me.unp0wnable.groupeo.model.services;
+
+import java.util.UUID;
+
+/**
+ * Borrado en segundo plano del historial de los usuarios eliminados.
+ * Al eliminar un usuario solo se borra su perfil (junto a su dirección y sus refresh tokens) y se encola su historial,
+ * de forma que el tiempo de la petición no depende de su tamaño.
+ */
+public interface UserPurgeService {
+    
+    /**
+     * Borra todo el historial de un usuario eliminado, por bloques
+     * @param userID ID del usuario eliminado
+     * @return Número de filas borradas
+     */
+    long purgeUserHistory(UUID userID);
+}
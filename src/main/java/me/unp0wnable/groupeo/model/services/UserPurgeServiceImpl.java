@@ -0,0 +1,116 @@
+package me.unp0wnable.groupeo.model.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import me.unp0wnable.groupeo.model.entities.UserPurge;
+import me.unp0wnable.groupeo.model.repositories.UserPurgeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Procesa periódicamente la cola de usuarios eliminados.
+ * <p>
+ * Cada nodo reserva los borrados pendientes con <c>FOR UPDATE SKIP LOCKED</c>, sin esperar a otros nodos. Cada bloque
+ * se borra en su propia transacción, por lo que un borrado interrumpido se retoma (al caducar su reserva) sin repetir
+ * el trabajo ya hecho.
+ */
+@Slf4j
+@Service
+public class UserPurgeServiceImpl implements UserPurgeService {
+    private static final String METRICS_PREFIX = "groupeo.users.purge";
+    
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private UserPurgeRepository userPurgeRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${project.users.purge.chunkSize}")
+    private int chunkSize;
+    @Value("${project.users.purge.batchSize}")
+    private int batchSize;
+    @Value("${project.users.purge.claimTimeoutSeconds}")
+    private long claimTimeoutSeconds;
+    
+    private final AtomicLong pendingPurges = new AtomicLong();
+    private Counter deletedRowsCounter;
+    private Timer purgeTimer;
+    
+    
+    @PostConstruct
+    public void init() {
+        Gauge.builder(METRICS_PREFIX + ".queue", pendingPurges, AtomicLong::get)
+             .description("Usuarios eliminados cuyo historial está pendiente de borrar")
+             .register(meterRegistry);
+        deletedRowsCounter = Counter.builder(METRICS_PREFIX + ".deletedRows")
+                                    .description("Filas del historial de usuarios eliminados que se han borrado")
+                                    .register(meterRegistry);
+        purgeTimer = Timer.builder(METRICS_PREFIX + ".duration")
+                          .description("Tiempo de borrado del historial completo de un usuario")
+                          .register(meterRegistry);
+    }
+    
+    
+    /* *********************************** USE CASES *********************************** */
+    @Override
+    public long purgeUserHistory(UUID userID) {
+        // Se borran antes los estados que las relaciones a las que pertenecen
+        long deletedRows = 0;
+        deletedRows += deleteInChunks(userID, userPurgeRepository::deleteFriendshipStatusesChunk);
+        deletedRows += deleteInChunks(userID, userPurgeRepository::deleteFriendshipCurrentStatusesChunk);
+        deletedRows += deleteInChunks(userID, userPurgeRepository::deleteFriendshipsChunk);
+        deletedRows += deleteInChunks(userID, userPurgeRepository::deleteAssistanceStatusesChunk);
+        deletedRows += deleteInChunks(userID, userPurgeRepository::deleteAssistanceCurrentStatusesChunk);
+        deletedRows += deleteInChunks(userID, userPurgeRepository::deleteAssistancesChunk);
+        
+        return deletedRows;
+    }
+    
+    /** Reserva y procesa los usuarios eliminados pendientes */
+    @Scheduled(fixedDelayString = "${project.users.purge.pollIntervalMillis}")
+    public void processPendingPurges() {
+        pendingPurges.set(userPurgeRepository.countByCompletedAtIsNull());
+        
+        Date claimExpiredBefore = new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(claimTimeoutSeconds));
+        List<UserPurge> claimedPurges = userPurgeRepository.claimPurges(claimExpiredBefore, batchSize);
+        for (UserPurge purge : claimedPurges) {
+            UUID userID = purge.getUserProfileID();
+            try {
+                long deletedRows = purgeTimer.recordCallable(() -> purgeUserHistory(userID));
+                userPurgeRepository.completePurge(userID);
+                log.debug("Purged {} history rows of deleted user {}", deletedRows, userID);
+            } catch (Exception e) {
+                // Se reintentará cuando caduque la reserva
+                log.warn("Could not purge history of deleted user {}", userID, e);
+            }
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private long deleteInChunks(UUID userID, BiFunction<UUID, Integer, Integer> chunkDelete) {
+        long deletedRows = 0;
+        int deletedInChunk;
+        do {
+            deletedInChunk = chunkDelete.apply(userID, chunkSize);
+            deletedRows += deletedInChunk;
+            deletedRowsCounter.increment(deletedInChunk);
+        } while (deletedInChunk == chunkSize);
+        
+        return deletedRows;
+    }
+    
+}
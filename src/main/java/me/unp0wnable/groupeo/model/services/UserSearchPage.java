@@ -0,0 +1,16 @@
+package me.unp0wnable.groupeo.model.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import me.unp0wnable.groupeo.model.repositories.projections.UserSearchResult;
+
+import java.util.List;
+
+/** Página de resultados de una búsqueda de usuarios, ordenados por nickName */
+@Getter
+@AllArgsConstructor
+public class UserSearchPage {
+    private final List<UserSearchResult> results;
+    /** nickName a partir del cual continúa la búsqueda, o <c>null</c> si no hay más resultados */
+    private final String nextCursor;
+}
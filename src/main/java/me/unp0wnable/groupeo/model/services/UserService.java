@@ -3,21 +3,46 @@ package me.unp0wnable.groupeo.model.services;
 import me.unp0wnable.groupeo.model.entities.UserAddress;
 import me.unp0wnable.groupeo.model.entities.UserProfile;
 import me.unp0wnable.groupeo.model.exceptions.*;
+import me.unp0wnable.groupeo.model.repositories.projections.UserProfileView;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public interface UserService {
 
-    UserProfile signUp(UserProfile profile) throws InstanceAlreadyExistsException;
+    UserProfile signUp(UserProfile profile) throws InstanceAlreadyExistsException, ServiceOverloadedException;
     
-    UserProfile login(String nickName, String rawPassword) throws IncorrectLoginException;
+    UserProfileView login(String nickName, String rawPassword) throws IncorrectLoginException, ServiceOverloadedException;
     
-    UserProfile loginFromServiceToken(UUID userID) throws InstanceNotFoundException;
+    UserProfileView loginFromServiceToken(UUID userID) throws InstanceNotFoundException;
+    
+    UserProfileView getUserProfile(UUID userID, long minVersion) throws InstanceNotFoundException;
+    
+    long getUserProfileVersion(UUID userID) throws InstanceNotFoundException;
+    
+    Map<UUID, UserProfileView> getUserProfiles(Collection<UUID> userIDs);
+    
+    UserSearchPage searchUsers(String text, String afterNickName, int pageSize);
+    
+    List<NickNameSuggestion> autocompleteNickName(String prefix, int limit);
     
     void changePassword(UUID id, String oldPassword, String newPassword) throws InstanceNotFoundException,
-                                                                                IncorrectPasswordExcepion;
+                                                                                IncorrectPasswordExcepion,
+                                                                                ServiceOverloadedException;
+    
+    UserProfileView updateUserProfile(UUID userID, UserProfile profile) throws InstanceNotFoundException;
+    
+    String updateAvatar(UUID userID, InputStream content) throws InstanceNotFoundException, IOException,
+                                                                 AvatarTooLargeException,
+                                                                 UnsupportedAvatarFormatException;
+    
+    long getMaxAvatarSizeBytes();
     
-    UserProfile updateUserProfile(UUID userID, UserProfile profile) throws InstanceNotFoundException;
+    StoredAvatar getUserAvatar(UUID userID, Integer size) throws InstanceNotFoundException, IOException;
     
     UserAddress assignAddressToUser(UUID userID, UserAddress address) throws InstanceNotFoundException;
     
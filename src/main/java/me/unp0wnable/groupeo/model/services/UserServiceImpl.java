@@ -6,30 +6,77 @@ import me.unp0wnable.groupeo.model.entities.UserProfile.UserRoles;
 import me.unp0wnable.groupeo.model.exceptions.*;
 import me.unp0wnable.groupeo.model.repositories.UserAddressRepository;
 import me.unp0wnable.groupeo.model.repositories.UserProfileRepository;
+import me.unp0wnable.groupeo.model.repositories.projections.UserCredentials;
+import me.unp0wnable.groupeo.model.repositories.projections.UserProfileView;
+import me.unp0wnable.groupeo.model.repositories.projections.UserSearchResult;
+import me.unp0wnable.groupeo.model.utils.ImageFormats;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class UserServiceImpl implements UserService {
+    private static final String AVATAR_ENTITY_NAME = "project.entities.Avatar";
+    private static final String DEFAULT_AVATAR_CONTENT_TYPE = "application/octet-stream";
+    /** Términos de búsqueda tenidos en cuenta como máximo; el resto se ignoran */
+    private static final int MAX_SEARCH_TERMS = 5;
+    /** Índices únicos de UserProfile (ver schema.sql), que detectan los duplicados que el filtro no conoce */
+    private static final String NICKNAME_UNIQUE_INDEX = "UNIQUE_UserProfile_nickName";
+    private static final String EMAIL_UNIQUE_INDEX = "UNIQUE_UserProfile_email";
+    
     /* ***************************** DEPENDENCIES INJECTION ***************************** */
     @Autowired
     private UserProfileRepository userProfileRepository;
     @Autowired
     private UserAddressRepository userAddressRepository;
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordEncodingService passwordEncoder;
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+    @Autowired
+    private AvatarStore avatarStore;
+    @Autowired
+    private ImageVariantService imageVariantService;
+    @Autowired
+    private UserProfileCache userProfileCache;
+    @Autowired
+    private NickNameAutocomplete nickNameAutocomplete;
+    @Autowired
+    private FriendshipIndex friendshipIndex;
     
     /* *********************************** USE CASES *********************************** */
+    /* El cifrado de contraseñas se realiza fuera de cualquier transacción (Propagation.SUPPORTS) para no retener una
+     * conexión del pool mientras se calcula; cada acceso al repositorio usa su propia transacción */
     @Override
-    public UserProfile signUp(UserProfile profile) throws InstanceAlreadyExistsException {
-        // Comprobar si ya existe un usuario con el mismo nick
-        if (userProfileRepository.existsByNickName(profile.getNickName())) {
-            throw new InstanceAlreadyExistsException(UserProfile.class.getName(), profile.getNickName());
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public UserProfile signUp(UserProfile profile) throws InstanceAlreadyExistsException, ServiceOverloadedException {
+        // Comprobar si ya existe un usuario con el mismo nick o email (solo se consulta si el filtro no lo descarta).
+        // El filtro puede no conocer aún los usuarios registrados o modificados en otros nodos: en ese caso el duplicado
+        // lo detectan los índices únicos al guardar
+        if (userExistenceFilter.mightContainNickName(profile.getNickName())) {
+            if (userProfileRepository.existsByNickNameIgnoreCase(profile.getNickName())) {
+                throw new InstanceAlreadyExistsException(UserProfile.class.getName(), profile.getNickName());
+            }
+            userExistenceFilter.recordNickNameFalsePositive();
+        }
+        if (userExistenceFilter.mightContainEmail(profile.getEmail())) {
+            if (userProfileRepository.existsByEmailIgnoreCase(profile.getEmail())) {
+                throw new InstanceAlreadyExistsException(UserProfile.class.getName(), profile.getEmail());
+            }
+            userExistenceFilter.recordEmailFalsePositive();
         }
         
         // Asignar datos por defecto del usuario
@@ -42,32 +89,55 @@ public class UserServiceImpl implements UserService {
         profile.setRole(UserRoles.USER);
         
         // Guardar datos de usuario recién creado
-        return userProfileRepository.save(profile);
+        UserProfile savedProfile;
+        try {
+            savedProfile = userProfileRepository.saveAndFlush(profile);
+        } catch (DataIntegrityViolationException e) {
+            String duplicatedValue = findDuplicatedValue(profile, e);
+            if (duplicatedValue == null) throw e;
+            throw new InstanceAlreadyExistsException(UserProfile.class.getName(), duplicatedValue);
+        }
+        userExistenceFilter.registerUser(savedProfile.getNickName(), savedProfile.getEmail());
+        nickNameAutocomplete.registerUser(savedProfile.getUserProfileID(), savedProfile.getNickName(),
+                                          savedProfile.getScore());
+        
+        return savedProfile;
     }
     
     @Override
-    @Transactional(readOnly = true)
-    public UserProfile login(String nickName, String rawPassword) throws IncorrectLoginException {
-        // Comprobar si existe el usuario recibido
-        Optional<UserProfile> optionalUser = userProfileRepository.findByNickNameIgnoreCase(nickName);
-        if ( optionalUser.isEmpty() ) {
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public UserProfileView login(String nickName, String rawPassword) throws IncorrectLoginException,
+                                                                             ServiceOverloadedException {
+        // Comprobar si existe el usuario recibido (los nickNames descartados por el filtro no llegan a consultarse)
+        if ( !userExistenceFilter.mightContainNickName(nickName) ) {
             throw new IncorrectLoginException(nickName, rawPassword);
         }
-        UserProfile user = optionalUser.get();
+        Optional<UserCredentials> optionalCredentials = userProfileRepository.findCredentialsByNickNameIgnoreCase(nickName);
+        if ( optionalCredentials.isEmpty() ) {
+            userExistenceFilter.recordNickNameFalsePositive();
+            throw new IncorrectLoginException(nickName, rawPassword);
+        }
+        UserCredentials credentials = optionalCredentials.get();
+        UserProfileView user = credentials.getProfile();
         
         // Comprobar si las contraseñas coinciden
-        if ( !passwordEncoder.matches(rawPassword, user.getPassword()) ) {
+        if ( !passwordEncoder.matches(rawPassword, credentials.getPassword()) ) {
             throw new IncorrectLoginException(user.getNickName(), rawPassword);
         }
         
+        // Volver a cifrar la contraseña si se hizo con un coste inferior al actual
+        if ( passwordEncoder.upgradeEncoding(credentials.getPassword()) ) {
+            rehashPassword(user.getUserProfileID(), rawPassword);
+        }
+        
         return user;
     }
     
     @Override
     @Transactional(readOnly = true)
-    public UserProfile loginFromServiceToken(UUID userID) throws InstanceNotFoundException {
+    public UserProfileView loginFromServiceToken(UUID userID) throws InstanceNotFoundException {
         // Comprobar si existe el usuario con el ID recibido
-        Optional<UserProfile> optionalUser = userProfileRepository.findById(userID);
+        Optional<UserProfileView> optionalUser = findUserProfile(userID);
         if ( optionalUser.isEmpty() ) {
             throw new InstanceNotFoundException(UserProfile.class.getName(), userID);
         }
@@ -75,45 +145,178 @@ public class UserServiceImpl implements UserService {
     }
     
     @Override
-    public void changePassword(UUID userID, String oldPassword, String newPassword) throws InstanceNotFoundException, IncorrectPasswordExcepion {
+    @Transactional(readOnly = true)
+    public UserProfileView getUserProfile(UUID userID, long minVersion) throws InstanceNotFoundException {
         // Comprobar si existe el usuario con el ID recibido
-        Optional<UserProfile> optionalUser = userProfileRepository.findById(userID);
+        Optional<UserProfileView> optionalUser = findUserProfile(userID);
         if ( optionalUser.isEmpty() ) {
             throw new InstanceNotFoundException(UserProfile.class.getName(), userID);
         }
-        UserProfile user = optionalUser.get();
+        
+        // Si la caché aún no ha recibido la última modificación, leer el perfil de la base de datos y actualizarla
+        UserProfileView user = optionalUser.get();
+        if ( user.getVersion() < minVersion ) {
+            user = userProfileRepository.findViewByID(userID)
+                    .orElseThrow(() -> new InstanceNotFoundException(UserProfile.class.getName(), userID));
+            userProfileCache.refresh(user);
+        }
+        return user;
+    }
+    
+    /* Los perfiles que no estén en la caché se obtienen todos en la misma consulta */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<UUID, UserProfileView> getUserProfiles(Collection<UUID> userIDs) {
+        return userProfileCache.getAll(userIDs, userProfileRepository::findViewsByIDs);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public UserSearchPage searchUsers(String text, String afterNickName, int pageSize) {
+        // Separar el texto en términos en minúsculas, sin repetir y descartando los que no tienen trigramas
+        List<String> terms = Arrays.stream(text.trim().toLowerCase(Locale.ROOT).split("\\s+"))
+                                   .filter(term -> term.length() >= UserProfileRepository.MIN_SEARCH_TERM_LENGTH)
+                                   .distinct()
+                                   .limit(MAX_SEARCH_TERMS)
+                                   .collect(Collectors.toList());
+        if (terms.isEmpty()) return new UserSearchPage(Collections.emptyList(), null);
+        
+        // Se pide un resultado más de los necesarios para saber si hay más páginas
+        List<UserSearchResult> results = userProfileRepository.searchByText(terms, afterNickName, pageSize + 1);
+        if (results.size() <= pageSize) return new UserSearchPage(results, null);
+        
+        List<UserSearchResult> page = new ArrayList<>(results.subList(0, pageSize));
+        return new UserSearchPage(page, page.get(pageSize - 1).getNickName());
+    }
+    
+    /* Se responde desde el índice en memoria, sin acceder a la base de datos */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<NickNameSuggestion> autocompleteNickName(String prefix, int limit) {
+        int suggestions = Math.max(0, Math.min(limit, nickNameAutocomplete.getMaxSuggestions()));
+        return nickNameAutocomplete.complete(prefix, suggestions);
+    }
+    
+    /* Se consulta siempre la base de datos (no la caché de perfiles): la versión decide si el cliente tiene los datos
+     * actualizados */
+    @Override
+    @Transactional(readOnly = true)
+    public long getUserProfileVersion(UUID userID) throws InstanceNotFoundException {
+        // Comprobar si existe el usuario con el ID recibido
+        Optional<Long> optionalVersion = userProfileRepository.findVersionByID(userID);
+        if ( optionalVersion.isEmpty() ) {
+            throw new InstanceNotFoundException(UserProfile.class.getName(), userID);
+        }
+        return optionalVersion.get();
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void changePassword(UUID userID, String oldPassword, String newPassword) throws InstanceNotFoundException,
+                                                                                         IncorrectPasswordExcepion,
+                                                                                         ServiceOverloadedException {
+        // Comprobar si existe el usuario con el ID recibido
+        Optional<String> optionalPassword = userProfileRepository.findPasswordByID(userID);
+        if ( optionalPassword.isEmpty() ) {
+            throw new InstanceNotFoundException(UserProfile.class.getName(), userID);
+        }
         
         // Comprobar que contraseñas coincidan
-        if (!passwordEncoder.matches(oldPassword, user.getPassword())) {
+        if (!passwordEncoder.matches(oldPassword, optionalPassword.get())) {
             throw new IncorrectPasswordExcepion();
         }
-        user.setPassword(passwordEncoder.encode(newPassword));
         
-        userProfileRepository.save(user);
+        // Actualizar únicamente la contraseña y cerrar las sesiones abiertas con la anterior
+        userProfileRepository.updatePassword(userID, passwordEncoder.encode(newPassword));
+        refreshTokenService.revokeRefreshTokens(userID);
     }
     
+    /* Solo se escriben los datos recibidos, en una única sentencia y sin cargar antes el perfil */
     @Override
-    public UserProfile updateUserProfile(UUID userID, UserProfile profile) throws InstanceNotFoundException {
-        // Comprobar si existe el usuario con el ID recibido
-        Optional<UserProfile> optionalUser = userProfileRepository.findById(userID);
+    public UserProfileView updateUserProfile(UUID userID, UserProfile profile) throws InstanceNotFoundException {
+        // Preparar los datos recibidos
+        UserProfile changes = new UserProfile();
+        changes.setFirstName(capitalize(profile.getFirstName()));
+        changes.setSurname1(capitalize(profile.getSurname1()));
+        changes.setSurname2(capitalize(profile.getSurname2()));
+        changes.setEmail(profile.getEmail());
+        changes.setDescription(profile.getDescription());
+        
+        // Actualizar el perfil, comprobando si existe el usuario con el ID recibido
+        Optional<UserProfileView> optionalUser = userProfileRepository.updateProfileFields(userID, changes);
         if ( optionalUser.isEmpty() ) {
             throw new InstanceNotFoundException(UserProfile.class.getName(), userID);
         }
-        UserProfile user = optionalUser.get();
+        UserProfileView updatedUser = optionalUser.get();
         
-        // Comprobar qué datos se han modificado y actualizarlos
-        if ((profile.getFirstName() != null) && !profile.getFirstName().equals(user.getFirstName()))
-            user.setFirstName(capitalize(profile.getFirstName()));
-        if ((profile.getSurname1() != null) && !profile.getSurname1().equals(user.getSurname1()))
-            user.setSurname1(capitalize(profile.getSurname1()));
-        if ((profile.getSurname2() != null) && !profile.getSurname2().equals(user.getSurname2()))
-            user.setSurname2(capitalize(profile.getSurname2()));
-        if ((profile.getEmail() != null) && !profile.getEmail().equals(user.getEmail()))
-            user.setEmail(profile.getEmail());
-        if ((profile.getDescription() != null) && !profile.getDescription().equals(user.getDescription()))
-            user.setDescription(profile.getDescription());
-
-        return userProfileRepository.save(user);
+        if (changes.getEmail() != null) {
+            userExistenceFilter.registerUser(updatedUser.getNickName(), updatedUser.getEmail());
+        }
+        userProfileCache.update(updatedUser);
+        
+        return updatedUser;
+    }
+    
+    /* La imagen se escribe en el almacén fuera de cualquier transacción para no retener una conexión mientras se
+     * recibe: solo se actualiza el hash del avatar en el perfil al terminar */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String updateAvatar(UUID userID, InputStream content) throws InstanceNotFoundException, IOException,
+                                                                        AvatarTooLargeException,
+                                                                        UnsupportedAvatarFormatException {
+        // Comprobar si existe el usuario con el ID recibido
+        if ( findUserProfile(userID).isEmpty() ) {
+            throw new InstanceNotFoundException(UserProfile.class.getName(), userID);
+        }
+        
+        // Guardar la imagen y asignarla al usuario
+        String avatarHash = avatarStore.store(content);
+        if (userProfileRepository.updateAvatarHash(userID, avatarHash) == 0) {
+            throw new InstanceNotFoundException(UserProfile.class.getName(), userID);
+        }
+        userProfileCache.evict(userID);
+        
+        // Generar en segundo plano las versiones redimensionadas
+        imageVariantService.requestVariants(avatarHash);
+        
+        return avatarHash;
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long getMaxAvatarSizeBytes() {
+        return avatarStore.getMaxSizeBytes();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public StoredAvatar getUserAvatar(UUID userID, Integer size) throws InstanceNotFoundException, IOException {
+        // Comprobar si el usuario existe y tiene avatar
+        Optional<String> optionalAvatarHash = findUserProfile(userID).map(UserProfileView::getAvatarHash);
+        if ( optionalAvatarHash.isEmpty() ) {
+            throw new InstanceNotFoundException(AVATAR_ENTITY_NAME, userID);
+        }
+        String avatarHash = optionalAvatarHash.get();
+        
+        // Obtener el fichero de la imagen guardada
+        Optional<Path> optionalAvatarFile = avatarStore.find(avatarHash);
+        if ( optionalAvatarFile.isEmpty() ) {
+            throw new InstanceNotFoundException(AVATAR_ENTITY_NAME, userID);
+        }
+        Path avatarFile = optionalAvatarFile.get();
+        
+        // Usar la versión del tamaño pedido si ya está generada; si no, la imagen original
+        if (size != null) {
+            Optional<Integer> variantSize = imageVariantService.selectVariantSize(size);
+            Optional<Path> variantFile = variantSize.flatMap(variant -> avatarStore.findVariant(avatarHash, variant));
+            if ( variantFile.isPresent() ) {
+                return new StoredAvatar(avatarHash, variantFile.get(), ImageFormats.PNG, Files.size(variantFile.get()),
+                                        variantSize.get());
+            }
+        }
+        String contentType = avatarStore.probeContentType(avatarFile).orElse(DEFAULT_AVATAR_CONTENT_TYPE);
+        
+        return new StoredAvatar(avatarHash, avatarFile, contentType, Files.size(avatarFile), null);
     }
     
     @Override
@@ -132,20 +335,50 @@ public class UserServiceImpl implements UserService {
         return updatedUser.getAddress();
     }
     
+    /* El historial del usuario se borra en segundo plano (UserPurgeService) */
     @Override
     public void deleteUser(UUID userID) throws InstanceNotFoundException {
-        // Comprobar si existe el usuario con el ID recibido
-        Optional<UserProfile> optionalUser = userProfileRepository.findById(userID);
-        if ( optionalUser.isEmpty() ) {
+        // Eliminar al usuario, comprobando si existe el usuario con el ID recibido
+        if (userProfileRepository.deleteAndSchedulePurge(userID) == 0) {
             throw new InstanceNotFoundException(UserProfile.class.getName(), userID);
         }
-        
-        // Eliminar al usuario
-        userProfileRepository.deleteById(userID);
+        userProfileCache.evict(userID);
+        userExistenceFilter.unregisterUser();
+        nickNameAutocomplete.unregisterUser(userID);
+        friendshipIndex.removeUser(userID);
     }
     
     
     /* ****************************** AUX FUNCTIONS ****************************** */
+    /**
+     * Obtiene el dato repetido a partir del índice único que ha impedido guardar un usuario
+     * @return NickName o email repetido, o <c>null</c> si el error no se debe a ninguno de ellos
+     */
+    private static String findDuplicatedValue(UserProfile profile, DataIntegrityViolationException exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+                if (NICKNAME_UNIQUE_INDEX.equalsIgnoreCase(constraintName)) return profile.getNickName();
+                if (EMAIL_UNIQUE_INDEX.equalsIgnoreCase(constraintName)) return profile.getEmail();
+            }
+        }
+        return null;
+    }
+    
+    /** Obtiene el perfil de un usuario a partir de su ID, consultando primero la caché de perfiles */
+    private Optional<UserProfileView> findUserProfile(UUID userID) {
+        return userProfileCache.get(userID, userProfileRepository::findViewByID);
+    }
+    
+    /** Cifra de nuevo la contraseña del usuario con el coste actual y la guarda */
+    private void rehashPassword(UUID userID, String rawPassword) {
+        try {
+            userProfileRepository.updatePassword(userID, passwordEncoder.encode(rawPassword));
+        } catch (ServiceOverloadedException e) {
+            // No impide el inicio de sesión: se volverá a intentar la próxima vez
+        }
+    }
+    
     private String capitalize(String string) {
         if (string == null) return null;
         if (string.isEmpty()) return string;
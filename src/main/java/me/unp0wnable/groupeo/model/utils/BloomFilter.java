@@ -0,0 +1,121 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom concurrente sobre cadenas de texto.
+ * Responde si un elemento <b>puede</b> pertenecer al conjunto (con una probabilidad de falso positivo acotada) o si
+ * <b>seguro que no</b> pertenece. Las inserciones no necesitan bloqueos y pueden realizarse a la vez que las consultas.
+ */
+public class BloomFilter {
+    private static final long FIRST_HASH_SEED = 0xcbf29ce484222325L;
+    private static final long SECOND_HASH_SEED = 0x84222325cbf29ce4L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong setBits = new AtomicLong();
+    private final AtomicLong insertions = new AtomicLong();
+    
+    
+    private BloomFilter(long bitCount, int hashCount) {
+        long wordCount = (bitCount + Long.SIZE - 1) / Long.SIZE;
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter too large: " + bitCount + " bits");
+        }
+        this.words = new AtomicLongArray((int) wordCount);
+        this.bitCount = wordCount * Long.SIZE;
+        this.hashCount = hashCount;
+    }
+    
+    /**
+     * Crea un filtro dimensionado para el número de elementos y la probabilidad de falso positivo esperados
+     * @param expectedInsertions Número de elementos que se espera insertar
+     * @param falsePositiveProbability Probabilidad de falso positivo deseada al alcanzar el número esperado
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+        long elements = Math.max(1, expectedInsertions);
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-elements * Math.log(falsePositiveProbability) / (ln2 * ln2));
+        int hashes = Math.max(1, (int) Math.round((double) bits / elements * ln2));
+        
+        return new BloomFilter(Math.max(Long.SIZE, bits), hashes);
+    }
+    
+    /** Añade un elemento al filtro */
+    public void put(CharSequence value) {
+        long firstHash = hash(value, FIRST_HASH_SEED);
+        long secondHash = hash(value, SECOND_HASH_SEED);
+        
+        for (int i = 0; i < hashCount; i++) {
+            long bitIndex = ((firstHash + i * secondHash) & Long.MAX_VALUE) % bitCount;
+            if ( setBit(bitIndex) ) setBits.incrementAndGet();
+        }
+        insertions.incrementAndGet();
+    }
+    
+    /**
+     * Comprueba si un elemento puede pertenecer al filtro
+     * @return <c>false</c> si el elemento seguro que no se ha insertado
+     */
+    public boolean mightContain(CharSequence value) {
+        long firstHash = hash(value, FIRST_HASH_SEED);
+        long secondHash = hash(value, SECOND_HASH_SEED);
+        
+        for (int i = 0; i < hashCount; i++) {
+            long bitIndex = ((firstHash + i * secondHash) & Long.MAX_VALUE) % bitCount;
+            long word = words.get((int) (bitIndex >>> 6));
+            if ( (word & (1L << bitIndex)) == 0 ) return false;
+        }
+        return true;
+    }
+    
+    /** Probabilidad de falso positivo esperada según la proporción actual de bits activos */
+    public double expectedFalsePositiveProbability() {
+        return Math.pow((double) setBits.get() / bitCount, hashCount);
+    }
+    
+    /** Número de inserciones realizadas, incluidas las repetidas */
+    public long insertions() {
+        return insertions.get();
+    }
+    
+    /** Tamaño aproximado del filtro en memoria */
+    public long sizeInBytes() {
+        return bitCount / Byte.SIZE;
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Activa un bit, indicando si estaba desactivado */
+    private boolean setBit(long bitIndex) {
+        int wordIndex = (int) (bitIndex >>> 6);
+        long mask = 1L << bitIndex;
+        long word;
+        do {
+            word = words.get(wordIndex);
+            if ( (word & mask) != 0 ) return false;
+        } while ( !words.compareAndSet(wordIndex, word, word | mask) );
+        
+        return true;
+    }
+    
+    /** FNV-1a de 64 bits con una mezcla final para dispersar los bits */
+    private static long hash(CharSequence value, long seed) {
+        long hash = seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= (hash >>> 33);
+        
+        return hash;
+    }
+}
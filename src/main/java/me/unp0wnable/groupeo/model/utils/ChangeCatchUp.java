@@ -0,0 +1,66 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Seguimiento de los cambios que debe incorporar una estructura en memoria construida a partir de la base de datos.
+ * <p>
+ * Los cambios hechos en este nodo se aplican al confirmar su transacción ({@link #afterCommit(Runnable)}) y los hechos
+ * en el resto de nodos se leen periódicamente por su fecha de modificación ({@link #run(Consumer)}). Cada lectura se
+ * solapa con la anterior para cubrir transacciones lentas y desfases de reloj entre nodos, por lo que aplicar un mismo
+ * cambio varias veces no debe alterar el resultado.
+ */
+public class ChangeCatchUp {
+    private final long overlapMillis;
+    private volatile long lastCatchUpMillis;
+    
+    
+    /** @param overlapSeconds Tiempo que cada lectura retrocede respecto al final de la anterior */
+    public ChangeCatchUp(long overlapSeconds) {
+        this.overlapMillis = TimeUnit.SECONDS.toMillis(overlapSeconds);
+    }
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    /** Instante hasta el que se han leído los cambios (sin contar el solapamiento) */
+    public long getLastCatchUpMillis() {
+        return lastCatchUpMillis;
+    }
+    
+    
+    /* *********************************** UPDATES *********************************** */
+    /** Anota que los datos se han leído completos en el instante recibido, por ejemplo al reconstruir la estructura */
+    public void restart(long readMillis) {
+        lastCatchUpMillis = readMillis;
+    }
+    
+    /**
+     * Lee los cambios hechos desde la lectura anterior. Si falla, la siguiente empieza desde el mismo punto
+     * @param reader Función que lee y aplica los cambios posteriores a la fecha recibida
+     */
+    public void run(Consumer<Date> reader) {
+        long startMillis = System.currentTimeMillis();
+        reader.accept(new Date(lastCatchUpMillis - overlapMillis));
+        lastCatchUpMillis = startMillis;
+    }
+    
+    /** Ejecuta la acción al confirmar la transacción en curso, o inmediatamente si no hay ninguna */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
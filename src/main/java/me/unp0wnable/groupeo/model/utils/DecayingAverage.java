@@ -0,0 +1,55 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Media móvil exponencial ponderada por tiempo: sin muestras nuevas la media decae hacia cero, y cada muestra pesa
+ * según el tiempo que cubre, no según cuántas haya. Así refleja el estado de los últimos segundos aunque lleguen pocas
+ * muestras (por ejemplo, porque se han dejado de aceptar peticiones).
+ * <p>
+ * Una muestra no cubre más tiempo que su propia duración: tras un periodo sin muestras, el tiempo restante cuenta como
+ * cero, de modo que una única muestra alta no domina la media.
+ */
+public class DecayingAverage {
+    private final double windowNanos;
+    private final LongSupplier nanoClock;
+    private double average;
+    private long lastUpdateNanos;
+    
+    
+    /**
+     * @param windowNanos Tiempo en el que el peso de una muestra se reduce a 1/e
+     * @param nanoClock Reloj en nanosegundos, como {@link System#nanoTime()}
+     */
+    public DecayingAverage(long windowNanos, LongSupplier nanoClock) {
+        this.windowNanos = windowNanos;
+        this.nanoClock = nanoClock;
+        this.lastUpdateNanos = nanoClock.getAsLong();
+    }
+    
+    
+    /**
+     * Añade una muestra, con un peso proporcional al tiempo transcurrido desde la anterior
+     * @param sample Valor de la muestra
+     * @param durationNanos Tiempo durante el que se ha medido (por ejemplo, lo que ha durado una espera)
+     */
+    public synchronized void add(double sample, long durationNanos) {
+        long now = nanoClock.getAsLong();
+        long elapsed = Math.max(0, now - lastUpdateNanos);
+        long covered = Math.min(elapsed, Math.max(0, durationNanos));
+        // El tiempo que la muestra no cubre cuenta como cero, y después se mezcla la muestra con la media reducida
+        average *= decay(elapsed - covered);
+        average += (sample - average) * (1 - decay(covered));
+        lastUpdateNanos = now;
+    }
+    
+    /** Media actual, reducida según el tiempo transcurrido desde la última muestra */
+    public synchronized double get() {
+        return average * decay(Math.max(0, nanoClock.getAsLong() - lastUpdateNanos));
+    }
+    
+    private double decay(long elapsedNanos) {
+        return Math.exp(-elapsedNanos / windowNanos);
+    }
+    
+}
@@ -0,0 +1,319 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Grafo no dirigido de amistades entre usuarios, guardado como listas de adyacencia compactas.
+ * <p>
+ * Cada usuario recibe un identificador entero ({@link UuidInterner}) y sus amigos se guardan como un array ordenado de
+ * esos identificadores, por lo que cada amistad ocupa 8 bytes (4 en cada extremo). Los arrays no se modifican nunca:
+ * cada cambio crea una copia del array afectado y la publica, de forma que las consultas no necesitan bloqueos y
+ * siempre ven una lista completa. Los cambios se serializan entre sí.
+ * <p>
+ * Puede crearse sobre un {@link FriendshipGraphSnapshot} proyectado en memoria, sin recorrerlo: los usuarios del
+ * fichero conservan su identificador y se buscan en él, y las listas de los que no han cambiado desde entonces se leen
+ * del fichero. Solo los usuarios nuevos y las listas modificadas ocupan memoria del proceso.
+ */
+public class FriendshipGraph {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int[] NO_FRIENDS = new int[0];
+    private static final long ARRAY_HEADER_BYTES = 16;
+    private static final long REFERENCE_BYTES = 4;
+    
+    /** Usuarios que no están en el fichero, cuyos identificadores siguen a los de este */
+    private final UuidInterner users = new UuidInterner();
+    /** Usuarios y listas guardados en disco; <c>null</c> si no se ha creado desde un fichero */
+    private final FriendshipGraphSnapshot base;
+    private final int baseUsers;
+    /**
+     * Amigos de cada usuario por identificador; <c>null</c> si no tiene o si no han cambiado desde el fichero. Los que
+     * se han quedado sin amigos desde entonces tienen una lista vacía. Solo crece hasta el mayor identificador
+     * modificado: los usuarios del fichero que quedan fuera conservan su lista
+     */
+    private volatile AtomicReferenceArray<int[]> adjacency = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    private volatile long friendships;
+    /** Arrays de amigos no vacíos y amigos guardados en ellos, para calcular la memoria ocupada */
+    private volatile long adjacencyArrays;
+    private volatile long adjacencyFriends;
+    
+    
+    /** Crea un grafo vacío */
+    public FriendshipGraph() {
+        this.base = null;
+        this.baseUsers = 0;
+    }
+    
+    /** Crea un grafo con las amistades de un fichero, que se leen de él hasta que cambian */
+    public FriendshipGraph(FriendshipGraphSnapshot base) {
+        this.base = base;
+        this.baseUsers = base.userCount();
+        this.friendships = base.friendshipCount();
+    }
+    
+    /** Listas de amigos de todos los usuarios en un instante, que no cambian aunque lo haga el grafo */
+    public static final class Capture {
+        private final FriendshipGraph graph;
+        private final int[][] friends;
+        
+        private Capture(FriendshipGraph graph, int[][] friends) {
+            this.graph = graph;
+            this.friends = friends;
+        }
+        
+        public int userCount() {
+            return friends.length;
+        }
+        
+        public UUID getUserID(int id) {
+            return graph.getUserID(id);
+        }
+        
+        /** Número de amigos de un usuario, sin copiar los del fichero */
+        public int degree(int id) {
+            int[] userFriends = friends[id];
+            if (userFriends != null) return userFriends.length;
+            
+            return graph.inBase(id) ? graph.base.degree(id) : 0;
+        }
+        
+        /** Obtiene los amigos de un usuario en orden creciente. No debe modificarse */
+        public int[] getFriends(int id) {
+            int[] userFriends = friends[id];
+            if (userFriends != null) return userFriends;
+            
+            return graph.inBase(id) ? graph.base.getFriends(id) : NO_FRIENDS;
+        }
+    }
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    /** Comprueba si dos usuarios son amigos */
+    public boolean areFriends(UUID firstUserID, UUID secondUserID) {
+        int first = findID(firstUserID);
+        int second = findID(secondUserID);
+        if (first < 0 || second < 0) return false;
+        
+        // Buscar en la lista más corta
+        return (degreeOf(first) <= degreeOf(second)) ? containsFriend(first, second) : containsFriend(second, first);
+    }
+    
+    /**
+     * Obtiene los amigos de un usuario
+     * @return Identificadores de los amigos en orden creciente (ver {@link #getUserID(int)}). No debe modificarse
+     */
+    public int[] getFriends(UUID userID) {
+        int user = findID(userID);
+        return (user < 0) ? NO_FRIENDS : friendsOf(user);
+    }
+    
+    /**
+     * Obtiene los amigos de un usuario a partir de su identificador
+     * @return Identificadores de los amigos en orden creciente. No debe modificarse
+     */
+    public int[] getFriends(int id) {
+        return (id < 0) ? NO_FRIENDS : friendsOf(id);
+    }
+    
+    /** Obtiene el identificador entero de un usuario, o -1 si nunca ha tenido amigos */
+    public int findID(UUID userID) {
+        int id = (base == null) ? -1 : base.findID(userID);
+        if (id >= 0) return id;
+        
+        id = users.find(userID);
+        return (id < 0) ? -1 : baseUsers + id;
+    }
+    
+    /** Obtiene el ID de usuario de un identificador devuelto por {@link #getFriends(UUID)} */
+    public UUID getUserID(int id) {
+        return (id < baseUsers) ? base.getUserID(id) : users.get(id - baseUsers);
+    }
+    
+    /** Número de amistades (cada una cuenta una vez) */
+    public long friendshipCount() {
+        return friendships;
+    }
+    
+    /** Número de usuarios que han tenido algún amigo */
+    public int userCount() {
+        return baseUsers + users.size();
+    }
+    
+    /** Memoria aproximada ocupada en bytes, incluido el fichero proyectado */
+    public long memoryBytes() {
+        return users.memoryBytes()
+                + ((base == null) ? 0 : base.sizeBytes())
+                + ARRAY_HEADER_BYTES + (adjacency.length() * REFERENCE_BYTES)
+                + (adjacencyArrays * ARRAY_HEADER_BYTES)
+                + (adjacencyFriends * Integer.BYTES);
+    }
+    
+    /**
+     * Obtiene las listas de amigos actuales para recorrerlas sin bloquear los cambios. Solo copia las referencias a
+     * las listas, que nunca se modifican
+     */
+    public synchronized Capture capture() {
+        AtomicReferenceArray<int[]> currentAdjacency = adjacency;
+        int[][] friends = new int[userCount()][];
+        for (int id = 0; id < friends.length && id < currentAdjacency.length(); id++) {
+            friends[id] = currentAdjacency.get(id);
+        }
+        return new Capture(this, friends);
+    }
+    
+    
+    /* *********************************** UPDATES *********************************** */
+    /**
+     * Añade una amistad
+     * @return <c>false</c> si ya existía
+     */
+    public synchronized boolean addFriendship(UUID firstUserID, UUID secondUserID) {
+        if (firstUserID.equals(secondUserID)) return false;
+        
+        int first = intern(firstUserID);
+        int second = intern(secondUserID);
+        if (!insert(first, second)) return false;
+        
+        insert(second, first);
+        friendships++;
+        return true;
+    }
+    
+    /**
+     * Elimina una amistad
+     * @return <c>false</c> si no existía
+     */
+    public synchronized boolean removeFriendship(UUID firstUserID, UUID secondUserID) {
+        int first = findID(firstUserID);
+        int second = findID(secondUserID);
+        if (first < 0 || second < 0 || !delete(first, second)) return false;
+        
+        delete(second, first);
+        friendships--;
+        return true;
+    }
+    
+    /**
+     * Elimina todas las amistades de un usuario
+     * @return Número de amistades eliminadas
+     */
+    public synchronized int removeUser(UUID userID) {
+        int user = findID(userID);
+        if (user < 0) return 0;
+        
+        int[] friends = friendsOf(user);
+        for (int friend : friends) {
+            delete(friend, user);
+        }
+        setFriends(user, emptyFriends(user));
+        friendships -= friends.length;
+        return friends.length;
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Obtiene el identificador de un usuario, asignándole el siguiente si no estaba. Solo se llama con el bloqueo */
+    private int intern(UUID userID) {
+        int id = (base == null) ? -1 : base.findID(userID);
+        return (id >= 0) ? id : baseUsers + users.intern(userID);
+    }
+    
+    private int[] friendsOf(int user) {
+        int[] friends = ownFriends(user);
+        if (friends != null) return friends;
+        
+        return inBase(user) ? base.getFriends(user) : NO_FRIENDS;
+    }
+    
+    /** Número de amigos de un usuario, sin copiar los del fichero */
+    private int degreeOf(int user) {
+        int[] friends = ownFriends(user);
+        if (friends != null) return friends.length;
+        
+        return inBase(user) ? base.degree(user) : 0;
+    }
+    
+    /** Comprueba si un usuario tiene a otro entre sus amigos, sin copiar los del fichero */
+    private boolean containsFriend(int user, int friend) {
+        int[] friends = ownFriends(user);
+        if (friends != null) return Arrays.binarySearch(friends, friend) >= 0;
+        
+        return inBase(user) && base.containsFriend(user, friend);
+    }
+    
+    /** Lista de amigos en memoria de un usuario; <c>null</c> si no tiene o si es la del fichero */
+    private int[] ownFriends(int user) {
+        AtomicReferenceArray<int[]> currentAdjacency = adjacency;
+        return (user < currentAdjacency.length()) ? currentAdjacency.get(user) : null;
+    }
+    
+    private boolean inBase(int user) {
+        return user < baseUsers;
+    }
+    
+    /** Lista de un usuario sin amigos: vacía si debe ocultar la del fichero, o ninguna */
+    private int[] emptyFriends(int user) {
+        return inBase(user) ? NO_FRIENDS : null;
+    }
+    
+    /** Publica una copia de la lista de amigos con el nuevo amigo en su posición */
+    private boolean insert(int user, int friend) {
+        int[] friends = friendsOf(user);
+        int position = Arrays.binarySearch(friends, friend);
+        if (position >= 0) return false;
+        
+        position = -(position + 1);
+        int[] updated = new int[friends.length + 1];
+        System.arraycopy(friends, 0, updated, 0, position);
+        updated[position] = friend;
+        System.arraycopy(friends, position, updated, position + 1, friends.length - position);
+        setFriends(user, updated);
+        return true;
+    }
+    
+    /** Publica una copia de la lista de amigos sin el amigo eliminado */
+    private boolean delete(int user, int friend) {
+        int[] friends = friendsOf(user);
+        int position = Arrays.binarySearch(friends, friend);
+        if (position < 0) return false;
+        
+        int[] updated = emptyFriends(user);
+        if (friends.length > 1) {
+            updated = new int[friends.length - 1];
+            System.arraycopy(friends, 0, updated, 0, position);
+            System.arraycopy(friends, position + 1, updated, position, friends.length - position - 1);
+        }
+        setFriends(user, updated);
+        return true;
+    }
+    
+    private void setFriends(int user, int[] friends) {
+        ensureCapacity(user + 1);
+        int[] previous = adjacency.getAndSet(user, friends);
+        if (!isArray(previous) && isArray(friends)) adjacencyArrays++;
+        if (isArray(previous) && !isArray(friends)) adjacencyArrays--;
+        adjacencyFriends += ((friends == null) ? 0 : friends.length) - ((previous == null) ? 0 : previous.length);
+    }
+    
+    /** La lista vacía compartida no ocupa memoria por usuario */
+    private static boolean isArray(int[] friends) {
+        return (friends != null) && (friends != NO_FRIENDS);
+    }
+    
+    /** Amplía el array de listas si no cabe el identificador. Solo se llama con el bloqueo de escritura */
+    private void ensureCapacity(int users) {
+        AtomicReferenceArray<int[]> currentAdjacency = adjacency;
+        if (users <= currentAdjacency.length()) return;
+        
+        int capacity = currentAdjacency.length();
+        while (capacity < users) capacity *= 2;
+        
+        AtomicReferenceArray<int[]> grown = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < currentAdjacency.length(); i++) {
+            grown.set(i, currentAdjacency.get(i));
+        }
+        adjacency = grown;
+    }
+    
+}
@@ -0,0 +1,413 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Copia en disco de un {@link FriendshipGraph} en formato CSR (<i>compressed sparse row</i>), que se proyecta en
+ * memoria para arrancar sin recorrer la tabla de amistades.
+ * <p>
+ * El fichero contiene una cabecera y cuatro secciones, en <i>little endian</i>:
+ * <ol>
+ *     <li>Los UUID de los usuarios por identificador (16 bytes cada uno).</li>
+ *     <li>La posición en la que empiezan los amigos de cada usuario, más una final (8 bytes cada una).</li>
+ *     <li>Los amigos de todos los usuarios, uno tras otro y cada lista ordenada (4 bytes cada uno).</li>
+ *     <li>Una tabla hash de direccionamiento abierto con el identificador de cada UUID, como la de
+ *     {@link UuidInterner} (4 bytes por posición).</li>
+ * </ol>
+ * La cabecera guarda el número de usuarios y de amigos, la marca de agua (hasta cuándo están aplicados los cambios)
+ * y las sumas de comprobación CRC32C de la cabecera y de cada sección. Al abrir el fichero solo se comprueba la
+ * cabecera, para no recorrerlo entero al arrancar; las secciones se comprueban después con {@link #verify()}.
+ * <p>
+ * Los ficheros se escriben en uno temporal que se mueve a su ruta al terminar, por lo que los que ya están abiertos no
+ * cambian nunca. Las consultas leen directamente del fichero proyectado y pueden hacerse desde varios hilos a la vez.
+ */
+public class FriendshipGraphSnapshot {
+    /** "GRPFRNDS" */
+    private static final long MAGIC = 0x5352444E52465047L;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int FIRST_SECTION_CHECKSUM_OFFSET = 32;
+    /** Bytes de la cabecera incluidos en su suma de comprobación: todos los campos anteriores a ella */
+    private static final int HEADER_CHECKSUM_OFFSET = 48;
+    private static final String[] SECTION_NAMES = {"users", "offsets", "friends", "user ids"};
+    private static final int UUID_BYTES = 2 * Long.BYTES;
+    private static final int EMPTY_SLOT = -1;
+    /** La tabla hash tiene como mucho la mitad de posiciones ocupadas y su tamaño debe caber en un entero */
+    private static final int MAX_USERS = 1 << 29;
+    /** Cada proyección puede tener como máximo 2 GiB; todos los valores quedan dentro de un mismo segmento */
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final int WRITE_BUFFER_BYTES = 1024 * 1024;
+    
+    private final Path file;
+    private final MappedByteBuffer[] segments;
+    private final long sizeBytes;
+    private final int userCount;
+    private final long adjacencyLength;
+    private final long watermarkMillis;
+    private final int slotCount;
+    /** Sumas de comprobación de cada sección, guardadas en la cabecera */
+    private final int[] sectionChecksums;
+    /** Posición de inicio de cada sección, más el final del fichero */
+    private final long[] sectionPositions;
+    
+    private FriendshipGraphSnapshot(Path file, MappedByteBuffer[] segments, long sizeBytes, int userCount,
+                                    long adjacencyLength, long watermarkMillis, int[] sectionChecksums) {
+        this.file = file;
+        this.segments = segments;
+        this.sizeBytes = sizeBytes;
+        this.userCount = userCount;
+        this.adjacencyLength = adjacencyLength;
+        this.watermarkMillis = watermarkMillis;
+        this.slotCount = slotCount(userCount);
+        this.sectionChecksums = sectionChecksums;
+        this.sectionPositions = sectionPositions(userCount, adjacencyLength);
+    }
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    /** Instante hasta el que están aplicados los cambios, en milisegundos */
+    public long getWatermarkMillis() {
+        return watermarkMillis;
+    }
+    
+    /** Número de usuarios, que es también el siguiente identificador a asignar */
+    public int userCount() {
+        return userCount;
+    }
+    
+    /** Número de amistades (cada una cuenta una vez) */
+    public long friendshipCount() {
+        return adjacencyLength / 2;
+    }
+    
+    /** Tamaño del fichero proyectado en bytes */
+    public long sizeBytes() {
+        return sizeBytes;
+    }
+    
+    /** Obtiene el UUID de un identificador */
+    public UUID getUserID(int id) {
+        if (id < 0 || id >= userCount) throw new IndexOutOfBoundsException("Unknown id " + id);
+        
+        long position = sectionPositions[0] + ((long) id * UUID_BYTES);
+        return new UUID(getLong(position), getLong(position + Long.BYTES));
+    }
+    
+    /**
+     * Busca el identificador de un UUID en la tabla hash del fichero
+     * @return Identificador del UUID, o -1 si no está en el fichero
+     */
+    public int findID(UUID userID) {
+        long most = userID.getMostSignificantBits();
+        long least = userID.getLeastSignificantBits();
+        
+        int mask = slotCount - 1;
+        int slot = UuidInterner.hash(most, least) & mask;
+        for (int probes = 0; probes < slotCount; probes++) {
+            int id = getInt(sectionPositions[3] + ((long) slot * Integer.BYTES));
+            if (id < 0 || id >= userCount) return EMPTY_SLOT;
+            
+            long position = sectionPositions[0] + ((long) id * UUID_BYTES);
+            if (getLong(position) == most && getLong(position + Long.BYTES) == least) return id;
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY_SLOT;
+    }
+    
+    /** Número de amigos de un usuario */
+    public int degree(int id) {
+        if (id < 0 || id >= userCount) return 0;
+        
+        return (int) (friendsStart(id + 1) - friendsStart(id));
+    }
+    
+    /** Copia los amigos de un usuario, en orden creciente */
+    public int[] getFriends(int id) {
+        int degree = degree(id);
+        if (degree == 0) return new int[0];
+        
+        int[] friends = new int[degree];
+        long position = sectionPositions[2] + (friendsStart(id) * Integer.BYTES);
+        for (int i = 0; i < friends.length; i++, position += Integer.BYTES) {
+            friends[i] = getInt(position);
+        }
+        return friends;
+    }
+    
+    /** Comprueba si un usuario está entre los amigos de otro, sin copiarlos */
+    public boolean containsFriend(int id, int friend) {
+        if (id < 0 || id >= userCount) return false;
+        
+        long low = friendsStart(id);
+        long high = friendsStart(id + 1) - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            int value = getInt(sectionPositions[2] + (middle * Integer.BYTES));
+            if (value < friend) {
+                low = middle + 1;
+            } else if (value > friend) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    
+    /* *********************************** FILES *********************************** */
+    /**
+     * Proyecta en memoria un fichero comprobando su formato, su tamaño y la suma de comprobación de su cabecera. No
+     * lee las secciones: deben comprobarse con {@link #verify()} antes de confiar en su contenido
+     * @throws IOException Si no se puede leer, o está incompleto o dañado
+     */
+    public static FriendshipGraphSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long sizeBytes = channel.size();
+            if (sizeBytes < HEADER_BYTES) throw new IOException("Truncated friendship snapshot " + file);
+            
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((sizeBytes + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                          Math.min(sizeBytes - position, 1L << SEGMENT_SHIFT));
+                segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            
+            ByteBuffer header = segments[0].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION) {
+                throw new IOException("Unknown friendship snapshot format in " + file);
+            }
+            CRC32C headerChecksum = new CRC32C();
+            headerChecksum.update(header.duplicate().position(0).limit(HEADER_CHECKSUM_OFFSET));
+            if (header.getInt(HEADER_CHECKSUM_OFFSET) != (int) headerChecksum.getValue()) {
+                throw new IOException("Corrupted header in friendship snapshot " + file);
+            }
+            
+            int userCount = header.getInt(12);
+            long adjacencyLength = header.getLong(16);
+            long watermarkMillis = header.getLong(24);
+            if (userCount < 0 || userCount > MAX_USERS || adjacencyLength < 0
+                    || sizeBytes != sectionPositions(userCount, adjacencyLength)[SECTION_NAMES.length]) {
+                throw new IOException("Truncated friendship snapshot " + file);
+            }
+            
+            int[] sectionChecksums = new int[SECTION_NAMES.length];
+            for (int i = 0; i < sectionChecksums.length; i++) {
+                sectionChecksums[i] = header.getInt(FIRST_SECTION_CHECKSUM_OFFSET + (i * Integer.BYTES));
+            }
+            return new FriendshipGraphSnapshot(file, segments, sizeBytes, userCount, adjacencyLength, watermarkMillis,
+                                               sectionChecksums);
+        }
+    }
+    
+    /**
+     * Comprueba las sumas de comprobación de todas las secciones. Lee el fichero completo, por lo que no debe
+     * hacerse mientras se espera a arrancar
+     * @throws IOException Si alguna sección está dañada
+     */
+    public void verify() throws IOException {
+        for (int i = 0; i < SECTION_NAMES.length; i++) {
+            if (checksum(sectionPositions[i], sectionPositions[i + 1]) != sectionChecksums[i]) {
+                throw new IOException("Corrupted " + SECTION_NAMES[i] + " in friendship snapshot " + file);
+            }
+        }
+    }
+    
+    /**
+     * Escribe un grafo en un fichero, sustituyendo al anterior solo cuando está completo en disco. Los cambios en el
+     * grafo mientras se escribe no se incluyen
+     * @param graph Grafo a guardar
+     * @param watermarkMillis Instante hasta el que están aplicados en el grafo los cambios de la base de datos
+     * @param file Ruta del fichero
+     * @param temporaryDirectory Directorio en el mismo sistema de ficheros para escribirlo antes de moverlo
+     * @return Tamaño del fichero en bytes
+     */
+    public static long write(FriendshipGraph graph, long watermarkMillis, Path file, Path temporaryDirectory)
+            throws IOException {
+        FriendshipGraph.Capture capture = graph.capture();
+        int userCount = capture.userCount();
+        if (userCount > MAX_USERS) throw new IOException("Too many users for a friendship snapshot: " + userCount);
+        long adjacencyLength = 0;
+        for (int id = 0; id < userCount; id++) {
+            adjacencyLength += capture.degree(id);
+        }
+        
+        Path temporaryFile = Files.createTempFile(temporaryDirectory, "friendships-", ".part");
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                ChecksumWriter writer = new ChecksumWriter(channel, HEADER_BYTES);
+                int[] sectionChecksums = new int[SECTION_NAMES.length];
+                int[] slots = new int[slotCount(userCount)];
+                Arrays.fill(slots, EMPTY_SLOT);
+                for (int id = 0; id < userCount; id++) {
+                    UUID userID = capture.getUserID(id);
+                    writer.putLong(userID.getMostSignificantBits());
+                    writer.putLong(userID.getLeastSignificantBits());
+                    slots[freeSlot(slots, userID)] = id;
+                }
+                sectionChecksums[0] = writer.finishSection();
+                
+                long offset = 0;
+                for (int id = 0; id < userCount; id++) {
+                    writer.putLong(offset);
+                    offset += capture.degree(id);
+                }
+                writer.putLong(offset);
+                sectionChecksums[1] = writer.finishSection();
+                
+                for (int id = 0; id < userCount; id++) {
+                    for (int friend : capture.getFriends(id)) writer.putInt(friend);
+                }
+                sectionChecksums[2] = writer.finishSection();
+                
+                for (int slot : slots) writer.putInt(slot);
+                sectionChecksums[3] = writer.finishSection();
+                
+                channel.write(header(userCount, adjacencyLength, watermarkMillis, sectionChecksums), 0);
+                channel.force(false);
+            }
+            
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        return sectionPositions(userCount, adjacencyLength)[SECTION_NAMES.length];
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Posiciones en las que empieza cada sección, más el tamaño total del fichero */
+    private static long[] sectionPositions(int userCount, long adjacencyLength) {
+        long[] positions = new long[SECTION_NAMES.length + 1];
+        positions[0] = HEADER_BYTES;
+        positions[1] = positions[0] + ((long) userCount * UUID_BYTES);
+        positions[2] = positions[1] + ((userCount + 1L) * Long.BYTES);
+        positions[3] = positions[2] + (adjacencyLength * Integer.BYTES);
+        positions[4] = positions[3] + ((long) slotCount(userCount) * Integer.BYTES);
+        return positions;
+    }
+    
+    /** Posiciones de la tabla hash: la menor potencia de dos que deja al menos la mitad libres */
+    private static int slotCount(int userCount) {
+        int slots = 2;
+        while (slots < 2L * userCount) slots <<= 1;
+        return slots;
+    }
+    
+    /** Primera posición libre para un UUID, que no puede estar repetido en el grafo */
+    private static int freeSlot(int[] slots, UUID userID) {
+        int mask = slots.length - 1;
+        int slot = UuidInterner.hash(userID.getMostSignificantBits(), userID.getLeastSignificantBits()) & mask;
+        while (slots[slot] != EMPTY_SLOT) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private static ByteBuffer header(int userCount, long adjacencyLength, long watermarkMillis,
+                                     int[] sectionChecksums) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(0, MAGIC);
+        header.putInt(8, VERSION);
+        header.putInt(12, userCount);
+        header.putLong(16, adjacencyLength);
+        header.putLong(24, watermarkMillis);
+        for (int i = 0; i < sectionChecksums.length; i++) {
+            header.putInt(FIRST_SECTION_CHECKSUM_OFFSET + (i * Integer.BYTES), sectionChecksums[i]);
+        }
+        
+        CRC32C headerChecksum = new CRC32C();
+        headerChecksum.update(header.duplicate().position(0).limit(HEADER_CHECKSUM_OFFSET));
+        header.putInt(HEADER_CHECKSUM_OFFSET, (int) headerChecksum.getValue());
+        return header;
+    }
+    
+    /** Suma de comprobación de un rango del fichero, que puede ocupar varios segmentos */
+    private int checksum(long from, long to) {
+        CRC32C checksum = new CRC32C();
+        long position = from;
+        while (position < to) {
+            int segment = (int) (position >>> SEGMENT_SHIFT);
+            long segmentStart = (long) segment << SEGMENT_SHIFT;
+            int end = (int) (Math.min(to, segmentStart + segments[segment].capacity()) - segmentStart);
+            checksum.update(segments[segment].duplicate().limit(end).position((int) (position - segmentStart)));
+            position = segmentStart + end;
+        }
+        return (int) checksum.getValue();
+    }
+    
+    /**
+     * Posición de la lista de amigos de un usuario. Falla si está fuera de la sección, para que un fichero dañado no
+     * provoque reservas de memoria enormes antes de comprobarlo
+     */
+    private long friendsStart(int id) {
+        long start = getLong(sectionPositions[1] + ((long) id * Long.BYTES));
+        if (start < 0 || start > adjacencyLength) {
+            throw new IllegalStateException("Corrupted offsets in friendship snapshot " + file);
+        }
+        return start;
+    }
+    
+    private long getLong(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) (position & SEGMENT_MASK));
+    }
+    
+    private int getInt(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getInt((int) (position & SEGMENT_MASK));
+    }
+    
+    /** Escribe el contenido en bloques a partir de una posición, calculando la suma de comprobación de cada sección */
+    private static final class ChecksumWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C checksum = new CRC32C();
+        private long position;
+        
+        private ChecksumWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+        
+        private void putLong(long value) throws IOException {
+            if (buffer.remaining() < Long.BYTES) flush();
+            buffer.putLong(value);
+        }
+        
+        private void putInt(int value) throws IOException {
+            if (buffer.remaining() < Integer.BYTES) flush();
+            buffer.putInt(value);
+        }
+        
+        /** @return Suma de comprobación de lo escrito desde la sección anterior */
+        private int finishSection() throws IOException {
+            flush();
+            int value = (int) checksum.getValue();
+            checksum.reset();
+            return value;
+        }
+        
+        private void flush() throws IOException {
+            buffer.flip();
+            checksum.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+    
+}
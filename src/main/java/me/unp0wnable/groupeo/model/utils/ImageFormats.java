@@ -0,0 +1,50 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.Optional;
+
+/** Detección del tipo de imagen a partir de sus primeros bytes (firma del formato) */
+@UtilityClass
+public class ImageFormats {
+    public static final String PNG = "image/png";
+    public static final String JPEG = "image/jpeg";
+    public static final String GIF = "image/gif";
+    
+    /** Número de bytes necesarios para reconocer cualquiera de los formatos soportados */
+    public static final int SIGNATURE_LENGTH = 8;
+    
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] GIF87_SIGNATURE = {'G', 'I', 'F', '8', '7', 'a'};
+    private static final byte[] GIF89_SIGNATURE = {'G', 'I', 'F', '8', '9', 'a'};
+    
+    
+    /**
+     * Obtiene el tipo MIME de la imagen cuyos primeros bytes se reciben
+     * @param header Primeros bytes del fichero
+     * @param length Número de bytes válidos en <c>header</c>
+     * @return Tipo MIME de la imagen, o vacío si no es un formato soportado
+     */
+    public static Optional<String> detectContentType(byte[] header, int length) {
+        if (startsWith(header, length, PNG_SIGNATURE)) return Optional.of(PNG);
+        if (startsWith(header, length, JPEG_SIGNATURE)) return Optional.of(JPEG);
+        if (startsWith(header, length, GIF87_SIGNATURE) || startsWith(header, length, GIF89_SIGNATURE)) {
+            return Optional.of(GIF);
+        }
+        
+        return Optional.empty();
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private static boolean startsWith(byte[] header, int length, byte[] signature) {
+        if (length < signature.length) return false;
+        
+        for (int i = 0; i < signature.length; i++) {
+            if (header[i] != signature[i]) return false;
+        }
+        return true;
+    }
+    
+}
@@ -0,0 +1,272 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Calcula los amigos de amigos de un usuario con más amigos en común ("quizás conozcas a..."), sobre un
+ * {@link FriendshipGraph}.
+ * <p>
+ * Los amigos en común se cuentan recorriendo las listas de los amigos del usuario y sumando las apariciones de cada
+ * identificador en un array de contadores indexado por identificador. Cada hilo del pool reutiliza su array entre
+ * cálculos, de forma que contar no reserva memoria. Cuando el usuario tiene muchos amigos de amigos, el rango de
+ * identificadores se reparte en tareas fork/join; como las listas están ordenadas, cada tarea solo recorre la parte de
+ * cada lista que cae en su rango. Los cálculos se ejecutan siempre en el pool, por lo que solo sus hilos tienen
+ * contadores.
+ * Los amigos con más amigos que el máximo configurado no se recorren: casi no aportan información y su lista
+ * dominaría el cálculo de todos sus amigos.
+ */
+public class MutualFriendsCounter {
+    private static final long[] NO_KEYS = new long[0];
+    
+    /** Contadores de cada hilo. Todos están a cero entre cálculos */
+    private static final ThreadLocal<Counters> COUNTERS = ThreadLocal.withInitial(Counters::new);
+    
+    private final ForkJoinPool pool;
+    private final long parallelThreshold;
+    private final int maxFriendDegree;
+    
+    
+    /**
+     * @param pool Pool en el que se ejecutan los cálculos
+     * @param parallelThreshold Amigos de amigos a partir de los cuales un rango se divide en dos tareas
+     * @param maxFriendDegree Número máximo de amigos de un amigo para tenerlo en cuenta
+     */
+    public MutualFriendsCounter(ForkJoinPool pool, long parallelThreshold, int maxFriendDegree) {
+        this.pool = pool;
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+        this.maxFriendDegree = maxFriendDegree;
+    }
+    
+    /** Candidato a amigo de un usuario */
+    public static final class Candidate {
+        private final int id;
+        private final int mutualFriends;
+        
+        public Candidate(int id, int mutualFriends) {
+            this.id = id;
+            this.mutualFriends = mutualFriends;
+        }
+        
+        /** Identificador del usuario en el grafo (ver {@link FriendshipGraph#getUserID(int)}) */
+        public int getId() {
+            return id;
+        }
+        
+        public int getMutualFriends() {
+            return mutualFriends;
+        }
+    }
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    /**
+     * Obtiene los usuarios que no son amigos del usuario con los que tiene más amigos en común
+     * @param graph Grafo de amistades
+     * @param id Identificador del usuario en el grafo
+     * @param limit Número máximo de candidatos
+     * @return Candidatos de más a menos amigos en común; a igualdad, por identificador
+     */
+    public List<Candidate> topCandidates(FriendshipGraph graph, int id, int limit) {
+        int[] friends = graph.getFriends(id);
+        if (friends.length == 0 || limit <= 0) return List.of();
+        
+        // Las listas son inmutables: se toman una sola vez para trabajar sobre una versión consistente
+        int[][] friendLists = new int[friends.length][];
+        long friendsOfFriends = 0;
+        int idBound = 0;
+        for (int i = 0; i < friends.length; i++) {
+            int[] friendsOfFriend = graph.getFriends(friends[i]);
+            friendLists[i] = (friendsOfFriend.length > maxFriendDegree) ? new int[0] : friendsOfFriend;
+            friendsOfFriends += friendLists[i].length;
+            // Las listas están ordenadas: su último elemento es el mayor
+            if (friendLists[i].length > 0) idBound = Math.max(idBound, friendLists[i][friendLists[i].length - 1] + 1);
+        }
+        if (friendsOfFriends == 0) return List.of();
+        
+        Search search = new Search(friendLists, friendsOfFriends, idBound, id, friends, limit);
+        long[] keys = pool.invoke(new CountTask(search, 0, idBound));
+        
+        List<Candidate> candidates = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            candidates.add(new Candidate(decodeID(key), (int) (key >>> 32)));
+        }
+        return candidates;
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Contadores por identificador y lista de los identificadores contados, para volver a ponerlos a cero */
+    private static final class Counters {
+        private int[] counts = new int[0];
+        private int[] counted = new int[0];
+        
+        private void ensureCapacity(int idBound) {
+            if (counts.length >= idBound) return;
+            
+            // Todos los contadores están a cero: no hace falta copiarlos
+            int capacity = Math.max(idBound, counts.length + (counts.length >> 1));
+            counts = new int[capacity];
+            counted = new int[capacity];
+        }
+    }
+    
+    /** Datos comunes a todas las tareas de un cálculo */
+    private static final class Search {
+        private final int[][] friendLists;
+        private final long friendsOfFriends;
+        private final int idBound;
+        private final int id;
+        private final int[] friends;
+        private final int limit;
+        
+        private Search(int[][] friendLists, long friendsOfFriends, int idBound, int id, int[] friends, int limit) {
+            this.friendLists = friendLists;
+            this.friendsOfFriends = friendsOfFriends;
+            this.idBound = idBound;
+            this.id = id;
+            this.friends = friends;
+            this.limit = limit;
+        }
+    }
+    
+    /**
+     * Cuenta los candidatos de un rango de identificadores, dividiéndolo en dos tareas si supera el umbral
+     * (suponiendo los identificadores repartidos de forma uniforme en las listas)
+     */
+    private final class CountTask extends RecursiveTask<long[]> {
+        private final Search search;
+        private final int fromID;
+        private final int toID;
+        
+        private CountTask(Search search, int fromID, int toID) {
+            this.search = search;
+            this.fromID = fromID;
+            this.toID = toID;
+        }
+        
+        @Override
+        protected long[] compute() {
+            double estimatedWork = (double) search.friendsOfFriends * (toID - fromID) / search.idBound;
+            if (estimatedWork <= parallelThreshold || toID - fromID == 1) return countRange(search, fromID, toID);
+            
+            int middleID = (fromID + toID) >>> 1;
+            CountTask left = new CountTask(search, fromID, middleID);
+            CountTask right = new CountTask(search, middleID, toID);
+            left.fork();
+            long[] rightKeys = right.compute();
+            return mergeKeys(left.join(), rightKeys, search.limit);
+        }
+    }
+    
+    /**
+     * Cuenta las apariciones de los identificadores del rango en las listas de amigos y selecciona los candidatos con
+     * más apariciones, descartando al propio usuario y a sus amigos
+     * @return Claves de los candidatos seleccionados, de mayor a menor
+     */
+    private static long[] countRange(Search search, int fromID, int toID) {
+        Counters counters = COUNTERS.get();
+        counters.ensureCapacity(search.idBound);
+        int[] counts = counters.counts;
+        int[] counted = counters.counted;
+        int countedSize = 0;
+        
+        for (int[] friendsOfFriend : search.friendLists) {
+            for (int i = lowerBound(friendsOfFriend, fromID); i < friendsOfFriend.length; i++) {
+                int candidate = friendsOfFriend[i];
+                if (candidate >= toID) break;
+                
+                if (counts[candidate]++ == 0) counted[countedSize++] = candidate;
+            }
+        }
+        
+        // Seleccionar con un montículo de mínimos del tamaño del límite, dejando los contadores a cero
+        long[] heap = new long[Math.min(search.limit, countedSize)];
+        int heapSize = 0;
+        for (int i = 0; i < countedSize; i++) {
+            int candidate = counted[i];
+            int mutualFriends = counts[candidate];
+            counts[candidate] = 0;
+            if (candidate == search.id || Arrays.binarySearch(search.friends, candidate) >= 0) continue;
+            
+            long key = encode(candidate, mutualFriends);
+            if (heapSize < heap.length) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, heapSize);
+            }
+        }
+        
+        // Vaciar el montículo de menor a mayor, rellenando el resultado desde el final
+        long[] keys = (heapSize == 0) ? NO_KEYS : new long[heapSize];
+        for (int size = heapSize; size > 0; size--) {
+            keys[size - 1] = heap[0];
+            heap[0] = heap[size - 1];
+            siftDown(heap, size - 1);
+        }
+        return keys;
+    }
+    
+    /** Mezcla las claves de dos rangos, ordenadas de mayor a menor, conservando las mayores hasta el límite */
+    private static long[] mergeKeys(long[] left, long[] right, int limit) {
+        if (left.length == 0) return right;
+        if (right.length == 0) return left;
+        
+        long[] keys = new long[Math.min(limit, left.length + right.length)];
+        int i = 0, j = 0;
+        for (int size = 0; size < keys.length; size++) {
+            keys[size] = (j == right.length || (i < left.length && left[i] > right[j])) ? left[i++] : right[j++];
+        }
+        return keys;
+    }
+    
+    /** Posición del primer elemento de la lista ordenada que no es menor que el valor recibido */
+    private static int lowerBound(int[] list, int value) {
+        int position = Arrays.binarySearch(list, value);
+        return (position >= 0) ? position : -(position + 1);
+    }
+    
+    /** A igualdad de amigos en común, el identificador menor tiene la clave mayor */
+    private static long encode(int candidate, int mutualFriends) {
+        return ((long) mutualFriends << 32) | (Integer.MAX_VALUE - candidate);
+    }
+    
+    private static int decodeID(long key) {
+        return Integer.MAX_VALUE - (int) key;
+    }
+    
+    private static void siftUp(long[] heap, int position) {
+        long key = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heap[parent] <= key) break;
+            
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = key;
+    }
+    
+    private static void siftDown(long[] heap, int size) {
+        if (size == 0) return;
+        
+        long key = heap[0];
+        int position = 0;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (key <= heap[child]) break;
+            
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = key;
+    }
+    
+}
@@ -0,0 +1,386 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import java.util.*;
+
+/**
+ * Índice inmutable de nickNames para autocompletar por prefijo sin distinguir mayúsculas.
+ * <p>
+ * Los nickNames se guardan ordenados (por sus caracteres en minúsculas) y concatenados en un único <c>char[]</c>, junto
+ * a arrays paralelos con el ID y la puntuación de cada usuario, por lo que no se crea ningún objeto por usuario.
+ * Una consulta localiza el rango de nickNames con el prefijo mediante búsqueda binaria y selecciona los de mayor
+ * puntuación con un montículo guardado en el array recibido, sin reservar memoria.
+ * <p>
+ * Los cambios no modifican el índice: {@link #merge(Map)} genera uno nuevo (copy-on-write), por lo que deben
+ * acumularse y aplicarse por lotes.
+ */
+public class PrefixIndex {
+    /** Índice sin elementos */
+    public static final PrefixIndex EMPTY = new PrefixIndex(new char[0], new int[] {0}, new long[0], new long[0],
+                                                             new float[0]);
+    
+    /** Caracteres de todos los nickNames, en el orden del índice */
+    private final char[] chars;
+    /** Posición en <c>chars</c> en la que empieza cada nickName; la última posición marca el final */
+    private final int[] offsets;
+    private final long[] idMostSigBits;
+    private final long[] idLeastSigBits;
+    private final float[] scores;
+    
+    
+    private PrefixIndex(char[] chars, int[] offsets, long[] idMostSigBits, long[] idLeastSigBits, float[] scores) {
+        this.chars = chars;
+        this.offsets = offsets;
+        this.idMostSigBits = idMostSigBits;
+        this.idLeastSigBits = idLeastSigBits;
+        this.scores = scores;
+    }
+    
+    /** Elemento del índice: nickName, ID y puntuación de un usuario */
+    public static final class Entry {
+        private final UUID userID;
+        private final String nickName;
+        private final float score;
+        
+        public Entry(UUID userID, String nickName, float score) {
+            this.userID = Objects.requireNonNull(userID);
+            this.nickName = Objects.requireNonNull(nickName);
+            this.score = score;
+        }
+        
+        public UUID getUserID() {
+            return userID;
+        }
+        
+        public String getNickName() {
+            return nickName;
+        }
+        
+        public float getScore() {
+            return score;
+        }
+    }
+    
+    /**
+     * Construye un índice con los elementos recibidos
+     * @param entries Elementos del índice; si un ID se repite se conserva el último
+     */
+    public static PrefixIndex build(Collection<Entry> entries) {
+        Map<UUID, Entry> changes = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            changes.put(entry.userID, entry);
+        }
+        
+        return EMPTY.merge(changes);
+    }
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    /** Número de nickNames del índice */
+    public int size() {
+        return scores.length;
+    }
+    
+    /** Memoria aproximada ocupada por el índice, en bytes (contenido de los arrays más sus cabeceras) */
+    public long memoryBytes() {
+        final long arrayHeaderBytes = 16;
+        return (5 * arrayHeaderBytes)
+                + ((long) chars.length * Character.BYTES)
+                + ((long) offsets.length * Integer.BYTES)
+                + ((long) idMostSigBits.length * Long.BYTES)
+                + ((long) idLeastSigBits.length * Long.BYTES)
+                + ((long) scores.length * Float.BYTES);
+    }
+    
+    /**
+     * Busca los nickNames que empiezan por el prefijo recibido (sin distinguir mayúsculas) y guarda en
+     * <c>results</c> las posiciones de los de mayor puntuación, de mayor a menor. A igual puntuación se ordenan
+     * alfabéticamente. No reserva memoria
+     * @param prefix Prefijo a buscar
+     * @param results Array en el que se guardan las posiciones; su tamaño es el número máximo de resultados
+     * @return Número de posiciones guardadas en <c>results</c>
+     */
+    public int complete(CharSequence prefix, int[] results) {
+        int limit = results.length;
+        if (limit == 0) return 0;
+        
+        // Rango de nickNames que empiezan por el prefijo
+        int from = lowerBound(prefix);
+        int to = upperBound(prefix, from);
+        
+        // Seleccionar los mejores con un montículo de mínimos (el peor resultado en la raíz)
+        int count = 0;
+        for (int position = from; position < to; position++) {
+            if (count < limit) {
+                results[count] = position;
+                siftUp(results, count);
+                count++;
+            } else if (isBetter(position, results[0])) {
+                results[0] = position;
+                siftDown(results, 0, count);
+            }
+        }
+        
+        // Ordenar de mejor a peor extrayendo la raíz del montículo
+        for (int heapSize = count - 1; heapSize > 0; heapSize--) {
+            swap(results, 0, heapSize);
+            siftDown(results, 0, heapSize);
+        }
+        return count;
+    }
+    
+    /** Obtiene el nickName guardado en una posición del índice */
+    public String getNickName(int position) {
+        return new String(chars, offsets[position], offsets[position + 1] - offsets[position]);
+    }
+    
+    /** Obtiene el ID del usuario guardado en una posición del índice */
+    public UUID getUserID(int position) {
+        return new UUID(idMostSigBits[position], idLeastSigBits[position]);
+    }
+    
+    /** Obtiene la puntuación del usuario guardado en una posición del índice */
+    public float getScore(int position) {
+        return scores[position];
+    }
+    
+    
+    /* *********************************** UPDATES *********************************** */
+    /**
+     * Genera un nuevo índice aplicando los cambios recibidos, sin modificar este. Recorre el índice completo una vez,
+     * por lo que los cambios deben aplicarse por lotes
+     * @param changes Elemento nuevo de cada usuario modificado, o <c>null</c> si se elimina
+     * @return Índice con los cambios aplicados, o este mismo índice si los cambios no lo modifican
+     */
+    public PrefixIndex merge(Map<UUID, Entry> changes) {
+        if (changes.isEmpty()) return this;
+        
+        // IDs modificados ordenados, para buscarlos al recorrer el índice sin crear objetos
+        UUID[] changedIDs = changes.keySet().toArray(new UUID[0]);
+        Arrays.sort(changedIDs);
+        long[] changedMostSigBits = new long[changedIDs.length];
+        long[] changedLeastSigBits = new long[changedIDs.length];
+        for (int i = 0; i < changedIDs.length; i++) {
+            changedMostSigBits[i] = changedIDs[i].getMostSignificantBits();
+            changedLeastSigBits[i] = changedIDs[i].getLeastSignificantBits();
+        }
+        
+        // Contar los elementos que se conservan y comprobar si algún cambio modifica el índice
+        boolean[] indexed = new boolean[changedIDs.length];
+        boolean modified = false;
+        int keptCount = 0;
+        int keptChars = 0;
+        for (int position = 0; position < size(); position++) {
+            int change = findChange(position, changedMostSigBits, changedLeastSigBits);
+            if (change < 0) {
+                keptCount++;
+                keptChars += offsets[position + 1] - offsets[position];
+                continue;
+            }
+            
+            indexed[change] = true;
+            Entry entry = changes.get(changedIDs[change]);
+            modified |= (entry == null) || (entry.score != scores[position]) || !entry.nickName.equals(getNickName(position));
+        }
+        for (int i = 0; i < changedIDs.length; i++) {
+            modified |= !indexed[i] && (changes.get(changedIDs[i]) != null);
+        }
+        if (!modified) return this;
+        
+        // Ordenar los elementos añadidos
+        List<Entry> additions = new ArrayList<>(changes.size());
+        int totalChars = keptChars;
+        for (Entry entry : changes.values()) {
+            if (entry == null) continue;
+            additions.add(entry);
+            totalChars += entry.nickName.length();
+        }
+        additions.sort((first, second) -> compareFolded(first.nickName, second.nickName));
+        
+        // Mezclar ambas secuencias ordenadas
+        Builder builder = new Builder(keptCount + additions.size(), totalChars);
+        int position = 0;
+        int addition = 0;
+        while (position < size() || addition < additions.size()) {
+            if (position < size() && findChange(position, changedMostSigBits, changedLeastSigBits) >= 0) {
+                position++;
+            } else if (addition >= additions.size()
+                    || (position < size() && compareFolded(position, additions.get(addition).nickName) <= 0)) {
+                builder.copy(this, position++);
+            } else {
+                builder.add(additions.get(addition++));
+            }
+        }
+        
+        return builder.build();
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Busca el ID de una posición entre los IDs modificados (ordenados como {@link UUID#compareTo(UUID)}) */
+    private int findChange(int position, long[] changedMostSigBits, long[] changedLeastSigBits) {
+        long mostSigBits = idMostSigBits[position];
+        long leastSigBits = idLeastSigBits[position];
+        int low = 0;
+        int high = changedMostSigBits.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = (changedMostSigBits[middle] != mostSigBits)
+                    ? Long.compare(changedMostSigBits[middle], mostSigBits)
+                    : Long.compare(changedLeastSigBits[middle], leastSigBits);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+    
+    /** Primera posición cuyo nickName no es menor que el prefijo */
+    private int lowerBound(CharSequence prefix) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (comparePrefix(middle, prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    /** Primera posición a partir de <c>from</c> cuyo nickName no empieza por el prefijo */
+    private int upperBound(CharSequence prefix, int from) {
+        int low = from;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (comparePrefix(middle, prefix) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    /** Compara los primeros caracteres del nickName de una posición con el prefijo (0 si empieza por él) */
+    private int comparePrefix(int position, CharSequence prefix) {
+        int start = offsets[position];
+        int length = offsets[position + 1] - start;
+        int common = Math.min(length, prefix.length());
+        for (int i = 0; i < common; i++) {
+            int difference = fold(chars[start + i]) - fold(prefix.charAt(i));
+            if (difference != 0) return difference;
+        }
+        return (length < prefix.length()) ? -1 : 0;
+    }
+    
+    private int compareFolded(int position, String nickName) {
+        int start = offsets[position];
+        int length = offsets[position + 1] - start;
+        int common = Math.min(length, nickName.length());
+        for (int i = 0; i < common; i++) {
+            int difference = fold(chars[start + i]) - fold(nickName.charAt(i));
+            if (difference != 0) return difference;
+        }
+        return length - nickName.length();
+    }
+    
+    private static int compareFolded(String first, String second) {
+        int common = Math.min(first.length(), second.length());
+        for (int i = 0; i < common; i++) {
+            int difference = fold(first.charAt(i)) - fold(second.charAt(i));
+            if (difference != 0) return difference;
+        }
+        return first.length() - second.length();
+    }
+    
+    /** Convierte un carácter a minúsculas. Se hace carácter a carácter para no cambiar la longitud del nickName */
+    private static char fold(char character) {
+        return Character.toLowerCase(character);
+    }
+    
+    /** Indica si una posición debe ir antes que otra en los resultados: mayor puntuación o, si empatan, antes en orden */
+    private boolean isBetter(int position, int other) {
+        int comparison = Float.compare(scores[position], scores[other]);
+        return (comparison != 0) ? (comparison > 0) : (position < other);
+    }
+    
+    private void siftUp(int[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isBetter(heap[parent], heap[index])) return;
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+    
+    private void siftDown(int[] heap, int index, int heapSize) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && isBetter(heap[worst], heap[left])) worst = left;
+            if (right < heapSize && isBetter(heap[worst], heap[right])) worst = right;
+            if (worst == index) return;
+            swap(heap, index, worst);
+            index = worst;
+        }
+    }
+    
+    private static void swap(int[] array, int first, int second) {
+        int value = array[first];
+        array[first] = array[second];
+        array[second] = value;
+    }
+    
+    /** Rellena los arrays de un índice nuevo con los elementos ya ordenados */
+    private static final class Builder {
+        private final char[] chars;
+        private final int[] offsets;
+        private final long[] idMostSigBits;
+        private final long[] idLeastSigBits;
+        private final float[] scores;
+        private int count;
+        
+        private Builder(int size, int charCount) {
+            this.chars = new char[charCount];
+            this.offsets = new int[size + 1];
+            this.idMostSigBits = new long[size];
+            this.idLeastSigBits = new long[size];
+            this.scores = new float[size];
+        }
+        
+        private void add(Entry entry) {
+            int start = offsets[count];
+            entry.nickName.getChars(0, entry.nickName.length(), chars, start);
+            append(start + entry.nickName.length(), entry.userID.getMostSignificantBits(),
+                   entry.userID.getLeastSignificantBits(), entry.score);
+        }
+        
+        private void copy(PrefixIndex source, int position) {
+            int start = offsets[count];
+            int length = source.offsets[position + 1] - source.offsets[position];
+            System.arraycopy(source.chars, source.offsets[position], chars, start, length);
+            append(start + length, source.idMostSigBits[position], source.idLeastSigBits[position],
+                   source.scores[position]);
+        }
+        
+        private void append(int end, long mostSigBits, long leastSigBits, float score) {
+            idMostSigBits[count] = mostSigBits;
+            idLeastSigBits[count] = leastSigBits;
+            scores[count] = score;
+            offsets[++count] = end;
+        }
+        
+        private PrefixIndex build() {
+            return new PrefixIndex(chars, offsets, idMostSigBits, idLeastSigBits, scores);
+        }
+    }
+    
+}
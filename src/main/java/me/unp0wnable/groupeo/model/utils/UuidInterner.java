@@ -0,0 +1,178 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Asigna a cada UUID un identificador entero denso (0, 1, 2...) para poder guardar relaciones entre ellos en arrays de
+ * enteros. Los UUID se guardan como pares de <c>long</c> en arrays indexados por su identificador, y se buscan en una
+ * tabla hash de direccionamiento abierto, sin crear objetos por elemento.
+ * <p>
+ * Los identificadores no se reutilizan. Las consultas no se bloquean salvo que coincidan con una inserción.
+ */
+public class UuidInterner {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int EMPTY_SLOT = -1;
+    
+    private final StampedLock lock = new StampedLock();
+    private long[] mostSigBits = new long[INITIAL_CAPACITY];
+    private long[] leastSigBits = new long[INITIAL_CAPACITY];
+    /** Identificadores por posición de su hash; ocupa como máximo la mitad para que las búsquedas sean cortas */
+    private int[] slots = newSlots(2 * INITIAL_CAPACITY);
+    private volatile int size;
+    
+    
+    /* *********************************** QUERIES *********************************** */
+    /** Número de UUID registrados, que es también el siguiente identificador a asignar */
+    public int size() {
+        return size;
+    }
+    
+    /** Memoria aproximada ocupada en bytes */
+    public long memoryBytes() {
+        final long arrayHeaderBytes = 16;
+        long stamp = lock.readLock();
+        try {
+            return (3 * arrayHeaderBytes)
+                    + ((long) mostSigBits.length * Long.BYTES)
+                    + ((long) leastSigBits.length * Long.BYTES)
+                    + ((long) slots.length * Integer.BYTES);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Busca el identificador de un UUID
+     * @return Identificador del UUID, o -1 si no está registrado
+     */
+    public int find(UUID uuid) {
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        
+        long stamp = lock.tryOptimisticRead();
+        int id = lookup(most, least);
+        if (lock.validate(stamp)) return id;
+        
+        // Ha coincidido con una inserción: repetir con bloqueo
+        stamp = lock.readLock();
+        try {
+            return lookup(most, least);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /** Obtiene el UUID de un identificador */
+    public UUID get(int id) {
+        if (id < 0 || id >= size) throw new IndexOutOfBoundsException("Unknown id " + id);
+        
+        long stamp = lock.tryOptimisticRead();
+        long[] most = mostSigBits;
+        long[] least = leastSigBits;
+        if (lock.validate(stamp)) return new UUID(most[id], least[id]);
+        
+        stamp = lock.readLock();
+        try {
+            return new UUID(mostSigBits[id], leastSigBits[id]);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    
+    /* *********************************** UPDATES *********************************** */
+    /**
+     * Obtiene el identificador de un UUID, asignándole el siguiente si no estaba registrado
+     * @return Identificador del UUID
+     */
+    public int intern(UUID uuid) {
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        
+        long stamp = lock.writeLock();
+        try {
+            int existing = lookup(most, least);
+            if (existing != EMPTY_SLOT) return existing;
+            
+            int id = size;
+            if (id == mostSigBits.length) grow();
+            mostSigBits[id] = most;
+            leastSigBits[id] = least;
+            slots[findSlot(slots, mostSigBits, leastSigBits, most, least)] = id;
+            size = id + 1;
+            return id;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /**
+     * Busca el identificador de un UUID. Puede ejecutarse sin bloqueo a la vez que una inserción: en ese caso el
+     * resultado no es válido, pero nunca se sale de los arrays ni se queda en un bucle infinito
+     */
+    private int lookup(long most, long least) {
+        int[] currentSlots = slots;
+        long[] currentMost = mostSigBits;
+        long[] currentLeast = leastSigBits;
+        
+        int mask = currentSlots.length - 1;
+        int slot = hash(most, least) & mask;
+        for (int probes = 0; probes < currentSlots.length; probes++) {
+            int id = currentSlots[slot];
+            if (id == EMPTY_SLOT || id >= currentMost.length || id >= currentLeast.length) return EMPTY_SLOT;
+            if (currentMost[id] == most && currentLeast[id] == least) return id;
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY_SLOT;
+    }
+    
+    /** Duplica la capacidad, recolocando todos los identificadores en una tabla nueva */
+    private void grow() {
+        int capacity = mostSigBits.length * 2;
+        long[] newMost = Arrays.copyOf(mostSigBits, capacity);
+        long[] newLeast = Arrays.copyOf(leastSigBits, capacity);
+        int[] newSlots = newSlots(2 * capacity);
+        for (int id = 0; id < size; id++) {
+            newSlots[findSlot(newSlots, newMost, newLeast, newMost[id], newLeast[id])] = id;
+        }
+        
+        mostSigBits = newMost;
+        leastSigBits = newLeast;
+        slots = newSlots;
+    }
+    
+    /** Posición del UUID en la tabla, o la primera libre si no está */
+    private static int findSlot(int[] slots, long[] mostSigBits, long[] leastSigBits, long most, long least) {
+        int mask = slots.length - 1;
+        int slot = hash(most, least) & mask;
+        while (slots[slot] != EMPTY_SLOT) {
+            int id = slots[slot];
+            if (mostSigBits[id] == most && leastSigBits[id] == least) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private static int[] newSlots(int length) {
+        int[] slots = new int[length];
+        Arrays.fill(slots, EMPTY_SLOT);
+        return slots;
+    }
+    
+    /**
+     * Mezcla todos los bits: los primeros de un UUIDv7 son una marca de tiempo y se repiten mucho. También la usan las
+     * copias en disco del grafo de amistades ({@link FriendshipGraphSnapshot})
+     */
+    static int hash(long most, long least) {
+        long hash = most * 0x9E3779B97F4A7C15L ^ least;
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        return (int) hash;
+    }
+    
+}
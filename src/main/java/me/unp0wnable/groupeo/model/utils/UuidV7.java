@@ -0,0 +1,66 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generación de UUID versión 7 (RFC 9562): los 48 bits más significativos son el instante de creación en
+ * milisegundos, por lo que los identificadores se insertan siempre al final de los índices B-tree en lugar de en
+ * páginas aleatorias.
+ * <p>
+ * Los 12 bits siguientes (<c>rand_a</c>) se usan como contador dentro del mismo milisegundo, de forma que los
+ * identificadores generados por este proceso son estrictamente crecientes. El estado se actualiza con CAS, sin bloqueos;
+ * si se agota el contador, se toma prestado el milisegundo siguiente.
+ */
+@UtilityClass
+public class UuidV7 {
+    private static final int COUNTER_BITS = 12;
+    private static final long VERSION = 0x7L << COUNTER_BITS;
+    private static final long VARIANT = 0x2L << 62;
+    private static final long RANDOM_MASK = (1L << 62) - 1;
+    
+    /** Último valor generado: instante en milisegundos seguido del contador */
+    private static final AtomicLong lastTimestampAndCounter = new AtomicLong();
+    
+    
+    /** Genera un nuevo UUID versión 7, mayor que todos los generados anteriormente por este proceso */
+    public static UUID generate() {
+        long timestampAndCounter = nextTimestampAndCounter(System.currentTimeMillis());
+        
+        long mostSigBits = (timestampAndCounter >>> COUNTER_BITS) << 16
+                | VERSION
+                | (timestampAndCounter & ((1L << COUNTER_BITS) - 1));
+        long leastSigBits = VARIANT | (ThreadLocalRandom.current().nextLong() & RANDOM_MASK);
+        
+        return new UUID(mostSigBits, leastSigBits);
+    }
+    
+    /**
+     * Obtiene el instante en milisegundos en el que se generó un UUID versión 7
+     * @param uuid UUID versión 7
+     * @return Milisegundos desde el 1 de enero de 1970
+     */
+    public static long getTimestampMillis(UUID uuid) {
+        if (uuid.version() != 7) {
+            throw new IllegalArgumentException("Not a version 7 UUID: " + uuid);
+        }
+        
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Avanza el estado al instante actual (contador a 0) o, si el reloj no ha avanzado, incrementa el contador */
+    private static long nextTimestampAndCounter(long currentMillis) {
+        long candidate = currentMillis << COUNTER_BITS;
+        while (true) {
+            long last = lastTimestampAndCounter.get();
+            long next = (candidate > last) ? candidate : last + 1;
+            if (lastTimestampAndCounter.compareAndSet(last, next)) return next;
+        }
+    }
+    
+}
@@ -0,0 +1,19 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import java.io.Serializable;
+
+/**
+ * Generador de identificadores de Hibernate que asigna UUID versión 7 ({@link UuidV7}).
+ * Se usa en las entidades con <c>@GenericGenerator(strategy = "me.unp0wnable.groupeo.model.utils.UuidV7Generator")</c>
+ */
+public class UuidV7Generator implements IdentifierGenerator {
+    
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return UuidV7.generate();
+    }
+    
+}
@@ -2,13 +2,16 @@ package me.unp0wnable.groupeo.rest.controllers;
 
 import me.unp0wnable.groupeo.model.exceptions.InstanceAlreadyExistsException;
 import me.unp0wnable.groupeo.model.exceptions.InstanceNotFoundException;
+import me.unp0wnable.groupeo.model.exceptions.ServiceOverloadedException;
 import me.unp0wnable.groupeo.rest.dtos.errors.ErrorsDto;
 import me.unp0wnable.groupeo.rest.exceptions.PermissionException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import java.util.Locale;
 
 @ControllerAdvice
@@ -21,6 +24,8 @@ public class CommonControllerAdvice {
     private static final String INSTANCE_ALREADY_EXISTS_EXCEPTION_KEY = "project.exceptions.InstanceAlreadyExistsException";
     private static final String INSTANCE_NOT_FOUND_EXCEPTION_KEY = "project.exceptions.InstanceNotFoundException";
     private static final String PERMISSION_EXCEPTION_KEY = "project.exceptions.PermissionException";
+    private static final String SERVICE_OVERLOADED_EXCEPTION_KEY = "project.exceptions.ServiceOverloadedException";
+    private static final String SERVICE_OVERLOADED_RETRY_AFTER_SECONDS = "1";
     
     @ExceptionHandler(InstanceAlreadyExistsException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -72,4 +77,22 @@ public class CommonControllerAdvice {
         return new ErrorsDto(globalErrorMessage);
     }
     
+    
+    @ExceptionHandler(ServiceOverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ResponseBody
+    public ErrorsDto handleServiceOverloadedException(ServiceOverloadedException exception, Locale locale,
+                                                      HttpServletResponse response) {
+        // Indica al cliente cuándo puede volver a intentarlo
+        response.setHeader(HttpHeaders.RETRY_AFTER, SERVICE_OVERLOADED_RETRY_AFTER_SECONDS);
+        String globalErrorMessage = messageSource.getMessage(
+                SERVICE_OVERLOADED_EXCEPTION_KEY,
+                null,
+                SERVICE_OVERLOADED_EXCEPTION_KEY,
+                locale
+        );
+        
+        return new ErrorsDto(globalErrorMessage);
+    }
+    
 }
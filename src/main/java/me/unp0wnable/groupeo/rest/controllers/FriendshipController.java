@@ -0,0 +1,133 @@
+package me.unp0wnable.groupeo.rest.controllers;
+
+import me.unp0wnable.groupeo.model.entities.FriendshipStatus.FriendshipStates;
+import me.unp0wnable.groupeo.model.exceptions.InstanceAlreadyExistsException;
+import me.unp0wnable.groupeo.model.exceptions.InstanceNotFoundException;
+import me.unp0wnable.groupeo.model.exceptions.SelfFriendshipException;
+import me.unp0wnable.groupeo.model.services.FriendSuggestion;
+import me.unp0wnable.groupeo.model.services.FriendsPage;
+import me.unp0wnable.groupeo.model.services.FriendshipRequestsPage;
+import me.unp0wnable.groupeo.model.services.FriendshipService;
+import me.unp0wnable.groupeo.rest.dtos.conversors.FriendshipConversor;
+import me.unp0wnable.groupeo.rest.dtos.errors.ErrorsDto;
+import me.unp0wnable.groupeo.rest.dtos.friendships.FriendSuggestionDto;
+import me.unp0wnable.groupeo.rest.dtos.friendships.FriendsPageDto;
+import me.unp0wnable.groupeo.rest.dtos.friendships.FriendsParamsDto;
+import me.unp0wnable.groupeo.rest.dtos.friendships.FriendshipCheckDto;
+import me.unp0wnable.groupeo.rest.dtos.friendships.FriendshipDto;
+import me.unp0wnable.groupeo.rest.dtos.friendships.FriendshipRequestsPageDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.MessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/friends")
+public class FriendshipController {
+    @Autowired
+    FriendshipService friendshipService;
+    @Autowired
+    MessageSource messageSource;
+    
+    /* ********************************************* EXCEPTION HANDLERS ********************************************* */
+    private static final String SELF_FRIENDSHIP_EXCEPTION_KEY = "project.exceptions.SelfFriendshipException";
+    
+    
+    @ExceptionHandler(SelfFriendshipException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public ErrorsDto handleSelfFriendshipException(SelfFriendshipException exception, Locale locale) {
+        String errorMessage = messageSource.getMessage(
+                SELF_FRIENDSHIP_EXCEPTION_KEY, null, SELF_FRIENDSHIP_EXCEPTION_KEY, locale
+        );
+        
+        return new ErrorsDto(errorMessage);
+    }
+    
+    
+    /* ************************************************* ENDPOINTS ************************************************* */
+    /* Las consultas se responden desde el índice de amistades en memoria: devuelven solo IDs, y los perfiles se
+     * obtienen en una única petición con POST /api/users/batch */
+    @GetMapping
+    public FriendsPageDto getFriends(@RequestAttribute UUID userID, @Validated FriendsParamsDto params) {
+        // Obtener la página de amigos pedida
+        FriendsPage page = friendshipService.getFriends(userID, params.getOffset(), params.getSize());
+        
+        // Generar respuesta
+        return FriendshipConversor.toFriendsPageDto(page);
+    }
+    
+    
+    @GetMapping("/suggestions")
+    public List<FriendSuggestionDto> getSuggestions(@RequestAttribute UUID userID,
+                                                    @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        // Buscar los amigos de amigos con más amigos en común
+        List<FriendSuggestion> suggestions = friendshipService.getSuggestions(userID, limit);
+        
+        // Generar respuesta
+        return FriendshipConversor.toFriendSuggestionDtos(suggestions);
+    }
+    
+    
+    @GetMapping("/{otherUserID}")
+    public FriendshipCheckDto checkFriendship(@RequestAttribute UUID userID,
+                                              @PathVariable("otherUserID") UUID otherUserID) {
+        boolean friends = friendshipService.areFriends(userID, otherUserID);
+        
+        return FriendshipConversor.toFriendshipCheckDto(otherUserID, friends);
+    }
+    
+    
+    /* Se responde desde la tabla de estados actuales, sin recorrer el historial de cada relación */
+    @GetMapping("/requests")
+    public FriendshipRequestsPageDto getPendingRequests(@RequestAttribute UUID userID,
+                                                        @Validated FriendsParamsDto params) {
+        // Obtener la página de solicitudes recibidas pendientes de responder
+        FriendshipRequestsPage page = friendshipService.getPendingRequests(userID, params.getOffset(),
+                                                                           params.getSize());
+        
+        // Generar respuesta
+        return FriendshipConversor.toFriendshipRequestsPageDto(page);
+    }
+    
+    
+    @PostMapping("/requests/{targetID}")
+    public FriendshipDto requestFriendship(@RequestAttribute UUID userID, @PathVariable("targetID") UUID targetID)
+            throws InstanceNotFoundException, InstanceAlreadyExistsException, SelfFriendshipException {
+        // Enviar la solicitud, que se acepta directamente si el otro usuario ya había enviado la suya
+        FriendshipStates state = friendshipService.requestFriendship(userID, targetID);
+        
+        // Generar respuesta
+        return FriendshipConversor.toFriendshipDto(targetID, state);
+    }
+    
+    
+    @PostMapping("/requests/{requesterID}/accept")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void acceptFriendship(@RequestAttribute UUID userID, @PathVariable("requesterID") UUID requesterID)
+            throws InstanceNotFoundException {
+        friendshipService.acceptFriendship(userID, requesterID);
+    }
+    
+    
+    @PostMapping("/requests/{requesterID}/reject")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void rejectFriendship(@RequestAttribute UUID userID, @PathVariable("requesterID") UUID requesterID)
+            throws InstanceNotFoundException {
+        friendshipService.rejectFriendship(userID, requesterID);
+    }
+    
+    
+    @DeleteMapping("/{friendID}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void removeFriendship(@RequestAttribute UUID userID, @PathVariable("friendID") UUID friendID)
+            throws InstanceNotFoundException {
+        friendshipService.removeFriendship(userID, friendID);
+    }
+    
+}
@@ -3,11 +3,18 @@ package me.unp0wnable.groupeo.rest.controllers;
 import me.unp0wnable.groupeo.model.entities.UserAddress;
 import me.unp0wnable.groupeo.model.entities.UserProfile;
 import me.unp0wnable.groupeo.model.exceptions.*;
+import me.unp0wnable.groupeo.model.repositories.projections.UserProfileView;
+import me.unp0wnable.groupeo.model.services.NickNameSuggestion;
+import me.unp0wnable.groupeo.model.services.RefreshTokenService;
+import me.unp0wnable.groupeo.model.services.RotatedRefreshToken;
+import me.unp0wnable.groupeo.model.services.StoredAvatar;
+import me.unp0wnable.groupeo.model.services.UserSearchPage;
 import me.unp0wnable.groupeo.model.services.UserService;
 import me.unp0wnable.groupeo.rest.dtos.conversors.UserConversor;
 import me.unp0wnable.groupeo.rest.dtos.errors.ErrorsDto;
 import me.unp0wnable.groupeo.rest.dtos.users.*;
 import me.unp0wnable.groupeo.rest.exceptions.PermissionException;
+import me.unp0wnable.groupeo.rest.http.FileTransfer;
 import me.unp0wnable.groupeo.rest.http.jwt.JwtData;
 import me.unp0wnable.groupeo.rest.http.jwt.JwtGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,11 +22,18 @@ import org.springframework.context.MessageSource;
 import org.springframework.http.*;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URI;
-import java.util.Locale;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static me.unp0wnable.groupeo.rest.dtos.conversors.UserConversor.AVATAR_SIZE_PARAM;
+import static me.unp0wnable.groupeo.rest.dtos.conversors.UserConversor.AVATAR_VERSION_PARAM;
 
 @RestController
 @RequestMapping("/api/users")
@@ -27,6 +41,8 @@ public class UserController {
     @Autowired
     UserService userService;
     @Autowired
+    RefreshTokenService refreshTokenService;
+    @Autowired
     JwtGenerator jwtGenerator;
     @Autowired
     MessageSource messageSource;
@@ -34,6 +50,10 @@ public class UserController {
     /* ********************************************* EXCEPTION HANDLERS ********************************************* */
     private static final String INCORRECT_LOGIN_EXCEPTION_KEY = "project.exceptions.IncorrectLoginException";
     private static final String INCORRECT_PASSWORD_EXCEPTION_KEY = "project.exceptions.IncorrectPasswordException";
+    private static final String INVALID_REFRESH_TOKEN_EXCEPTION_KEY = "project.exceptions.InvalidRefreshTokenException";
+    private static final String AVATAR_TOO_LARGE_EXCEPTION_KEY = "project.exceptions.AvatarTooLargeException";
+    private static final String UNSUPPORTED_AVATAR_FORMAT_EXCEPTION_KEY = "project.exceptions.UnsupportedAvatarFormatException";
+    private static final long AVATAR_MAX_AGE_DAYS = 365;
     
     
     @ExceptionHandler(IncorrectLoginException.class)
@@ -58,14 +78,50 @@ public class UserController {
         return new ErrorsDto(errorMessage);
     }
     
+    @ExceptionHandler(InvalidRefreshTokenException.class)
+    @ResponseStatus(HttpStatus.UNAUTHORIZED)
+    @ResponseBody
+    public ErrorsDto handleInvalidRefreshTokenException(InvalidRefreshTokenException exception, Locale locale) {
+        String errorMessage = messageSource.getMessage(
+                INVALID_REFRESH_TOKEN_EXCEPTION_KEY, null, INVALID_REFRESH_TOKEN_EXCEPTION_KEY, locale
+        );
+        
+        return new ErrorsDto(errorMessage);
+    }
+    
+    
+    @ExceptionHandler(AvatarTooLargeException.class)
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    @ResponseBody
+    public ErrorsDto handleAvatarTooLargeException(AvatarTooLargeException exception, Locale locale) {
+        String errorMessage = messageSource.getMessage(
+                AVATAR_TOO_LARGE_EXCEPTION_KEY, new Object[] {exception.getMaxSizeBytes()},
+                AVATAR_TOO_LARGE_EXCEPTION_KEY, locale
+        );
+        
+        return new ErrorsDto(errorMessage);
+    }
+    
+    @ExceptionHandler(UnsupportedAvatarFormatException.class)
+    @ResponseStatus(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+    @ResponseBody
+    public ErrorsDto handleUnsupportedAvatarFormatException(UnsupportedAvatarFormatException exception,
+                                                            Locale locale) {
+        String errorMessage = messageSource.getMessage(
+                UNSUPPORTED_AVATAR_FORMAT_EXCEPTION_KEY, null, UNSUPPORTED_AVATAR_FORMAT_EXCEPTION_KEY, locale
+        );
+        
+        return new ErrorsDto(errorMessage);
+    }
+    
     
     /* ************************************************* ENDPOINTS ************************************************* */
     @PostMapping("/signUp")
     public ResponseEntity<AuthenticatedUserDto> signUp(@Validated @RequestBody SignUpParamsDto params)
-            throws InstanceAlreadyExistsException {
+            throws InstanceAlreadyExistsException, ServiceOverloadedException {
         // Parsear datos del usuario recibidos en el DTO y registrar al usuario en el servicio
         UserProfile parsedUser = UserConversor.fromSignUpParamsDTO(params);
-        UserProfile signedUpUser = userService.signUp(parsedUser);
+        UserProfileView signedUpUser = UserProfileView.fromEntity(userService.signUp(parsedUser));
         
         // Genera los datos que contendrá la respuesta
         URI resourceLocation = ServletUriComponentsBuilder.fromCurrentRequest()
@@ -73,7 +129,8 @@ public class UserController {
                 .buildAndExpand(signedUpUser.getUserProfileID())
                 .toUri();
         String token = generateServiceTokenForUser(signedUpUser);
-        AuthenticatedUserDto authUserDto = UserConversor.toAuthenticatedUserDTO(signedUpUser, token);
+        String refreshToken = refreshTokenService.issueRefreshToken(signedUpUser.getUserProfileID());
+        AuthenticatedUserDto authUserDto = UserConversor.toAuthenticatedUserDTO(signedUpUser, token, refreshToken);
         
         // Crea la respuesta HTTP y la envía
         ResponseEntity<AuthenticatedUserDto> response = ResponseEntity
@@ -86,15 +143,32 @@ public class UserController {
     
     
     @PostMapping("/login")
-    public AuthenticatedUserDto login(@Validated @RequestBody LoginParamsDto params) throws IncorrectLoginException {
+    public AuthenticatedUserDto login(@Validated @RequestBody LoginParamsDto params) throws IncorrectLoginException,
+                                                                                           ServiceOverloadedException {
         // Inicia sesión en el servicio
-        UserProfile user = userService.login(params.getNickName(), params.getPassword());
+        UserProfileView user = userService.login(params.getNickName(), params.getPassword());
         
-        // Genera el token para el usuario
+        // Genera los tokens para el usuario
         String serviceToken = generateServiceTokenForUser(user);
+        String refreshToken = refreshTokenService.issueRefreshToken(user.getUserProfileID());
         
         // Crea la respuesta y la envía
-        return UserConversor.toAuthenticatedUserDTO(user, serviceToken);
+        return UserConversor.toAuthenticatedUserDTO(user, serviceToken, refreshToken);
+    }
+    
+    
+    @PostMapping("/refresh")
+    public RefreshedTokensDto refreshServiceToken(@Validated @RequestBody RefreshTokenParamsDto params)
+            throws InvalidRefreshTokenException {
+        // Intercambia el refresh token por uno nuevo sin cargar el perfil del usuario
+        RotatedRefreshToken rotatedToken = refreshTokenService.rotateRefreshToken(params.getRefreshToken());
+        
+        // Genera un nuevo token de acceso con los datos obtenidos
+        JwtData jwtData = new JwtData(rotatedToken.getUserID(), rotatedToken.getNickName(),
+                                      rotatedToken.getRole().toString());
+        String serviceToken = jwtGenerator.generateJWT(jwtData);
+        
+        return new RefreshedTokensDto(serviceToken, rotatedToken.getRefreshToken());
     }
     
     
@@ -102,18 +176,132 @@ public class UserController {
     public AuthenticatedUserDto loginUsingServiceToken(@RequestAttribute UUID userID, @RequestAttribute String serviceToken)
             throws InstanceNotFoundException {
         // Inicia sesión en el servicio
-        UserProfile user = userService.loginFromServiceToken(userID);
+        UserProfileView user = userService.loginFromServiceToken(userID);
         
         // Devuelve los datos del usuario junto al token recibido
         return UserConversor.toAuthenticatedUserDTO(user, serviceToken);
     }
     
     
+    @GetMapping("/search")
+    public UserSearchPageDto searchUsers(@Validated UserSearchParamsDto params) {
+        // Buscar usuarios a partir del último resultado de la página anterior
+        UserSearchPage page = userService.searchUsers(params.getQuery(), params.getAfter(), params.getSize());
+        
+        // Generar respuesta
+        return UserConversor.toUserSearchPageDto(page);
+    }
+    
+    
+    /* Se llama en cada pulsación: se responde desde un índice en memoria, sin consultar la base de datos */
+    @GetMapping("/autocomplete")
+    public List<NickNameSuggestionDto> autocompleteNickName(@RequestParam("prefix") String prefix,
+                                                            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        // Buscar los usuarios con mayor puntuación cuyo nickName empieza por el prefijo
+        List<NickNameSuggestion> suggestions = userService.autocompleteNickName(prefix, limit);
+        
+        // Generar respuesta
+        return UserConversor.toNickNameSuggestionDtos(suggestions);
+    }
+    
+    
+    /* Los perfiles se guardan en caché pero deben revalidarse siempre: si no han cambiado se responde sin contenido
+     * consultando únicamente su versión */
+    @GetMapping("/{userID}")
+    public PublicUserDto getUserProfile(@PathVariable("userID") UUID pathUserID,
+                                        HttpServletRequest request, HttpServletResponse response)
+            throws InstanceNotFoundException {
+        // Responder sin contenido si el cliente ya tiene la versión actual
+        long version = userService.getUserProfileVersion(pathUserID);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePublic().getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(toProfileETag(version))) {
+            return null;
+        }
+        
+        // Enviar el perfil con la etiqueta de la versión enviada: nunca anterior a la consultada, ya que si la caché
+        // no ha recibido aún la modificación el perfil se vuelve a leer de la base de datos
+        UserProfileView user = userService.getUserProfile(pathUserID, version);
+        response.setHeader(HttpHeaders.ETAG, toProfileETag(user.getVersion()));
+        
+        return UserConversor.toPublicUserDto(user);
+    }
+    
+    
+    @PostMapping("/batch")
+    public List<BatchUserDto> getUserProfiles(@Validated @RequestBody BatchUsersParamsDto params) {
+        // Obtener todos los usuarios pedidos (sin repetir) de una vez
+        Map<UUID, UserProfileView> users = userService.getUserProfiles(new LinkedHashSet<>(params.getUserIDs()));
+        
+        // Generar respuesta en el orden de la petición, marcando los usuarios que no existen
+        return UserConversor.toBatchUserDtos(params.getUserIDs(), users);
+    }
+    
+    
+    /* El cuerpo de la petición son los bytes de la imagen (no JSON ni multipart): se copia al almacén por bloques de
+     * tamaño fijo a medida que se recibe, así que la memoria usada no depende del tamaño de la imagen */
+    @PutMapping(value = "/{userID}/avatar",
+                consumes = {MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_GIF_VALUE})
+    public AvatarDto updateAvatar(@RequestAttribute UUID userID, @PathVariable("userID") UUID pathUserID,
+                                  HttpServletRequest request)
+            throws PermissionException, InstanceNotFoundException, IOException, AvatarTooLargeException,
+                   UnsupportedAvatarFormatException {
+        // Comprobar que el usuario actual es quién dice ser
+        if (!doUsersMatch(userID, pathUserID)) {
+            throw new PermissionException();
+        }
+        
+        // Rechazar sin leer el cuerpo las imágenes que ya declaran un tamaño mayor al permitido
+        long maxAvatarSizeBytes = userService.getMaxAvatarSizeBytes();
+        if (request.getContentLengthLong() > maxAvatarSizeBytes) {
+            throw new AvatarTooLargeException(maxAvatarSizeBytes);
+        }
+        
+        // Guardar la imagen en el servicio
+        String avatarHash = userService.updateAvatar(userID, request.getInputStream());
+        
+        // Generar respuesta
+        return new AvatarDto(UserConversor.toAvatarUrl(userID, avatarHash));
+    }
+    
+    
+    @GetMapping("/{userID}/avatar")
+    public void getAvatar(@PathVariable("userID") UUID pathUserID,
+                          @RequestParam(value = AVATAR_VERSION_PARAM, required = false) String version,
+                          @RequestParam(value = AVATAR_SIZE_PARAM, required = false) Integer size,
+                          HttpServletRequest request, HttpServletResponse response)
+            throws InstanceNotFoundException, IOException {
+        // Obtener el avatar del usuario (en el tamaño pedido si ya se ha generado)
+        StoredAvatar avatar = userService.getUserAvatar(pathUserID, size);
+        boolean isRequestedSize = (size == null) || (avatar.getVariantSize() != null);
+        String eTag = (avatar.getVariantSize() == null)
+                ? "\"" + avatar.getHash() + "\""
+                : "\"" + avatar.getHash() + "-" + avatar.getVariantSize() + "\"";
+        
+        // El contenido de una URL con la versión actual no cambia nunca: puede guardarse en caché indefinidamente.
+        // Si el tamaño pedido aún no está disponible se envía el original, que no debe quedarse en caché
+        CacheControl cacheControl = (avatar.getHash().equals(version) && isRequestedSize)
+                ? CacheControl.maxAge(AVATAR_MAX_AGE_DAYS, TimeUnit.DAYS).cachePublic()
+                : CacheControl.noCache();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        
+        // Responder sin contenido si el cliente ya tiene la versión actual
+        if (new ServletWebRequest(request, response).checkNotModified(eTag)) {
+            return;
+        }
+        
+        // Enviar la imagen
+        response.setContentType(avatar.getContentType());
+        FileTransfer.send(avatar.getFile(), avatar.getSize(), eTag, request, response);
+    }
+    
+    
     @PutMapping("/{userID}/changePassword")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void changePassword(@RequestAttribute UUID userID, @PathVariable("userID") UUID pathUserID,
                                 @Validated @RequestBody ChangePasswordParamsDto params) throws PermissionException, InstanceNotFoundException,
-                                                                                               IncorrectPasswordExcepion {
+                                                                                               IncorrectPasswordExcepion,
+                                                                                               ServiceOverloadedException {
         // Comprobar que el usuario actual es quién dice ser
         if (!doUsersMatch(userID, pathUserID)) {
             throw new PermissionException();
@@ -135,7 +323,7 @@ public class UserController {
         
         // Actualizar perfil en el servicio
         UserProfile userData = UserConversor.fromUpdateProfileParamsDTO(params);
-        UserProfile updatedUser = userService.updateUserProfile(userID, userData);
+        UserProfileView updatedUser = userService.updateUserProfile(userID, userData);
         
         // Generar respuesta
         return UserConversor.toUserDto(updatedUser);
@@ -180,12 +368,16 @@ public class UserController {
     
     /* ************************************************* AUX METHODS ************************************************* */
     /** Genera un JWT para el usuario actual */
-    private String generateServiceTokenForUser(UserProfile user) {
+    private String generateServiceTokenForUser(UserProfileView user) {
         JwtData jwtData = new JwtData(user.getUserProfileID(), user.getNickName(), user.getRole().toString());
         
         return jwtGenerator.generateJWT(jwtData);
     }
     
+    private static String toProfileETag(long version) {
+        return "\"v" + version + "\"";
+    }
+    
     /** Comprueba si un usuario está autorizado para realizar la operación */
     private boolean doUsersMatch(UUID requestUserID, UUID pathUserID) {
         return requestUserID.equals(pathUserID);
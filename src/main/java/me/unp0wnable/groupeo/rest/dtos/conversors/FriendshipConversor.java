@@ -0,0 +1,47 @@
+package me.unp0wnable.groupeo.rest.dtos.conversors;
+
+import lombok.experimental.UtilityClass;
+import me.unp0wnable.groupeo.model.entities.FriendshipStatus.FriendshipStates;
+import me.unp0wnable.groupeo.model.services.FriendSuggestion;
+import me.unp0wnable.groupeo.model.services.FriendsPage;
+import me.unp0wnable.groupeo.model.services.FriendshipRequestsPage;
+import me.unp0wnable.groupeo.rest.dtos.friendships.FriendSuggestionDto;
+import me.unp0wnable.groupeo.rest.dtos.friendships.FriendsPageDto;
+import me.unp0wnable.groupeo.rest.dtos.friendships.FriendshipCheckDto;
+import me.unp0wnable.groupeo.rest.dtos.friendships.FriendshipDto;
+import me.unp0wnable.groupeo.rest.dtos.friendships.FriendshipRequestDto;
+import me.unp0wnable.groupeo.rest.dtos.friendships.FriendshipRequestsPageDto;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@UtilityClass
+public class FriendshipConversor {
+    /* ******************** Convertir a DTO ******************** */
+    public static FriendshipDto toFriendshipDto(UUID userID, FriendshipStates state) {
+        return new FriendshipDto(userID, state.name());
+    }
+    
+    public static FriendshipCheckDto toFriendshipCheckDto(UUID userID, boolean friends) {
+        return new FriendshipCheckDto(userID, friends);
+    }
+    
+    public static FriendsPageDto toFriendsPageDto(FriendsPage page) {
+        return new FriendsPageDto(page.getFriendIDs(), page.getTotalFriends());
+    }
+    
+    public static FriendshipRequestsPageDto toFriendshipRequestsPageDto(FriendshipRequestsPage page) {
+        List<FriendshipRequestDto> requests = page.getRequests().stream()
+                .map(request -> new FriendshipRequestDto(request.getRequesterID(), request.getRequestDate()))
+                .collect(Collectors.toList());
+        
+        return new FriendshipRequestsPageDto(requests, page.getTotalRequests());
+    }
+    
+    public static List<FriendSuggestionDto> toFriendSuggestionDtos(List<FriendSuggestion> suggestions) {
+        return suggestions.stream()
+                .map(suggestion -> new FriendSuggestionDto(suggestion.getUserID(), suggestion.getMutualFriends()))
+                .collect(Collectors.toList());
+    }
+}
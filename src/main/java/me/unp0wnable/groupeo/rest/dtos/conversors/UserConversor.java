@@ -4,12 +4,30 @@ import lombok.experimental.UtilityClass;
 import me.unp0wnable.groupeo.model.entities.UserAddress;
 import me.unp0wnable.groupeo.model.entities.UserProfile;
 import me.unp0wnable.groupeo.model.entities.UserProfile.UserRoles;
+import me.unp0wnable.groupeo.model.repositories.projections.UserProfileView;
+import me.unp0wnable.groupeo.model.repositories.projections.UserSearchResult;
+import me.unp0wnable.groupeo.model.services.NickNameSuggestion;
+import me.unp0wnable.groupeo.model.services.UserSearchPage;
 import me.unp0wnable.groupeo.rest.dtos.users.*;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.*;
+import java.util.stream.Collectors;
 
 @UtilityClass
 public class UserConversor {
+    public static final String AVATAR_PATH = "/api/users/{userID}/avatar";
+    public static final String AVATAR_VERSION_PARAM = "v";
+    public static final String AVATAR_SIZE_PARAM = "size";
+    
     /* ******************** Convertir a DTO ******************** */
     public static UserDto toUserDto(UserProfile user) {
+        return toUserDto(UserProfileView.fromEntity(user));
+    }
+    
+    public static UserDto toUserDto(UserProfileView user) {
         UserDto dto = new UserDto();
         dto.setUserID(user.getUserProfileID());
         dto.setFirstName(user.getFirstName());
@@ -22,12 +40,64 @@ public class UserConversor {
         dto.setNickName(user.getNickName());
         dto.setScore(user.getScore());
         dto.setRole(user.getRole().toString());
-        dto.setImageB64(user.getImageB64());
+        dto.setAvatarUrl(toAvatarUrl(user.getUserProfileID(), user.getAvatarHash()));
+        
+        
+        return dto;
+    }
+    
+    public static PublicUserDto toPublicUserDto(UserProfileView user) {
+        PublicUserDto dto = new PublicUserDto();
+        dto.setUserID(user.getUserProfileID());
+        dto.setFirstName(user.getFirstName());
+        dto.setSurname1(user.getSurname1());
+        dto.setSurname2(user.getSurname2());
+        dto.setNickName(user.getNickName());
+        dto.setDescription(user.getDescription());
+        dto.setJoinDate(user.getJoinDate());
+        dto.setAvatarUrl(toAvatarUrl(user.getUserProfileID(), user.getAvatarHash()));
+        dto.setScore(user.getScore());
+        
+        return dto;
+    }
+    
+    /** Genera el resultado de una petición por lotes, con los usuarios en el orden en que se pidieron */
+    public static List<BatchUserDto> toBatchUserDtos(List<UUID> requestedIDs, Map<UUID, UserProfileView> users) {
+        List<BatchUserDto> dtos = new ArrayList<>(requestedIDs.size());
+        for (UUID userID : requestedIDs) {
+            UserProfileView user = users.get(userID);
+            dtos.add(new BatchUserDto(userID, user != null, (user != null) ? toPublicUserDto(user) : null));
+        }
         
+        return dtos;
+    }
+    
+    public static UserSearchResultDto toUserSearchResultDto(UserSearchResult user) {
+        UserSearchResultDto dto = new UserSearchResultDto();
+        dto.setUserID(user.getUserProfileID());
+        dto.setNickName(user.getNickName());
+        dto.setFirstName(user.getFirstName());
+        dto.setSurname1(user.getSurname1());
+        dto.setSurname2(user.getSurname2());
+        dto.setAvatarUrl(toAvatarUrl(user.getUserProfileID(), user.getAvatarHash()));
         
         return dto;
     }
     
+    public static UserSearchPageDto toUserSearchPageDto(UserSearchPage page) {
+        List<UserSearchResultDto> users = page.getResults().stream()
+                .map(UserConversor::toUserSearchResultDto)
+                .collect(Collectors.toList());
+        
+        return new UserSearchPageDto(users, page.getNextCursor());
+    }
+    
+    public static List<NickNameSuggestionDto> toNickNameSuggestionDtos(List<NickNameSuggestion> suggestions) {
+        return suggestions.stream()
+                .map(suggestion -> new NickNameSuggestionDto(suggestion.getUserID(), suggestion.getNickName()))
+                .collect(Collectors.toList());
+    }
+    
     public static AddressDto toAddressDto(UserAddress address) {
         AddressDto dto = new AddressDto();
         dto.setCity(address.getCity());
@@ -39,10 +109,32 @@ public class UserConversor {
         return dto;
     }
     
-    public static AuthenticatedUserDto toAuthenticatedUserDTO(UserProfile user, String token) {
+    /**
+     * Genera la URL del avatar del usuario. Incluye el hash de la imagen para que los clientes puedan guardarla en
+     * caché indefinidamente: al cambiar el avatar cambia también la URL
+     */
+    public static String toAvatarUrl(UUID userID, String avatarHash) {
+        if (avatarHash == null) return null;
+        
+        // Usar la URL base de la petición actual si la hay
+        UriComponentsBuilder builder = (RequestContextHolder.getRequestAttributes() != null)
+                ? ServletUriComponentsBuilder.fromCurrentContextPath()
+                : UriComponentsBuilder.newInstance();
+        
+        return builder.path(AVATAR_PATH)
+                .queryParam(AVATAR_VERSION_PARAM, avatarHash)
+                .buildAndExpand(userID)
+                .toUriString();
+    }
+    
+    public static AuthenticatedUserDto toAuthenticatedUserDTO(UserProfileView user, String token) {
         return new AuthenticatedUserDto(token, toUserDto(user));
     }
     
+    public static AuthenticatedUserDto toAuthenticatedUserDTO(UserProfileView user, String token, String refreshToken) {
+        return new AuthenticatedUserDto(token, refreshToken, toUserDto(user));
+    }
+    
 
     /* ******************** Convertir a Entidades ******************** */
     public static UserProfile fromUserDTO(UserDto dto) {
@@ -58,9 +150,7 @@ public class UserConversor {
         user.setNickName(dto.getNickName());
         user.setScore(dto.getScore());
         user.setRole(UserRoles.valueOf(dto.getRole()));
-    
-        // Agrega valores optativos si están disponibles
-        if (dto.getImageB64() != null) user.setImageB64(user.getImageB64());
+        
         return user;
     }
     
@@ -74,14 +164,13 @@ public class UserConversor {
         user.setPassword(dto.getRawPassword());
         user.setEmail(dto.getEmail());
         user.setBirthDate(dto.getBirthDate());
-        user.setImageB64(dto.getImageB64());
         
         return user;
     }
     
     public static UserProfile fromUpdateProfileParamsDTO(UpdateProfileParamsDto dto) {
         UserProfile user = new UserProfile();
-        user.setNickName(dto.getFirstName());
+        user.setFirstName(dto.getFirstName());
         user.setSurname1(dto.getSurname1());
         user.setSurname2(dto.getSurname2());
         user.setEmail(dto.getEmail());
@@ -0,0 +1,14 @@
+package me.unp0wnable.groupeo.rest.dtos.friendships;
+
+import lombok.*;
+
+import java.util.UUID;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class FriendSuggestionDto {
+    private UUID userID;
+    
+    private int mutualFriends;
+}
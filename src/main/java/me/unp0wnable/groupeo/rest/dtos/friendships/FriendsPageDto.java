@@ -0,0 +1,16 @@
+package me.unp0wnable.groupeo.rest.dtos.friendships;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class FriendsPageDto {
+    /** IDs de los amigos de la página. Sus perfiles se obtienen con <c>POST /api/users/batch</c> */
+    private List<UUID> friendIDs;
+    
+    private int totalFriends;
+}
@@ -0,0 +1,21 @@
+package me.unp0wnable.groupeo.rest.dtos.friendships;
+
+import lombok.*;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class FriendsParamsDto {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    
+    @Min(0)
+    private int offset;
+    
+    @Min(1)
+    @Max(MAX_PAGE_SIZE)
+    private int size = DEFAULT_PAGE_SIZE;
+}
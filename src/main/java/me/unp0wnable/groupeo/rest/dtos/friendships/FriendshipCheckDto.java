@@ -0,0 +1,14 @@
+package me.unp0wnable.groupeo.rest.dtos.friendships;
+
+import lombok.*;
+
+import java.util.UUID;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class FriendshipCheckDto {
+    private UUID userID;
+    
+    private boolean friends;
+}
@@ -0,0 +1,15 @@
+package me.unp0wnable.groupeo.rest.dtos.friendships;
+
+import lombok.*;
+
+import java.util.UUID;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class FriendshipDto {
+    private UUID userID;
+    
+    /** Estado de la amistad con el usuario: <c>PENDING</c> o <c>ACCEPTED</c> */
+    private String status;
+}
@@ -0,0 +1,16 @@
+package me.unp0wnable.groupeo.rest.dtos.friendships;
+
+import lombok.*;
+
+import java.util.Date;
+import java.util.UUID;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class FriendshipRequestDto {
+    /** Usuario que envió la solicitud */
+    private UUID userID;
+    
+    private Date requestDate;
+}
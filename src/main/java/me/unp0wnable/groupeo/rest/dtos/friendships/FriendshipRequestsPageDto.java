@@ -0,0 +1,14 @@
+package me.unp0wnable.groupeo.rest.dtos.friendships;
+
+import lombok.*;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class FriendshipRequestsPageDto {
+    private List<FriendshipRequestDto> requests;
+    
+    private long totalRequests;
+}
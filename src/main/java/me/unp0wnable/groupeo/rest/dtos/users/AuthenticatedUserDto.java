@@ -10,6 +10,15 @@ public class AuthenticatedUserDto {
     @JsonProperty("serviceToken")
     private String serviceToken;
     
+    @JsonProperty("refreshToken")
+    private String refreshToken;
+    
     @JsonProperty("user")
     private UserDto userDTO;
+    
+    /** Constructor sin <c>refreshToken</c> */
+    public AuthenticatedUserDto(String serviceToken, UserDto userDTO) {
+        this.serviceToken = serviceToken;
+        this.userDTO = userDTO;
+    }
 }
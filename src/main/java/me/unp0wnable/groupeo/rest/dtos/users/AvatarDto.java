@@ -0,0 +1,12 @@
+package me.unp0wnable.groupeo.rest.dtos.users;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvatarDto {
+    @JsonProperty("avatarUrl")
+    private String avatarUrl;
+}
@@ -0,0 +1,19 @@
+package me.unp0wnable.groupeo.rest.dtos.users;
+
+import lombok.*;
+
+import java.util.UUID;
+
+/** Resultado de la consulta de un usuario dentro de una petición por lotes */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class BatchUserDto {
+    private UUID userID;
+    
+    /** <c>False</c> si no existe ningún usuario con el ID pedido */
+    private boolean found;
+    
+    /** Datos del usuario, o <c>null</c> si no existe */
+    private PublicUserDto user;
+}
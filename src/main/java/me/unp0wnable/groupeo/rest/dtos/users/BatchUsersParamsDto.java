@@ -0,0 +1,20 @@
+package me.unp0wnable.groupeo.rest.dtos.users;
+
+import lombok.*;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+import java.util.UUID;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class BatchUsersParamsDto {
+    /** Número máximo de usuarios que pueden pedirse a la vez */
+    public static final int MAX_BATCH_SIZE = 100;
+    
+    @NotNull
+    @Size(min = 1, max = MAX_BATCH_SIZE)
+    private List<@NotNull UUID> userIDs;
+}
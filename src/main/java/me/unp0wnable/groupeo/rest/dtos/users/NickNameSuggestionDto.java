@@ -0,0 +1,14 @@
+package me.unp0wnable.groupeo.rest.dtos.users;
+
+import lombok.*;
+
+import java.util.UUID;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class NickNameSuggestionDto {
+    private UUID userID;
+    
+    private String nickName;
+}
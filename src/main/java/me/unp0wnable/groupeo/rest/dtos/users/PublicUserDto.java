@@ -0,0 +1,30 @@
+package me.unp0wnable.groupeo.rest.dtos.users;
+
+import lombok.*;
+
+import java.util.Date;
+import java.util.UUID;
+
+/** Datos del perfil de un usuario visibles para el resto de usuarios */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class PublicUserDto {
+    private UUID userID;
+    
+    private String firstName;
+    
+    private String surname1;
+    
+    private String surname2;
+    
+    private String nickName;
+    
+    private String description;
+    
+    private Date joinDate;
+    
+    private String avatarUrl;
+    
+    private Float score;
+}
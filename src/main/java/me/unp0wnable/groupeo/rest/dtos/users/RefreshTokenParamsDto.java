@@ -0,0 +1,13 @@
+package me.unp0wnable.groupeo.rest.dtos.users;
+
+import lombok.*;
+
+import javax.validation.constraints.NotNull;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshTokenParamsDto {
+    @NotNull
+    private String refreshToken;
+}
@@ -0,0 +1,15 @@
+package me.unp0wnable.groupeo.rest.dtos.users;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshedTokensDto {
+    @JsonProperty("serviceToken")
+    private String serviceToken;
+    
+    @JsonProperty("refreshToken")
+    private String refreshToken;
+}
@@ -26,6 +26,4 @@ public class SignUpParamsDto {
     private String email;
     
     private Date birthDate;
-    
-    private String imageB64;
 }
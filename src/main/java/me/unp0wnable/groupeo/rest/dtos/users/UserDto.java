@@ -37,7 +37,7 @@ public class UserDto {
     
     private String password;
     
-    private String imageB64;
+    private String avatarUrl;
     
     private Float score;
     
@@ -45,7 +45,7 @@ public class UserDto {
     
     /** Constuctor sin <c>password</c> */
     public UserDto(UUID userID, String firstName, String surname1, String surname2, String email, Date birthDate,
-            Date joinDate, String description, String nickName, String imageB64, Float score, String role) {
+            Date joinDate, String description, String nickName, String avatarUrl, Float score, String role) {
         this.userID = userID;
         this.firstName = firstName;
         this.surname1 = surname1;
@@ -55,12 +55,12 @@ public class UserDto {
         this.joinDate = joinDate;
         this.description = description;
         this.nickName = nickName;
-        this.imageB64 = imageB64;
+        this.avatarUrl = avatarUrl;
         this.score = score;
         this.role = role;
     }
     
-    /** Constuctor sin <c>password, imageB64</c> */
+    /** Constuctor sin <c>password, avatarUrl</c> */
     public UserDto(UUID userID, String firstName, String surname1, String surname2, String email, Date birthDate,
             Date joinDate, String description, String nickName, Float score,  String role) {
         this.userID = userID;
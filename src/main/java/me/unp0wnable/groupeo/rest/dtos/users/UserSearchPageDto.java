@@ -0,0 +1,15 @@
+package me.unp0wnable.groupeo.rest.dtos.users;
+
+import lombok.*;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class UserSearchPageDto {
+    private List<UserSearchResultDto> users;
+    
+    /** Valor del parámetro <c>after</c> para obtener la página siguiente; no se envía si no hay más resultados */
+    private String nextCursor;
+}
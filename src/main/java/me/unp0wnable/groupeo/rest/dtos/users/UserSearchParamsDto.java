@@ -0,0 +1,29 @@
+package me.unp0wnable.groupeo.rest.dtos.users;
+
+import lombok.*;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class UserSearchParamsDto {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 50;
+    
+    /** Texto a buscar en el nickName, el nombre y los apellidos. Con menos de 3 caracteres no se puede usar el índice */
+    @NotBlank
+    @Size(min = 3, max = 100)
+    private String query;
+    
+    /** Cursor devuelto en la página anterior, o <c>null</c> para la primera página */
+    @Size(max = 50)
+    private String after;
+    
+    @Min(1)
+    @Max(MAX_PAGE_SIZE)
+    private int size = DEFAULT_PAGE_SIZE;
+}
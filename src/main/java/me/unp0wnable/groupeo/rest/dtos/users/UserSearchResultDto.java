@@ -0,0 +1,23 @@
+package me.unp0wnable.groupeo.rest.dtos.users;
+
+import lombok.*;
+
+import java.util.UUID;
+
+/** Datos de un usuario mostrados en los resultados de una búsqueda */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class UserSearchResultDto {
+    private UUID userID;
+    
+    private String nickName;
+    
+    private String firstName;
+    
+    private String surname1;
+    
+    private String surname2;
+    
+    private String avatarUrl;
+}
@@ -0,0 +1,96 @@
+package me.unp0wnable.groupeo.rest.http;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Envía ficheros en las respuestas HTTP sin copiarlos a memoria. Si el conector de Tomcat lo permite se delega el
+ * envío en <c>sendfile</c> del sistema operativo; si no, se transfiere desde un {@link FileChannel}.
+ * Admite peticiones con un único rango de bytes (<c>Range</c> / <c>If-Range</c>).
+ */
+@UtilityClass
+public class FileTransfer {
+    // Atributos de petición con los que Tomcat envía ficheros mediante sendfile
+    private static final String SENDFILE_SUPPORTED_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+    private static final String BYTES_UNIT = "bytes";
+    
+    
+    /**
+     * Escribe el fichero (o el rango pedido) en la respuesta
+     * @param file Fichero a enviar
+     * @param size Tamaño del fichero
+     * @param eTag ETag actual del fichero, para validar la cabecera <c>If-Range</c>
+     */
+    public static void send(Path file, long size, String eTag, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+        long start = 0;
+        long end = size;
+        
+        // Comprobar si se pide un único rango válido del fichero actual (si no, se envía completo)
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && isRangeApplicable(request.getHeader(HttpHeaders.IF_RANGE), eTag)) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() == 1) {
+                    HttpRange range = ranges.get(0);
+                    start = range.getRangeStart(size);
+                    end = range.getRangeEnd(size) + 1;
+                    response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE,
+                                       BYTES_UNIT + " " + start + "-" + (end - 1) + "/" + size);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + size);
+                return;
+            }
+        }
+        response.setContentLengthLong(end - start);
+        
+        // Delegar el envío en Tomcat para que el fichero no pase por el espacio de usuario
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTRIBUTE))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, end);
+            return;
+        }
+        
+        // Si no está disponible, transferir directamente desde el canal del fichero al de la respuesta
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, output);
+                if (transferred <= 0) {
+                    throw new EOFException("Unexpected end of file " + file + " at position " + position);
+                }
+                position += transferred;
+            }
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Los rangos solo se aplican si no hay <c>If-Range</c> o si coincide con la versión actual del fichero */
+    private static boolean isRangeApplicable(String ifRangeHeader, String eTag) {
+        return (ifRangeHeader == null) || ifRangeHeader.equals(eTag);
+    }
+    
+}
@@ -0,0 +1,50 @@
+package me.unp0wnable.groupeo.rest.http;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import me.unp0wnable.groupeo.model.datasource.ConnectionPoolMonitor;
+import me.unp0wnable.groupeo.model.exceptions.ServiceOverloadedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Rechaza las peticiones nuevas (503 con <c>Retry-After</c>) mientras la espera media para obtener una conexión de
+ * la base de datos supere el máximo configurado, en lugar de encolarlas hasta que agoten su tiempo de espera.
+ * No afecta a los endpoints de monitorización (<c>/actuator</c>)
+ */
+@Component
+public class LoadSheddingInterceptor implements HandlerInterceptor {
+    /* ***************************** DEPENDENCIES INJECTION ***************************** */
+    @Autowired
+    private ConnectionPoolMonitor connectionPoolMonitor;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Counter rejectedCounter;
+    
+    
+    @PostConstruct
+    public void init() {
+        rejectedCounter = Counter.builder("groupeo.http.requests.shed")
+                                 .description("Peticiones rechazadas por saturación del pool de conexiones")
+                                 .register(meterRegistry);
+    }
+    
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws ServiceOverloadedException {
+        if (connectionPoolMonitor.isSaturated()) {
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException();
+        }
+        
+        return true;
+    }
+    
+}
@@ -0,0 +1,20 @@
+package me.unp0wnable.groupeo.rest.http;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+    @Autowired
+    private LoadSheddingInterceptor loadSheddingInterceptor;
+    
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Rechazar el trabajo nuevo antes de que llegue a pedir conexión
+        registry.addInterceptor(loadSheddingInterceptor);
+    }
+    
+}
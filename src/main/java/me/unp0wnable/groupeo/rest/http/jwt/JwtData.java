@@ -3,6 +3,7 @@ package me.unp0wnable.groupeo.rest.http.jwt;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.Date;
 import java.util.UUID;
 
 @Data
@@ -11,4 +12,13 @@ public class JwtData {
     private UUID userID;
     private String nickName;
     private String role;
+    /** Fecha de expiración del token. Solo disponible al extraer los datos de un JWT */
+    private Date expirationDate;
+    
+    /** Constructor sin <c>expirationDate</c> */
+    public JwtData(UUID userID, String nickName, String role) {
+        this.userID = userID;
+        this.nickName = nickName;
+        this.role = role;
+    }
 }
@@ -42,8 +42,9 @@ public class JwtGeneratorImpl implements JwtGenerator {
         UUID userID = UUID.fromString(claims.get("userID").toString());
         String userNickname = claims.get("nickName").toString();
         String userRole = claims.get("role").toString();
+        Date expirationDate = claims.getExpiration();
         
         
-        return new JwtData(userID, userNickname, userRole);
+        return new JwtData(userID, userNickname, userRole, expirationDate);
     }
 }
@@ -15,6 +15,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -22,14 +23,16 @@ public class JwtFilter extends BasicAuthenticationFilter {
     public static final String AUTH_TOKEN_PREFIX = "Bearer ";
     private static final String ROLE_PREFIX = "ROLE_";
     private static final String SERVICE_TOKEN_ATTRIBUTE_NAME = "serviceToken";
-    private static final String USER_ID_ATTRIBUTE_NAME = "userID";
+    public static final String USER_ID_ATTRIBUTE_NAME = "userID";
     
     private final JwtGenerator jwtGenerator;
+    private final VerifiedTokenCache tokenCache;
     
     
-    public JwtFilter(AuthenticationManager authManager, JwtGenerator jwtGenerator) {
+    public JwtFilter(AuthenticationManager authManager, JwtGenerator jwtGenerator, VerifiedTokenCache tokenCache) {
         super(authManager);
         this.jwtGenerator = jwtGenerator;
+        this.tokenCache = tokenCache;
     }
     
     @Override
@@ -60,20 +63,30 @@ public class JwtFilter extends BasicAuthenticationFilter {
         String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
         String token = authHeader.replace(AUTH_TOKEN_PREFIX, "");
         
-        // Extraer los datos del token
-        JwtData data = jwtGenerator.extractInfo(token);
+        // Extraer los datos del token (solo se verifica si no se ha hecho antes)
+        VerifiedToken verifiedToken = tokenCache.get(token, this::verifyToken);
         
         // Si se obtienen los datos, se registran
-        if (data != null) {
+        if (verifiedToken != null) {
+            JwtData data = verifiedToken.getData();
             request.setAttribute(SERVICE_TOKEN_ATTRIBUTE_NAME, token);
             request.setAttribute(USER_ID_ATTRIBUTE_NAME, data.getUserID());
-            // Asigna rol al usuario
-            Set<GrantedAuthority> authorities = new HashSet<>();
-            authorities.add(new SimpleGrantedAuthority(ROLE_PREFIX + data.getRole()));
             
-            return new UsernamePasswordAuthenticationToken(data, null, authorities);
+            return new UsernamePasswordAuthenticationToken(data, null, verifiedToken.getAuthorities());
         } else
             return null;
         
     }
+    
+    /** Verifica el token y precalcula los permisos que concede */
+    private VerifiedToken verifyToken(String token) {
+        JwtData data = jwtGenerator.extractInfo(token);
+        if (data == null) return null;
+        
+        // Asigna rol al usuario
+        Set<GrantedAuthority> authorities = new HashSet<>();
+        authorities.add(new SimpleGrantedAuthority(ROLE_PREFIX + data.getRole()));
+        
+        return new VerifiedToken(data, Collections.unmodifiableSet(authorities));
+    }
 }
@@ -0,0 +1,37 @@
+package me.unp0wnable.groupeo.rest.security;
+
+import me.unp0wnable.groupeo.model.datasource.ReadYourWritesTracker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Asocia cada petición al usuario autenticado, para que tras una escritura suya sus lecturas se hagan en la base de
+ * datos principal aunque lleguen en peticiones posteriores. Se ejecuta después de {@link JwtFilter}
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker;
+    
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Object userID = request.getAttribute(JwtFilter.USER_ID_ATTRIBUTE_NAME);
+        if (userID != null) readYourWritesTracker.bind(userID);
+        
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            readYourWritesTracker.clear();
+        }
+    }
+    
+}
@@ -16,11 +16,13 @@ import org.springframework.web.cors.*;
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private JwtGenerator jwtGenerator;
+    @Autowired
+    private VerifiedTokenCache tokenCache;
     
     /** Configura los endpoints expuestos públicamente y qué métodos HTTP pueden hacer peticiones a cada uno */
     @Override
     protected void configure(HttpSecurity http) throws Exception {
-        JwtFilter jwtAuthFilter = new JwtFilter(authenticationManager(), jwtGenerator);
+        JwtFilter jwtAuthFilter = new JwtFilter(authenticationManager(), jwtGenerator, tokenCache);
         
         http
                 .cors().and().csrf().disable()
@@ -31,13 +33,32 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers(HttpMethod.POST,   "/api/users/signUp").permitAll()                    // signUp
                 .antMatchers(HttpMethod.POST,   "/api//users/login").permitAll()                     // login
                 .antMatchers(HttpMethod.POST,   "/api//users/tokenLogin").permitAll()                // loginFromServiceToken
+                .antMatchers(HttpMethod.POST,   "/api/users/refresh").permitAll()                    // refreshServiceToken
+                .antMatchers(HttpMethod.GET,    "/api/users/search").permitAll()                     // searchUsers
+                .antMatchers(HttpMethod.GET,    "/api/users/autocomplete").permitAll()               // autocompleteNickName
+                .antMatchers(HttpMethod.GET,    "/api/users/*").permitAll()                          // getUserProfile
+                .antMatchers(HttpMethod.POST,   "/api/users/batch").permitAll()                      // getUserProfiles
+                .antMatchers(HttpMethod.GET,    "/api/users/*/avatar").permitAll()                   // getAvatar
+                .antMatchers(HttpMethod.PUT,    "/api/users/*/avatar").permitAll()                   // updateAvatar
                 .antMatchers(HttpMethod.POST,   "/api//users/*/changePassword").permitAll()          // changePassword
                 .antMatchers(HttpMethod.PUT,    "/api//users/*/update").permitAll()                  // updateUserProfile
                 .antMatchers(HttpMethod.POST,    "/api//users/*/address").permitAll()                // assignAddressToUser
                 .antMatchers(HttpMethod.PUT,    "/api//users/*/address").permitAll()                 // updateUserAddress
                 .antMatchers(HttpMethod.DELETE, "/api//users/*").permitAll()                         // deleteUser
+                // FRIENDSHIPS ENDPOINTS
+                .antMatchers(HttpMethod.GET,    "/api/friends").permitAll()                          // getFriends
+                .antMatchers(HttpMethod.GET,    "/api/friends/suggestions").permitAll()              // getSuggestions
+                .antMatchers(HttpMethod.GET,    "/api/friends/requests").permitAll()                 // getPendingRequests
+                .antMatchers(HttpMethod.GET,    "/api/friends/*").permitAll()                        // checkFriendship
+                .antMatchers(HttpMethod.POST,   "/api/friends/requests/*").permitAll()               // requestFriendship
+                .antMatchers(HttpMethod.POST,   "/api/friends/requests/*/accept").permitAll()        // acceptFriendship
+                .antMatchers(HttpMethod.POST,   "/api/friends/requests/*/reject").permitAll()        // rejectFriendship
+                .antMatchers(HttpMethod.DELETE, "/api/friends/*").permitAll()                        // removeFriendship
                 // EVENTS ENDPOINTS
                 
+                // MONITORING ENDPOINTS
+                .antMatchers(HttpMethod.GET,    "/actuator/**").hasRole("ADMIN")                     // metrics
+                
                 // DENY ALL UNAUTHORIZED REQUESTS
                 .anyRequest().denyAll();
     }
@@ -0,0 +1,16 @@
+package me.unp0wnable.groupeo.rest.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import me.unp0wnable.groupeo.rest.http.jwt.JwtData;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Set;
+
+/** Datos de un JWT cuya firma ya ha sido verificada, junto a los permisos que concede */
+@Getter
+@AllArgsConstructor
+public class VerifiedToken {
+    private final JwtData data;
+    private final Set<GrantedAuthority> authorities;
+}
@@ -0,0 +1,85 @@
+package me.unp0wnable.groupeo.rest.security;
+
+import com.github.benmanes.caffeine.cache.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caché acotada de JWT ya verificados.
+ * Evita volver a parsear el token y a comprobar su firma en cada petición. Las entradas se indexan por el resumen
+ * SHA-256 del token (nunca se guarda el token en claro) y caducan en el mismo instante que el propio JWT.
+ * Expone las métricas <c>cache.gets</c> (aciertos y fallos), <c>cache.evictions</c> y <c>cache.size</c>
+ * bajo el nombre <c>verifiedTokens</c>.
+ */
+@Component
+public class VerifiedTokenCache {
+    private static final String CACHE_METRICS_NAME = "verifiedTokens";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    
+    private final Cache<String, VerifiedToken> cache;
+    
+    
+    public VerifiedTokenCache(@Value("${project.jwt.cache.maxSize}") long maxSize, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                             .maximumSize(maxSize)
+                             .expireAfter(new TokenExpiry())
+                             .recordStats()
+                             .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_METRICS_NAME);
+    }
+    
+    /**
+     * Obtiene los datos de un token, verificándolo únicamente si no se encuentra en la caché
+     * @param token JWT recibido en la petición
+     * @param verifier Función que verifica el token y obtiene sus datos. Las excepciones que lance se propagan
+     * @return Datos del token verificado o <c>null</c> si no se pudieron obtener
+     */
+    public VerifiedToken get(String token, Function<String, VerifiedToken> verifier) {
+        return cache.get(digest(token), key -> verifier.apply(token));
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private static String digest(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            byte[] hash = messageDigest.digest(token.getBytes(StandardCharsets.US_ASCII));
+            
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /** Hace que cada entrada caduque cuando expire el JWT que representa */
+    private static class TokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            Date expirationDate = value.getData().getExpirationDate();
+            if (expirationDate == null) return 0;
+            
+            long remainingMillis = expirationDate.getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+        
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+        
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
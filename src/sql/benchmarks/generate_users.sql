@@ -0,0 +1,59 @@
+/*
+ * Fills UserProfile with synthetic users for benchmarks. Requires schema.sql. Run against a scratch database:
+ *     psql -v users=1000000 -f src/sql/benchmarks/generate_users.sql
+ * Names are drawn from small lists, so common first names and surnames match a large share of the table, while
+ * nickNames (word + word + sequence number) are unique. Generation is deterministic (fixed random seed).
+ */
+\set ON_ERROR_STOP on
+\if :{?users}
+\else
+    \set users 1000000
+\endif
+\set batch 50000
+\timing on
+
+SELECT setseed(0.42);
+
+CREATE OR REPLACE PROCEDURE pg_temp.generate_users(total INTEGER, batch INTEGER) AS $$
+DECLARE
+    first_names TEXT[] = ARRAY['Alejandro', 'Ana', 'Andrea', 'Antonio', 'Carlos', 'Carmen', 'Cristina', 'Daniel',
+                               'David', 'Elena', 'Francisco', 'Isabel', 'Javier', 'Jorge', 'José', 'Juan', 'Laura',
+                               'Lucía', 'Manuel', 'María', 'Marta', 'Miguel', 'Pablo', 'Paula', 'Pedro', 'Raquel',
+                               'Sara', 'Sergio', 'Sofía', 'Teresa'];
+    surnames    TEXT[] = ARRAY['Álvarez', 'Castro', 'Díaz', 'Fernández', 'García', 'Gómez', 'González', 'Gutiérrez',
+                               'Hernández', 'Iglesias', 'Jiménez', 'López', 'Martín', 'Martínez', 'Moreno', 'Muñoz',
+                               'Navarro', 'Otero', 'Pérez', 'Rodríguez', 'Romero', 'Rubio', 'Ruiz', 'Sánchez',
+                               'Suárez', 'Torres', 'Vázquez'];
+    words       TEXT[] = ARRAY['blue', 'dark', 'fast', 'happy', 'iron', 'lazy', 'lucky', 'quiet', 'red', 'silent',
+                               'wild', 'bear', 'cat', 'dragon', 'eagle', 'fox', 'lion', 'owl', 'panda', 'tiger',
+                               'wolf'];
+    started     TIMESTAMPTZ = clock_timestamp();
+BEGIN
+    FOR first IN 1..total BY batch LOOP
+        INSERT INTO UserProfile (firstName, surname1, surname2, email, birthDate, joinDate, nickName, password, role)
+        SELECT first_names[1 + floor(random() * array_length(first_names, 1))::INTEGER],
+               surnames[1 + floor(random() * array_length(surnames, 1))::INTEGER],
+               CASE WHEN random() < 0.8 THEN surnames[1 + floor(random() * array_length(surnames, 1))::INTEGER] END,
+               'user' || g || '@example.com',
+               DATE '1960-01-01' + floor(random() * 16000)::INTEGER,
+               TIMESTAMP '2022-01-01' + random() * INTERVAL '1000 days',
+               words[1 + floor(random() * array_length(words, 1))::INTEGER] ||
+                   words[1 + floor(random() * array_length(words, 1))::INTEGER] || g,
+               'not-a-password-hash',
+               0
+        FROM generate_series(first, least(first + batch - 1, total)) g;
+        COMMIT;
+    END LOOP;
+    RAISE NOTICE '% users generated: % rows/s', total, round(total / extract(EPOCH FROM clock_timestamp() - started));
+END
+$$ LANGUAGE plpgsql;
+
+CALL pg_temp.generate_users(:users, :batch);
+
+VACUUM ANALYZE UserProfile;
+
+SELECT count(*)                                                            AS users,
+       pg_size_pretty(pg_relation_size('UserProfile'))                     AS table_size,
+       pg_size_pretty(pg_relation_size('IDX_UserProfile_searchText'))      AS search_index_size,
+       pg_size_pretty(pg_relation_size('UNIQUE_UserProfile_nickName'))     AS nickname_index_size
+FROM UserProfile;
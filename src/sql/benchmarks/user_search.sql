@@ -0,0 +1,38 @@
+/*
+ * User search (UserProfileRepositoryImpl.searchByText): keyset pagination against OFFSET, for a common and a rare
+ * term, on the first and on a deep page. Run after generate_users.sql (1M users):
+ *     psql -f src/sql/benchmarks/user_search.sql
+ * The keyset plans should read about the same number of buffers on every page, while OFFSET grows with the page.
+ */
+\set ON_ERROR_STOP on
+\set page_size 21
+\set deep_page 500
+
+-- Common term: matches a large share of the table. Rows can be read in order from UNIQUE_UserProfile_nickName
+\set term '%garcía%'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT userProfileID, nickName, firstName, surname1, surname2, avatarHash FROM UserProfile
+WHERE searchText LIKE :'term' ORDER BY LOWER(nickName) LIMIT :page_size;
+
+-- Cursor of the deep page: last nickName of the previous page
+SELECT LOWER(nickName) AS cursor FROM UserProfile WHERE searchText LIKE :'term'
+ORDER BY LOWER(nickName) OFFSET (:deep_page - 1) * (:page_size - 1) - 1 LIMIT 1 \gset
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT userProfileID, nickName, firstName, surname1, surname2, avatarHash FROM UserProfile
+WHERE searchText LIKE :'term' AND LOWER(nickName) > LOWER(:'cursor') ORDER BY LOWER(nickName) LIMIT :page_size;
+
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT userProfileID, nickName, firstName, surname1, surname2, avatarHash FROM UserProfile
+WHERE searchText LIKE :'term' ORDER BY LOWER(nickName) OFFSET (:deep_page - 1) * (:page_size - 1) LIMIT :page_size;
+
+-- Rare term: few matches, found through the trigram index (IDX_UserProfile_searchText) and sorted in memory
+\set term '%lionowl12%'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT userProfileID, nickName, firstName, surname1, surname2, avatarHash FROM UserProfile
+WHERE searchText LIKE :'term' ORDER BY LOWER(nickName) LIMIT :page_size;
+
+-- Several terms, as sent for "maría lópez"
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT userProfileID, nickName, firstName, surname1, surname2, avatarHash FROM UserProfile
+WHERE searchText LIKE '%maría%' AND searchText LIKE '%lópez%' ORDER BY LOWER(nickName) LIMIT :page_size;
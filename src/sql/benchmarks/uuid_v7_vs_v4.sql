@@ -0,0 +1,53 @@
+/*
+ * Compares random (version 4) and time-ordered (version 7) UUID primary keys: insert time and primary key index size.
+ * Requires uuid_generate_v7() from schema.sql. Run against a scratch database:
+ *     psql -v rows=3000000 -f src/sql/benchmarks/uuid_v7_vs_v4.sql
+ * Rows are inserted in batches so that each key is generated at insertion time, as happens with real traffic.
+ */
+\set ON_ERROR_STOP on
+\if :{?rows}
+\else
+    \set rows 3000000
+\endif
+\set batch 10000
+\timing on
+
+DROP TABLE IF EXISTS UuidBenchmarkV4;
+DROP TABLE IF EXISTS UuidBenchmarkV7;
+CREATE UNLOGGED TABLE UuidBenchmarkV4 (id UUID DEFAULT uuid_generate_v4(), payload INTEGER, CONSTRAINT PK_UuidBenchmarkV4 PRIMARY KEY (id));
+CREATE UNLOGGED TABLE UuidBenchmarkV7 (id UUID DEFAULT uuid_generate_v7(), payload INTEGER, CONSTRAINT PK_UuidBenchmarkV7 PRIMARY KEY (id));
+
+CREATE OR REPLACE PROCEDURE pg_temp.fill(target REGCLASS, total INTEGER, batch INTEGER) AS $$
+DECLARE
+    started TIMESTAMPTZ = clock_timestamp();
+BEGIN
+    FOR first IN 1..total BY batch LOOP
+        EXECUTE format('INSERT INTO %s (payload) SELECT g FROM generate_series($1, $2) g', target)
+            USING first, least(first + batch - 1, total);
+        COMMIT;
+    END LOOP;
+    RAISE NOTICE '% rows into %: % rows/s', total, target,
+        round(total / extract(EPOCH FROM clock_timestamp() - started));
+END
+$$ LANGUAGE plpgsql;
+
+CALL pg_temp.fill('UuidBenchmarkV4', :rows, :batch);
+CALL pg_temp.fill('UuidBenchmarkV7', :rows, :batch);
+
+-- Random keys split pages all over the index, leaving them half full; sequential keys fill each page before moving on
+SELECT indexrelid::REGCLASS                              AS index,
+       pg_size_pretty(pg_relation_size(indexrelid))     AS size,
+       pg_relation_size(indexrelid) / current_setting('block_size')::INTEGER AS pages
+FROM pg_index
+WHERE indexrelid IN ('PK_UuidBenchmarkV4'::REGCLASS, 'PK_UuidBenchmarkV7'::REGCLASS);
+
+-- Sanity check: every key is version 7 and the millisecond prefix never goes backwards in insertion order
+SELECT count(*) FILTER (WHERE substring(id::TEXT FROM 15 FOR 1) <> '7')   AS non_v7_keys,
+       count(*) FILTER (WHERE prefix < previous_prefix)                  AS out_of_order_keys
+FROM (SELECT id,
+             substring(uuid_send(id) FROM 1 FOR 6)                              AS prefix,
+             lag(substring(uuid_send(id) FROM 1 FOR 6)) OVER (ORDER BY payload) AS previous_prefix
+      FROM UuidBenchmarkV7) keys;
+
+DROP TABLE UuidBenchmarkV4;
+DROP TABLE UuidBenchmarkV7;
@@ -1,23 +1,68 @@
 CREATE EXTENSION IF NOT EXISTS "uuid-ossp";         -- Permite usar identificadores UUID
+CREATE EXTENSION IF NOT EXISTS pg_trgm;             -- Índices de trigramas para búsquedas por texto parcial
+
+-- Time-ordered UUID (version 7, RFC 9562): 48-bit Unix timestamp in milliseconds followed by random bits, so new keys
+-- are appended to the right edge of B-tree indexes instead of random pages. Unlike UuidV7 in the application there is no
+-- per-millisecond counter: keys generated within the same millisecond are not ordered among themselves
+CREATE OR REPLACE FUNCTION uuid_generate_v7() RETURNS UUID AS $$
+DECLARE
+    uuid_bytes BYTEA;
+BEGIN
+    uuid_bytes = overlay(uuid_send(uuid_generate_v4())
+                         PLACING substring(int8send(floor(extract(EPOCH FROM clock_timestamp()) * 1000)::BIGINT) FROM 3)
+                         FROM 1 FOR 6);
+    -- Version 7 (the variant bits of the version 4 UUID are already correct)
+    uuid_bytes = set_byte(uuid_bytes, 6, (get_byte(uuid_bytes, 6) & 15) | 112);
+    RETURN encode(uuid_bytes, 'hex')::UUID;
+END
+$$ LANGUAGE plpgsql VOLATILE;
+
+-- Creates the missing monthly partitions (named <table>_YYYYMM) of a status history table, from the month of fromDate
+-- to monthsAhead months later. Called by StatusHistoryMaintenance on every node: concurrent calls are serialized
+CREATE OR REPLACE FUNCTION create_monthly_partitions(parentTable TEXT, fromDate DATE, monthsAhead INTEGER)
+    RETURNS INTEGER AS $$
+DECLARE
+    monthStart    DATE := date_trunc('month', fromDate);
+    partitionName TEXT;
+    created       INTEGER := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('create_monthly_partitions'));
+    FOR i IN 0..monthsAhead LOOP
+        partitionName = lower(parentTable) || '_' || to_char(monthStart, 'YYYYMM');
+        IF to_regclass(partitionName) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                           partitionName, lower(parentTable), monthStart, monthStart + INTERVAL '1 month');
+            created = created + 1;
+        END IF;
+        monthStart = monthStart + INTERVAL '1 month';
+    END LOOP;
+    RETURN created;
+END
+$$ LANGUAGE plpgsql VOLATILE;
 
 /* ********************* DROP TABLES ********************* */
+DROP TABLE IF EXISTS FriendshipCurrentStatus;
 DROP TABLE IF EXISTS FriendshipStatus;
 DROP TABLE IF EXISTS FriendshipStatusCode;
 DROP TABLE IF EXISTS Friendship;
 DROP TABLE IF EXISTS UserGroup;
 DROP TABLE IF EXISTS Assistance;
+DROP TABLE IF EXISTS AssistanceCurrentStatus;
 DROP TABLE IF EXISTS AssistanceStatus;
 DROP TABLE IF EXISTS AssistanceStatusCode;
 DROP TABLE IF EXISTS Meeting;
 DROP TABLE IF EXISTS Place;
 DROP TABLE IF EXISTS PlaceAddress;
 DROP TABLE IF EXISTS UserAddress;
+DROP TABLE IF EXISTS RefreshToken;
+DROP TABLE IF EXISTS ImageVariantJob;
+DROP TABLE IF EXISTS UserPurge;
 DROP TABLE IF EXISTS UserProfile;
 
 /* ******************** CREATE TABLES ******************** */
 /* *************** ACCOUNTS *************** */
 CREATE TABLE UserProfile (
-    userProfileID UUID          DEFAULT uuid_generate_v4(),
+    userProfileID UUID          DEFAULT uuid_generate_v7(),
     firstName     VARCHAR(30)   NOT NULL,
     surname1      VARCHAR(50),
     surname2      VARCHAR(50),
@@ -27,18 +72,27 @@ CREATE TABLE UserProfile (
     description   VARCHAR,
     nickName      VARCHAR(50)   NOT NULL,
     password      VARCHAR       NOT NULL,
-    avatarPath    VARCHAR,                  -- Path to user profile picture
+    avatarHash    CHAR(64),                 -- SHA-256 of the profile picture in the avatar store
     score         FLOAT         NOT NULL DEFAULT 0.0,
     role          SMALLINT      NOT NULL,
     userAddressID UUID,
+    version       BIGINT        NOT NULL DEFAULT 0,    -- Incremented on every change of the public profile (ETag)
+    -- Lower-cased names searched by the user search. Maintained by the database, never written by the application
+    searchText    TEXT          GENERATED ALWAYS AS (LOWER(nickName || ' ' || firstName || ' ' ||
+                                                         COALESCE(surname1, '') || ' ' || COALESCE(surname2, ''))) STORED,
 
     CONSTRAINT PK_UserProfile PRIMARY KEY (userProfileID),
-    CONSTRAINT UNIQUE_UserProfile_email UNIQUE (email),
-    CONSTRAINT UNIQUE_UserProfile_nickName UNIQUE (nickName)
+    CONSTRAINT UNIQUE_UserProfile_email UNIQUE (email)
 );
+-- nickNames are unique ignoring case; lookups must use LOWER(nickName) to hit this index
+CREATE UNIQUE INDEX UNIQUE_UserProfile_nickName ON UserProfile (LOWER(nickName));
+CREATE INDEX IDX_UserProfile_joinDate ON UserProfile (joinDate);
+-- Substring search (searchText LIKE '%term%') for terms of at least 3 characters. Search results are paged by
+-- LOWER(nickName), so they can also be read in order from UNIQUE_UserProfile_nickName when the term is very common
+CREATE INDEX IDX_UserProfile_searchText ON UserProfile USING GIN (searchText gin_trgm_ops);
 
 CREATE TABLE UserAddress (
-    userAddressID   UUID            DEFAULT uuid_generate_v4(),
+    userAddressID   UUID            DEFAULT uuid_generate_v7(),
     city            VARCHAR(50),
     region          VARCHAR(50),
     postalCode      VARCHAR(10),
@@ -51,9 +105,42 @@ CREATE TABLE UserAddress (
         ON DELETE CASCADE
         ON UPDATE CASCADE
 );
+CREATE INDEX IDX_UserAddress_userProfileID ON UserAddress (userProfileID);
+
+CREATE TABLE RefreshToken (
+    refreshTokenID  UUID            DEFAULT uuid_generate_v7(),
+    familyID        UUID            NOT NULL,   -- Tokens obtenidos por rotación a partir del mismo inicio de sesión
+    userProfileID   UUID            NOT NULL,
+    tokenHash       CHAR(64)        NOT NULL,   -- SHA-256 del token. Nunca se guarda el token en claro
+    expirationDate  TIMESTAMP       NOT NULL,
+    used            BOOLEAN         NOT NULL DEFAULT FALSE,
+    revoked         BOOLEAN         NOT NULL DEFAULT FALSE,
+
+    CONSTRAINT PK_RefreshToken PRIMARY KEY (refreshTokenID),
+    CONSTRAINT UNIQUE_RefreshToken_tokenHash UNIQUE (tokenHash),
+    CONSTRAINT FK_RefreshToken_TO_UserProfile FOREIGN KEY (userProfileID)
+        REFERENCES UserProfile(userProfileID)
+        ON DELETE CASCADE
+        ON UPDATE CASCADE
+);
+CREATE INDEX IDX_RefreshToken_familyID ON RefreshToken (familyID);
+CREATE INDEX IDX_RefreshToken_userProfileID ON RefreshToken (userProfileID);
+
+-- Deleted users whose history (friendships, assistances) is still being removed in the background.
+-- Rows are kept after completion as a record of deleted users
+CREATE TABLE UserPurge (
+    userProfileID   UUID,
+    requestedAt     TIMESTAMP       NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claimedAt       TIMESTAMP,                  -- Set while a node is purging it
+    completedAt     TIMESTAMP,
+
+    CONSTRAINT PK_UserPurge PRIMARY KEY (userProfileID)
+);
+CREATE INDEX IDX_UserPurge_pending ON UserPurge (requestedAt) WHERE completedAt IS NULL;
+CREATE INDEX IDX_UserPurge_requestedAt ON UserPurge (requestedAt);   -- Users deleted on other nodes (in-memory indexes)
 
 CREATE TABLE UserGroup (
-    groupID     UUID            DEFAULT uuid_generate_v4(),
+    groupID     UUID            DEFAULT uuid_generate_v7(),
     name        VARCHAR(20)     NOT NULL,
 
     CONSTRAINT PK_Group PRIMARY KEY (groupID)
@@ -68,16 +155,10 @@ CREATE TABLE Friendship (
     CONSTRAINT FK_Friendship_TO_UserGroup FOREIGN KEY (groupID)
         REFERENCES UserGroup(groupID)
         ON DELETE SET NULL
-        ON UPDATE CASCADE,
-    CONSTRAINT FK_Friendship_TO_UserProfile_Requester FOREIGN KEY (requesterID)
-        REFERENCES UserProfile(userProfileID)
-        ON DELETE CASCADE
-        ON UPDATE CASCADE,
-    CONSTRAINT FK_Friendship_TO_UserProfile_Target FOREIGN KEY (targetID)
-        REFERENCES UserProfile(userProfileID)
-        ON DELETE CASCADE
         ON UPDATE CASCADE
 );
+-- No foreign keys to UserProfile: rows of deleted users are removed in the background (see UserPurge)
+CREATE INDEX IDX_Friendship_targetID ON Friendship (targetID);
 
 CREATE TABLE FriendshipStatusCode (
     statusID    CHAR,
@@ -86,6 +167,9 @@ CREATE TABLE FriendshipStatusCode (
     CONSTRAINT PK_FriendshipStatusCode PRIMARY KEY (statusID),
     CONSTRAINT UNIQUE_FriendshipStatusCode_Name UNIQUE (name)
 );
+-- Codes of FriendshipStatus.FriendshipStates in the application
+INSERT INTO FriendshipStatusCode (statusID, name) VALUES
+    ('P', 'PENDING'), ('A', 'ACCEPTED'), ('R', 'REJECTED'), ('D', 'DELETED');
 
 CREATE TABLE FriendshipStatus (
     requesterID     UUID,
@@ -98,25 +182,74 @@ CREATE TABLE FriendshipStatus (
     CONSTRAINT FK_FriendshipStatus_TO_FriendshipStatusCode FOREIGN KEY (statusID)
         REFERENCES FriendshipStatusCode(statusID)
         ON DELETE SET NULL
-        ON UPDATE CASCADE,
-    CONSTRAINT FK_Friendship_TO_UserProfile_Requester FOREIGN KEY (requesterID)
-        REFERENCES UserProfile(userProfileID)
-        ON DELETE CASCADE
-        ON UPDATE CASCADE,
-    CONSTRAINT FK_Friendship_TO_UserProfile_Target FOREIGN KEY (targetID)
-        REFERENCES UserProfile(userProfileID)
-        ON DELETE CASCADE
-        ON UPDATE CASCADE,
-    CONSTRAINT FK_Friendship_TO_UserProfile_Specifier FOREIGN KEY (specifierID)
-        REFERENCES UserProfile(userProfileID)
-        ON DELETE CASCADE
         ON UPDATE CASCADE
+) PARTITION BY RANGE (lastUpdated);
+-- Monthly partitions: StatusHistoryMaintenance creates them ahead of time, compacts superseded statuses in the old ones
+-- and archives the oldest to compressed files before dropping them. Current states are read from FriendshipCurrentStatus
+SELECT create_monthly_partitions('FriendshipStatus', CAST(CURRENT_DATE AS DATE), 3);
+-- No foreign keys to UserProfile: rows of deleted users are removed in the background (see UserPurge)
+CREATE INDEX IDX_FriendshipStatus_targetID ON FriendshipStatus (targetID);
+CREATE INDEX IDX_FriendshipStatus_specifierID ON FriendshipStatus (specifierID);
+
+-- Latest FriendshipStatus of each friendship, so current states are read without a max(lastUpdated) per pair.
+-- Maintained by TRG_FriendshipStatus_current in the same transaction as each status, never written by the application.
+-- Rebuilt from the history in chunks by CurrentStatusRebuilder
+CREATE TABLE FriendshipCurrentStatus (
+    requesterID     UUID,
+    targetID        UUID,
+    lastUpdated     TIMESTAMP       NOT NULL,
+    specifierID     UUID            NOT NULL,
+    statusID        CHAR            NOT NULL,
+    -- When this row last changed, unlike lastUpdated (copied from the history) also set by CurrentStatusRebuilder fixes
+    changedAt       TIMESTAMP       NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    -- User who has to answer the last change (the one who did not make it)
+    recipientID     UUID            GENERATED ALWAYS AS (CASE WHEN specifierID = requesterID THEN targetID
+                                                              ELSE requesterID END) STORED,
+
+    CONSTRAINT PK_FriendshipCurrentStatus PRIMARY KEY (requesterID, targetID),
+    CONSTRAINT FK_FriendshipCurrentStatus_TO_FriendshipStatusCode FOREIGN KEY (statusID)
+        REFERENCES FriendshipStatusCode(statusID)
+        ON DELETE SET NULL
+        ON UPDATE CASCADE
+);
+-- Pending requests received by a user, newest first
+CREATE INDEX IDX_FriendshipCurrentStatus_recipient ON FriendshipCurrentStatus (recipientID, statusID, lastUpdated);
+CREATE INDEX IDX_FriendshipCurrentStatus_changedAt ON FriendshipCurrentStatus (changedAt);  -- Changes made on other nodes (in-memory index)
+
+-- Older statuses never replace a newer one, so concurrent writers and rebuilds can be applied in any order
+CREATE OR REPLACE FUNCTION friendship_current_status_upsert() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO FriendshipCurrentStatus (requesterID, targetID, lastUpdated, specifierID, statusID)
+    VALUES (NEW.requesterID, NEW.targetID, NEW.lastUpdated, NEW.specifierID, NEW.statusID)
+    ON CONFLICT (requesterID, targetID) DO UPDATE
+        SET lastUpdated = EXCLUDED.lastUpdated, specifierID = EXCLUDED.specifierID, statusID = EXCLUDED.statusID,
+            changedAt = CURRENT_TIMESTAMP
+        WHERE FriendshipCurrentStatus.lastUpdated <= EXCLUDED.lastUpdated;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER TRG_FriendshipStatus_current AFTER INSERT ON FriendshipStatus
+    FOR EACH ROW EXECUTE FUNCTION friendship_current_status_upsert();
+
+
+/* *************** IMAGES *************** */
+-- Persistent queue of images in the image store whose resized variants have not been generated yet
+CREATE TABLE ImageVariantJob (
+    imageHash       CHAR(64),                   -- SHA-256 of the original image in the store
+    enqueuedAt      TIMESTAMP       NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claimedAt       TIMESTAMP,                  -- Set while a worker is processing it
+    attempts        SMALLINT        NOT NULL DEFAULT 0,
+    lastError       VARCHAR,
+
+    CONSTRAINT PK_ImageVariantJob PRIMARY KEY (imageHash)
 );
+CREATE INDEX IDX_ImageVariantJob_enqueuedAt ON ImageVariantJob (enqueuedAt);
 
 
 /* *************** EVENTS *************** */
 CREATE TABLE PlaceAddress (
-    placeAddressID  UUID            DEFAULT uuid_generate_v4(),
+    placeAddressID  UUID            DEFAULT uuid_generate_v7(),
     street          VARCHAR(50),
     city            VARCHAR(50),
     number          smallint,
@@ -130,7 +263,7 @@ CREATE TABLE PlaceAddress (
 );
 
 CREATE TABLE Place (
-    placeID         UUID        DEFAULT uuid_generate_v4(),
+    placeID         UUID        DEFAULT uuid_generate_v7(),
     imagePath       VARCHAR,        -- Path to place picture
     placeAddressID  UUID,
 
@@ -142,7 +275,7 @@ CREATE TABLE Place (
 );
 
 CREATE TABLE Meeting (
-    meetingID       UUID,
+    meetingID       UUID        DEFAULT uuid_generate_v7(),
     startDate       TIMESTAMP   NOT NULL,
     endDate         TIMESTAMP,
     creationDate    TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP,
@@ -170,19 +303,13 @@ CREATE TABLE Assistance (
     inviteDate          TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
 
     CONSTRAINT PK_Assistance PRIMARY KEY (invitingUserID, invitedUserID, meetingID),
-    CONSTRAINT FK_Assistance_TO_UserProfile_Inviting FOREIGN KEY (invitingUserID)
-        REFERENCES UserProfile(userProfileID)
-        ON DELETE CASCADE
-        ON UPDATE CASCADE,
-    CONSTRAINT FK_Assistance_TO_UserProfile_Invited FOREIGN KEY (invitingUserID)
-        REFERENCES UserProfile(userProfileID)
-        ON DELETE CASCADE
-        ON UPDATE CASCADE,
     CONSTRAINT FK_Assistance_TO_Meeting FOREIGN KEY (meetingID)
         REFERENCES Meeting(meetingID)
         ON DELETE CASCADE
         ON UPDATE CASCADE
 );
+-- No foreign keys to UserProfile: rows of deleted users are removed in the background (see UserPurge)
+CREATE INDEX IDX_Assistance_invitedUserID ON Assistance (invitedUserID);
 
 CREATE TABLE AssistanceStatusCode (
     statusID    CHAR,
@@ -202,16 +329,42 @@ CREATE TABLE AssistanceStatus (
     CONSTRAINT FK_AssistanceStatus_TO_FAssistanceStatusCode FOREIGN KEY (statusID)
         REFERENCES AssistanceStatusCode(statusID)
         ON DELETE SET NULL
-        ON UPDATE CASCADE,
-    CONSTRAINT FK_Friendship_TO_UserProfile_Inviting FOREIGN KEY (invitingUserID)
-        REFERENCES UserProfile(userProfileID)
-        ON DELETE CASCADE
-        ON UPDATE CASCADE,
-    CONSTRAINT FK_Friendship_TO_UserProfile_Invited FOREIGN KEY (invitedUserID)
-        REFERENCES UserProfile(userProfileID)
-        ON DELETE CASCADE
+        ON UPDATE CASCADE
+) PARTITION BY RANGE (lastUpdated);
+-- Monthly partitions, maintained like the ones of FriendshipStatus
+SELECT create_monthly_partitions('AssistanceStatus', CAST(CURRENT_DATE AS DATE), 3);
+-- No foreign keys to UserProfile: rows of deleted users are removed in the background (see UserPurge)
+CREATE INDEX IDX_AssistanceStatus_invitedUserID ON AssistanceStatus (invitedUserID);
+
+-- Latest AssistanceStatus of each invitation. Maintained like FriendshipCurrentStatus (TRG_AssistanceStatus_current)
+CREATE TABLE AssistanceCurrentStatus (
+    invitingUserID      UUID,
+    invitedUserID       UUID,
+    lastUpdated         TIMESTAMP       NOT NULL,
+    statusID            CHAR            NOT NULL,
+
+    CONSTRAINT PK_AssistanceCurrentStatus PRIMARY KEY (invitingUserID, invitedUserID),
+    CONSTRAINT FK_AssistanceCurrentStatus_TO_AssistanceStatusCode FOREIGN KEY (statusID)
+        REFERENCES AssistanceStatusCode(statusID)
+        ON DELETE SET NULL
         ON UPDATE CASCADE
 );
+-- Invitations received by a user in a given state
+CREATE INDEX IDX_AssistanceCurrentStatus_invited ON AssistanceCurrentStatus (invitedUserID, statusID, lastUpdated);
+
+CREATE OR REPLACE FUNCTION assistance_current_status_upsert() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO AssistanceCurrentStatus (invitingUserID, invitedUserID, lastUpdated, statusID)
+    VALUES (NEW.invitingUserID, NEW.invitedUserID, NEW.lastUpdated, NEW.statusID)
+    ON CONFLICT (invitingUserID, invitedUserID) DO UPDATE
+        SET lastUpdated = EXCLUDED.lastUpdated, statusID = EXCLUDED.statusID
+        WHERE AssistanceCurrentStatus.lastUpdated <= EXCLUDED.lastUpdated;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER TRG_AssistanceStatus_current AFTER INSERT ON AssistanceStatus
+    FOR EACH ROW EXECUTE FUNCTION assistance_current_status_upsert();
 
 
 /* *************** MESSAGES *************** */
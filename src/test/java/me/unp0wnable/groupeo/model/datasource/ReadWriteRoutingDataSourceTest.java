@@ -0,0 +1,189 @@
+package me.unp0wnable.groupeo.model.datasource;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comprueba el enrutado contra dos instancias de PostgreSQL independientes, que hacen de principal y de réplica.
+ * Cada una guarda su propio nombre para saber a cuál se ha enviado cada transacción. La selección de réplicas según su
+ * retraso se prueba sin bases de datos en {@link ReplicaSelectionTest}
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public class ReadWriteRoutingDataSourceTest {
+    private static final String POSTGRES_IMAGE = "postgres:14-alpine";
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+    private static final long MAX_REPLICA_LAG_MILLIS = 1000;
+    private static final long MAX_LAG_AGE_MILLIS = 60_000;
+    private static final Duration READ_YOUR_WRITES_WINDOW = Duration.ofSeconds(5);
+    private static final String USER_ID = "user";
+    
+    @Container
+    private static final PostgreSQLContainer<?> primaryContainer = new PostgreSQLContainer<>(POSTGRES_IMAGE);
+    @Container
+    private static final PostgreSQLContainer<?> replicaContainer = new PostgreSQLContainer<>(POSTGRES_IMAGE);
+    
+    private final AtomicLong tickerNanos = new AtomicLong();
+    private final ReadYourWritesTracker tracker = new ReadYourWritesTracker(READ_YOUR_WRITES_WINDOW, tickerNanos::get);
+    private ReadWriteRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate writeTransaction;
+    
+    
+    @BeforeAll
+    public static void createNodeTables() {
+        createNodeTable(primaryContainer, PRIMARY);
+        createNodeTable(replicaContainer, REPLICA);
+    }
+    
+    @AfterEach
+    public void clearTracker() {
+        tracker.clear();
+    }
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testReadOnlyTransactionsGoToReplica() {
+        // Crear datos de prueba
+        setUpRouting(List.of(toDataSource(replicaContainer)));
+        routingDataSource.refreshReplicaLag();
+        
+        // Comprobar resultados
+        assertEquals(0, routingDataSource.getReplicaLagMillis(0));
+        assertEquals(REPLICA, readOnlyTransaction.execute(status -> currentNode()));
+        assertEquals(PRIMARY, writeTransaction.execute(status -> currentNode()));
+    }
+    
+    @Test
+    public void testReadsGoToPrimaryWithoutReplicas() {
+        // Crear datos de prueba
+        setUpRouting(List.of());
+        
+        // Comprobar resultados
+        assertEquals(PRIMARY, readOnlyTransaction.execute(status -> currentNode()));
+    }
+    
+    @Test
+    public void testReadsStickToPrimaryAfterWrite() {
+        // Crear datos de prueba
+        setUpRouting(List.of(toDataSource(replicaContainer)));
+        routingDataSource.refreshReplicaLag();
+        tracker.bind(USER_ID);
+        
+        // Ejecutar funcionalidades
+        writeTransaction.execute(status -> currentNode());
+        String readAfterWrite = readOnlyTransaction.execute(status -> currentNode());
+        
+        // Comprobar resultados: la escritura se asocia al usuario, no solo al hilo
+        assertEquals(PRIMARY, readAfterWrite);
+        tracker.clear();
+        tracker.bind(USER_ID);
+        assertEquals(PRIMARY, readOnlyTransaction.execute(status -> currentNode()));
+        
+        // Comprobar resultados: pasado el tiempo configurado se vuelve a la réplica
+        tickerNanos.addAndGet(READ_YOUR_WRITES_WINDOW.toNanos() + TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(REPLICA, readOnlyTransaction.execute(status -> currentNode()));
+    }
+    
+    @Test
+    public void testRolledBackWritesAreNotSticky() {
+        // Crear datos de prueba
+        setUpRouting(List.of(toDataSource(replicaContainer)));
+        routingDataSource.refreshReplicaLag();
+        tracker.bind(USER_ID);
+        
+        // Ejecutar funcionalidades
+        writeTransaction.executeWithoutResult(status -> {
+            currentNode();
+            status.setRollbackOnly();
+        });
+        
+        // Comprobar resultados
+        assertEquals(REPLICA, readOnlyTransaction.execute(status -> currentNode()));
+    }
+    
+    @Test
+    public void testLaggingReplicaIsSkipped() {
+        // Crear datos de prueba
+        setUpRouting(List.of(toDataSource(replicaContainer)));
+        routingDataSource.recordReplicaLag(0, MAX_REPLICA_LAG_MILLIS + 1);
+        
+        // Comprobar resultados
+        assertEquals(PRIMARY, readOnlyTransaction.execute(status -> currentNode()));
+        
+        // Comprobar resultados: al ponerse al día se vuelve a usar
+        routingDataSource.recordReplicaLag(0, MAX_REPLICA_LAG_MILLIS);
+        assertEquals(REPLICA, readOnlyTransaction.execute(status -> currentNode()));
+    }
+    
+    @Test
+    public void testUnreachableReplicaIsSkipped() {
+        // Crear datos de prueba: nada escucha en el puerto 1
+        DataSource unreachable = new DriverManagerDataSource("jdbc:postgresql://localhost:1/groupeo", "groupeo", "groupeo");
+        setUpRouting(List.of(unreachable, toDataSource(replicaContainer)));
+        
+        // Ejecutar funcionalidades
+        routingDataSource.refreshReplicaLag();
+        
+        // Comprobar resultados: todas las lecturas van a la réplica que responde
+        assertEquals(Long.MAX_VALUE, routingDataSource.getReplicaLagMillis(0));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(REPLICA, readOnlyTransaction.execute(status -> currentNode()));
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private void setUpRouting(List<DataSource> replicas) {
+        routingDataSource = new ReadWriteRoutingDataSource(toDataSource(primaryContainer), replicas,
+                                                           MAX_REPLICA_LAG_MILLIS, MAX_LAG_AGE_MILLIS, tracker,
+                                                           Ticker.systemTicker());
+        // Igual que en DataSourceConfig: sin abrir una conexión para consultar los valores por defecto
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(routingDataSource);
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        dataSource.afterPropertiesSet();
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+    
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM Node", String.class);
+    }
+    
+    private static void createNodeTable(PostgreSQLContainer<?> container, String name) {
+        JdbcTemplate template = new JdbcTemplate(toDataSource(container));
+        template.execute("CREATE TABLE Node (name VARCHAR(10) NOT NULL)");
+        template.update("INSERT INTO Node (name) VALUES (?)", name);
+    }
+    
+    private static DataSource toDataSource(PostgreSQLContainer<?> container) {
+        return new DriverManagerDataSource(container.getJdbcUrl(), container.getUsername(), container.getPassword());
+    }
+    
+}
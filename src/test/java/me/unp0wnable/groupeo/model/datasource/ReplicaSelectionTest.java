@@ -0,0 +1,132 @@
+package me.unp0wnable.groupeo.model.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Pruebas de la elección de réplica sin bases de datos: el retraso de cada réplica lo devuelve una medida simulada y
+ * el tiempo lo marca un reloj manual
+ */
+public class ReplicaSelectionTest {
+    private static final long MAX_REPLICA_LAG_MILLIS = 1000;
+    private static final long MAX_LAG_AGE_MILLIS = 3000;
+    private static final String PRIMARY = ReadWriteRoutingDataSource.PRIMARY_KEY;
+    private static final String FIRST_REPLICA = ReadWriteRoutingDataSource.REPLICA_KEY_PREFIX + 0;
+    private static final String SECOND_REPLICA = ReadWriteRoutingDataSource.REPLICA_KEY_PREFIX + 1;
+    
+    private final DataSource firstReplica = mock(DataSource.class);
+    private final DataSource secondReplica = mock(DataSource.class);
+    private final Map<DataSource, Long> replicaLags = new HashMap<>();
+    private final AtomicLong tickerNanos = new AtomicLong();
+    private final ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofSeconds(5), tickerNanos::get);
+    private final ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(
+            mock(DataSource.class), List.of(firstReplica, secondReplica), MAX_REPLICA_LAG_MILLIS, MAX_LAG_AGE_MILLIS,
+            tracker, tickerNanos::get, replicaLags::get
+    );
+    
+    @AfterEach
+    public void clearTracker() {
+        tracker.clear();
+    }
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testReadsAlternateBetweenReplicas() {
+        // Crear datos de prueba
+        replicaLags.put(firstReplica, 0L);
+        replicaLags.put(secondReplica, MAX_REPLICA_LAG_MILLIS);
+        
+        // Ejecutar funcionalidades
+        routingDataSource.refreshReplicaLag();
+        
+        // Comprobar resultados
+        assertEquals(List.of(FIRST_REPLICA, SECOND_REPLICA, FIRST_REPLICA),
+                     List.of(routeReadOnly(), routeReadOnly(), routeReadOnly()));
+    }
+    
+    @Test
+    public void testLaggingReplicaIsSkipped() {
+        // Crear datos de prueba
+        replicaLags.put(firstReplica, MAX_REPLICA_LAG_MILLIS + 1);
+        replicaLags.put(secondReplica, 0L);
+        
+        // Ejecutar funcionalidades
+        routingDataSource.refreshReplicaLag();
+        
+        // Comprobar resultados
+        assertEquals(List.of(SECOND_REPLICA, SECOND_REPLICA), List.of(routeReadOnly(), routeReadOnly()));
+    }
+    
+    @Test
+    public void testDisconnectedReplicasAreSkipped() {
+        // Crear datos de prueba: la medida no conoce el retraso (sin conexión o sin recibir WAL de la principal)
+        replicaLags.put(firstReplica, -1L);
+        replicaLags.put(secondReplica, -1L);
+        
+        // Ejecutar funcionalidades
+        routingDataSource.refreshReplicaLag();
+        
+        // Comprobar resultados
+        assertEquals(Long.MAX_VALUE, routingDataSource.getReplicaLagMillis(0));
+        assertEquals(PRIMARY, routeReadOnly());
+    }
+    
+    @Test
+    public void testStaleMeasurementIsSkipped() {
+        // Crear datos de prueba
+        replicaLags.put(firstReplica, 0L);
+        replicaLags.put(secondReplica, MAX_REPLICA_LAG_MILLIS + 1);
+        routingDataSource.refreshReplicaLag();
+        
+        // Ejecutar funcionalidades: las medidas dejan de renovarse
+        tickerNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(MAX_LAG_AGE_MILLIS + 1));
+        
+        // Comprobar resultados
+        assertEquals(Long.MAX_VALUE, routingDataSource.getReplicaLagMillis(0));
+        assertEquals(PRIMARY, routeReadOnly());
+        
+        // Comprobar resultados: con una medida nueva se vuelve a usar
+        routingDataSource.refreshReplicaLag();
+        assertEquals(FIRST_REPLICA, routeReadOnly());
+    }
+    
+    @Test
+    public void testWritesGoToPrimary() {
+        // Crear datos de prueba
+        replicaLags.put(firstReplica, 0L);
+        replicaLags.put(secondReplica, 0L);
+        routingDataSource.refreshReplicaLag();
+        
+        // Ejecutar funcionalidades
+        Object writeKey = routingDataSource.determineCurrentLookupKey();
+        
+        // Comprobar resultados: las lecturas del mismo hilo también van a la principal tras escribir
+        assertEquals(PRIMARY, writeKey);
+        assertEquals(PRIMARY, routeReadOnly());
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Elige la base de datos de una transacción de solo lectura */
+    private Object routeReadOnly() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            return routingDataSource.determineCurrentLookupKey();
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+    
+}
@@ -0,0 +1,124 @@
+package me.unp0wnable.groupeo.model.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import me.unp0wnable.groupeo.model.entities.UserProfile;
+import me.unp0wnable.groupeo.rest.dtos.conversors.UserConversor;
+import me.unp0wnable.groupeo.rest.dtos.users.UserDto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.function.Function;
+
+import static me.unp0wnable.groupeo.utils.TestGenerator.generateValidUser;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara la lectura de un perfil para generar su {@link UserDto} cargando la entidad completa frente a la proyección.
+ * Cada lectura empieza con la sesión vacía, como una petición nueva. Se ejecuta con <c>mvn test -Pbenchmark</c>
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class UserProfileReadBenchmarkTest {
+    private static final int USERS_COUNT = 1_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void benchmarkEntityVersusProjection() {
+        // Crear datos de prueba
+        List<UUID> userIDs = new ArrayList<>(USERS_COUNT);
+        for (int i = 0; i < USERS_COUNT; i++) {
+            UserProfile user = generateValidUser("benchmark" + i);
+            userProfileRepository.save(user);
+            userIDs.add(user.getUserProfileID());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        
+        // Ejecutar funcionalidades: calentar ambos caminos antes de medir
+        Function<UUID, UserDto> entityRead = userID ->
+                UserConversor.toUserDto(userProfileRepository.findById(userID).orElseThrow());
+        Function<UUID, UserDto> projectionRead = userID ->
+                UserConversor.toUserDto(userProfileRepository.findViewByID(userID).orElseThrow());
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            measure(userIDs, entityRead);
+            measure(userIDs, projectionRead);
+        }
+        Result entityResult = measure(userIDs, entityRead);
+        Result projectionResult = measure(userIDs, projectionRead);
+        for (int i = 1; i < MEASURED_ROUNDS; i++) {
+            entityResult = entityResult.best(measure(userIDs, entityRead));
+            projectionResult = projectionResult.best(measure(userIDs, projectionRead));
+        }
+        
+        // Comprobar resultados
+        log.info("Entity: {}, projection: {}", entityResult, projectionResult);
+        assertTrue(projectionResult.bytesPerRead < entityResult.bytesPerRead);
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private Result measure(List<UUID> userIDs, Function<UUID, UserDto> read) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadID = Thread.currentThread().getId();
+        long[] latencies = new long[userIDs.size()];
+        
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadID);
+        for (int i = 0; i < userIDs.size(); i++) {
+            long start = System.nanoTime();
+            assertNotNull(read.apply(userIDs.get(i)));
+            latencies[i] = System.nanoTime() - start;
+            
+            // Cada lectura empieza con la sesión vacía
+            entityManager.clear();
+        }
+        long allocatedBytes = threadBean.getThreadAllocatedBytes(threadID) - allocatedBefore;
+        
+        Arrays.sort(latencies);
+        return new Result(allocatedBytes / userIDs.size(),
+                          latencies[latencies.length / 2] / 1000,
+                          latencies[(int) (latencies.length * 0.99)] / 1000);
+    }
+    
+    private static class Result {
+        private final long bytesPerRead;
+        private final long p50Micros;
+        private final long p99Micros;
+        
+        Result(long bytesPerRead, long p50Micros, long p99Micros) {
+            this.bytesPerRead = bytesPerRead;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+        }
+        
+        /** Se queda con la mejor medida de cada valor, la menos afectada por GC y JIT */
+        Result best(Result other) {
+            return new Result(Math.min(bytesPerRead, other.bytesPerRead),
+                              Math.min(p50Micros, other.p50Micros),
+                              Math.min(p99Micros, other.p99Micros));
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%d bytes/read, p50 %d us, p99 %d us", bytesPerRead, p50Micros, p99Micros);
+        }
+    }
+    
+}
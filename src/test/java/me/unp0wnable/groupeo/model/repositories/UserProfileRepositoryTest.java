@@ -0,0 +1,282 @@
+package me.unp0wnable.groupeo.model.repositories;
+
+import me.unp0wnable.groupeo.model.entities.UserProfile;
+import me.unp0wnable.groupeo.model.repositories.projections.UserProfileView;
+import me.unp0wnable.groupeo.model.repositories.projections.UserSearchResult;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.UUID;
+
+import static me.unp0wnable.groupeo.utils.TestGenerator.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class UserProfileRepositoryTest {
+    private static final String NICKNAME_INDEX = "unique_userprofile_nickname";
+    private static final String SEARCH_SURNAME = "Qzwxsearch";
+    private static final String COMMON_SURNAME = "Qzwxcommon";
+    private static final int SEARCH_STATISTICS_USERS = 2_000;
+    private static final List<String> NICKNAME_LOOKUPS = List.of(
+        "existsByNickNameIgnoreCase", "findByNickNameIgnoreCase", "findCredentialsByNickNameIgnoreCase"
+    );
+    
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testFindByNickNameIgnoreCase() {
+        // Crear datos de prueba
+        UserProfile user = userProfileRepository.save(generateValidUser(DEFAULT_NICKNAME));
+        
+        // Ejecutar funcionalidades
+        Optional<UserProfile> foundUser = userProfileRepository.findByNickNameIgnoreCase(DEFAULT_NICKNAME.toUpperCase());
+        boolean exists = userProfileRepository.existsByNickNameIgnoreCase(DEFAULT_NICKNAME.toUpperCase());
+        
+        // Comprobar resultados
+        assertTrue(foundUser.isPresent());
+        assertEquals(user.getUserProfileID(), foundUser.get().getUserProfileID());
+        assertTrue(exists);
+        assertFalse(userProfileRepository.existsByNickNameIgnoreCase(NON_EXISTENT_NICKNAME));
+    }
+    
+    @Test
+    public void testNickNameIsUniqueIgnoringCase() {
+        // Crear datos de prueba
+        userProfileRepository.save(generateValidUser(DEFAULT_NICKNAME));
+        UserProfile sameNickNameUser = generateValidUser(DEFAULT_NICKNAME.toUpperCase());
+        sameNickNameUser.setEmail("other" + sameNickNameUser.getEmail());
+        
+        // Ejecutar funcionalidades
+        userProfileRepository.save(sameNickNameUser);
+        assertThrows(PersistenceException.class,
+            () -> entityManager.flush()
+        );
+    }
+    
+    @Test
+    public void testNickNameLookupsUseIndex() throws NoSuchMethodException {
+        for (String methodName : NICKNAME_LOOKUPS) {
+            // Ejecutar funcionalidades: plan del SQL que genera Hibernate para la consulta del repositorio
+            String planText = explainRepositoryQuery(methodName, DEFAULT_NICKNAME);
+            
+            // Comprobar resultados
+            assertTrue(planText.contains(NICKNAME_INDEX), methodName + ":\n" + planText);
+            assertFalse(planText.contains("seq scan"), methodName + ":\n" + planText);
+        }
+    }
+    
+    @Test
+    public void testUpdateProfileFieldsOnlyWritesReceivedFields() {
+        // Crear datos de prueba
+        UserProfile user = userProfileRepository.save(generateValidUser(DEFAULT_NICKNAME));
+        UUID userID = user.getUserProfileID();
+        entityManager.flush();
+        UserProfile changes = new UserProfile();
+        changes.setFirstName("Changed");
+        changes.setDescription("Changed description");
+        
+        // Ejecutar funcionalidades
+        Optional<UserProfileView> returnedUser = userProfileRepository.updateProfileFields(userID, changes);
+        
+        // Comprobar resultados
+        assertTrue(returnedUser.isPresent());
+        assertEquals(userID, returnedUser.get().getUserProfileID());
+        assertEquals("Changed", returnedUser.get().getFirstName());
+        assertEquals("Changed description", returnedUser.get().getDescription());
+        assertEquals(user.getSurname1(), returnedUser.get().getSurname1());
+        assertEquals(user.getEmail(), returnedUser.get().getEmail());
+        assertEquals(user.getNickName(), returnedUser.get().getNickName());
+        assertEquals(user.getRole(), returnedUser.get().getRole());
+        assertEquals(user.getVersion() + 1, returnedUser.get().getVersion());
+        
+        UserProfile storedUser = userProfileRepository.findById(userID).orElseThrow();
+        assertEquals("Changed", storedUser.getFirstName());
+        assertEquals(user.getSurname1(), storedUser.getSurname1());
+    }
+    
+    @Test
+    public void testUpdateProfileFieldsOfNonExistentUser() {
+        // Crear datos de prueba
+        UserProfile changes = new UserProfile();
+        changes.setFirstName("Changed");
+        
+        // Ejecutar funcionalidades
+        Optional<UserProfileView> returnedUser = userProfileRepository.updateProfileFields(NON_EXISTENT_USER_ID, changes);
+        
+        // Comprobar resultados
+        assertTrue(returnedUser.isEmpty());
+    }
+    
+    @Test
+    public void testSearchByTextPagesByNickName() {
+        // Crear datos de prueba
+        saveSearchableUser("searchC");
+        saveSearchableUser("searchA");
+        saveSearchableUser("searchB");
+        userProfileRepository.save(generateValidUser("searchD"));
+        entityManager.flush();
+        List<String> terms = List.of(SEARCH_SURNAME.toLowerCase());
+        
+        // Ejecutar funcionalidades
+        List<UserSearchResult> firstPage = userProfileRepository.searchByText(terms, null, 2);
+        List<UserSearchResult> secondPage = userProfileRepository.searchByText(terms, "SEARCHB", 2);
+        
+        // Comprobar resultados
+        assertEquals(List.of("searchA", "searchB"), toNickNames(firstPage));
+        assertEquals(List.of("searchC"), toNickNames(secondPage));
+        assertEquals(SEARCH_SURNAME, firstPage.get(0).getSurname2());
+    }
+    
+    @Test
+    public void testSearchByTextMatchesAllTermsLiterally() {
+        // Crear datos de prueba
+        saveSearchableUser("searchA");
+        saveSearchableUser("searchB");
+        entityManager.flush();
+        String surnameTerm = SEARCH_SURNAME.toLowerCase();
+        
+        // Ejecutar funcionalidades
+        List<UserSearchResult> allTerms = userProfileRepository.searchByText(List.of("arch", surnameTerm), null, 10);
+        List<UserSearchResult> nickNameAndSurname = userProfileRepository.searchByText(List.of("searcha", surnameTerm), null, 10);
+        List<UserSearchResult> wildcard = userProfileRepository.searchByText(List.of("search_", surnameTerm), null, 10);
+        
+        // Comprobar resultados: los comodines de LIKE recibidos se buscan como texto
+        assertEquals(List.of("searchA", "searchB"), toNickNames(allTerms));
+        assertEquals(List.of("searchA"), toNickNames(nickNameAndSurname));
+        assertTrue(wildcard.isEmpty());
+    }
+    
+    @Test
+    public void testSearchByTextRejectsShortTerms() {
+        // Crear datos de prueba
+        List<String> terms = List.of(SEARCH_SURNAME.toLowerCase(), "ab");
+        
+        // Ejecutar funcionalidades y comprobar resultados: un término sin trigramas obligaría a recorrer la tabla
+        assertThrows(IllegalArgumentException.class, () -> userProfileRepository.searchByText(terms, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> userProfileRepository.searchByText(List.of(), null, 10));
+    }
+    
+    @Test
+    public void testSearchBySelectiveTermUsesTrigramIndex() {
+        // Crear datos de prueba: solo uno de los usuarios tiene el apellido buscado
+        seedSearchStatistics();
+        
+        // Ejecutar funcionalidades
+        String planText = explainSearch(SEARCH_SURNAME.toLowerCase());
+        
+        // Comprobar resultados: se buscan las coincidencias en el índice de trigramas y se ordenan después
+        assertTrue(planText.contains("idx_userprofile_searchtext"), planText);
+        assertFalse(planText.contains(NICKNAME_INDEX), planText);
+        assertFalse(planText.contains("seq scan"), planText);
+    }
+    
+    @Test
+    public void testSearchByCommonTermReadsNickNameIndexInOrder() {
+        // Crear datos de prueba: todos los usuarios tienen el apellido buscado
+        seedSearchStatistics();
+        
+        // Ejecutar funcionalidades
+        String planText = explainSearch(COMMON_SURNAME.toLowerCase());
+        
+        // Comprobar resultados: se recorre el índice de nickNames en orden hasta completar la página
+        assertTrue(planText.contains(NICKNAME_INDEX), planText);
+        assertFalse(planText.contains("idx_userprofile_searchtext"), planText);
+        assertFalse(planText.contains("sort"), planText);
+        assertFalse(planText.contains("seq scan"), planText);
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /**
+     * Obtiene el plan de ejecución del SQL que genera Hibernate para la consulta de un método del repositorio.
+     * Se desactiva el recorrido secuencial para que la tabla vacía de prueba no lo prefiera
+     */
+    private String explainRepositoryQuery(String methodName, String parameter) throws NoSuchMethodException {
+        String jpql = UserProfileRepository.class.getMethod(methodName, String.class).getAnnotation(Query.class).value();
+        Session session = entityManager.unwrap(Session.class);
+        String sql = session.getSessionFactory()
+                            .unwrap(SessionFactoryImplementor.class)
+                            .getQueryPlanCache()
+                            .getHQLQueryPlan(jpql, false, Collections.emptyMap())
+                            .getSqlStrings()[0];
+        
+        return session.doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL enable_seqscan = off");
+            }
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+                explain.setString(1, parameter);
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rows = explain.executeQuery()) {
+                    while (rows.next()) plan.append(rows.getString(1)).append('\n');
+                }
+                return plan.toString().toLowerCase();
+            }
+        });
+    }
+    
+    /**
+     * Guarda usuarios con un apellido común y uno de ellos con {@link #SEARCH_SURNAME}, y actualiza las estadísticas
+     * de la tabla para que el planificador conozca la selectividad de cada término
+     */
+    private void seedSearchStatistics() {
+        entityManager.createNativeQuery(
+                "INSERT INTO UserProfile (firstName, surname1, surname2, email, birthDate, nickName, password, role) " +
+                "SELECT 'Name' || g, ?1, CASE WHEN g = 1 THEN ?2 END, 'search' || g || '@groupeo.es', " +
+                "       DATE '1990-01-01', 'searchstats' || g, 'password', 0 " +
+                "FROM generate_series(1, ?3) g")
+            .setParameter(1, COMMON_SURNAME)
+            .setParameter(2, SEARCH_SURNAME)
+            .setParameter(3, SEARCH_STATISTICS_USERS)
+            .executeUpdate();
+        entityManager.createNativeQuery("ANALYZE UserProfile").executeUpdate();
+    }
+    
+    /**
+     * Obtiene el plan de ejecución de la primera página de {@code searchByText} para un término.
+     * Se desactiva el recorrido secuencial para que solo se elija entre los dos índices
+     */
+    private String explainSearch(String term) {
+        entityManager.createNativeQuery("SELECT set_config('enable_seqscan', 'off', true)").getSingleResult();
+        
+        @SuppressWarnings("unchecked")
+        List<String> plan = entityManager.createNativeQuery(
+                "EXPLAIN SELECT * FROM UserProfile WHERE searchText LIKE ?1 ORDER BY LOWER(nickName) LIMIT 20")
+            .setParameter(1, "%" + term + "%")
+            .getResultList();
+        return String.join("\n", plan).toLowerCase();
+    }
+    
+    private void saveSearchableUser(String nickName) {
+        UserProfile user = generateValidUser(nickName);
+        user.setSurname2(SEARCH_SURNAME);
+        userProfileRepository.save(user);
+    }
+    
+    private static List<String> toNickNames(List<UserSearchResult> results) {
+        return results.stream().map(UserSearchResult::getNickName).collect(Collectors.toList());
+    }
+    
+}
@@ -0,0 +1,218 @@
+package me.unp0wnable.groupeo.model.services;
+
+import me.unp0wnable.groupeo.model.repositories.FriendshipCurrentStatusRepository;
+import me.unp0wnable.groupeo.model.services.CurrentStatusRebuilder.CurrentStatusTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Los bloques se reconstruyen en transacciones propias desde otros hilos, por lo que los datos de prueba se confirman
+ * (sin <c>@Transactional</c>) y se borran al terminar cada prueba
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class CurrentStatusRebuilderTest {
+    private final UUID requesterID = UUID.randomUUID();
+    private final UUID otherRequesterID = UUID.randomUUID();
+    private final UUID orphanRequesterID = UUID.randomUUID();
+    private final List<UUID> requesterIDs = List.of(requesterID, otherRequesterID, orphanRequesterID);
+    /** Sin segundos fraccionarios, para comparar las fechas con las leídas de la base de datos */
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    
+    @Autowired
+    private CurrentStatusRebuilder currentStatusRebuilder;
+    
+    @Autowired
+    private FriendshipCurrentStatusRepository friendshipCurrentStatusRepository;
+    
+    @Autowired
+    private StatusHistoryMaintenance statusHistoryMaintenance;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate transaction;
+    
+    @BeforeEach
+    public void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> entityManager.createNativeQuery(
+                "INSERT INTO FriendshipStatusCode (statusID, name) VALUES " +
+                "    ('P', 'PENDING'), ('A', 'ACCEPTED'), ('R', 'REJECTED'), ('D', 'DELETED') " +
+                "ON CONFLICT DO NOTHING")
+            .executeUpdate()
+        );
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        transaction.executeWithoutResult(status -> {
+            entityManager.createNativeQuery("DELETE FROM FriendshipStatus WHERE requesterID IN (:ids)")
+                .setParameter("ids", requesterIDs)
+                .executeUpdate();
+            entityManager.createNativeQuery("DELETE FROM FriendshipCurrentStatus WHERE requesterID IN (:ids)")
+                .setParameter("ids", requesterIDs)
+                .executeUpdate();
+        });
+    }
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testRebuildFriendshipCurrentStatuses() {
+        // Crear datos de prueba: historial de tres amistades, mantenido por los disparadores
+        UUID acceptedTargetID = UUID.randomUUID();
+        UUID pendingTargetID = UUID.randomUUID();
+        UUID rejectedTargetID = UUID.randomUUID();
+        transaction.executeWithoutResult(status -> {
+            insertStatus(requesterID, acceptedTargetID, now.plusMinutes(1), requesterID, 'P');
+            insertStatus(requesterID, acceptedTargetID, now.plusMinutes(2), acceptedTargetID, 'A');
+            insertStatus(requesterID, pendingTargetID, now.plusMinutes(3), requesterID, 'P');
+            insertStatus(otherRequesterID, rejectedTargetID, now.plusMinutes(1), otherRequesterID, 'P');
+            insertStatus(otherRequesterID, rejectedTargetID, now.plusMinutes(2), rejectedTargetID, 'R');
+        });
+        // Partir de una tabla correcta, para que solo se cuenten los cambios hechos por la prueba
+        currentStatusRebuilder.rebuild(CurrentStatusTable.FRIENDSHIP);
+        
+        // Estado anterior al último, estado distinto con la misma fecha, estado borrado y estados sin historial
+        UUID orphanTargetID = UUID.randomUUID();
+        UUID archivedTargetID = UUID.randomUUID();
+        Date archivedBefore = statusHistoryMaintenance.getArchivedBefore();
+        transaction.executeWithoutResult(status -> {
+            entityManager.createNativeQuery(
+                    "UPDATE FriendshipCurrentStatus " +
+                    "SET statusID = 'P', lastUpdated = lastUpdated - INTERVAL '1 minute' " +
+                    "WHERE requesterID = :requesterID AND targetID = :targetID")
+                .setParameter("requesterID", requesterID)
+                .setParameter("targetID", acceptedTargetID)
+                .executeUpdate();
+            entityManager.createNativeQuery(
+                    "UPDATE FriendshipCurrentStatus SET statusID = 'D' " +
+                    "WHERE requesterID = :requesterID AND targetID = :targetID")
+                .setParameter("requesterID", requesterID)
+                .setParameter("targetID", pendingTargetID)
+                .executeUpdate();
+            entityManager.createNativeQuery(
+                    "DELETE FROM FriendshipCurrentStatus WHERE requesterID = :requesterID AND targetID = :targetID")
+                .setParameter("requesterID", otherRequesterID)
+                .setParameter("targetID", rejectedTargetID)
+                .executeUpdate();
+            insertCurrentStatus(orphanRequesterID, orphanTargetID, now);
+            insertCurrentStatus(orphanRequesterID, archivedTargetID,
+                                new Timestamp(archivedBefore.getTime()).toLocalDateTime().minusDays(1));
+        });
+        Date beforeRebuild = findDatabaseTime();
+        
+        // Ejecutar funcionalidades
+        long changedRows = currentStatusRebuilder.rebuild(CurrentStatusTable.FRIENDSHIP);
+        
+        // Comprobar resultados: tres estados corregidos y un estado sin historial borrado
+        assertEquals(4, changedRows);
+        assertEquals(findLatestStatuses(), findCurrentStatuses(archivedBefore));
+        // El estado anterior a las particiones archivadas se conserva: su historial ya no está en la base de datos
+        assertEquals(List.of(archivedTargetID), findCurrentTargets(orphanRequesterID));
+        // Los estados corregidos se leen como cambios, para que los apliquen los índices de amistades de cada nodo
+        assertEquals(Set.of(acceptedTargetID, pendingTargetID, rejectedTargetID),
+                     findTargetsChangedAfter(beforeRebuild));
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private void insertStatus(UUID requester, UUID target, LocalDateTime lastUpdated, UUID specifier, char statusID) {
+        entityManager.createNativeQuery(
+                "INSERT INTO FriendshipStatus (requesterID, targetID, lastUpdated, specifierID, statusID) " +
+                "VALUES (:requesterID, :targetID, :lastUpdated, :specifierID, :statusID)")
+            .setParameter("requesterID", requester)
+            .setParameter("targetID", target)
+            .setParameter("lastUpdated", Timestamp.valueOf(lastUpdated))
+            .setParameter("specifierID", specifier)
+            .setParameter("statusID", String.valueOf(statusID))
+            .executeUpdate();
+    }
+    
+    private void insertCurrentStatus(UUID requester, UUID target, LocalDateTime lastUpdated) {
+        entityManager.createNativeQuery(
+                "INSERT INTO FriendshipCurrentStatus (requesterID, targetID, lastUpdated, specifierID, statusID) " +
+                "VALUES (:requesterID, :targetID, :lastUpdated, :requesterID, 'P')")
+            .setParameter("requesterID", requester)
+            .setParameter("targetID", target)
+            .setParameter("lastUpdated", Timestamp.valueOf(lastUpdated))
+            .executeUpdate();
+    }
+    
+    /** Último estado del historial de cada amistad de los usuarios de prueba */
+    private List<List<Object>> findLatestStatuses() {
+        return findRows(
+                "SELECT DISTINCT ON (requesterID, targetID) requesterID, targetID, lastUpdated, specifierID, " +
+                "       CAST(statusID AS TEXT) " +
+                "FROM FriendshipStatus WHERE requesterID IN (:ids) " +
+                "ORDER BY requesterID, targetID, lastUpdated DESC",
+                null);
+    }
+    
+    /** Estados actuales de los usuarios de prueba posteriores a las particiones archivadas */
+    private List<List<Object>> findCurrentStatuses(Date liveSince) {
+        return findRows(
+                "SELECT requesterID, targetID, lastUpdated, specifierID, CAST(statusID AS TEXT) " +
+                "FROM FriendshipCurrentStatus WHERE requesterID IN (:ids) AND lastUpdated >= :liveSince " +
+                "ORDER BY requesterID, targetID",
+                liveSince);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private List<List<Object>> findRows(String query, Date liveSince) {
+        return transaction.execute(status -> {
+            Query nativeQuery = entityManager.createNativeQuery(query).setParameter("ids", requesterIDs);
+            if (liveSince != null) nativeQuery.setParameter("liveSince", liveSince);
+            List<Object[]> rows = nativeQuery.getResultList();
+            return rows.stream().map(Arrays::asList).collect(Collectors.toList());
+        });
+    }
+    
+    /** Fecha actual según la base de datos, que es la que guarda la fecha de cambio de los estados actuales */
+    private Date findDatabaseTime() {
+        return transaction.execute(status -> (Date) entityManager.createNativeQuery("SELECT LOCALTIMESTAMP")
+                .getSingleResult()
+        );
+    }
+    
+    /** Amistades de los usuarios de prueba que la lectura de cambios del índice de amistades obtiene */
+    private Set<UUID> findTargetsChangedAfter(Date date) {
+        return transaction.execute(status -> {
+            try (Stream<Object[]> statuses = friendshipCurrentStatusRepository.streamStatusesChangedAfter(date)) {
+                return statuses.filter(row -> requesterIDs.contains((UUID) row[0]))
+                               .map(row -> (UUID) row[1])
+                               .collect(Collectors.toSet());
+            }
+        });
+    }
+    
+    @SuppressWarnings("unchecked")
+    private List<UUID> findCurrentTargets(UUID requester) {
+        return transaction.execute(status -> entityManager.createNativeQuery(
+                    "SELECT targetID FROM FriendshipCurrentStatus WHERE requesterID = :requesterID")
+                .setParameter("requesterID", requester)
+                .getResultList()
+        );
+    }
+    
+}
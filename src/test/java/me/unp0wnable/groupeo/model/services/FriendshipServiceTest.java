@@ -0,0 +1,190 @@
+package me.unp0wnable.groupeo.model.services;
+
+import me.unp0wnable.groupeo.model.entities.FriendshipStatus;
+import me.unp0wnable.groupeo.model.entities.FriendshipStatus.FriendshipStates;
+import me.unp0wnable.groupeo.model.entities.UserProfile;
+import me.unp0wnable.groupeo.model.exceptions.InstanceAlreadyExistsException;
+import me.unp0wnable.groupeo.model.exceptions.InstanceNotFoundException;
+import me.unp0wnable.groupeo.model.exceptions.SelfFriendshipException;
+import me.unp0wnable.groupeo.model.repositories.FriendshipStatusRepository;
+import me.unp0wnable.groupeo.model.repositories.UserProfileRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+import static me.unp0wnable.groupeo.utils.TestGenerator.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class FriendshipServiceTest {
+    
+    @Autowired
+    private FriendshipService friendshipService;
+    
+    @Autowired
+    private FriendshipStatusRepository friendshipStatusRepository;
+    
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private UUID saveUser(String nickName) {
+        UserProfile user = generateValidUser(nickName);
+        return userProfileRepository.save(user).getUserProfileID();
+    }
+    
+    private FriendshipStates findCurrentState(UUID requesterID, UUID targetID) {
+        return friendshipStatusRepository.findFirstByRequesterIDAndTargetIDOrderByLastUpdatedDesc(requesterID, targetID)
+                                         .map(FriendshipStatus::getStatus)
+                                         .orElse(null);
+    }
+    
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testRequestAndAcceptFriendship()
+            throws InstanceNotFoundException, InstanceAlreadyExistsException, SelfFriendshipException {
+        // Crear datos de prueba
+        UUID requesterID = saveUser("requester");
+        UUID targetID = saveUser("target");
+        
+        // Ejecutar funcionalidades
+        FriendshipStates requested = friendshipService.requestFriendship(requesterID, targetID);
+        friendshipService.acceptFriendship(targetID, requesterID);
+        
+        // Comprobar resultados: la relación conserva el sentido de la primera solicitud
+        assertEquals(FriendshipStates.PENDING, requested);
+        assertEquals(FriendshipStates.ACCEPTED, findCurrentState(requesterID, targetID));
+        assertThrows(InstanceAlreadyExistsException.class,
+                     () -> friendshipService.requestFriendship(targetID, requesterID));
+    }
+    
+    @Test
+    public void testCrossedRequestsAcceptFriendship()
+            throws InstanceNotFoundException, InstanceAlreadyExistsException, SelfFriendshipException {
+        // Crear datos de prueba
+        UUID requesterID = saveUser("requester");
+        UUID targetID = saveUser("target");
+        friendshipService.requestFriendship(requesterID, targetID);
+        
+        // Ejecutar funcionalidades
+        FriendshipStates crossed = friendshipService.requestFriendship(targetID, requesterID);
+        
+        // Comprobar resultados
+        assertEquals(FriendshipStates.ACCEPTED, crossed);
+        assertEquals(FriendshipStates.ACCEPTED, findCurrentState(requesterID, targetID));
+    }
+    
+    @Test
+    public void testRequestTwice()
+            throws InstanceNotFoundException, InstanceAlreadyExistsException, SelfFriendshipException {
+        // Crear datos de prueba
+        UUID requesterID = saveUser("requester");
+        UUID targetID = saveUser("target");
+        friendshipService.requestFriendship(requesterID, targetID);
+        
+        // Ejecutar funcionalidades
+        assertThrows(InstanceAlreadyExistsException.class,
+                     () -> friendshipService.requestFriendship(requesterID, targetID));
+    }
+    
+    @Test
+    public void testInvalidRequests() {
+        // Crear datos de prueba
+        UUID userID = saveUser("requester");
+        
+        // Ejecutar funcionalidades
+        assertThrows(SelfFriendshipException.class, () -> friendshipService.requestFriendship(userID, userID));
+        assertThrows(InstanceNotFoundException.class,
+                     () -> friendshipService.requestFriendship(userID, NON_EXISTENT_USER_ID));
+        assertThrows(InstanceNotFoundException.class,
+                     () -> friendshipService.requestFriendship(NON_EXISTENT_USER_ID, userID));
+    }
+    
+    @Test
+    public void testOnlyTargetCanAcceptRequest()
+            throws InstanceNotFoundException, InstanceAlreadyExistsException, SelfFriendshipException {
+        // Crear datos de prueba
+        UUID requesterID = saveUser("requester");
+        UUID targetID = saveUser("target");
+        friendshipService.requestFriendship(requesterID, targetID);
+        
+        // Ejecutar funcionalidades
+        assertThrows(InstanceNotFoundException.class,
+                     () -> friendshipService.acceptFriendship(requesterID, targetID));
+        assertThrows(InstanceNotFoundException.class,
+                     () -> friendshipService.rejectFriendship(requesterID, targetID));
+        
+        // Comprobar resultados
+        assertEquals(FriendshipStates.PENDING, findCurrentState(requesterID, targetID));
+    }
+    
+    @Test
+    public void testRejectAndRequestAgain()
+            throws InstanceNotFoundException, InstanceAlreadyExistsException, SelfFriendshipException {
+        // Crear datos de prueba
+        UUID requesterID = saveUser("requester");
+        UUID targetID = saveUser("target");
+        friendshipService.requestFriendship(requesterID, targetID);
+        
+        // Ejecutar funcionalidades
+        friendshipService.rejectFriendship(targetID, requesterID);
+        FriendshipStates rejected = findCurrentState(requesterID, targetID);
+        FriendshipStates requestedAgain = friendshipService.requestFriendship(requesterID, targetID);
+        
+        // Comprobar resultados
+        assertEquals(FriendshipStates.REJECTED, rejected);
+        assertEquals(FriendshipStates.PENDING, requestedAgain);
+    }
+    
+    @Test
+    public void testRemoveFriendship()
+            throws InstanceNotFoundException, InstanceAlreadyExistsException, SelfFriendshipException {
+        // Crear datos de prueba
+        UUID requesterID = saveUser("requester");
+        UUID targetID = saveUser("target");
+        friendshipService.requestFriendship(requesterID, targetID);
+        
+        // Ejecutar funcionalidades: solo se pueden eliminar amistades aceptadas
+        assertThrows(InstanceNotFoundException.class,
+                     () -> friendshipService.removeFriendship(requesterID, targetID));
+        friendshipService.acceptFriendship(targetID, requesterID);
+        friendshipService.removeFriendship(requesterID, targetID);
+        
+        // Comprobar resultados
+        assertEquals(FriendshipStates.DELETED, findCurrentState(requesterID, targetID));
+    }
+    
+    @Test
+    public void testPendingRequestsReceived()
+            throws InstanceNotFoundException, InstanceAlreadyExistsException, SelfFriendshipException {
+        // Crear datos de prueba
+        UUID userID = saveUser("user");
+        UUID firstRequesterID = saveUser("first");
+        UUID secondRequesterID = saveUser("second");
+        UUID rejectedID = saveUser("rejected");
+        friendshipService.requestFriendship(firstRequesterID, userID);
+        friendshipService.requestFriendship(secondRequesterID, userID);
+        friendshipService.requestFriendship(rejectedID, userID);
+        friendshipService.rejectFriendship(userID, rejectedID);
+        
+        // Ejecutar funcionalidades: el estado actual lo mantiene la base de datos al añadir cada estado
+        friendshipService.acceptFriendship(userID, firstRequesterID);
+        FriendshipRequestsPage received = friendshipService.getPendingRequests(userID, 0, 10);
+        FriendshipRequestsPage sent = friendshipService.getPendingRequests(secondRequesterID, 0, 10);
+        
+        // Comprobar resultados
+        assertEquals(1, received.getTotalRequests());
+        assertEquals(1, received.getRequests().size());
+        assertEquals(secondRequesterID, received.getRequests().get(0).getRequesterID());
+        assertEquals(0, sent.getTotalRequests());
+    }
+    
+}
@@ -0,0 +1,87 @@
+package me.unp0wnable.groupeo.model.services;
+
+import me.unp0wnable.groupeo.model.entities.UserProfile;
+import me.unp0wnable.groupeo.model.exceptions.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import static me.unp0wnable.groupeo.utils.TestGenerator.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class RefreshTokenServiceTest {
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testRotateRefreshToken()
+            throws InstanceAlreadyExistsException, ServiceOverloadedException, InvalidRefreshTokenException {
+        // Crear datos de prueba
+        UserProfile user = generateValidUser(DEFAULT_NICKNAME);
+        userService.signUp(user);
+        String refreshToken = refreshTokenService.issueRefreshToken(user.getUserProfileID());
+        
+        // Ejecutar funcionalidades
+        RotatedRefreshToken rotatedToken = refreshTokenService.rotateRefreshToken(refreshToken);
+        
+        // Comprobar resultados
+        assertNotEquals(refreshToken, rotatedToken.getRefreshToken());
+        assertEquals(user.getUserProfileID(), rotatedToken.getUserID());
+        assertEquals(user.getNickName(), rotatedToken.getNickName());
+        assertEquals(user.getRole(), rotatedToken.getRole());
+    }
+    
+    @Test
+    public void testReuseRefreshTokenRevokesFamily()
+            throws InstanceAlreadyExistsException, ServiceOverloadedException, InvalidRefreshTokenException {
+        // Crear datos de prueba
+        UserProfile user = generateValidUser(DEFAULT_NICKNAME);
+        userService.signUp(user);
+        String refreshToken = refreshTokenService.issueRefreshToken(user.getUserProfileID());
+        RotatedRefreshToken rotatedToken = refreshTokenService.rotateRefreshToken(refreshToken);
+        
+        // Comprobar resultados
+        assertThrows(InvalidRefreshTokenException.class,
+            () -> refreshTokenService.rotateRefreshToken(refreshToken)
+        );
+        assertThrows(InvalidRefreshTokenException.class,
+            () -> refreshTokenService.rotateRefreshToken(rotatedToken.getRefreshToken())
+        );
+    }
+    
+    @Test
+    public void testRotateNonExistentRefreshToken() {
+        assertThrows(InvalidRefreshTokenException.class,
+            () -> refreshTokenService.rotateRefreshToken("NON_EXISTENT_REFRESH_TOKEN")
+        );
+    }
+    
+    @Test
+    public void testChangePasswordRevokesRefreshTokens()
+            throws InstanceAlreadyExistsException, ServiceOverloadedException, InstanceNotFoundException,
+                   IncorrectPasswordExcepion {
+        // Crear datos de prueba
+        UserProfile user = generateValidUser(DEFAULT_NICKNAME);
+        String oldPassword = user.getPassword();
+        userService.signUp(user);
+        String refreshToken = refreshTokenService.issueRefreshToken(user.getUserProfileID());
+        
+        // Ejecutar funcionalidades
+        userService.changePassword(user.getUserProfileID(), oldPassword, oldPassword + 'X');
+        
+        // Comprobar resultados
+        assertThrows(InvalidRefreshTokenException.class,
+            () -> refreshTokenService.rotateRefreshToken(refreshToken)
+        );
+    }
+}
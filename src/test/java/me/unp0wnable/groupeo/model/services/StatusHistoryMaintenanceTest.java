@@ -0,0 +1,229 @@
+package me.unp0wnable.groupeo.model.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Las particiones se compactan y archivan en transacciones propias, por lo que los datos de prueba se confirman
+ * (sin <c>@Transactional</c>) y se borran al terminar cada prueba
+ */
+@SpringBootTest(properties = {
+        "project.history.compactAfterMonths=2",
+        "project.history.archiveAfterMonths=4",
+        "project.history.compactionChunkSize=1"
+})
+@ActiveProfiles("test")
+public class StatusHistoryMaintenanceTest {
+    private static final String TABLE_NAME = "friendshipstatus";
+    private static final int PAST_MONTHS = 5;
+    private static final String ARCHIVE_HEADER = "requesterid,targetid,lastupdated,specifierid,statusid";
+    
+    private final UUID requesterID = UUID.randomUUID();
+    private final YearMonth currentMonth = YearMonth.now();
+    /** Mes archivado: anterior a <c>archiveAfterMonths</c> */
+    private final YearMonth archivedMonth = currentMonth.minusMonths(5);
+    /** Meses compactados: anteriores a <c>compactAfterMonths</c> */
+    private final YearMonth oldestCompactedMonth = currentMonth.minusMonths(4);
+    private final YearMonth newestCompactedMonth = currentMonth.minusMonths(3);
+    /** Primer mes del periodo de retención */
+    private final YearMonth retainedMonth = currentMonth.minusMonths(2);
+    
+    @Autowired
+    private StatusHistoryMaintenance statusHistoryMaintenance;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${project.history.archiveDirectory}")
+    private Path archiveDirectory;
+    
+    private TransactionTemplate transaction;
+    
+    @BeforeEach
+    public void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> entityManager.createNativeQuery(
+                "INSERT INTO FriendshipStatusCode (statusID, name) VALUES " +
+                "    ('P', 'PENDING'), ('A', 'ACCEPTED'), ('R', 'REJECTED'), ('D', 'DELETED') " +
+                "ON CONFLICT DO NOTHING")
+            .executeUpdate()
+        );
+    }
+    
+    @AfterEach
+    public void tearDown() throws IOException {
+        transaction.executeWithoutResult(status -> {
+            entityManager.createNativeQuery("DELETE FROM FriendshipStatus WHERE requesterID = :requesterID")
+                .setParameter("requesterID", requesterID)
+                .executeUpdate();
+            entityManager.createNativeQuery("DELETE FROM FriendshipCurrentStatus WHERE requesterID = :requesterID")
+                .setParameter("requesterID", requesterID)
+                .executeUpdate();
+        });
+        Files.deleteIfExists(archiveFile(archivedMonth));
+    }
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testCreateMonthlyPartitionsIsIdempotent() {
+        // Ejecutar funcionalidades
+        createMonthlyPartitions(archivedMonth, PAST_MONTHS);
+        List<String> partitions = findPartitionNames();
+        int createdAgain = createMonthlyPartitions(archivedMonth, PAST_MONTHS);
+        
+        // Comprobar resultados
+        for (YearMonth month = archivedMonth; !month.isAfter(currentMonth); month = month.plusMonths(1)) {
+            assertTrue(partitions.contains(partitionName(month)), partitions.toString());
+        }
+        assertEquals(0, createdAgain);
+        assertEquals(partitions, findPartitionNames());
+    }
+    
+    @Test
+    public void testCompactAndArchive() throws IOException {
+        // Crear datos de prueba: particiones de los meses anteriores y tres amistades con estados en ellas
+        createMonthlyPartitions(archivedMonth, PAST_MONTHS);
+        UUID compactedTargetID = UUID.randomUUID();
+        UUID singleStatusTargetID = UUID.randomUUID();
+        UUID archivedTargetID = UUID.randomUUID();
+        transaction.executeWithoutResult(status -> {
+            insertStatus(archivedTargetID, archivedMonth.atDay(10).atTime(12, 0), 'P');
+            insertStatus(archivedTargetID, oldestCompactedMonth.atDay(1).atTime(12, 0), 'A');
+            insertStatus(singleStatusTargetID, oldestCompactedMonth.atDay(2).atTime(12, 0), 'P');
+            insertStatus(compactedTargetID, oldestCompactedMonth.atDay(3).atTime(12, 0), 'P');
+            insertStatus(compactedTargetID, oldestCompactedMonth.atDay(10).atTime(12, 0), 'A');
+            insertStatus(compactedTargetID, newestCompactedMonth.atDay(5).atTime(12, 0), 'D');
+            insertStatus(compactedTargetID, newestCompactedMonth.atDay(6).atTime(12, 0), 'P');
+            insertStatus(compactedTargetID, retainedMonth.atDay(2).atTime(12, 0), 'A');
+            insertStatus(compactedTargetID, retainedMonth.atDay(3).atTime(12, 0), 'R');
+        });
+        
+        // Ejecutar funcionalidades
+        statusHistoryMaintenance.compactAndArchive();
+        
+        // Comprobar resultados: de cada amistad queda el último estado anterior al periodo de retención y todos los
+        // estados del periodo de retención, aunque se hayan sustituido por otros
+        List<List<Object>> expectedStatuses = List.of(
+                List.of(archivedTargetID, toTimestamp(oldestCompactedMonth.atDay(1).atTime(12, 0))),
+                List.of(singleStatusTargetID, toTimestamp(oldestCompactedMonth.atDay(2).atTime(12, 0))),
+                List.of(compactedTargetID, toTimestamp(newestCompactedMonth.atDay(6).atTime(12, 0))),
+                List.of(compactedTargetID, toTimestamp(retainedMonth.atDay(2).atTime(12, 0))),
+                List.of(compactedTargetID, toTimestamp(retainedMonth.atDay(3).atTime(12, 0)))
+        );
+        assertEquals(expectedStatuses, findStatuses());
+        
+        // La partición archivada ya no está en la base de datos, sino en un fichero CSV comprimido legible
+        assertFalse(findPartitionNames().contains(partitionName(archivedMonth)));
+        assertTrue(findPartitionNames().contains(partitionName(oldestCompactedMonth)));
+        List<String> archivedLines = readArchive(archiveFile(archivedMonth));
+        assertEquals(ARCHIVE_HEADER, archivedLines.get(0));
+        assertTrue(archivedLines.stream().anyMatch(line -> line.startsWith(requesterID + "," + archivedTargetID + ",")),
+                   archivedLines.toString());
+    }
+    
+    @Test
+    public void testArchiveDirectoryIsRequired() {
+        // Crear datos de prueba: el directorio de archivo no está configurado
+        StatusHistoryMaintenance maintenance = new StatusHistoryMaintenance();
+        ReflectionTestUtils.setField(maintenance, "compactAfterMonths", 2);
+        ReflectionTestUtils.setField(maintenance, "archiveAfterMonths", 4);
+        ReflectionTestUtils.setField(maintenance, "archiveDirectoryPath", " ");
+        
+        // Ejecutar funcionalidades y comprobar resultados
+        assertThrows(IllegalStateException.class, maintenance::init);
+    }    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private int createMonthlyPartitions(YearMonth fromMonth, int monthsAhead) {
+        Number created = transaction.execute(status -> (Number) entityManager.createNativeQuery(
+                    "SELECT create_monthly_partitions(:table, CAST(:fromDate AS DATE), :months)")
+                .setParameter("table", TABLE_NAME)
+                .setParameter("fromDate", fromMonth.atDay(1).toString())
+                .setParameter("months", monthsAhead)
+                .getSingleResult()
+        );
+        return Objects.requireNonNull(created).intValue();
+    }
+    
+    /** Particiones del historial de amistades en el catálogo, ordenadas por nombre */
+    @SuppressWarnings("unchecked")
+    private List<String> findPartitionNames() {
+        return transaction.execute(status -> entityManager.createNativeQuery(
+                    "SELECT CAST(c.relname AS TEXT) FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                    "WHERE i.inhparent = CAST(CAST(:parent AS TEXT) AS regclass) ORDER BY 1")
+                .setParameter("parent", TABLE_NAME)
+                .getResultList()
+        );
+    }
+    
+    private void insertStatus(UUID targetID, LocalDateTime lastUpdated, char statusID) {
+        entityManager.createNativeQuery(
+                "INSERT INTO FriendshipStatus (requesterID, targetID, lastUpdated, specifierID, statusID) " +
+                "VALUES (:requesterID, :targetID, :lastUpdated, :requesterID, :statusID)")
+            .setParameter("requesterID", requesterID)
+            .setParameter("targetID", targetID)
+            .setParameter("lastUpdated", toTimestamp(lastUpdated))
+            .setParameter("statusID", String.valueOf(statusID))
+            .executeUpdate();
+    }
+    
+    /** Estados del usuario de prueba que siguen en la base de datos, del más antiguo al más reciente */
+    @SuppressWarnings("unchecked")
+    private List<List<Object>> findStatuses() {
+        List<Object[]> rows = transaction.execute(status -> entityManager.createNativeQuery(
+                    "SELECT targetID, lastUpdated FROM FriendshipStatus WHERE requesterID = :requesterID " +
+                    "ORDER BY lastUpdated")
+                .setParameter("requesterID", requesterID)
+                .getResultList()
+        );
+        return Objects.requireNonNull(rows).stream().map(Arrays::asList).collect(Collectors.toList());
+    }
+    
+    private Path archiveFile(YearMonth month) {
+        return archiveDirectory.resolve(partitionName(month) + ".csv.gz");
+    }
+    
+    private static List<String> readArchive(Path file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+    
+    private static String partitionName(YearMonth month) {
+        return TABLE_NAME + "_" + month.format(DateTimeFormatter.ofPattern("yyyyMM"));
+    }
+    
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
+        return Timestamp.valueOf(dateTime);
+    }
+    
+}
@@ -0,0 +1,89 @@
+package me.unp0wnable.groupeo.model.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.unp0wnable.groupeo.model.exceptions.IncorrectLoginException;
+import me.unp0wnable.groupeo.model.repositories.UserProfileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static me.unp0wnable.groupeo.utils.TestGenerator.DEFAULT_PASSWORD;
+import static me.unp0wnable.groupeo.utils.TestGenerator.NON_EXISTENT_NICKNAME;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Pruebas del filtro sin base de datos: los usuarios registrados los devuelve un repositorio simulado */
+public class UserExistenceFilterTest {
+    private static final int USERS = 10000;
+    
+    private final UserProfileRepository userProfileRepository = mock(UserProfileRepository.class);
+    private final List<String> nickNames = IntStream.range(0, USERS)
+            .mapToObj(i -> "User" + i)
+            .collect(Collectors.toList());
+    private UserExistenceFilter userExistenceFilter;
+    
+    @BeforeEach
+    public void setUp() {
+        when(userProfileRepository.streamNickNamesAndEmails()).thenAnswer(invocation -> nickNames.stream()
+                .map(nickName -> new Object[] {nickName, nickName + "@groupeo.es"}));
+        
+        userExistenceFilter = new UserExistenceFilter();
+        ReflectionTestUtils.setField(userExistenceFilter, "userProfileRepository", userProfileRepository);
+        ReflectionTestUtils.setField(userExistenceFilter, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(userExistenceFilter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(userExistenceFilter, "expectedInsertions", (long) USERS);
+        ReflectionTestUtils.setField(userExistenceFilter, "falsePositiveProbability", 0.01);
+        ReflectionTestUtils.setField(userExistenceFilter, "rebuildIntervalMinutes", 60L);
+        ReflectionTestUtils.setField(userExistenceFilter, "maxStaleEntries", 100L);
+        ReflectionTestUtils.setField(userExistenceFilter, "catchUpOverlapSeconds", 60L);
+        userExistenceFilter.init();
+        userExistenceFilter.refresh();
+    }
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testNoFalseNegatives() {
+        // Ejecutar funcionalidades y comprobar resultados: se encuentran todos, sin distinguir mayúsculas
+        for (String nickName : nickNames) {
+            assertTrue(userExistenceFilter.mightContainNickName(nickName), nickName);
+            assertTrue(userExistenceFilter.mightContainNickName(nickName.toUpperCase(Locale.ROOT)), nickName);
+            assertTrue(userExistenceFilter.mightContainEmail(nickName.toUpperCase(Locale.ROOT) + "@GROUPEO.ES"),
+                       nickName);
+        }
+    }
+    
+    @Test
+    public void testRegisteredUserIsFound() {
+        // Ejecutar funcionalidades
+        userExistenceFilter.registerUser(NON_EXISTENT_NICKNAME, "changed@groupeo.es");
+        
+        // Comprobar resultados
+        assertTrue(userExistenceFilter.mightContainNickName(NON_EXISTENT_NICKNAME));
+        assertTrue(userExistenceFilter.mightContainEmail("changed@groupeo.es"));
+    }
+    
+    @Test
+    public void testLoginWithUnknownNickNameSkipsRepository() {
+        // Crear datos de prueba: el nickName no está en el filtro
+        assertFalse(userExistenceFilter.mightContainNickName(NON_EXISTENT_NICKNAME));
+        UserServiceImpl userService = new UserServiceImpl();
+        ReflectionTestUtils.setField(userService, "userProfileRepository", userProfileRepository);
+        ReflectionTestUtils.setField(userService, "userExistenceFilter", userExistenceFilter);
+        clearInvocations(userProfileRepository);
+        
+        // Ejecutar funcionalidades
+        assertThrows(IncorrectLoginException.class,
+            () -> userService.login(NON_EXISTENT_NICKNAME, DEFAULT_PASSWORD)
+        );
+        
+        // Comprobar resultados
+        verifyNoInteractions(userProfileRepository);
+    }
+    
+}
@@ -0,0 +1,170 @@
+package me.unp0wnable.groupeo.model.services;
+
+import me.unp0wnable.groupeo.model.entities.UserProfile;
+import me.unp0wnable.groupeo.model.exceptions.InstanceNotFoundException;
+import me.unp0wnable.groupeo.model.repositories.UserProfileRepository;
+import me.unp0wnable.groupeo.model.repositories.projections.UserProfileView;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static me.unp0wnable.groupeo.utils.TestGenerator.DEFAULT_NICKNAME;
+import static me.unp0wnable.groupeo.utils.TestGenerator.generateValidUser;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas de la caché con transacciones confirmadas: los perfiles solo se guardan en memoria, por lo que no se crean
+ * datos en la base de datos que haya que eliminar después
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class UserProfileCacheTest {
+    private static final long INVALIDATION_TIMEOUT_MILLIS = 10000;
+    
+    @Autowired
+    private UserProfileCache userProfileCache;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testUpdateIsCachedAfterCommit() {
+        // Crear datos de prueba
+        UserProfileView user = generateCachedUser();
+        UserProfileView updatedUser = withChanges(user, "Updated description", 1L);
+        
+        // Ejecutar funcionalidades
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> userProfileCache.update(updatedUser));
+        Optional<UserProfileView> cachedUser = userProfileCache.get(user.getUserProfileID(), failingLoader());
+        
+        // Comprobar resultados
+        assertTrue(cachedUser.isPresent());
+        assertEquals("Updated description", cachedUser.get().getDescription());
+    }
+    
+    @Test
+    public void testRolledBackUpdateIsNotCached() {
+        // Crear datos de prueba
+        UserProfileView user = generateCachedUser();
+        UserProfileView updatedUser = withChanges(user, "Rolled back description", 1L);
+        AtomicInteger loads = new AtomicInteger();
+        
+        // Ejecutar funcionalidades
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userProfileCache.update(updatedUser);
+            status.setRollbackOnly();
+        });
+        Optional<UserProfileView> cachedUser = userProfileCache.get(user.getUserProfileID(),
+                                                                    countingLoader(user, loads));
+        
+        // Comprobar resultados: se vuelve a cargar la versión confirmada
+        assertEquals(1, loads.get());
+        assertEquals(user.getDescription(), cachedUser.orElseThrow().getDescription());
+    }
+    
+    @Test
+    public void testOlderProfileDoesNotReplaceNewerOne() {
+        // Crear datos de prueba
+        UserProfileView user = generateCachedUser();
+        UserProfileView newerUser = withChanges(user, "Newer description", 2L);
+        UserProfileView olderUser = withChanges(user, "Older description", 1L);
+        
+        // Ejecutar funcionalidades: se guarda un perfil leído antes de la última modificación
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> userProfileCache.update(newerUser));
+        userProfileCache.refresh(olderUser);
+        Optional<UserProfileView> cachedUser = userProfileCache.get(user.getUserProfileID(), failingLoader());
+        
+        // Comprobar resultados
+        assertEquals(2L, cachedUser.orElseThrow().getVersion());
+        assertEquals("Newer description", cachedUser.get().getDescription());
+    }
+    
+    @Test
+    public void testStaleProfileIsReloaded() throws InstanceNotFoundException {
+        // Crear datos de prueba: la base de datos tiene una versión posterior a la de la caché
+        UserProfileView user = generateCachedUser();
+        UserProfileView updatedUser = withChanges(user, "Updated description", 1L);
+        UserProfileRepository userProfileRepository = mock(UserProfileRepository.class);
+        when(userProfileRepository.findViewByID(user.getUserProfileID())).thenReturn(Optional.of(updatedUser));
+        UserServiceImpl userService = new UserServiceImpl();
+        ReflectionTestUtils.setField(userService, "userProfileRepository", userProfileRepository);
+        ReflectionTestUtils.setField(userService, "userProfileCache", userProfileCache);
+        
+        // Ejecutar funcionalidades
+        UserProfileView obtainedUser = userService.getUserProfile(user.getUserProfileID(), 1L);
+        
+        // Comprobar resultados: se envía la versión consultada y la caché queda actualizada
+        assertEquals(1L, obtainedUser.getVersion());
+        assertEquals(updatedUser, userProfileCache.get(user.getUserProfileID(), failingLoader()).orElseThrow());
+    }
+    
+    @Test
+    public void testNotificationFromOtherNodeInvalidatesProfile() throws InterruptedException {
+        // Crear datos de prueba
+        UserProfileView user = generateCachedUser();
+        AtomicInteger loads = new AtomicInteger();
+        
+        // Ejecutar funcionalidades: otro nodo modifica el perfil
+        jdbcTemplate.queryForObject("SELECT CAST(pg_notify(?, ?) AS TEXT)", String.class,
+                                    userProfileCache.getInvalidationChannel(),
+                                    "other-node:" + user.getUserProfileID());
+        
+        // Comprobar resultados: el listener elimina el perfil y se vuelve a cargar
+        long deadline = System.currentTimeMillis() + INVALIDATION_TIMEOUT_MILLIS;
+        while (loads.get() == 0 && System.currentTimeMillis() < deadline) {
+            userProfileCache.get(user.getUserProfileID(), countingLoader(user, loads));
+            Thread.sleep(100);
+        }
+        assertEquals(1, loads.get());
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Guarda en la caché un perfil nuevo, como si se acabase de cargar de la base de datos */
+    private UserProfileView generateCachedUser() {
+        UserProfile user = generateValidUser(DEFAULT_NICKNAME);
+        user.setUserProfileID(UUID.randomUUID());
+        user.setVersion(0L);
+        UserProfileView view = UserProfileView.fromEntity(user);
+        userProfileCache.get(view.getUserProfileID(), userID -> Optional.of(view));
+        
+        return view;
+    }
+    
+    private static UserProfileView withChanges(UserProfileView user, String description, long version) {
+        return new UserProfileView(user.getUserProfileID(), user.getFirstName(), user.getSurname1(),
+                                   user.getSurname2(), user.getEmail(), user.getBirthDate(), user.getJoinDate(),
+                                   description, user.getNickName(), user.getAvatarHash(), user.getScore(),
+                                   user.getRole(), version);
+    }
+    
+    /** Cargador que falla si se llega a usar, para comprobar que el perfil se obtiene de la caché */
+    private static Function<UUID, Optional<UserProfileView>> failingLoader() {
+        return userID -> fail("Profile should have been cached");
+    }
+    
+    private static Function<UUID, Optional<UserProfileView>> countingLoader(UserProfileView user, AtomicInteger loads) {
+        return userID -> {
+            loads.incrementAndGet();
+            return Optional.of(user);
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package me.unp0wnable.groupeo.model.services;
+
+import me.unp0wnable.groupeo.model.entities.UserProfile;
+import me.unp0wnable.groupeo.model.exceptions.InstanceAlreadyExistsException;
+import me.unp0wnable.groupeo.model.exceptions.InstanceNotFoundException;
+import me.unp0wnable.groupeo.model.exceptions.ServiceOverloadedException;
+import me.unp0wnable.groupeo.model.repositories.UserPurgeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.UUID;
+
+import static me.unp0wnable.groupeo.utils.TestGenerator.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "project.users.purge.chunkSize=2")
+@ActiveProfiles("test")
+@Transactional
+public class UserPurgeServiceTest {
+    private static final int FRIENDS_COUNT = 5;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private UserPurgeService userPurgeService;
+    
+    @Autowired
+    private UserPurgeRepository userPurgeRepository;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testDeleteUserSchedulesPurge()
+            throws InstanceAlreadyExistsException, InstanceNotFoundException, ServiceOverloadedException {
+        // Crear datos de prueba
+        UserProfile user = generateValidUser(DEFAULT_NICKNAME);
+        userService.signUp(user);
+        UUID userID = user.getUserProfileID();
+        
+        // Ejecutar funcionalidades
+        userService.deleteUser(userID);
+        
+        // Comprobar resultados
+        assertTrue(userPurgeRepository.findById(userID).isPresent());
+        assertNull(userPurgeRepository.findById(userID).get().getCompletedAt());
+    }
+    
+    @Test
+    public void testPurgeUserHistoryInChunks()
+            throws InstanceAlreadyExistsException, InstanceNotFoundException, ServiceOverloadedException {
+        // Crear datos de prueba: más amistades que el tamaño de bloque configurado
+        UserProfile user = generateValidUser(DEFAULT_NICKNAME);
+        userService.signUp(user);
+        UUID userID = user.getUserProfileID();
+        entityManager.createNativeQuery("INSERT INTO FriendshipStatusCode (statusID, name) VALUES ('P', 'PENDING') " +
+                                        "ON CONFLICT DO NOTHING")
+            .executeUpdate();
+        for (int i = 0; i < FRIENDS_COUNT; i++) {
+            insertFriendship(userID, UUID.randomUUID());
+        }
+        UUID otherUserID = UUID.randomUUID();
+        insertFriendship(otherUserID, UUID.randomUUID());
+        userService.deleteUser(userID);
+        
+        // Ejecutar funcionalidades
+        long deletedRows = userPurgeService.purgeUserHistory(userID);
+        
+        // Comprobar resultados
+        // Relación, estado y estado actual (mantenido por la base de datos) de cada amistad
+        assertEquals(3 * FRIENDS_COUNT, deletedRows);
+        assertEquals(0, countFriendshipRows(userID));
+        assertEquals(3, countFriendshipRows(otherUserID));
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private void insertFriendship(UUID requesterID, UUID targetID) {
+        entityManager.createNativeQuery("INSERT INTO Friendship (requesterID, targetID) VALUES (?1, ?2)")
+            .setParameter(1, requesterID)
+            .setParameter(2, targetID)
+            .executeUpdate();
+        entityManager.createNativeQuery("INSERT INTO FriendshipStatus (requesterID, targetID, specifierID, statusID) " +
+                                        "VALUES (?1, ?2, ?1, 'P')")
+            .setParameter(1, requesterID)
+            .setParameter(2, targetID)
+            .executeUpdate();
+    }
+    
+    private long countFriendshipRows(UUID userID) {
+        Number count = (Number) entityManager.createNativeQuery(
+                "SELECT (SELECT COUNT(*) FROM Friendship WHERE requesterID = ?1 OR targetID = ?1) " +
+                "     + (SELECT COUNT(*) FROM FriendshipStatus WHERE requesterID = ?1 OR targetID = ?1)" +
+                "     + (SELECT COUNT(*) FROM FriendshipCurrentStatus WHERE requesterID = ?1 OR targetID = ?1)")
+            .setParameter(1, userID)
+            .getSingleResult();
+        
+        return count.longValue();
+    }
+    
+}
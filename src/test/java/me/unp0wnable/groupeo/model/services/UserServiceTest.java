@@ -3,12 +3,22 @@ package me.unp0wnable.groupeo.model.services;
 import me.unp0wnable.groupeo.model.entities.UserAddress;
 import me.unp0wnable.groupeo.model.entities.UserProfile;
 import me.unp0wnable.groupeo.model.exceptions.*;
+import me.unp0wnable.groupeo.model.repositories.UserProfileRepository;
+import me.unp0wnable.groupeo.model.repositories.projections.UserProfileView;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.UUID;
 
 import static me.unp0wnable.groupeo.utils.TestGenerator.*;
@@ -22,25 +32,37 @@ public class UserServiceTest {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private ImageVariantService imageVariantService;
+    
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+    
+    @Autowired
+    private BCryptPasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+    
     /* ****************************** TEST CASES ****************************** */
     @Test
     public void testSignUpAndLoginUsingID()
-            throws InstanceAlreadyExistsException, InstanceNotFoundException {
+            throws InstanceAlreadyExistsException, InstanceNotFoundException, ServiceOverloadedException {
         // Crear datos de prueba
         UserProfile createdUser = generateValidUser(DEFAULT_NICKNAME);
         
         
         // Ejecutar funcionalidades
         userService.signUp(createdUser);
-        UserProfile loggedInUser = userService.loginFromServiceToken(createdUser.getUserProfileID());
+        UserProfileView loggedInUser = userService.loginFromServiceToken(createdUser.getUserProfileID());
         
         
         // Comprobar resultados
-        assertEquals(createdUser, loggedInUser);
+        assertEquals(UserProfileView.fromEntity(createdUser), loggedInUser);
     }
     
     @Test
-    public void testSignUpTwice() throws InstanceAlreadyExistsException {
+    public void testSignUpTwice() throws InstanceAlreadyExistsException, ServiceOverloadedException {
         // Crear datos de prueba
         UserProfile user1 = generateValidUser(DEFAULT_NICKNAME);
         UserProfile user2 = generateValidUser(DEFAULT_NICKNAME);
@@ -53,21 +75,53 @@ public class UserServiceTest {
     }
     
     @Test
-    public void testLogin() throws InstanceAlreadyExistsException, IncorrectLoginException {
+    public void testSignUpDuplicatedUnknownToFilter() {
+        // Crear datos de prueba: usuario guardado sin pasar por el filtro, como si se hubiese registrado en otro nodo
+        String nickName = "Unknown" + UUID.randomUUID().toString().substring(0, 8);
+        userProfileRepository.save(generateValidUser(nickName));
+        UserProfile duplicatedUser = generateValidUser(nickName.toUpperCase());
+        
+        // Ejecutar funcionalidades y comprobar resultados
+        assertThrows(InstanceAlreadyExistsException.class,
+            () -> userService.signUp(duplicatedUser)
+        );
+    }
+    
+    @Test
+    public void testLogin() throws InstanceAlreadyExistsException, IncorrectLoginException, ServiceOverloadedException {
         // Crear datos de prueba
         UserProfile user = generateValidUser(DEFAULT_NICKNAME);
         String clearPassword = user.getPassword();
         
         // Ejecutar funcionalidades
         userService.signUp(user);
-        UserProfile loggedInUser = userService.login(DEFAULT_NICKNAME, clearPassword);
+        UserProfileView loggedInUser = userService.login(DEFAULT_NICKNAME, clearPassword);
         
         // Comprobar resultados
         assertEquals(user.getNickName(), loggedInUser.getNickName());
     }
     
     @Test
-    public void testLoginWithIncorrectPassword() throws InstanceAlreadyExistsException {
+    public void testLoginRehashesOutdatedPassword() throws IncorrectLoginException, ServiceOverloadedException {
+        // Crear datos de prueba: contraseña cifrada con un coste inferior al calibrado
+        UserProfile user = generateValidUser(DEFAULT_NICKNAME);
+        String outdatedPassword = new BCryptPasswordEncoder(4).encode(DEFAULT_PASSWORD);
+        user.setPassword(outdatedPassword);
+        userProfileRepository.save(user);
+        userExistenceFilter.registerUser(user.getNickName(), user.getEmail());
+        
+        // Ejecutar funcionalidades
+        userService.login(DEFAULT_NICKNAME, DEFAULT_PASSWORD);
+        
+        // Comprobar resultados
+        UserProfile storedUser = userProfileRepository.findById(user.getUserProfileID()).orElseThrow();
+        assertNotEquals(outdatedPassword, storedUser.getPassword());
+        assertFalse(passwordEncoder.upgradeEncoding(storedUser.getPassword()));
+        assertTrue(passwordEncoder.matches(DEFAULT_PASSWORD, storedUser.getPassword()));
+    }
+    
+    @Test
+    public void testLoginWithIncorrectPassword() throws InstanceAlreadyExistsException, ServiceOverloadedException {
         // Crear datos de prueba
         UserProfile user = generateValidUser(DEFAULT_NICKNAME);
         String clearPassword = user.getPassword();
@@ -103,7 +157,7 @@ public class UserServiceTest {
     
     @Test
     public void testChangePassword()
-            throws InstanceAlreadyExistsException, IncorrectPasswordExcepion, InstanceNotFoundException {
+            throws InstanceAlreadyExistsException, IncorrectPasswordExcepion, InstanceNotFoundException, ServiceOverloadedException {
         // Generar datos
         UserProfile user = generateValidUser(DEFAULT_NICKNAME);
         String oldPassword = user.getPassword();
@@ -120,7 +174,7 @@ public class UserServiceTest {
     }
     
     @Test
-    public void testChangePasswordToNonExistingUser() throws InstanceAlreadyExistsException {
+    public void testChangePasswordToNonExistingUser() throws InstanceAlreadyExistsException, ServiceOverloadedException {
         // Generar datos
         UserProfile user = generateValidUser(DEFAULT_NICKNAME);
         String oldPassword = user.getPassword();
@@ -148,7 +202,7 @@ public class UserServiceTest {
     }
     
     @Test
-    public void testUpdateProfile() throws InstanceAlreadyExistsException, InstanceNotFoundException {
+    public void testUpdateProfile() throws InstanceAlreadyExistsException, InstanceNotFoundException, ServiceOverloadedException {
         // Generar datos
         UserProfile originalUser = generateValidUser(DEFAULT_NICKNAME);
         userService.signUp(originalUser);
@@ -163,8 +217,8 @@ public class UserServiceTest {
         userService.updateUserProfile(userID, originalUser);
         
         // Comprobar resultados
-        UserProfile updatedUser = userService.loginFromServiceToken(userID);
-        assertEquals(originalUser, updatedUser);
+        UserProfileView updatedUser = userService.loginFromServiceToken(userID);
+        assertEquals(UserProfileView.fromEntity(originalUser), updatedUser);
     }
     
     @Test
@@ -179,7 +233,7 @@ public class UserServiceTest {
     }
     
     @Test
-    public void testAssignAddressToUser() throws InstanceAlreadyExistsException, InstanceNotFoundException {
+    public void testAssignAddressToUser() throws InstanceAlreadyExistsException, InstanceNotFoundException, ServiceOverloadedException {
         // Generar datos
         UserProfile user = generateValidUser(DEFAULT_NICKNAME);
         userService.signUp(user);                           // Registrar usuario antes para obtener su ID
@@ -198,7 +252,7 @@ public class UserServiceTest {
     }
     
     @Test
-    public void testUpdateUserAddress() throws InstanceAlreadyExistsException, InstanceNotFoundException {
+    public void testUpdateUserAddress() throws InstanceAlreadyExistsException, InstanceNotFoundException, ServiceOverloadedException {
         // Generar datos
         UserProfile user = generateValidUser(DEFAULT_NICKNAME);
         userService.signUp(user);                           // Registrar usuario antes para obtener su ID
@@ -231,7 +285,7 @@ public class UserServiceTest {
     }
     
      @Test
-    public void testDeleteUser() throws InstanceAlreadyExistsException, InstanceNotFoundException {
+    public void testDeleteUser() throws InstanceAlreadyExistsException, InstanceNotFoundException, ServiceOverloadedException {
         // Generar datos
         UserProfile user = generateValidUser(DEFAULT_NICKNAME);
         
@@ -253,4 +307,73 @@ public class UserServiceTest {
             () -> userService.deleteUser(NON_EXISTENT_USER_ID)
         );
     }
+    
+    @Test
+    public void testUpdateAndGetAvatar() throws Exception {
+        // Crear datos de prueba
+        UserProfile user = userService.signUp(generateValidUser(DEFAULT_NICKNAME));
+        byte[] avatar = generateValidAvatar(64, 64);
+        
+        // Ejecutar funcionalidades
+        String avatarHash = userService.updateAvatar(user.getUserProfileID(), new ByteArrayInputStream(avatar));
+        StoredAvatar storedAvatar = userService.getUserAvatar(user.getUserProfileID(), null);
+        
+        // Comprobar resultados
+        assertEquals(avatarHash, storedAvatar.getHash());
+        assertEquals("image/png", storedAvatar.getContentType());
+        assertArrayEquals(avatar, Files.readAllBytes(storedAvatar.getFile()));
+    }
+    
+    @Test
+    public void testGetAvatarVariant() throws Exception {
+        // Crear datos de prueba
+        UserProfile user = userService.signUp(generateValidUser(DEFAULT_NICKNAME));
+        String avatarHash = userService.updateAvatar(user.getUserProfileID(),
+                                                     new ByteArrayInputStream(generateValidAvatar(600, 300)));
+        
+        // Ejecutar funcionalidades: antes de procesar la imagen solo está disponible la original
+        StoredAvatar originalAvatar = userService.getUserAvatar(user.getUserProfileID(), 48);
+        imageVariantService.generateVariants(avatarHash);
+        StoredAvatar smallAvatar = userService.getUserAvatar(user.getUserProfileID(), 40);
+        StoredAvatar largeAvatar = userService.getUserAvatar(user.getUserProfileID(), 200);
+        
+        // Comprobar resultados
+        assertNull(originalAvatar.getVariantSize());
+        assertEquals(48, smallAvatar.getVariantSize());
+        assertEquals(256, largeAvatar.getVariantSize());
+        BufferedImage smallImage = ImageIO.read(smallAvatar.getFile().toFile());
+        assertEquals(48, smallImage.getWidth());
+        assertEquals(24, smallImage.getHeight());
+    }
+    
+    @Test
+    public void testUpdateAvatarTooLarge() throws Exception {
+        // Crear datos de prueba: flujo de longitud desconocida que supera el tamaño máximo
+        UserProfile user = userService.signUp(generateValidUser(DEFAULT_NICKNAME));
+        byte[] validAvatar = generateValidAvatar(64, 64);
+        InputStream largeAvatar = new SequenceInputStream(
+                new ByteArrayInputStream(validAvatar),
+                new ByteArrayInputStream(new byte[(int) userService.getMaxAvatarSizeBytes()])
+        );
+        
+        // Comprobar resultados
+        assertThrows(AvatarTooLargeException.class,
+            () -> userService.updateAvatar(user.getUserProfileID(), largeAvatar)
+        );
+        assertThrows(InstanceNotFoundException.class,
+            () -> userService.getUserAvatar(user.getUserProfileID(), null)
+        );
+    }
+    
+    @Test
+    public void testUpdateAvatarWithUnsupportedFormat() throws Exception {
+        // Crear datos de prueba
+        UserProfile user = userService.signUp(generateValidUser(DEFAULT_NICKNAME));
+        InputStream notAnImage = new ByteArrayInputStream("This is not an image".getBytes(StandardCharsets.UTF_8));
+        
+        // Comprobar resultados
+        assertThrows(UnsupportedAvatarFormatException.class,
+            () -> userService.updateAvatar(user.getUserProfileID(), notAnImage)
+        );
+    }
 }
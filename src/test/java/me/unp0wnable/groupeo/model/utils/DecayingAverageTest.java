@@ -0,0 +1,85 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DecayingAverageTest {
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long SAMPLE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final double DELTA = 1e-9;
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testSamplesWeighByElapsedTime() {
+        // Crear datos de prueba
+        AtomicLong clock = new AtomicLong();
+        DecayingAverage average = new DecayingAverage(WINDOW_NANOS, clock::get);
+        
+        // Ejecutar funcionalidades: una ventana entera con esperas de 100 ms
+        clock.addAndGet(WINDOW_NANOS);
+        average.add(100, WINDOW_NANOS);
+        
+        // Comprobar resultados
+        assertEquals(100 * (1 - Math.exp(-1)), average.get(), DELTA);
+        
+        // Comprobar resultados: muchas muestras seguidas apenas mueven la media
+        double before = average.get();
+        for (int i = 0; i < 1000; i++) {
+            average.add(5000, WINDOW_NANOS);
+        }
+        assertEquals(before, average.get(), DELTA);
+    }
+    
+    @Test
+    public void testAverageConvergesToSteadySamples() {
+        // Crear datos de prueba
+        AtomicLong clock = new AtomicLong();
+        DecayingAverage average = new DecayingAverage(WINDOW_NANOS, clock::get);
+        
+        // Ejecutar funcionalidades: una muestra de 500 ms cada 100 ms durante 10 ventanas
+        for (int i = 0; i < 100; i++) {
+            clock.addAndGet(WINDOW_NANOS / 10);
+            average.add(500, SAMPLE_NANOS);
+        }
+        
+        // Comprobar resultados
+        assertEquals(500, average.get(), 0.1);
+    }
+    
+    @Test
+    public void testSingleSampleAfterIdlePeriodDoesNotDominate() {
+        // Crear datos de prueba
+        AtomicLong clock = new AtomicLong();
+        DecayingAverage average = new DecayingAverage(WINDOW_NANOS, clock::get);
+        
+        // Ejecutar funcionalidades: una espera de 5 s medida durante 50 ms tras 10 ventanas sin muestras
+        clock.addAndGet(10 * WINDOW_NANOS);
+        average.add(5000, TimeUnit.MILLISECONDS.toNanos(50));
+        
+        // Comprobar resultados: el resto del periodo cuenta como cero
+        assertEquals(5000 * (1 - Math.exp(-0.05)), average.get(), DELTA);
+    }
+    
+    @Test
+    public void testAverageDecaysWithoutSamples() {
+        // Crear datos de prueba
+        AtomicLong clock = new AtomicLong();
+        DecayingAverage average = new DecayingAverage(WINDOW_NANOS, clock::get);
+        for (int i = 0; i < 100; i++) {
+            clock.addAndGet(WINDOW_NANOS / 10);
+            average.add(500, SAMPLE_NANOS);
+        }
+        double saturated = average.get();
+        
+        // Ejecutar funcionalidades
+        clock.addAndGet(3 * WINDOW_NANOS);
+        
+        // Comprobar resultados
+        assertEquals(saturated * Math.exp(-3), average.get(), DELTA);
+    }
+    
+}
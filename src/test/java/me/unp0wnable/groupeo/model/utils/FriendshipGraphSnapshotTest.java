@@ -0,0 +1,164 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FriendshipGraphSnapshotTest {
+    private static final int USERS_COUNT = 2_000;
+    private static final int FRIENDSHIPS_COUNT = 20_000;
+    private static final long WATERMARK_MILLIS = 1_700_000_000_000L;
+    
+    @TempDir
+    Path directory;
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testSnapshotKeepsFriendships() throws IOException {
+        // Crear datos de prueba
+        List<UUID> userIDs = randomUserIDs();
+        FriendshipGraph graph = randomGraph(userIDs);
+        graph.removeUser(userIDs.get(0));
+        Path file = directory.resolve("friendships.csr");
+        
+        // Ejecutar funcionalidades
+        FriendshipGraphSnapshot.write(graph, WATERMARK_MILLIS, file, directory);
+        FriendshipGraphSnapshot snapshot = FriendshipGraphSnapshot.open(file);
+        FriendshipGraph loaded = new FriendshipGraph(snapshot);
+        
+        // Comprobar resultados: mismos identificadores y mismos amigos
+        assertDoesNotThrow(snapshot::verify);
+        assertEquals(WATERMARK_MILLIS, snapshot.getWatermarkMillis());
+        assertEquals(graph.friendshipCount(), loaded.friendshipCount());
+        assertEquals(graph.userCount(), loaded.userCount());
+        for (UUID userID : userIDs) {
+            assertEquals(graph.findID(userID), loaded.findID(userID));
+            assertArrayEquals(graph.getFriends(userID), loaded.getFriends(userID));
+        }
+        for (int i = 1; i < userIDs.size(); i++) {
+            assertEquals(graph.areFriends(userIDs.get(i - 1), userIDs.get(i)),
+                         loaded.areFriends(userIDs.get(i - 1), userIDs.get(i)));
+        }
+    }
+    
+    @Test
+    public void testChangesAfterLoadingSnapshot() throws IOException {
+        // Crear datos de prueba
+        List<UUID> userIDs = randomUserIDs();
+        FriendshipGraph graph = randomGraph(userIDs);
+        Path file = directory.resolve("friendships.csr");
+        FriendshipGraphSnapshot.write(graph, WATERMARK_MILLIS, file, directory);
+        FriendshipGraph loaded = new FriendshipGraph(FriendshipGraphSnapshot.open(file));
+        UUID newUserID = new UUID(0, 1);
+        
+        // Ejecutar funcionalidades: los mismos cambios en ambos grafos
+        for (FriendshipGraph target : List.of(graph, loaded)) {
+            target.removeUser(userIDs.get(1));
+            target.addFriendship(userIDs.get(2), newUserID);
+            int[] friends = target.getFriends(userIDs.get(3));
+            if (friends.length > 0) target.removeFriendship(userIDs.get(3), target.getUserID(friends[0]));
+        }
+        
+        // Comprobar resultados
+        assertEquals(graph.friendshipCount(), loaded.friendshipCount());
+        assertEquals(0, loaded.getFriends(userIDs.get(1)).length);
+        assertTrue(loaded.areFriends(newUserID, userIDs.get(2)));
+        assertEquals(graph.findID(newUserID), loaded.findID(newUserID));
+        for (UUID userID : userIDs) {
+            assertArrayEquals(graph.getFriends(userID), loaded.getFriends(userID));
+        }
+        
+        // Una nueva copia del grafo cargado incluye los cambios
+        Path rewritten = directory.resolve("rewritten.csr");
+        FriendshipGraphSnapshot.write(loaded, WATERMARK_MILLIS + 1, rewritten, directory);
+        FriendshipGraph reloaded = new FriendshipGraph(FriendshipGraphSnapshot.open(rewritten));
+        assertEquals(graph.friendshipCount(), reloaded.friendshipCount());
+        for (UUID userID : userIDs) {
+            assertArrayEquals(graph.getFriends(userID), reloaded.getFriends(userID));
+        }
+    }
+    
+    @Test
+    public void testCorruptedContentIsDetected() throws IOException {
+        // Crear datos de prueba
+        Path file = directory.resolve("friendships.csr");
+        long sizeBytes = FriendshipGraphSnapshot.write(randomGraph(randomUserIDs()), WATERMARK_MILLIS, file,
+                                                       directory);
+        
+        // Ejecutar funcionalidades: cambiar un byte del contenido
+        flipByte(file, sizeBytes - 1);
+        FriendshipGraphSnapshot snapshot = FriendshipGraphSnapshot.open(file);
+        
+        // Comprobar resultados: al abrirlo solo se comprueba la cabecera
+        assertThrows(IOException.class, snapshot::verify);
+    }
+    
+    @Test
+    public void testCorruptedHeaderIsRejected() throws IOException {
+        // Crear datos de prueba
+        Path file = directory.resolve("friendships.csr");
+        FriendshipGraphSnapshot.write(randomGraph(randomUserIDs()), WATERMARK_MILLIS, file, directory);
+        
+        // Ejecutar funcionalidades: cambiar un byte de la marca de agua
+        flipByte(file, 24);
+        
+        // Comprobar resultados
+        assertThrows(IOException.class, () -> FriendshipGraphSnapshot.open(file));
+    }
+    
+    @Test
+    public void testTruncatedSnapshotIsRejected() throws IOException {
+        // Crear datos de prueba
+        Path file = directory.resolve("friendships.csr");
+        long sizeBytes = FriendshipGraphSnapshot.write(randomGraph(randomUserIDs()), WATERMARK_MILLIS, file,
+                                                       directory);
+        
+        // Ejecutar funcionalidades
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(sizeBytes - Integer.BYTES);
+        }
+        
+        // Comprobar resultados
+        assertThrows(IOException.class, () -> FriendshipGraphSnapshot.open(file));
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private static void flipByte(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, position);
+            value.put(0, (byte) (value.get(0) ^ 1));
+            value.rewind();
+            channel.write(value, position);
+        }
+    }
+    
+    private static List<UUID> randomUserIDs() {
+        Random random = new Random(42);
+        List<UUID> userIDs = new ArrayList<>(USERS_COUNT);
+        for (int i = 0; i < USERS_COUNT; i++) {
+            userIDs.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        return userIDs;
+    }
+    
+    private static FriendshipGraph randomGraph(List<UUID> userIDs) {
+        Random random = new Random(7);
+        FriendshipGraph graph = new FriendshipGraph();
+        for (int i = 0; i < FRIENDSHIPS_COUNT; i++) {
+            graph.addFriendship(userIDs.get(random.nextInt(userIDs.size())),
+                                userIDs.get(random.nextInt(userIDs.size())));
+        }
+        return graph;
+    }
+    
+}
@@ -0,0 +1,92 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FriendshipGraphTest {
+    private static final UUID FIRST_ID = UUID.fromString("00000001-0000-7000-8000-000000000001");
+    private static final UUID SECOND_ID = UUID.fromString("00000002-0000-7000-8000-000000000002");
+    private static final UUID THIRD_ID = UUID.fromString("00000003-0000-7000-8000-000000000003");
+    private static final UUID UNKNOWN_ID = UUID.fromString("00000004-0000-7000-8000-000000000004");
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testFriendshipsAreSymmetric() {
+        // Crear datos de prueba
+        FriendshipGraph graph = new FriendshipGraph();
+        
+        // Ejecutar funcionalidades
+        assertTrue(graph.addFriendship(FIRST_ID, SECOND_ID));
+        assertTrue(graph.addFriendship(THIRD_ID, FIRST_ID));
+        assertFalse(graph.addFriendship(SECOND_ID, FIRST_ID));
+        assertFalse(graph.addFriendship(FIRST_ID, FIRST_ID));
+        
+        // Comprobar resultados
+        assertTrue(graph.areFriends(FIRST_ID, SECOND_ID));
+        assertTrue(graph.areFriends(SECOND_ID, FIRST_ID));
+        assertFalse(graph.areFriends(SECOND_ID, THIRD_ID));
+        assertFalse(graph.areFriends(FIRST_ID, UNKNOWN_ID));
+        assertEquals(Set.of(SECOND_ID, THIRD_ID), toUserIDs(graph, graph.getFriends(FIRST_ID)));
+        assertEquals(2, graph.friendshipCount());
+    }
+    
+    @Test
+    public void testRemoveFriendshipAndUser() {
+        // Crear datos de prueba
+        FriendshipGraph graph = new FriendshipGraph();
+        graph.addFriendship(FIRST_ID, SECOND_ID);
+        graph.addFriendship(FIRST_ID, THIRD_ID);
+        graph.addFriendship(SECOND_ID, THIRD_ID);
+        int[] friendsBefore = graph.getFriends(FIRST_ID);
+        
+        // Ejecutar funcionalidades
+        assertTrue(graph.removeFriendship(SECOND_ID, FIRST_ID));
+        assertFalse(graph.removeFriendship(SECOND_ID, FIRST_ID));
+        assertEquals(2, graph.removeUser(THIRD_ID));
+        
+        // Comprobar resultados: las listas obtenidas antes no cambian
+        assertEquals(2, friendsBefore.length);
+        assertEquals(0, graph.getFriends(FIRST_ID).length);
+        assertFalse(graph.areFriends(SECOND_ID, THIRD_ID));
+        assertEquals(0, graph.friendshipCount());
+    }
+    
+    @Test
+    public void testManyUsers() {
+        // Crear datos de prueba: más usuarios que la capacidad inicial, cada uno amigo del siguiente
+        FriendshipGraph graph = new FriendshipGraph();
+        List<UUID> userIDs = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            userIDs.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        
+        // Ejecutar funcionalidades
+        for (int i = 1; i < userIDs.size(); i++) {
+            graph.addFriendship(userIDs.get(i - 1), userIDs.get(i));
+        }
+        
+        // Comprobar resultados
+        assertEquals(userIDs.size() - 1, graph.friendshipCount());
+        assertEquals(userIDs.size(), graph.userCount());
+        for (int i = 1; i < userIDs.size(); i++) {
+            assertTrue(graph.areFriends(userIDs.get(i), userIDs.get(i - 1)));
+        }
+        assertFalse(graph.areFriends(userIDs.get(0), userIDs.get(2)));
+        assertTrue(graph.memoryBytes() > 0);
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private static Set<UUID> toUserIDs(FriendshipGraph graph, int[] ids) {
+        Set<UUID> userIDs = new HashSet<>();
+        for (int id : ids) {
+            userIDs.add(graph.getUserID(id));
+        }
+        return userIDs;
+    }
+    
+}
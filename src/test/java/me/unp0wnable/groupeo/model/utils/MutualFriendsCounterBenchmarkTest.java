@@ -0,0 +1,136 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import me.unp0wnable.groupeo.model.utils.MutualFriendsCounter.Candidate;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mide el cálculo de sugerencias de amistad sobre un grafo sintético con grados según una ley de potencias
+ * (conexión preferencial de Barabási-Albert): la mayoría de usuarios tiene pocos amigos y unos pocos tienen miles.
+ * Compara el cálculo en un único hilo con el repartido en el pool fork/join, para usuarios al azar y para los de
+ * mayor grado. Se ejecuta con <c>mvn test -Pbenchmark</c>
+ */
+@Slf4j
+@Tag("benchmark")
+public class MutualFriendsCounterBenchmarkTest {
+    private static final int USERS_COUNT = 500_000;
+    private static final int FRIENDS_PER_NEW_USER = 10;
+    private static final int LOOKUPS_COUNT = 2_000;
+    private static final int HUBS_COUNT = 50;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int SUGGESTIONS = 50;
+    private static final int MAX_FRIEND_DEGREE = 5_000;
+    private static final long PARALLEL_THRESHOLD = 50_000;
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void benchmarkPowerLawGraph() {
+        // Crear datos de prueba
+        Random random = new Random(42);
+        FriendshipGraph graph = buildPowerLawGraph(random);
+        int[] randomUsers = new int[LOOKUPS_COUNT];
+        for (int i = 0; i < LOOKUPS_COUNT; i++) randomUsers[i] = random.nextInt(graph.userCount());
+        int[] hubs = highestDegreeUsers(graph);
+        
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        MutualFriendsCounter sequential = new MutualFriendsCounter(pool, Long.MAX_VALUE, MAX_FRIEND_DEGREE);
+        MutualFriendsCounter parallel = new MutualFriendsCounter(pool, PARALLEL_THRESHOLD, MAX_FRIEND_DEGREE);
+        
+        try {
+            // Ejecutar funcionalidades
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                measure(sequential, graph, randomUsers);
+                measure(parallel, graph, hubs);
+            }
+            long[] sequentialRandom = measure(sequential, graph, randomUsers);
+            long[] parallelRandom = measure(parallel, graph, randomUsers);
+            long[] sequentialHubs = measure(sequential, graph, hubs);
+            long[] parallelHubs = measure(parallel, graph, hubs);
+            
+            // Comprobar resultados
+            log.info("{} users, {} friendships, max degree {}, {} MiB",
+                     graph.userCount(), graph.friendshipCount(), graph.getFriends(hubs[0]).length,
+                     String.format("%.1f", graph.memoryBytes() / (1024.0 * 1024.0)));
+            logLatencies("Random users, sequential", sequentialRandom);
+            logLatencies("Random users, parallel", parallelRandom);
+            logLatencies("Top " + HUBS_COUNT + " users, sequential", sequentialHubs);
+            logLatencies("Top " + HUBS_COUNT + " users, parallel", parallelHubs);
+            for (int hub : hubs) {
+                assertEquals(toKeys(sequential.topCandidates(graph, hub, SUGGESTIONS)),
+                             toKeys(parallel.topCandidates(graph, hub, SUGGESTIONS)));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    /** Cada usuario nuevo se hace amigo de otros elegidos con probabilidad proporcional a su número de amigos */
+    private static FriendshipGraph buildPowerLawGraph(Random random) {
+        FriendshipGraph graph = new FriendshipGraph();
+        UUID[] userIDs = new UUID[USERS_COUNT];
+        for (int i = 0; i < USERS_COUNT; i++) userIDs[i] = new UUID(random.nextLong(), random.nextLong());
+        
+        // Cada extremo de cada amistad aparece una vez: elegir uno al azar es elegir proporcionalmente al grado
+        int[] endpoints = new int[2 * USERS_COUNT * FRIENDS_PER_NEW_USER];
+        int endpointsCount = 0;
+        for (int i = 1; i <= FRIENDS_PER_NEW_USER; i++) {
+            graph.addFriendship(userIDs[0], userIDs[i]);
+            endpoints[endpointsCount++] = 0;
+            endpoints[endpointsCount++] = i;
+        }
+        for (int user = FRIENDS_PER_NEW_USER + 1; user < USERS_COUNT; user++) {
+            for (int i = 0; i < FRIENDS_PER_NEW_USER; i++) {
+                int friend = endpoints[random.nextInt(endpointsCount)];
+                if (graph.addFriendship(userIDs[user], userIDs[friend])) {
+                    endpoints[endpointsCount++] = user;
+                    endpoints[endpointsCount++] = friend;
+                }
+            }
+        }
+        return graph;
+    }
+    
+    private static int[] highestDegreeUsers(FriendshipGraph graph) {
+        Integer[] users = new Integer[graph.userCount()];
+        for (int i = 0; i < users.length; i++) users[i] = i;
+        Arrays.sort(users, Comparator.comparingInt((Integer user) -> graph.getFriends(user).length).reversed());
+        
+        int[] hubs = new int[HUBS_COUNT];
+        for (int i = 0; i < HUBS_COUNT; i++) hubs[i] = users[i];
+        return hubs;
+    }
+    
+    private static long[] measure(MutualFriendsCounter counter, FriendshipGraph graph, int[] users) {
+        long[] latencies = new long[users.length];
+        for (int i = 0; i < users.length; i++) {
+            long start = System.nanoTime();
+            counter.topCandidates(graph, users[i], SUGGESTIONS);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+    
+    private static void logLatencies(String scenario, long[] latencies) {
+        log.info("{}: p50 {} us, p99 {} us, max {} us", scenario,
+                 latencies[latencies.length / 2] / 1000, latencies[(int) (latencies.length * 0.99)] / 1000,
+                 latencies[latencies.length - 1] / 1000);
+    }
+    
+    private static List<String> toKeys(List<Candidate> candidates) {
+        List<String> keys = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            keys.add(candidate.getId() + ":" + candidate.getMutualFriends());
+        }
+        return keys;
+    }
+    
+}
@@ -0,0 +1,142 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import me.unp0wnable.groupeo.model.utils.MutualFriendsCounter.Candidate;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MutualFriendsCounterTest {
+    private static final int USERS_COUNT = 2_000;
+    private static final int FRIENDSHIPS_COUNT = 20_000;
+    private static final int LIMIT = 10;
+    
+    private static ForkJoinPool pool;
+    
+    @BeforeAll
+    public static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+    
+    @AfterAll
+    public static void shutdownPool() {
+        pool.shutdownNow();
+    }
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testCandidatesExcludeUserAndFriends() {
+        // Crear datos de prueba: A es amigo de B y C, que son amigos de D; C también lo es de E
+        FriendshipGraph graph = new FriendshipGraph();
+        UUID a = userID(1), b = userID(2), c = userID(3), d = userID(4), e = userID(5);
+        graph.addFriendship(a, b);
+        graph.addFriendship(a, c);
+        graph.addFriendship(b, c);
+        graph.addFriendship(b, d);
+        graph.addFriendship(c, d);
+        graph.addFriendship(c, e);
+        MutualFriendsCounter counter = new MutualFriendsCounter(pool, 1, Integer.MAX_VALUE);
+        
+        // Ejecutar funcionalidades
+        List<Candidate> candidates = counter.topCandidates(graph, graph.findID(a), LIMIT);
+        
+        // Comprobar resultados
+        assertEquals(2, candidates.size());
+        assertEquals(d, graph.getUserID(candidates.get(0).getId()));
+        assertEquals(2, candidates.get(0).getMutualFriends());
+        assertEquals(e, graph.getUserID(candidates.get(1).getId()));
+        assertEquals(1, candidates.get(1).getMutualFriends());
+    }
+    
+    @Test
+    public void testUnknownUserHasNoCandidates() {
+        FriendshipGraph graph = new FriendshipGraph();
+        MutualFriendsCounter counter = new MutualFriendsCounter(pool, 1, Integer.MAX_VALUE);
+        
+        assertTrue(counter.topCandidates(graph, graph.findID(userID(1)), LIMIT).isEmpty());
+    }
+    
+    @Test
+    public void testFriendsAboveMaxDegreeAreIgnored() {
+        // Crear datos de prueba: B tiene 3 amigos y C solo 2
+        FriendshipGraph graph = new FriendshipGraph();
+        UUID a = userID(1), b = userID(2), c = userID(3), d = userID(4), e = userID(5);
+        graph.addFriendship(a, b);
+        graph.addFriendship(b, d);
+        graph.addFriendship(b, e);
+        graph.addFriendship(a, c);
+        graph.addFriendship(c, e);
+        MutualFriendsCounter counter = new MutualFriendsCounter(pool, 1, 2);
+        
+        // Ejecutar funcionalidades
+        List<Candidate> candidates = counter.topCandidates(graph, graph.findID(a), LIMIT);
+        
+        // Comprobar resultados: solo cuenta la amistad a través de C
+        assertEquals(1, candidates.size());
+        assertEquals(e, graph.getUserID(candidates.get(0).getId()));
+        assertEquals(1, candidates.get(0).getMutualFriends());
+    }
+    
+    @Test
+    public void testParallelCountingMatchesBruteForce() {
+        // Crear datos de prueba
+        Random random = new Random(42);
+        FriendshipGraph graph = new FriendshipGraph();
+        for (int i = 0; i < FRIENDSHIPS_COUNT; i++) {
+            graph.addFriendship(userID(random.nextInt(USERS_COUNT)), userID(random.nextInt(USERS_COUNT)));
+        }
+        MutualFriendsCounter sequential = new MutualFriendsCounter(pool, Long.MAX_VALUE, Integer.MAX_VALUE);
+        MutualFriendsCounter parallel = new MutualFriendsCounter(pool, 16, Integer.MAX_VALUE);
+        
+        for (int user = 0; user < graph.userCount(); user++) {
+            // Ejecutar funcionalidades
+            List<Candidate> sequentialCandidates = sequential.topCandidates(graph, user, LIMIT);
+            List<Candidate> parallelCandidates = parallel.topCandidates(graph, user, LIMIT);
+            
+            // Comprobar resultados
+            List<Candidate> expected = bruteForce(graph, user);
+            assertEquals(toKeys(expected), toKeys(sequentialCandidates));
+            assertEquals(toKeys(expected), toKeys(parallelCandidates));
+        }
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private static UUID userID(int number) {
+        return new UUID(number, number);
+    }
+    
+    /** Cuenta los amigos en común con un mapa y ordena todos los candidatos */
+    private static List<Candidate> bruteForce(FriendshipGraph graph, int user) {
+        int[] friends = graph.getFriends(user);
+        Set<Integer> excluded = new HashSet<>();
+        excluded.add(user);
+        for (int friend : friends) excluded.add(friend);
+        
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int friend : friends) {
+            for (int candidate : graph.getFriends(friend)) {
+                if (!excluded.contains(candidate)) counts.merge(candidate, 1, Integer::sum);
+            }
+        }
+        
+        List<Candidate> candidates = new ArrayList<>();
+        counts.forEach((candidate, count) -> candidates.add(new Candidate(candidate, count)));
+        candidates.sort(Comparator.comparingInt(Candidate::getMutualFriends).reversed()
+                                  .thenComparingInt(Candidate::getId));
+        return candidates.subList(0, Math.min(LIMIT, candidates.size()));
+    }
+    
+    private static List<String> toKeys(List<Candidate> candidates) {
+        List<String> keys = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            keys.add(candidate.getId() + ":" + candidate.getMutualFriends());
+        }
+        return keys;
+    }
+    
+}
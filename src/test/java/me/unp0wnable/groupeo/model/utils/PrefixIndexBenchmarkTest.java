@@ -0,0 +1,77 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import me.unp0wnable.groupeo.model.utils.PrefixIndex.Entry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mide la memoria ocupada por un índice de un millón de nickNames y el tiempo y la memoria reservada por cada consulta.
+ * Se ejecuta con <c>mvn test -Pbenchmark</c>
+ */
+@Slf4j
+@Tag("benchmark")
+public class PrefixIndexBenchmarkTest {
+    private static final int NICKNAMES_COUNT = 1_000_000;
+    private static final int LOOKUPS_COUNT = 100_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int SUGGESTIONS = 10;
+    private static final String[] WORDS = {"blue", "dark", "fast", "happy", "iron", "lazy", "lucky", "quiet", "red",
+                                           "silent", "wild", "bear", "cat", "dragon", "eagle", "fox", "lion", "owl",
+                                           "panda", "tiger", "wolf"};
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void benchmarkMillionNickNames() {
+        // Crear datos de prueba: nickNames como los de src/sql/benchmarks/generate_users.sql
+        Random random = new Random(42);
+        List<Entry> entries = new ArrayList<>(NICKNAMES_COUNT);
+        for (int i = 0; i < NICKNAMES_COUNT; i++) {
+            String nickName = WORDS[random.nextInt(WORDS.length)] + WORDS[random.nextInt(WORDS.length)] + i;
+            entries.add(new Entry(new UUID(random.nextLong(), random.nextLong()), nickName, random.nextInt(1000)));
+        }
+        long buildStart = System.nanoTime();
+        PrefixIndex index = PrefixIndex.build(entries);
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+        
+        // Prefijos de 1 a 8 caracteres de nickNames existentes, como los que se escriben tecla a tecla
+        String[] prefixes = new String[LOOKUPS_COUNT];
+        for (int i = 0; i < LOOKUPS_COUNT; i++) {
+            String nickName = entries.get(random.nextInt(NICKNAMES_COUNT)).getNickName();
+            prefixes[i] = nickName.substring(0, 1 + random.nextInt(Math.min(8, nickName.length())));
+        }
+        
+        // Ejecutar funcionalidades
+        int[] results = new int[SUGGESTIONS];
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            for (String prefix : prefixes) index.complete(prefix, results);
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadID = Thread.currentThread().getId();
+        long[] latencies = new long[LOOKUPS_COUNT];
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadID);
+        for (int i = 0; i < LOOKUPS_COUNT; i++) {
+            long start = System.nanoTime();
+            index.complete(prefixes[i], results);
+            latencies[i] = System.nanoTime() - start;
+        }
+        long allocatedBytes = threadBean.getThreadAllocatedBytes(threadID) - allocatedBefore;
+        
+        // Comprobar resultados
+        Arrays.sort(latencies);
+        log.info("{} nickNames: {} MiB ({} bytes/nickName), built in {} ms",
+                 index.size(), String.format("%.1f", index.memoryBytes() / (1024.0 * 1024.0)),
+                 index.memoryBytes() / index.size(), buildMillis);
+        log.info("Lookups: p50 {} us, p99 {} us, max {} us, {} bytes allocated",
+                 latencies[LOOKUPS_COUNT / 2] / 1000, latencies[(int) (LOOKUPS_COUNT * 0.99)] / 1000,
+                 latencies[LOOKUPS_COUNT - 1] / 1000, allocatedBytes);
+        assertEquals(NICKNAMES_COUNT, index.size());
+        assertEquals(0, allocatedBytes);
+    }
+    
+}
@@ -0,0 +1,114 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import me.unp0wnable.groupeo.model.utils.PrefixIndex.Entry;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrefixIndexTest {
+    private static final UUID FIRST_ID = UUID.fromString("00000001-0000-7000-8000-000000000001");
+    private static final UUID SECOND_ID = UUID.fromString("00000002-0000-7000-8000-000000000002");
+    private static final UUID THIRD_ID = UUID.fromString("00000003-0000-7000-8000-000000000003");
+    private static final UUID FOURTH_ID = UUID.fromString("00000004-0000-7000-8000-000000000004");
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testCompleteIgnoresCaseAndSortsByScore() {
+        // Crear datos de prueba
+        PrefixIndex index = PrefixIndex.build(List.of(
+                new Entry(FIRST_ID, "alice", 1),
+                new Entry(SECOND_ID, "ALBERT", 5),
+                new Entry(THIRD_ID, "Alfonso", 5),
+                new Entry(FOURTH_ID, "bob", 10)
+        ));
+        
+        // Ejecutar funcionalidades
+        int[] results = new int[10];
+        int count = index.complete("aL", results);
+        
+        // Comprobar resultados: a igual puntuación, en orden alfabético
+        assertEquals(List.of("ALBERT", "Alfonso", "alice"), toNickNames(index, results, count));
+        assertEquals(SECOND_ID, index.getUserID(results[0]));
+        assertEquals(5, index.getScore(results[0]));
+    }
+    
+    @Test
+    public void testCompleteKeepsOnlyBestResults() {
+        // Crear datos de prueba
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            entries.add(new Entry(new UUID(0, i), "user" + i, i % 10));
+        }
+        PrefixIndex index = PrefixIndex.build(entries);
+        
+        // Ejecutar funcionalidades
+        int[] results = new int[3];
+        int count = index.complete("USER", results);
+        
+        // Comprobar resultados
+        assertEquals(List.of("user19", "user29", "user39"), toNickNames(index, results, count));
+    }
+    
+    @Test
+    public void testCompleteWithoutMatches() {
+        // Crear datos de prueba
+        PrefixIndex index = PrefixIndex.build(List.of(new Entry(FIRST_ID, "alice", 1)));
+        int[] results = new int[10];
+        
+        // Ejecutar funcionalidades y comprobar resultados
+        assertEquals(0, index.complete("alicia", results));
+        assertEquals(0, index.complete("b", results));
+        assertEquals(0, PrefixIndex.EMPTY.complete("a", results));
+        assertEquals(1, index.complete("", results));
+    }
+    
+    @Test
+    public void testMergeAddsRemovesAndReplaces() {
+        // Crear datos de prueba
+        PrefixIndex index = PrefixIndex.build(List.of(
+                new Entry(FIRST_ID, "alice", 1),
+                new Entry(SECOND_ID, "albert", 2)
+        ));
+        Map<UUID, Entry> changes = new HashMap<>();
+        changes.put(FIRST_ID, null);
+        changes.put(SECOND_ID, new Entry(SECOND_ID, "bert", 2));
+        changes.put(THIRD_ID, new Entry(THIRD_ID, "alfonso", 3));
+        changes.put(FOURTH_ID, null);
+        
+        // Ejecutar funcionalidades
+        PrefixIndex merged = index.merge(changes);
+        
+        // Comprobar resultados: el índice original no cambia
+        int[] results = new int[10];
+        assertEquals(List.of("alfonso"), toNickNames(merged, results, merged.complete("al", results)));
+        assertEquals(List.of("bert"), toNickNames(merged, results, merged.complete("b", results)));
+        assertEquals(2, merged.size());
+        assertEquals(List.of("albert", "alice"), toNickNames(index, results, index.complete("al", results)));
+    }
+    
+    @Test
+    public void testMergeWithoutChangesKeepsIndex() {
+        // Crear datos de prueba
+        PrefixIndex index = PrefixIndex.build(List.of(new Entry(FIRST_ID, "alice", 1)));
+        Map<UUID, Entry> changes = new HashMap<>();
+        changes.put(FIRST_ID, new Entry(FIRST_ID, "alice", 1));
+        changes.put(SECOND_ID, null);
+        
+        // Ejecutar funcionalidades y comprobar resultados
+        assertSame(index, index.merge(changes));
+        assertSame(index, index.merge(Map.of()));
+    }
+    
+    
+    /* ****************************** AUX FUNCTIONS ****************************** */
+    private static List<String> toNickNames(PrefixIndex index, int[] results, int count) {
+        List<String> nickNames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nickNames.add(index.getNickName(results[i]));
+        }
+        return nickNames;
+    }
+    
+}
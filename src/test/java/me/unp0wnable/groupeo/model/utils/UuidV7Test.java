@@ -0,0 +1,80 @@
+package me.unp0wnable.groupeo.model.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UuidV7Test {
+    private static final int GENERATED_COUNT = 100_000;
+    private static final int THREADS = 8;
+    /** Adelanto máximo sobre el reloj tras generar muchos identificadores seguidos (4096 por milisegundo) */
+    private static final long MAX_COUNTER_DRIFT_MILLIS = 1000;
+    
+    /* ****************************** TEST CASES ****************************** */
+    @Test
+    public void testGenerateVersionAndTimestamp() {
+        // Ejecutar funcionalidades
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7.generate();
+        long after = System.currentTimeMillis();
+        
+        // Comprobar resultados: el contador puede adelantar el instante si se han agotado sus valores
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertTrue(UuidV7.getTimestampMillis(uuid) >= before);
+        assertTrue(UuidV7.getTimestampMillis(uuid) <= after + MAX_COUNTER_DRIFT_MILLIS);
+    }
+    
+    @Test
+    public void testGenerateIsStrictlyIncreasing() {
+        // Ejecutar funcionalidades: muchos identificadores en el mismo milisegundo
+        UUID previous = UuidV7.generate();
+        for (int i = 0; i < GENERATED_COUNT; i++) {
+            UUID current = UuidV7.generate();
+            
+            // Comprobar resultados: el orden sin signo de los bits coincide con el orden de generación
+            assertTrue(Long.compareUnsigned(current.getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+            previous = current;
+        }
+    }
+    
+    @Test
+    public void testGenerateConcurrentlyIsUnique() throws Exception {
+        // Crear datos de prueba
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<UUID>>> results = new ArrayList<>();
+        
+        // Ejecutar funcionalidades
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    List<UUID> generated = new ArrayList<>(GENERATED_COUNT);
+                    for (int i = 0; i < GENERATED_COUNT; i++) generated.add(UuidV7.generate());
+                    return generated;
+                }));
+            }
+            
+            // Comprobar resultados
+            Set<Long> mostSigBits = new HashSet<>();
+            for (Future<List<UUID>> result : results) {
+                for (UUID uuid : result.get(30, TimeUnit.SECONDS)) {
+                    assertTrue(mostSigBits.add(uuid.getMostSignificantBits()));
+                }
+            }
+            assertEquals(THREADS * GENERATED_COUNT, mostSigBits.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testGetTimestampOfOtherVersion() {
+        assertThrows(IllegalArgumentException.class,
+            () -> UuidV7.getTimestampMillis(UUID.randomUUID())
+        );
+    }
+    
+}
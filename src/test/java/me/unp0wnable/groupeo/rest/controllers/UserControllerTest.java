@@ -4,8 +4,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import me.unp0wnable.groupeo.model.entities.UserAddress;
 import me.unp0wnable.groupeo.model.entities.UserProfile;
 import me.unp0wnable.groupeo.model.exceptions.IncorrectLoginException;
+import me.unp0wnable.groupeo.model.exceptions.ServiceOverloadedException;
 import me.unp0wnable.groupeo.model.repositories.UserAddressRepository;
 import me.unp0wnable.groupeo.model.repositories.UserProfileRepository;
+import me.unp0wnable.groupeo.model.services.UserExistenceFilter;
+import me.unp0wnable.groupeo.model.services.UserService;
 import me.unp0wnable.groupeo.rest.dtos.conversors.UserConversor;
 import me.unp0wnable.groupeo.rest.dtos.users.*;
 import me.unp0wnable.groupeo.rest.http.jwt.JwtData;
@@ -22,12 +25,17 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
 import java.util.UUID;
 
 import static me.unp0wnable.groupeo.rest.security.JwtFilter.AUTH_TOKEN_PREFIX;
 import static me.unp0wnable.groupeo.utils.TestGenerator.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.hamcrest.Matchers.containsString;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest()
@@ -47,6 +55,9 @@ public class UserControllerTest {
     @Autowired
     private UserController userController;
     
+    @Autowired
+    private UserService userService;
+    
     @Autowired
     private BCryptPasswordEncoder passwordEncoder;
     
@@ -55,18 +66,22 @@ public class UserControllerTest {
     
     @Autowired
     private UserAddressRepository userAddressRepository;
-
+    
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+    
     
     /* ****************************** AUX FUNCTIONS ****************************** */
     /** Registra un usuario válido en el sistema */
     private AuthenticatedUserDto createAuthenticatedUser(String nickName)
-            throws IncorrectLoginException {
+            throws IncorrectLoginException, ServiceOverloadedException {
         // Crea un usuario válido
         UserProfile user = generateValidUser(nickName);
         user.setPassword(passwordEncoder.encode(DEFAULT_PASSWORD));
         
-        // Guarda el usuario en la base de datos
+        // Guarda el usuario en la base de datos (sin pasar por el registro, por lo que se añade a mano al filtro)
         userProfileRepository.save(user);
+        userExistenceFilter.registerUser(user.getNickName(), user.getEmail());
         
         // Genera el DTO con los datos del usuario recién creado
         LoginParamsDto loginParamsDto = new LoginParamsDto();
@@ -99,7 +114,6 @@ public class UserControllerTest {
         signUpParams.setRawPassword(user.getPassword());
         signUpParams.setEmail(user.getEmail());
         signUpParams.setBirthDate(user.getBirthDate());
-        signUpParams.setImageB64(user.getImageB64());
         return signUpParams;
     }
     
@@ -152,7 +166,7 @@ public class UserControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON));
     }
-
+    
     
     @Test
     public void testLoginUser_POST() throws Exception {
@@ -268,6 +282,47 @@ public class UserControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON));
     }
     
+    @Test
+    public void testRefreshServiceToken_POST() throws Exception {
+        // Crear datos de prueba
+        AuthenticatedUserDto authUserDto = createAuthenticatedUser(DEFAULT_NICKNAME);
+        RefreshTokenParamsDto paramsDto = new RefreshTokenParamsDto(authUserDto.getRefreshToken());
+        String endpointAddress = API_ENDPOINT + "/refresh";
+        String encodedBodyContent = this.mapper.writeValueAsString(paramsDto);
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(
+                post(endpointAddress)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(encodedBodyContent)
+        );
+        
+        // Comprobar resultados
+        performAction
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+    
+    @Test
+    public void testRefreshServiceTokenWithInvalidToken_POST() throws Exception {
+        // Crear datos de prueba
+        RefreshTokenParamsDto paramsDto = new RefreshTokenParamsDto("NON_EXISTENT_REFRESH_TOKEN");
+        String endpointAddress = API_ENDPOINT + "/refresh";
+        String encodedBodyContent = this.mapper.writeValueAsString(paramsDto);
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(
+                post(endpointAddress)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(encodedBodyContent)
+        );
+        
+        // Comprobar resultados
+        performAction
+                .andExpect(status().isUnauthorized())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+    
     @Test
     public void testChangePassword_PUT() throws Exception {
         // Crear datos de prueba
@@ -640,4 +695,359 @@ public class UserControllerTest {
                 .andExpect(status().isUnauthorized())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON));
     }
+    
+    @Test
+    public void testUpdateAvatar_PUT() throws Exception {
+        // Crear datos de prueba
+        AuthenticatedUserDto authUserDto = createAuthenticatedUser(DEFAULT_NICKNAME);
+        UUID userID = authUserDto.getUserDTO().getUserID();
+        String endpointAddress = API_ENDPOINT + "/" + userID + "/avatar";
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(
+                put(endpointAddress)
+                        .requestAttr("userID", userID)
+                        .contentType(MediaType.IMAGE_PNG)
+                        .content(generateValidAvatar(64, 64))
+        );
+        
+        // Comprobar resultados
+        performAction
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(containsString(userID + "/avatar?v=")));
+    }
+    
+    @Test
+    public void testUpdateAvatarToOtherUser_PUT() throws Exception {
+        // Crear datos de prueba
+        AuthenticatedUserDto currentUserDto = createAuthenticatedUser("currentUser");
+        AuthenticatedUserDto targetUserDto = createAuthenticatedUser("targetUser");
+        String endpointAddress = API_ENDPOINT + "/" + targetUserDto.getUserDTO().getUserID() + "/avatar";
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(
+                put(endpointAddress)
+                        .requestAttr("userID", currentUserDto.getUserDTO().getUserID())
+                        .contentType(MediaType.IMAGE_PNG)
+                        .content(generateValidAvatar(64, 64))
+        );
+        
+        // Comprobar resultados
+        performAction
+                .andExpect(status().isUnauthorized())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+    
+    @Test
+    public void testUpdateAvatarWithUnsupportedFormat_PUT() throws Exception {
+        // Crear datos de prueba: el contenido no es una imagen aunque se declare como tal
+        AuthenticatedUserDto authUserDto = createAuthenticatedUser(DEFAULT_NICKNAME);
+        UUID userID = authUserDto.getUserDTO().getUserID();
+        String endpointAddress = API_ENDPOINT + "/" + userID + "/avatar";
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(
+                put(endpointAddress)
+                        .requestAttr("userID", userID)
+                        .contentType(MediaType.IMAGE_PNG)
+                        .content("This is not an image")
+        );
+        
+        // Comprobar resultados
+        performAction
+                .andExpect(status().isUnsupportedMediaType())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+    
+    @Test
+    public void testUpdateAvatarTooLarge_PUT() throws Exception {
+        // Crear datos de prueba: imagen con una firma PNG válida que supera el tamaño máximo
+        AuthenticatedUserDto authUserDto = createAuthenticatedUser(DEFAULT_NICKNAME);
+        UUID userID = authUserDto.getUserDTO().getUserID();
+        String endpointAddress = API_ENDPOINT + "/" + userID + "/avatar";
+        byte[] validAvatar = generateValidAvatar(64, 64);
+        byte[] largeAvatar = Arrays.copyOf(validAvatar, (int) userService.getMaxAvatarSizeBytes() + 1);
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(
+                put(endpointAddress)
+                        .requestAttr("userID", userID)
+                        .contentType(MediaType.IMAGE_PNG)
+                        .content(largeAvatar)
+        );
+        
+        // Comprobar resultados
+        performAction
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+    
+    @Test
+    public void testGetUserProfile_GET() throws Exception {
+        // Crear datos de prueba
+        AuthenticatedUserDto authUserDto = createAuthenticatedUser(DEFAULT_NICKNAME);
+        UUID userID = authUserDto.getUserDTO().getUserID();
+        String endpointAddress = API_ENDPOINT + "/" + userID;
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(get(endpointAddress));
+        
+        // Comprobar resultados
+        performAction
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v0\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")))
+                .andExpect(content().string(containsString(DEFAULT_NICKNAME)));
+    }
+    
+    @Test
+    public void testGetNotModifiedUserProfile_GET() throws Exception {
+        // Crear datos de prueba
+        AuthenticatedUserDto authUserDto = createAuthenticatedUser(DEFAULT_NICKNAME);
+        UUID userID = authUserDto.getUserDTO().getUserID();
+        String endpointAddress = API_ENDPOINT + "/" + userID;
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(
+                get(endpointAddress)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"v0\"")
+        );
+        
+        // Comprobar resultados
+        performAction
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v0\""))
+                .andExpect(content().bytes(new byte[0]));
+    }
+    
+    @Test
+    public void testGetUpdatedUserProfile_GET() throws Exception {
+        // Crear datos de prueba
+        AuthenticatedUserDto authUserDto = createAuthenticatedUser(DEFAULT_NICKNAME);
+        UUID userID = authUserDto.getUserDTO().getUserID();
+        UserProfile changes = new UserProfile();
+        changes.setDescription("A new description");
+        userService.updateUserProfile(userID, changes);
+        String endpointAddress = API_ENDPOINT + "/" + userID;
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(
+                get(endpointAddress)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"v0\"")
+        );
+        
+        // Comprobar resultados
+        performAction
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v1\""))
+                .andExpect(content().string(containsString("A new description")));
+    }
+    
+    @Test
+    public void testGetNonExistentUserProfile_GET() throws Exception {
+        // Crear datos de prueba
+        String endpointAddress = API_ENDPOINT + "/" + NON_EXISTENT_USER_ID;
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(get(endpointAddress));
+        
+        // Comprobar resultados
+        performAction
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+    
+    @Test
+    public void testSearchUsers_GET() throws Exception {
+        // Crear datos de prueba
+        createAuthenticatedUser("qzwxSecond");
+        UUID firstUserID = createAuthenticatedUser("qzwxFirst").getUserDTO().getUserID();
+        String endpointAddress = API_ENDPOINT + "/search";
+        
+        // Ejecutar funcionalidades
+        var firstPageAction = mockMvc.perform(
+                get(endpointAddress).param("query", "QZWX").param("size", "1")
+        );
+        var secondPageAction = mockMvc.perform(
+                get(endpointAddress).param("query", "QZWX").param("size", "1").param("after", "qzwxFirst")
+        );
+        
+        // Comprobar resultados
+        firstPageAction
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(1))
+                .andExpect(jsonPath("$.users[0].userID").value(firstUserID.toString()))
+                .andExpect(jsonPath("$.users[0].nickName").value("qzwxFirst"))
+                .andExpect(jsonPath("$.nextCursor").value("qzwxFirst"));
+        secondPageAction
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(1))
+                .andExpect(jsonPath("$.users[0].nickName").value("qzwxSecond"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+    
+    @Test
+    public void testSearchUsersWithShortQuery_GET() throws Exception {
+        // Crear datos de prueba
+        String endpointAddress = API_ENDPOINT + "/search";
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(get(endpointAddress).param("query", "ab"));
+        
+        // Comprobar resultados
+        performAction.andExpect(status().isBadRequest());
+    }
+    
+    @Test
+    public void testSearchUsersIgnoresShortTerms_GET() throws Exception {
+        // Crear datos de prueba
+        createAuthenticatedUser("qzwxFirst");
+        String endpointAddress = API_ENDPOINT + "/search";
+        
+        // Ejecutar funcionalidades
+        var withShortTermAction = mockMvc.perform(get(endpointAddress).param("query", "qzwx zz"));
+        var onlyShortTermsAction = mockMvc.perform(get(endpointAddress).param("query", "qz wx"));
+        
+        // Comprobar resultados: los términos de menos de 3 caracteres no se buscan
+        withShortTermAction
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(1))
+                .andExpect(jsonPath("$.users[0].nickName").value("qzwxFirst"));
+        onlyShortTermsAction
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(0));
+    }
+    
+    @Test
+    public void testGetUserProfiles_POST() throws Exception {
+        // Crear datos de prueba
+        UUID firstUserID = createAuthenticatedUser("firstUser").getUserDTO().getUserID();
+        UUID secondUserID = createAuthenticatedUser("secondUser").getUserDTO().getUserID();
+        BatchUsersParamsDto paramsDto = new BatchUsersParamsDto(
+                Arrays.asList(secondUserID, NON_EXISTENT_USER_ID, firstUserID)
+        );
+        String endpointAddress = API_ENDPOINT + "/batch";
+        String encodedBodyContent = this.mapper.writeValueAsString(paramsDto);
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(
+                post(endpointAddress)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(encodedBodyContent)
+        );
+        
+        // Comprobar resultados: mismo orden que la petición
+        performAction
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].userID").value(secondUserID.toString()))
+                .andExpect(jsonPath("$[0].found").value(true))
+                .andExpect(jsonPath("$[0].user.nickName").value("secondUser"))
+                .andExpect(jsonPath("$[1].userID").value(NON_EXISTENT_USER_ID.toString()))
+                .andExpect(jsonPath("$[1].found").value(false))
+                .andExpect(jsonPath("$[2].userID").value(firstUserID.toString()))
+                .andExpect(jsonPath("$[2].user.nickName").value("firstUser"));
+    }
+    
+    @Test
+    public void testGetTooManyUserProfiles_POST() throws Exception {
+        // Crear datos de prueba
+        UUID[] userIDs = new UUID[BatchUsersParamsDto.MAX_BATCH_SIZE + 1];
+        Arrays.fill(userIDs, NON_EXISTENT_USER_ID);
+        BatchUsersParamsDto paramsDto = new BatchUsersParamsDto(Arrays.asList(userIDs));
+        String endpointAddress = API_ENDPOINT + "/batch";
+        String encodedBodyContent = this.mapper.writeValueAsString(paramsDto);
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(
+                post(endpointAddress)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(encodedBodyContent)
+        );
+        
+        // Comprobar resultados
+        performAction.andExpect(status().isBadRequest());
+    }
+    
+    @Test
+    public void testGetAvatar_GET() throws Exception {
+        // Crear datos de prueba
+        AuthenticatedUserDto authUserDto = createAuthenticatedUser(DEFAULT_NICKNAME);
+        UUID userID = authUserDto.getUserDTO().getUserID();
+        byte[] avatar = generateValidAvatar(64, 64);
+        String avatarHash = userService.updateAvatar(userID, new ByteArrayInputStream(avatar));
+        String endpointAddress = API_ENDPOINT + "/" + userID + "/avatar";
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(
+                get(endpointAddress)
+                        .param("v", avatarHash)
+        );
+        
+        // Comprobar resultados
+        performAction
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + avatarHash + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age")))
+                .andExpect(content().bytes(avatar));
+    }
+    
+    @Test
+    public void testGetNotModifiedAvatar_GET() throws Exception {
+        // Crear datos de prueba
+        AuthenticatedUserDto authUserDto = createAuthenticatedUser(DEFAULT_NICKNAME);
+        UUID userID = authUserDto.getUserDTO().getUserID();
+        String avatarHash = userService.updateAvatar(userID, new ByteArrayInputStream(generateValidAvatar(64, 64)));
+        String endpointAddress = API_ENDPOINT + "/" + userID + "/avatar";
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(
+                get(endpointAddress)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + avatarHash + "\"")
+        );
+        
+        // Comprobar resultados
+        performAction
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+    
+    @Test
+    public void testGetAvatarRange_GET() throws Exception {
+        // Crear datos de prueba
+        AuthenticatedUserDto authUserDto = createAuthenticatedUser(DEFAULT_NICKNAME);
+        UUID userID = authUserDto.getUserDTO().getUserID();
+        byte[] avatar = generateValidAvatar(64, 64);
+        userService.updateAvatar(userID, new ByteArrayInputStream(avatar));
+        String endpointAddress = API_ENDPOINT + "/" + userID + "/avatar";
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(
+                get(endpointAddress)
+                        .header(HttpHeaders.RANGE, "bytes=0-7")
+        );
+        
+        // Comprobar resultados
+        performAction
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-7/" + avatar.length))
+                .andExpect(content().bytes(Arrays.copyOfRange(avatar, 0, 8)));
+    }
+    
+    @Test
+    public void testGetNonExistentAvatar_GET() throws Exception {
+        // Crear datos de prueba
+        AuthenticatedUserDto authUserDto = createAuthenticatedUser(DEFAULT_NICKNAME);
+        String endpointAddress = API_ENDPOINT + "/" + authUserDto.getUserDTO().getUserID() + "/avatar";
+        
+        // Ejecutar funcionalidades
+        var performAction = mockMvc.perform(get(endpointAddress));
+        
+        // Comprobar resultados
+        performAction.andExpect(status().isNotFound());
+    }
 }
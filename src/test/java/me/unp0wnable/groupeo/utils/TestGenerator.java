@@ -5,6 +5,13 @@ import me.unp0wnable.groupeo.model.entities.UserAddress;
 import me.unp0wnable.groupeo.model.entities.UserProfile;
 import me.unp0wnable.groupeo.model.entities.UserProfile.UserRoles;
 
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -43,7 +50,7 @@ public class TestGenerator {
         user.setDescription("A brief description of myself");
         user.setNickName(nickName);
         user.setPassword(DEFAULT_PASSWORD);
-        user.setImageB64(null);
+        user.setAvatarHash(null);
         user.setScore((float) 0);
         user.setRole(UserRoles.USER);
         
@@ -60,6 +67,23 @@ public class TestGenerator {
     }
     
     
+    /** Genera una imagen PNG válida de las dimensiones indicadas */
+    public static byte[] generateValidAvatar(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
     public static Date parseDate(String date) {
         try {
             return new SimpleDateFormat("yyyy-MM-dd").parse(date);